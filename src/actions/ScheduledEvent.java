@@ -7,16 +7,40 @@ import asset.Asset;
 import inspect.Inspectable;
 import script.values.ScriptTemplate_Abstract;
 
+/**
+ * An event of a {@link Scheduler}. Events are ordered by their time, and then
+ * by the order they were scheduled in.
+ *
+ * @author Aaron Faanes
+ */
 @Inspectable
 public class ScheduledEvent implements Comparable<ScheduledEvent> {
 	private final long time;
 	private final Asset asset;
 	private final ScriptTemplate_Abstract listener;
+	private final Object conflictKey;
+
+	/**
+	 * The position of this event in its {@link TimingWheel}.
+	 */
+	long sequence;
+	TimingWheel.Bucket bucket;
+	ScheduledEvent previous, next;
 
 	public ScheduledEvent(final long time, final Asset asset, final ScriptTemplate_Abstract listener) {
+		this(time, asset, listener, null);
+	}
+
+	/**
+	 * @param conflictKey
+	 *            the key of the events whose listeners must not be called at
+	 *            the same time as this one's, or {@code null} to use the asset
+	 */
+	public ScheduledEvent(final long time, final Asset asset, final ScriptTemplate_Abstract listener, final Object conflictKey) {
 		this.time = time;
 		this.asset = asset;
 		this.listener = listener;
+		this.conflictKey = conflictKey;
 	}
 
 	@Inspectable
@@ -34,12 +58,25 @@ public class ScheduledEvent implements Comparable<ScheduledEvent> {
 		return this.listener;
 	}
 
+	/**
+	 * Returns the key of the events whose listeners must not be called at the
+	 * same time as this one's. Events without an explicit key conflict with
+	 * the other events of their asset.
+	 */
+	@Inspectable
+	public Object getConflictKey() {
+		return this.conflictKey != null ? this.conflictKey : this.asset;
+	}
+
 	@Override
 	public int compareTo(ScheduledEvent o) {
-		if (this.time > o.getTime()) {
-			return 1;
+		if (this.time != o.getTime()) {
+			return this.time > o.getTime() ? 1 : -1;
+		}
+		if (this.sequence != o.sequence) {
+			return this.sequence > o.sequence ? 1 : -1;
 		}
-		return this.time == o.getTime() ? 0 : -1;
+		return 0;
 	}
 
 }
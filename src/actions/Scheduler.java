@@ -1,82 +1,310 @@
 package actions;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
-
-import javax.swing.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import asset.Asset;
 import inspect.Inspectable;
 import logging.Logs;
+import logic.actors.LongActor;
 import script.Conversions;
 import script.ScriptEnvironment;
+import script.TimeSlicer;
 import script.exceptions.InternalException;
 import script.exceptions.ScriptException;
 import script.operations.ScriptExecutable_CallFunction;
 import script.values.ScriptTemplate_Abstract;
 import script.values.ScriptValue;
+import timing.ClockThread;
+import timing.FixedStepClock;
+import timing.SystemClock;
+import timing.Timing;
 
+/**
+ * Calls the listeners of scheduled events as game time passes.
+ * <p>
+ * Pending events are kept in a {@link TimingWheel}, so each tick only visits
+ * the events that have come due, however many are pending. Due events are
+ * called in the order of their time, and events that share a time are called
+ * in the order they were scheduled. An event that is scheduled while events
+ * are being called is not called before the next tick.
+ * <p>
+ * Game time is driven by a {@link FixedStepClock} on a {@link ClockThread} of
+ * its own, so listeners are called on that thread, rather than on the event
+ * dispatch thread, and every tick advances game time by the same
+ * {@link #STEP}, scaled by the compression. If ticks fall behind, at most
+ * {@link #MAX_STEPS} are caught up on at once. Events may be scheduled and
+ * cancelled from any thread. Due events may also be called
+ * {@link #setParallel(boolean) in parallel}, grouped by their conflict keys,
+ * and optionally {@link #setTimeSlicer(TimeSlicer) time-sliced}.
+ *
+ * @author Aaron Faanes
+ */
 @Inspectable
-public class Scheduler implements ActionListener {
-	private Timer timer;
-	private ScriptTemplate_Abstract defaultListener;
-	private SortedSet<ScheduledEvent> events = new TreeSet<ScheduledEvent>();
-	private List<ScheduledEvent> tempList = new LinkedList<ScheduledEvent>();
+public class Scheduler {
+	/**
+	 * The game time that passes in each tick, before compression, in
+	 * milliseconds.
+	 */
+	public static final long STEP = 10;
+
+	/**
+	 * The most ticks that are run to catch up with the system clock at once.
+	 */
+	public static final int MAX_STEPS = 5;
+
+	private final SystemClock source = Timing.nanos();
+	private final FixedStepClock clock = new FixedStepClock(this.source, TimeUnit.MILLISECONDS.toNanos(STEP), MAX_STEPS);
+	private final ClockThread thread = new ClockThread(this.source, STEP, TimeUnit.MILLISECONDS);
+	private volatile ScriptTemplate_Abstract defaultListener;
+	private final TimingWheel events = new TimingWheel(0);
+	private final List<ScriptValue> params = new ArrayList<ScriptValue>(2);
 	private ScriptEnvironment environment;
-	private long lastIteration = -1;
-	private long gameTime;
-	private double compression;
-	private boolean inProgress;
+	private volatile long lastIteration = -1;
+	private volatile long gameTime;
+	private volatile double compression;
+	private volatile boolean parallel;
+	private volatile TimeSlicer slicer;
+
+	/**
+	 * The partition of every event without a listener of its own in parallel
+	 * mode. They all call the default listener, so they must not run at the
+	 * same time as each other.
+	 */
+	private static final Object DEFAULT_LISTENER_KEY = new Object();
+
+	/**
+	 * The events scheduled by the current thread's partition of a parallel
+	 * tick, which are added once the tick's partitions have all completed.
+	 */
+	private final ThreadLocal<List<ScheduledEvent>> heldEvents = new ThreadLocal<List<ScheduledEvent>>();
+
+	/**
+	 * The fraction of a millisecond of game time that the last tick did not
+	 * pass on.
+	 */
+	private double carried;
 
 	public Scheduler(ScriptEnvironment env) {
 		this.environment = env;
-		this.timer = new Timer(10, this);
 		this.compression = 1.0d;
-		env.addTimer(this.timer);
+		this.clock.listen(new LongActor() {
+			@Override
+			public void receive(long nanos) {
+				Scheduler.this.tick(nanos);
+			}
+		});
+		env.addClock(this.thread);
 	}
 
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		long differential = (long) (((this.getCurrentTime() - this.lastIteration)) * this.compression);
+	/**
+	 * Passes the specified time, and calls the listeners of every event that
+	 * has come due.
+	 *
+	 * @param nanos
+	 *            the time that has passed, before compression
+	 */
+	void tick(long nanos) {
+		double elapsed = nanos / 1000000d * this.compression + this.carried;
+		long differential = (long) elapsed;
+		this.carried = elapsed - differential;
 		this.lastIteration = this.getCurrentTime();
-		this.gameTime += differential;
-		List<ScriptValue> params = new LinkedList<ScriptValue>();
+		synchronized (this.events) {
+			this.gameTime += differential;
+			this.events.advance(this.gameTime);
+		}
 		try {
-			this.inProgress = true;
-			Iterator<ScheduledEvent> iter = this.events.iterator();
-			while (iter.hasNext()) {
-				ScheduledEvent event = iter.next();
-				if (event.getTime() <= this.gameTime) {
-					assert Logs.openNode("Event Iteration", "Iterating event");
-					assert Logs.addNode(event);
-					ScriptTemplate_Abstract listener = event.getListener();
-					if (listener == null) {
-						listener = this.getDefaultListener();
-					}
-					params.clear();
-					params.add(Conversions.wrapLong(this.getEnvironment(), differential));
-					params.add(Conversions.wrapAsset(this.getEnvironment(), event.getAsset()));
-					ScriptExecutable_CallFunction.callFunction(this.getEnvironment(), null, listener, "iterate", params);
-					assert Logs.closeNode();
-					iter.remove();
-				}
+			if (this.parallel) {
+				this.dispatchInParallel(differential);
+				return;
 			}
-			this.inProgress = false;
-			for (ScheduledEvent event : this.tempList) {
-				this.events.add(event);
+			while (true) {
+				ScheduledEvent event;
+				synchronized (this.events) {
+					event = this.events.poll();
+				}
+				if (event == null) {
+					break;
+				}
+				this.dispatch(event, differential, this.params);
 			}
-			this.tempList.clear();
 		} catch (ScriptException exception) {
 			throw new InternalException(this.getEnvironment(), exception);
 		}
 	}
 
+	private void dispatch(ScheduledEvent event, long differential, List<ScriptValue> params) throws ScriptException {
+		assert Logs.openNode("Event Iteration", "Iterating event");
+		assert Logs.addNode(event);
+		ScriptTemplate_Abstract listener = event.getListener();
+		if (listener == null) {
+			listener = this.getDefaultListener();
+		}
+		params.clear();
+		params.add(Conversions.wrapLong(this.getEnvironment(), differential));
+		params.add(Conversions.wrapAsset(this.getEnvironment(), event.getAsset()));
+		ScriptExecutable_CallFunction.callFunction(this.getEnvironment(), null, listener, "iterate", params);
+		assert Logs.closeNode();
+	}
+
+	/**
+	 * Calls the listeners of every due event, with the events of each
+	 * conflict key in a task of their own.
+	 * <p>
+	 * Tasks are run on the time slicer if there is one, and on a
+	 * work-stealing pool otherwise. Each task calls its events in order. Events that the listeners schedule are held back until every
+	 * task has completed, and are then added in the order of the tasks, so
+	 * the events of the next tick don't depend on how the tasks were run. If
+	 * any tasks fail, the others still complete, and the failure of the
+	 * earliest task is thrown.
+	 */
+	private void dispatchInParallel(final long differential) throws ScriptException {
+		Map<Object, List<ScheduledEvent>> partitions = new LinkedHashMap<Object, List<ScheduledEvent>>();
+		synchronized (this.events) {
+			ScheduledEvent event;
+			while ((event = this.events.poll()) != null) {
+				Object key = getPartitionKey(event);
+				List<ScheduledEvent> partition = partitions.get(key);
+				if (partition == null) {
+					partition = new ArrayList<ScheduledEvent>();
+					partitions.put(key, partition);
+				}
+				partition.add(event);
+			}
+		}
+		if (partitions.isEmpty()) {
+			return;
+		}
+		assert Logs.openNode("Event Iteration", "Iterating events in parallel (" + partitions.size() + " partition(s))");
+		List<Callable<List<ScheduledEvent>>> tasks = new ArrayList<Callable<List<ScheduledEvent>>>(partitions.size());
+		for (final List<ScheduledEvent> partition : partitions.values()) {
+			tasks.add(new Callable<List<ScheduledEvent>>() {
+				@Override
+				public List<ScheduledEvent> call() throws ScriptException {
+					return Scheduler.this.dispatchPartition(partition, differential);
+				}
+			});
+		}
+		List<Future<List<ScheduledEvent>>> futures;
+		TimeSlicer slicer = this.slicer;
+		if (slicer == null) {
+			futures = ForkJoinPool.commonPool().invokeAll(tasks);
+		} else {
+			futures = new ArrayList<Future<List<ScheduledEvent>>>(tasks.size());
+			for (Callable<List<ScheduledEvent>> task : tasks) {
+				futures.add(slicer.submit(task));
+			}
+		}
+		ScriptException failure = null;
+		synchronized (this.events) {
+			for (Future<List<ScheduledEvent>> future : futures) {
+				try {
+					for (ScheduledEvent scheduled : future.get()) {
+						this.events.add(scheduled);
+					}
+				} catch (ExecutionException ex) {
+					if (failure == null) {
+						failure = this.unwrap(ex);
+					}
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new InternalException(this.getEnvironment(), "Interrupted during parallel event iteration");
+				}
+			}
+		}
+		assert Logs.closeNode();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns the key of the partition that the specified event is called in
+	 * during a parallel tick. Events that call the default listener share a
+	 * single partition, whatever their conflict keys.
+	 */
+	static Object getPartitionKey(ScheduledEvent event) {
+		if (event.getListener() == null) {
+			return DEFAULT_LISTENER_KEY;
+		}
+		return event.getConflictKey();
+	}
+
+	/**
+	 * Calls the listeners of the specified events, in order.
+	 *
+	 * @return the events that the listeners scheduled
+	 */
+	private List<ScheduledEvent> dispatchPartition(List<ScheduledEvent> partition, long differential) throws ScriptException {
+		List<ScheduledEvent> scheduled = new ArrayList<ScheduledEvent>();
+		List<ScriptValue> params = new ArrayList<ScriptValue>(2);
+		this.heldEvents.set(scheduled);
+		boolean completed = false;
+		try {
+			for (ScheduledEvent event : partition) {
+				this.dispatch(event, differential, params);
+			}
+			completed = true;
+			return scheduled;
+		} finally {
+			this.heldEvents.remove();
+			if (!completed) {
+				// Pooled threads are reused, so a failed call must not leave
+				// its frames behind.
+				this.getEnvironment().clearStacks();
+			}
+		}
+	}
+
+	private ScriptException unwrap(ExecutionException ex) {
+		Throwable cause = ex.getCause();
+		if (cause instanceof ScriptException) {
+			return (ScriptException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new InternalException(this.getEnvironment(), "Unexpected exception during parallel event iteration: " + cause);
+	}
+
+	/**
+	 * Removes the specified event, so that its listener is not called.
+	 *
+	 * @return {@code true} if the event was pending, or {@code false} if its
+	 *         listener has already been called. In parallel mode, the events
+	 *         of a tick can no longer be cancelled once the tick has begun,
+	 *         and events scheduled during a tick can only be cancelled by the
+	 *         task that scheduled them until the tick ends.
+	 */
+	public boolean cancel(ScheduledEvent event) {
+		boolean cancelled;
+		List<ScheduledEvent> held = this.heldEvents.get();
+		if (held != null && held.remove(event)) {
+			cancelled = true;
+		} else {
+			synchronized (this.events) {
+				cancelled = this.events.remove(event);
+			}
+		}
+		if (cancelled) {
+			assert Logs.addSnapNode("Scheduler Additions", "Cancelled scheduled event", event);
+		}
+		return cancelled;
+	}
+
 	@Inspectable
 	public long getLastIteration() {
 		return this.lastIteration;
@@ -96,42 +324,148 @@ public class Scheduler implements ActionListener {
 		return System.currentTimeMillis();
 	}
 
+	/**
+	 * Returns how far game time has progressed towards the next tick, for
+	 * interpolating what is drawn between the last two ticks.
+	 *
+	 * @see FixedStepClock#getAlpha()
+	 */
+	@Inspectable
+	public double getAlpha() {
+		return this.clock.getAlpha();
+	}
+
 	@Inspectable
 	public ScriptTemplate_Abstract getDefaultListener() {
 		return this.defaultListener;
 	}
 
+	/**
+	 * Returns a snapshot of the pending events, in the order their listeners
+	 * would be called.
+	 */
 	@Inspectable
 	public SortedSet<ScheduledEvent> getEvents() {
-		return Collections.unmodifiableSortedSet(this.events);
+		synchronized (this.events) {
+			return Collections.unmodifiableSortedSet(new TreeSet<ScheduledEvent>(this.events.getEvents()));
+		}
+	}
+
+	@Inspectable
+	public int getPendingCount() {
+		synchronized (this.events) {
+			return this.events.size();
+		}
 	}
 
 	private ScriptEnvironment getEnvironment() {
 		return this.environment;
 	}
 
-	public void schedule(long time, Asset asset, ScriptTemplate_Abstract listener) {
-		ScheduledEvent event = new ScheduledEvent(this.getCurrentGameTime() + time, asset, listener);
-		assert Logs.addSnapNode("Scheduler Additions", "Adding event to scheduler", event);
-		if (this.inProgress) {
-			this.tempList.add(event);
+	/**
+	 * Schedules the specified listener to be called once the specified time
+	 * has passed. The event's conflict key is its asset.
+	 *
+	 * @return the scheduled event, which may be {@link #cancel(ScheduledEvent)
+	 *         cancelled}
+	 */
+	public ScheduledEvent schedule(long time, Asset asset, ScriptTemplate_Abstract listener) {
+		return this.schedule(time, asset, listener, null);
+	}
+
+	/**
+	 * Schedules the specified listener to be called once the specified time
+	 * has passed.
+	 *
+	 * @param conflictKey
+	 *            the key that is shared by every event whose listener must not
+	 *            run at the same time as this one's, or {@code null} to use
+	 *            the asset
+	 * @return the scheduled event, which may be {@link #cancel(ScheduledEvent)
+	 *         cancelled}
+	 * @see #setParallel(boolean)
+	 */
+	public ScheduledEvent schedule(long time, Asset asset, ScriptTemplate_Abstract listener, Object conflictKey) {
+		ScheduledEvent event;
+		List<ScheduledEvent> held = this.heldEvents.get();
+		if (held != null) {
+			event = new ScheduledEvent(this.gameTime + time, asset, listener, conflictKey);
+			held.add(event);
 		} else {
-			this.events.add(event);
+			synchronized (this.events) {
+				event = new ScheduledEvent(this.gameTime + time, asset, listener, conflictKey);
+				this.events.add(event);
+			}
 		}
+		assert Logs.addSnapNode("Scheduler Additions", "Adding event to scheduler", event);
+		return event;
+	}
+
+	@Inspectable
+	public boolean isParallel() {
+		return this.parallel;
+	}
+
+	/**
+	 * Sets whether due events are called in parallel.
+	 * <p>
+	 * In parallel mode, the due events of each tick are partitioned by their
+	 * conflict key, and the events of each partition are called in order, on
+	 * a thread of the common fork-join pool, while other partitions run
+	 * alongside. Listeners of different partitions must therefore not share
+	 * script objects that either of them modifies. Events without a listener
+	 * of their own all call the default listener, so they share one partition
+	 * whatever their conflict keys. Every partition completes before the next
+	 * tick begins.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	@Inspectable
+	public TimeSlicer getTimeSlicer() {
+		return this.slicer;
+	}
+
+	/**
+	 * Sets the time slicer that runs the partitions of parallel ticks, or
+	 * removes it if {@code slicer} is {@code null}. With a slicer, a
+	 * partition with long-running listeners yields to the other partitions,
+	 * rather than holding a processor until it completes. The tick still
+	 * waits for every partition. Serial ticks are not affected.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the slicer runs calls in another environment
+	 * @see #setParallel(boolean)
+	 */
+	public void setTimeSlicer(TimeSlicer slicer) {
+		if (slicer != null && slicer.getEnvironment() != this.getEnvironment()) {
+			throw new IllegalArgumentException("The time slicer must share the scheduler's environment");
+		}
+		this.slicer = slicer;
 	}
 
 	public void setDefaultListener(ScriptTemplate_Abstract defaulter) {
 		this.defaultListener = defaulter;
 	}
 
+	/**
+	 * Starts passing game time from zero. Pending events keep their times, so
+	 * after a restart they come due once game time reaches them again.
+	 */
 	public void start() {
-		this.timer.start();
 		this.lastIteration = this.getCurrentTime();
-		this.gameTime = 0;
+		synchronized (this.events) {
+			this.gameTime = 0;
+			this.events.reset(0);
+		}
+		this.clock.reset();
+		this.source.prime();
+		this.thread.start();
 	}
 
 	public void stop() {
-		this.timer.stop();
+		this.thread.stop();
 	}
 
 }
@@ -0,0 +1,325 @@
+/**
+ *
+ */
+package actions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The pending events of a {@link Scheduler}, kept in a hierarchical timing
+ * wheel.
+ * <p>
+ * The wheel has {@link #LEVELS} levels of {@link #SLOTS} buckets each. A bucket
+ * of the lowest level holds the events of a single millisecond of game time,
+ * and a bucket of each higher level spans all the buckets of the level below.
+ * An event is placed in the lowest level whose span holds both its deadline
+ * and the wheel's current time, so scheduling takes constant time. As time
+ * passes, the buckets of higher levels are emptied into the lower ones, and
+ * only the buckets that come due are visited; an occupancy mask of each level
+ * lets empty buckets be skipped without looking at them. Events that are
+ * further away than the highest level spans wait in an overflow bucket.
+ * <p>
+ * Each bucket is a list that is linked through its events, so an event can be
+ * cancelled in constant time, even once it has come due and is waiting to be
+ * polled. Events that share a deadline are kept apart, and come due in the
+ * order they were scheduled.
+ * <p>
+ * This class is not synchronized.
+ *
+ * @author Aaron Faanes
+ * @see ScheduledEvent
+ */
+final class TimingWheel {
+	/**
+	 * The number of bits of game time that each level spans.
+	 */
+	private static final int BITS = 6;
+
+	static final int SLOTS = 1 << BITS;
+
+	static final int LEVELS = 6;
+
+	/**
+	 * A list of events, linked through the events themselves.
+	 */
+	static final class Bucket {
+		private ScheduledEvent head, tail;
+
+		private final int level, slot;
+
+		Bucket(int level, int slot) {
+			this.level = level;
+			this.slot = slot;
+		}
+
+		boolean isEmpty() {
+			return this.head == null;
+		}
+	}
+
+	private final Bucket[][] buckets = new Bucket[LEVELS][SLOTS];
+	private final long[] occupied = new long[LEVELS];
+
+	/**
+	 * Events that were due when they were scheduled. They come due on the
+	 * next advance, rather than immediately, so an event that is scheduled
+	 * while due events are polled is not polled along with them.
+	 */
+	private final Bucket expired = new Bucket(-1, -1);
+
+	/**
+	 * Events that have come due, and have not yet been polled, in order.
+	 */
+	private final Bucket due = new Bucket(-1, -1);
+
+	/**
+	 * Events that are beyond the span of every level.
+	 */
+	private final Bucket overflow = new Bucket(LEVELS, -1);
+
+	/**
+	 * The events that come due during an advance, reused by every advance.
+	 */
+	private final List<ScheduledEvent> coming = new ArrayList<ScheduledEvent>();
+
+	private long currentTime;
+	private long nextSequence;
+	private int size;
+
+	TimingWheel(long currentTime) {
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				this.buckets[level][slot] = new Bucket(level, slot);
+			}
+		}
+		this.currentTime = currentTime;
+	}
+
+	long getCurrentTime() {
+		return this.currentTime;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Adds the specified event to this wheel. An event whose deadline has
+	 * already passed comes due on the next advance.
+	 *
+	 * @throws IllegalStateException
+	 *             if the event is already pending
+	 */
+	void add(ScheduledEvent event) {
+		if (event.bucket != null) {
+			throw new IllegalStateException("Event is already scheduled");
+		}
+		event.sequence = this.nextSequence++;
+		this.place(event);
+		this.size++;
+	}
+
+	/**
+	 * Removes the specified event from this wheel.
+	 *
+	 * @return {@code true} if the event was pending, or {@code false} if it
+	 *         was already polled or was never added
+	 */
+	boolean remove(ScheduledEvent event) {
+		Bucket bucket = event.bucket;
+		if (bucket == null) {
+			return false;
+		}
+		this.unlink(bucket, event);
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Advances this wheel to the specified time, so that every event that is
+	 * due by then may be {@link #poll() polled}.
+	 */
+	void advance(long time) {
+		List<ScheduledEvent> due = this.coming;
+		this.drain(this.due, due);
+		this.drain(this.expired, due);
+		Bucket bucket;
+		while ((bucket = this.getNextBucket()) != null) {
+			long start = this.getStart(bucket);
+			if (start > time) {
+				break;
+			}
+			this.currentTime = start;
+			ScheduledEvent event = bucket.head;
+			this.clear(bucket);
+			while (event != null) {
+				ScheduledEvent next = event.next;
+				if (event.getTime() <= start) {
+					due.add(event);
+				} else {
+					this.place(event);
+				}
+				event = next;
+			}
+		}
+		if (time > this.currentTime) {
+			this.currentTime = time;
+		}
+		Collections.sort(due);
+		for (ScheduledEvent event : due) {
+			this.link(this.due, event);
+		}
+		due.clear();
+	}
+
+	/**
+	 * Moves this wheel to the specified time, which may be earlier than its
+	 * current time. Pending events keep their deadlines, so an event whose
+	 * deadline is after the new time is no longer due, and waits until the
+	 * wheel has advanced to it again.
+	 */
+	void reset(long time) {
+		List<ScheduledEvent> events = this.getEvents();
+		for (ScheduledEvent event : events) {
+			this.unlink(event.bucket, event);
+		}
+		this.currentTime = time;
+		for (ScheduledEvent event : events) {
+			this.place(event);
+		}
+	}
+
+	/**
+	 * Removes the first event that came due by the last advance.
+	 *
+	 * @return the removed event, or {@code null} if no event is due. Events
+	 *         are returned by deadline, and then in the order they were
+	 *         scheduled.
+	 */
+	ScheduledEvent poll() {
+		ScheduledEvent event = this.due.head;
+		if (event != null) {
+			this.remove(event);
+		}
+		return event;
+	}
+
+	/**
+	 * Returns the pending events, in no particular order.
+	 */
+	List<ScheduledEvent> getEvents() {
+		List<ScheduledEvent> events = new ArrayList<ScheduledEvent>(this.size);
+		this.collect(this.due, events);
+		this.collect(this.expired, events);
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				this.collect(this.buckets[level][slot], events);
+			}
+		}
+		this.collect(this.overflow, events);
+		return events;
+	}
+
+	private void collect(Bucket bucket, List<ScheduledEvent> events) {
+		for (ScheduledEvent event = bucket.head; event != null; event = event.next) {
+			events.add(event);
+		}
+	}
+
+	private void drain(Bucket bucket, List<ScheduledEvent> due) {
+		ScheduledEvent event = bucket.head;
+		this.clear(bucket);
+		while (event != null) {
+			ScheduledEvent next = event.next;
+			due.add(event);
+			event = next;
+		}
+	}
+
+	/**
+	 * Returns the bucket that comes due first, or {@code null} if this wheel
+	 * holds no events that are not yet due. Buckets of lower levels always
+	 * come due before those of higher ones, since a higher level only holds
+	 * events beyond the span of the levels below it.
+	 */
+	private Bucket getNextBucket() {
+		for (int level = 0; level < LEVELS; level++) {
+			long mask = this.occupied[level];
+			if (mask != 0) {
+				return this.buckets[level][Long.numberOfTrailingZeros(mask)];
+			}
+		}
+		return this.overflow.isEmpty() ? null : this.overflow;
+	}
+
+	/**
+	 * Returns the time at which the specified bucket must be emptied. The
+	 * overflow bucket is emptied once the current time reaches the next span
+	 * of the highest level, since its events are spread over later spans.
+	 */
+	private long getStart(Bucket bucket) {
+		if (bucket == this.overflow) {
+			int shift = BITS * LEVELS;
+			return (this.currentTime >>> shift << shift) + (1L << shift);
+		}
+		int shift = BITS * (bucket.level + 1);
+		return this.currentTime >>> shift << shift | (long) bucket.slot << BITS * bucket.level;
+	}
+
+	private void place(ScheduledEvent event) {
+		long time = event.getTime();
+		if (time <= this.currentTime) {
+			this.link(this.expired, event);
+			return;
+		}
+		int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(time ^ this.currentTime)) / BITS;
+		if (level >= LEVELS) {
+			this.link(this.overflow, event);
+			return;
+		}
+		int slot = (int) (time >>> BITS * level) & (SLOTS - 1);
+		this.link(this.buckets[level][slot], event);
+		this.occupied[level] |= 1L << slot;
+	}
+
+	private void link(Bucket bucket, ScheduledEvent event) {
+		event.bucket = bucket;
+		event.previous = bucket.tail;
+		event.next = null;
+		if (bucket.tail == null) {
+			bucket.head = event;
+		} else {
+			bucket.tail.next = event;
+		}
+		bucket.tail = event;
+	}
+
+	private void unlink(Bucket bucket, ScheduledEvent event) {
+		if (event.previous == null) {
+			bucket.head = event.next;
+		} else {
+			event.previous.next = event.next;
+		}
+		if (event.next == null) {
+			bucket.tail = event.previous;
+		} else {
+			event.next.previous = event.previous;
+		}
+		event.bucket = null;
+		event.next = null;
+		event.previous = null;
+		if (bucket.isEmpty() && bucket.level >= 0 && bucket.level < LEVELS) {
+			this.occupied[bucket.level] &= ~(1L << bucket.slot);
+		}
+	}
+
+	private void clear(Bucket bucket) {
+		bucket.head = null;
+		bucket.tail = null;
+		if (bucket.level >= 0 && bucket.level < LEVELS) {
+			this.occupied[bucket.level] &= ~(1L << bucket.slot);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package asset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import geom.DiscreteRegion;
+import geom.Polygons;
+import geom.points.Point;
+import geom.points.PointPath;
+import geom.points.Points;
+import script.Conversions;
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.exceptions.UnexpectedTypeException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+
+/**
+ * An A* search for the cheapest route between two points of a terrestrial,
+ * over the graph of its regions' neighbors.
+ * <p>
+ * A route crosses from one region to the next through their shared edge. It
+ * crosses at the point of the edge that the straight line towards the
+ * destination passes through, or else at the end of the edge nearest that
+ * line. Crossing a region costs the distance travelled within it, times the
+ * region's movement cost, which is evaluated once per region by calling the
+ * evaluator's {@code evaluateMovementCost} function.
+ * <p>
+ * The remaining cost of a route is estimated as the straight-line distance to
+ * the destination, times the minimum movement cost that the evaluator declares
+ * with its optional {@code getMinimumMovementCost} function. An evaluator that
+ * declares no minimum gets no estimate, and the search finds the cheapest
+ * route without one. Either way, only the regions that the search reaches are
+ * evaluated, and a region that costs less than the declared minimum is
+ * rejected, so the estimate never overstates the remaining cost. A region that
+ * has already been expanded is expanded again if a cheaper route reaches it,
+ * since the point where a route enters a region depends on the route.
+ * <p>
+ * Regions are numbered as they're reached, and every per-region value is kept
+ * in an array by that number. A search is used once, by a single thread.
+ *
+ * @author Aaron Faanes
+ * @see Terrestrial#getPath(ScriptEnvironment, Scenario, ScriptTemplate_Abstract, Asset, Point, Point)
+ */
+final class PathSearch {
+	/**
+	 * The regions whose routes are pending, as a binary heap of region
+	 * numbers that is ordered by their estimated total costs.
+	 */
+	private static final class OpenSet {
+		private int[] heap = new int[16];
+		private int[] positions = new int[16];
+		private double[] keys = new double[16];
+		private int size;
+
+		OpenSet() {
+			Arrays.fill(this.positions, -1);
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		double peekKey() {
+			return this.keys[this.heap[0]];
+		}
+
+		/**
+		 * Adds the specified region, or moves it to the specified key if it's
+		 * already pending.
+		 */
+		void offer(int region, double key) {
+			if (region >= this.positions.length) {
+				int length = Math.max(region + 1, this.positions.length * 2);
+				int oldLength = this.positions.length;
+				this.positions = Arrays.copyOf(this.positions, length);
+				Arrays.fill(this.positions, oldLength, length, -1);
+				this.keys = Arrays.copyOf(this.keys, length);
+			}
+			this.keys[region] = key;
+			int position = this.positions[region];
+			if (position < 0) {
+				if (this.size == this.heap.length) {
+					this.heap = Arrays.copyOf(this.heap, this.size * 2);
+				}
+				position = this.size++;
+				this.heap[position] = region;
+				this.positions[region] = position;
+			}
+			this.siftUp(position);
+			this.siftDown(this.positions[region]);
+		}
+
+		int poll() {
+			int region = this.heap[0];
+			this.positions[region] = -1;
+			this.size--;
+			if (this.size > 0) {
+				this.heap[0] = this.heap[this.size];
+				this.positions[this.heap[0]] = 0;
+				this.siftDown(0);
+			}
+			return region;
+		}
+
+		private void siftUp(int position) {
+			int region = this.heap[position];
+			double key = this.keys[region];
+			while (position > 0) {
+				int parent = (position - 1) >>> 1;
+				if (this.keys[this.heap[parent]] <= key) {
+					break;
+				}
+				this.move(this.heap[parent], position);
+				position = parent;
+			}
+			this.move(region, position);
+		}
+
+		private void siftDown(int position) {
+			int region = this.heap[position];
+			double key = this.keys[region];
+			int half = this.size >>> 1;
+			while (position < half) {
+				int child = 2 * position + 1;
+				if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+					child++;
+				}
+				if (key <= this.keys[this.heap[child]]) {
+					break;
+				}
+				this.move(this.heap[child], position);
+				position = child;
+			}
+			this.move(region, position);
+		}
+
+		private void move(int region, int position) {
+			this.heap[position] = region;
+			this.positions[region] = position;
+		}
+	}
+
+	private final ScriptEnvironment environment;
+	private final ScriptTemplate_Abstract evaluator;
+	private final Asset asset;
+
+	private final Map<DiscreteRegion, Integer> numbers = new IdentityHashMap<DiscreteRegion, Integer>();
+	private final List<DiscreteRegion> regions = new ArrayList<DiscreteRegion>();
+	private double[] movementCosts = new double[16];
+	private double[] costs = new double[16];
+	private int[] parents = new int[16];
+	private Point[] points = new Point[16];
+	private final OpenSet open = new OpenSet();
+
+	/**
+	 * The minimum movement cost of any region, as declared by the evaluator.
+	 */
+	private double minimumCost;
+
+	PathSearch(ScriptEnvironment env, ScriptTemplate_Abstract evaluator, Asset asset) {
+		this.environment = env;
+		this.evaluator = evaluator;
+		this.asset = asset;
+	}
+
+	/**
+	 * Finds the cheapest route from the start point to the destination.
+	 *
+	 * @throws NoSuchElementException
+	 *             if the destination can't be reached
+	 */
+	PointPath search(Scenario scenario, DiscreteRegion start, Point startPoint, DiscreteRegion destination, Point destinationPoint) throws ScriptException {
+		this.minimumCost = this.getMinimumCost();
+		int first = this.getNumber(start);
+		this.costs[first] = 0;
+		this.points[first] = startPoint;
+		this.open.offer(first, this.estimate(first, destinationPoint));
+		int best = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		while (!this.open.isEmpty()) {
+			if (this.open.peekKey() >= bestCost) {
+				break;
+			}
+			int current = this.open.poll();
+			DiscreteRegion region = this.regions.get(current);
+			Point point = this.points[current];
+			if (region == destination) {
+				// The destination's cost is exact, so the search ends once no
+				// pending route could be cheaper.
+				best = current;
+				bestCost = this.costs[current] + Points.getDistance(point, destinationPoint) * this.movementCosts[current];
+				continue;
+			}
+			for (DiscreteRegion neighbor : region.getNeighbors()) {
+				Point[] edge = Polygons.getAdjacentEdge(region, neighbor);
+				if (edge == null) {
+					continue;
+				}
+				int next = this.getNumber(neighbor);
+				Point crossing = getCrossing(edge[0], edge[1], point, destinationPoint);
+				double cost = this.costs[current] + Points.getDistance(point, crossing) * this.movementCosts[current];
+				if (cost < this.costs[next]) {
+					this.costs[next] = cost;
+					this.parents[next] = current;
+					this.points[next] = crossing;
+					this.open.offer(next, cost + this.estimate(next, destinationPoint));
+				}
+			}
+		}
+		if (best < 0) {
+			throw new NoSuchElementException("No route available");
+		}
+		LinkedList<Integer> route = new LinkedList<Integer>();
+		for (int i = best; i != first; i = this.parents[i]) {
+			route.addFirst(i);
+		}
+		route.addFirst(first);
+		PointPath path = new PointPath(scenario);
+		for (int i : route) {
+			path.addPoint(this.points[i], this.movementCosts[i]);
+		}
+		path.addPoint(destinationPoint, this.movementCosts[best]);
+		return path;
+	}
+
+	/**
+	 * Returns the minimum movement cost that the evaluator declares, or zero
+	 * if it declares none.
+	 */
+	private double getMinimumCost() throws ScriptException {
+		List<ScriptValue> params = new LinkedList<ScriptValue>();
+		params.add(Conversions.wrapAsset(this.environment, this.asset));
+		if (this.evaluator.getFunction("getMinimumMovementCost", params) == null) {
+			return 0;
+		}
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(this.environment, null, this.evaluator, "getMinimumMovementCost", params);
+		double minimumCost = Conversions.getDouble(this.environment, value);
+		if (!(minimumCost >= 0)) {
+			throw new UnexpectedTypeException(this.environment, minimumCost, "A non-negative minimum movement cost");
+		}
+		return minimumCost;
+	}
+
+	/**
+	 * Returns the number of the specified region, numbering it and evaluating
+	 * its movement cost if it hasn't been reached before.
+	 */
+	private int getNumber(DiscreteRegion region) throws ScriptException {
+		Integer known = this.numbers.get(region);
+		if (known != null) {
+			return known;
+		}
+		int number = this.regions.size();
+		List<ScriptValue> params = new LinkedList<ScriptValue>();
+		params.add(Conversions.wrapDiscreteRegion(this.environment, region));
+		params.add(Conversions.wrapAsset(this.environment, this.asset));
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(this.environment, null, this.evaluator, "evaluateMovementCost", params);
+		double movementCost = Conversions.getDouble(this.environment, value);
+		if (!(movementCost >= 0)) {
+			throw new UnexpectedTypeException(this.environment, movementCost, "A non-negative movement cost");
+		}
+		if (movementCost < this.minimumCost) {
+			throw new UnexpectedTypeException(this.environment, movementCost, "A movement cost of at least the declared minimum (" + this.minimumCost + ")");
+		}
+		if (number == this.costs.length) {
+			int length = number * 2;
+			this.movementCosts = Arrays.copyOf(this.movementCosts, length);
+			this.costs = Arrays.copyOf(this.costs, length);
+			this.parents = Arrays.copyOf(this.parents, length);
+			this.points = Arrays.copyOf(this.points, length);
+		}
+		this.numbers.put(region, number);
+		this.regions.add(region);
+		this.movementCosts[number] = movementCost;
+		this.costs[number] = Double.POSITIVE_INFINITY;
+		this.parents[number] = -1;
+		return number;
+	}
+
+	private double estimate(int region, Point destinationPoint) {
+		return Points.getDistance(this.points[region], destinationPoint) * this.minimumCost;
+	}
+
+	/**
+	 * Returns the point of the edge from {@code pointA} to {@code pointB} that
+	 * is on the shortest path from {@code source} to {@code target} that
+	 * passes through the edge.
+	 */
+	static Point getCrossing(Point pointA, Point pointB, Point source, Point target) {
+		double dx = pointB.getX() - pointA.getX();
+		double dy = pointB.getY() - pointA.getY();
+		double lengthSquared = dx * dx + dy * dy;
+		if (lengthSquared == 0) {
+			return pointA;
+		}
+		double sourceSide = dx * (source.getY() - pointA.getY()) - dy * (source.getX() - pointA.getX());
+		double tx = target.getX();
+		double ty = target.getY();
+		double targetSide = dx * (ty - pointA.getY()) - dy * (tx - pointA.getX());
+		if (sourceSide * targetSide > 0) {
+			// Reflects the target across the edge, so the straight line to it
+			// crosses the edge where the shortest path would touch it.
+			tx += 2 * dy * targetSide / lengthSquared;
+			ty -= 2 * dx * targetSide / lengthSquared;
+			targetSide = -targetSide;
+		}
+		double x, y;
+		if (sourceSide == targetSide) {
+			x = source.getX();
+			y = source.getY();
+		} else {
+			double fraction = sourceSide / (sourceSide - targetSide);
+			x = source.getX() + (tx - source.getX()) * fraction;
+			y = source.getY() + (ty - source.getY()) * fraction;
+		}
+		double along = ((x - pointA.getX()) * dx + (y - pointA.getY()) * dy) / lengthSquared;
+		along = Math.max(0, Math.min(1, along));
+		return Point.createPoint(pointA, pointA.getX() + along * dx, pointA.getY() + along * dy, 0.0d);
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ *
+ */
+package script;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import script.exceptions.ScriptException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.parsing.Compilation;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Measures how quickly the programs of the benchmark corpus are parsed and
+ * executed.
+ * <p>
+ * Every program is a single file in the corpus directory that defines a
+ * template with a static {@code run()} function returning an int. Each program
+ * is measured twice: "parse" preparses and parses the file into a new
+ * environment, and "execute" calls {@code run()} on an environment that was
+ * compiled once. The result of every call is checked, so a benchmark fails
+ * rather than measuring a broken interpreter.
+ * <p>
+ * Measurements follow the usual warmup-then-measure scheme: every benchmark
+ * runs for a number of warmup iterations, whose results are discarded, and
+ * then for a number of measured iterations. An iteration repeats the operation
+ * until its time has elapsed. The score is the mean time per operation over
+ * the measured iterations, and the error is their standard deviation.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java script.ScriptBenchmarks [-wi warmups] [-i iterations] [-r millis] [-d corpus] [pattern]
+ * </pre>
+ *
+ * Only benchmarks whose name contains a match for the pattern are run.
+ *
+ * @author Aaron Faanes
+ */
+public final class ScriptBenchmarks {
+
+	private static final String DEFAULT_CORPUS = "src/benchmarks/script/corpus";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * A program of the corpus, along with the value its {@code run()} function
+	 * must return.
+	 */
+	private static final class Program {
+		private final String filename;
+		private final String template;
+		private final int expected;
+
+		Program(String filename, String template, int expected) {
+			this.filename = filename;
+			this.template = template;
+			this.expected = expected;
+		}
+	}
+
+	private static final List<Program> PROGRAMS;
+	static {
+		List<Program> programs = new ArrayList<Program>();
+		programs.add(new Program("loops.riff", "Loops", 377429));
+		programs.add(new Program("recursion.riff", "Recursion", 2584));
+		programs.add(new Program("objects.riff", "Objects", 127750));
+		programs.add(new Program("faux.riff", "Faux", 1400));
+		programs.add(new Program("strings.riff", "Strings", 60));
+		PROGRAMS = Collections.unmodifiableList(programs);
+	}
+
+	/**
+	 * A single operation that is measured.
+	 */
+	private static abstract class Benchmark {
+		private final String name;
+
+		Benchmark(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Performs the operation once.
+		 *
+		 * @return the time the operation took, in nanoseconds
+		 */
+		abstract long run() throws Exception;
+	}
+
+	/**
+	 * Receives the result of every operation, so that no operation can be
+	 * optimized away.
+	 */
+	static volatile Object sink;
+
+	/**
+	 * Compiles the specified source into the specified environment.
+	 */
+	static void compile(ScriptEnvironment env, String filename, String source) throws IOException {
+		Compilation compilation = new Compilation(env);
+		List<Exception> exceptions = new ArrayList<Exception>();
+		exceptions.addAll(compilation.preparseFile(filename, new BufferedReader(new StringReader(source))));
+		if (exceptions.isEmpty()) {
+			exceptions.addAll(compilation.parseElements());
+		}
+		if (!exceptions.isEmpty()) {
+			throw new IllegalStateException(filename + " did not compile: " + exceptions);
+		}
+	}
+
+	/**
+	 * Initializes every template of the specified environment, as
+	 * {@link ScriptEnvironment#execute()} does before calling a program.
+	 */
+	static void initialize(ScriptEnvironment env) throws ScriptException {
+		env.clearStacks();
+		for (ScriptTemplate_Abstract template : env.getTemplates().values()) {
+			template.initialize();
+		}
+	}
+
+	static int call(ScriptEnvironment env, ScriptTemplate_Abstract template) throws ScriptException {
+		List<ScriptValue> params = Collections.emptyList();
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(env, null, template, "run", params);
+		return ((ScriptValue_Numeric) value.getValue()).intValue();
+	}
+
+	private static Benchmark parse(final Program program, final String source) {
+		return new Benchmark(program.template + ".parse") {
+			@Override
+			long run() throws IOException {
+				ScriptEnvironment env = new ScriptEnvironment();
+				long start = System.nanoTime();
+				compile(env, program.filename, source);
+				long elapsed = System.nanoTime() - start;
+				sink = env;
+				return elapsed;
+			}
+		};
+	}
+
+	private static Benchmark execute(final Program program, String source) throws IOException, ScriptException {
+		final ScriptEnvironment env = new ScriptEnvironment();
+		compile(env, program.filename, source);
+		initialize(env);
+		final ScriptTemplate_Abstract template = env.getTemplate(program.template);
+		if (template == null) {
+			throw new IllegalStateException(program.filename + " does not define " + program.template);
+		}
+		int result = call(env, template);
+		if (result != program.expected) {
+			throw new IllegalStateException(program.template + ".run() returned " + result + ", but " + program.expected + " was expected");
+		}
+		return new Benchmark(program.template + ".execute") {
+			@Override
+			long run() throws ScriptException {
+				long start = System.nanoTime();
+				int value = call(env, template);
+				long elapsed = System.nanoTime() - start;
+				if (value != program.expected) {
+					throw new IllegalStateException(program.template + ".run() returned " + value + ", but " + program.expected + " was expected");
+				}
+				sink = value;
+				return elapsed;
+			}
+		};
+	}
+
+	/**
+	 * Runs the specified benchmark for a single iteration.
+	 *
+	 * @return the mean time per operation, in nanoseconds
+	 */
+	private static double iterate(Benchmark benchmark, long millis) throws Exception {
+		long deadline = System.nanoTime() + millis * 1000000L;
+		long total = 0;
+		int operations = 0;
+		do {
+			total += benchmark.run();
+			operations++;
+		} while (System.nanoTime() < deadline);
+		return (double) total / operations;
+	}
+
+	private static void measure(Benchmark benchmark, int warmups, int iterations, long millis) throws Exception {
+		for (int i = 0; i < warmups; i++) {
+			iterate(benchmark, millis);
+		}
+		double[] scores = new double[iterations];
+		double sum = 0;
+		for (int i = 0; i < iterations; i++) {
+			scores[i] = iterate(benchmark, millis) / 1000d;
+			sum += scores[i];
+		}
+		double mean = sum / iterations;
+		double variance = 0;
+		for (double score : scores) {
+			variance += (score - mean) * (score - mean);
+		}
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : Double.NaN;
+		System.out.println(String.format("%-24s %6d %14.3f +- %10.3f  us/op", benchmark.name, iterations, mean, error));
+	}
+
+	public static void main(String[] args) throws Exception {
+		int warmups = 5;
+		int iterations = 5;
+		long millis = 1000;
+		File corpus = new File(DEFAULT_CORPUS);
+		Pattern pattern = Pattern.compile("");
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-wi")) {
+				warmups = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-i")) {
+				iterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-r")) {
+				millis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-d")) {
+				corpus = new File(args[++i]);
+			} else {
+				pattern = Pattern.compile(args[i]);
+			}
+		}
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		for (Program program : PROGRAMS) {
+			String source = new String(Files.readAllBytes(new File(corpus, program.filename).toPath()), UTF_8);
+			if (pattern.matcher(program.template + ".parse").find()) {
+				benchmarks.add(parse(program, source));
+			}
+			if (pattern.matcher(program.template + ".execute").find()) {
+				benchmarks.add(execute(program, source));
+			}
+		}
+		System.out.println(String.format("%-24s %6s %14s   %10s  %s", "Benchmark", "Cnt", "Score", "Error", "Units"));
+		for (Benchmark benchmark : benchmarks) {
+			measure(benchmark, warmups, iterations, millis);
+		}
+	}
+
+	private ScriptBenchmarks() {
+		// Suppress default constructor to ensure non-instantiability.
+		throw new AssertionError("Instantiation not allowed");
+	}
+}
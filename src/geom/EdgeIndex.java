@@ -0,0 +1,380 @@
+package geom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import geom.points.Point;
+import geom.points.Points;
+import logging.Logs;
+
+/**
+ * The edges of a set of regions, hashed by the lines they lie on, so that the
+ * neighbors of a region are found without comparing its edges to those of
+ * every other region.
+ * <p>
+ * Each edge is hashed by its line's direction and its offset from the origin,
+ * both quantized into cells, and the edges of a line are kept in order of
+ * their extent along it. Two regions are neighbors if one has an edge that is
+ * colinear with, and overlaps, an edge of the other. Such edges always share a
+ * line cell, or lie in adjacent ones, so only the edges of nearby cells that
+ * overlap an edge's extent are candidates, and each candidate is confirmed by
+ * the same tests as {@link DiscreteRegion#addRegionNeighbor(DiscreteRegion)}.
+ * Edges too short to have a meaningful direction are candidates for every
+ * edge.
+ * <p>
+ * The index remembers the edges of each region it has seen, so
+ * {@link #updateNeighbors(Collection)} only finds the neighbors of regions
+ * that have changed since the last update, and of the regions they touch or
+ * used to touch.
+ * <p>
+ * Regions are tracked by identity, since their equality depends on their
+ * points. This class is not synchronized.
+ *
+ * @author Aaron Faanes
+ * @see RegionSplitter
+ */
+public final class EdgeIndex {
+	/**
+	 * The width, in radians, of a direction cell.
+	 */
+	private static final double ANGLE_CELL = 1e-6;
+
+	private static final int ANGLE_CELLS = (int) Math.ceil(Math.PI / ANGLE_CELL);
+
+	/**
+	 * The width of an offset cell.
+	 */
+	private static final double OFFSET_CELL = 1e-3;
+
+	/**
+	 * Edges shorter than this are not hashed.
+	 */
+	private static final double MIN_LENGTH = 1e-3;
+
+	/**
+	 * The most that the directions of two hashed edges may differ if they pass
+	 * the colinearity test. Each end of one edge lies within
+	 * {@link Points#DOUBLE_MIN} of the other's line, so their directions
+	 * differ by at most twice that over the edge's length; this is doubled
+	 * again to allow for rounding.
+	 */
+	private static final double ANGLE_SLACK = 4 * Points.DOUBLE_MIN / MIN_LENGTH;
+
+	private static final class Edge {
+		private final DiscreteRegion region;
+		private final Point pointA, pointB;
+		private final double ax, ay, bx, by;
+		private final double angle, offset, start, end, radius;
+		private final long key;
+
+		Edge(DiscreteRegion region, Point pointA, Point pointB) {
+			this.region = region;
+			this.pointA = pointA;
+			this.pointB = pointB;
+			// Points are mutable, so their coordinates are kept to notice
+			// when they move.
+			this.ax = pointA.getX();
+			this.ay = pointA.getY();
+			this.bx = pointB.getX();
+			this.by = pointB.getY();
+			double dx = this.bx - this.ax;
+			double dy = this.by - this.ay;
+			double angle = Math.atan2(dy, dx);
+			if (angle < 0) {
+				angle += Math.PI;
+			}
+			if (angle >= Math.PI) {
+				angle -= Math.PI;
+			}
+			this.angle = angle;
+			double cos = Math.cos(angle);
+			double sin = Math.sin(angle);
+			this.offset = cos * this.ay - sin * this.ax;
+			double startA = cos * this.ax + sin * this.ay;
+			double startB = cos * this.bx + sin * this.by;
+			this.start = Math.min(startA, startB);
+			this.end = Math.max(startA, startB);
+			this.radius = Math.max(Math.hypot(this.ax, this.ay), Math.hypot(this.bx, this.by));
+			this.key = getKey(getAngleCell(angle), getOffsetCell(this.offset));
+		}
+
+		boolean isAt(Point pointA, Point pointB) {
+			return this.ax == pointA.getX() && this.ay == pointA.getY() && this.bx == pointB.getX() && this.by == pointB.getY();
+		}
+
+		boolean isHashed() {
+			return this.end - this.start >= MIN_LENGTH && !Double.isNaN(this.offset) && !Double.isInfinite(this.radius);
+		}
+
+		/**
+		 * Returns how far the line parameters of an edge that is adjacent to
+		 * this one may be from this edge's.
+		 */
+		double getSlack() {
+			return 4 * Points.DOUBLE_MIN + ANGLE_SLACK * (this.radius + 1);
+		}
+
+		boolean isAdjacent(Edge other) {
+			return EdgeIndex.isAdjacent(this.pointA, this.pointB, other.pointA, other.pointB) || EdgeIndex.isAdjacent(other.pointA, other.pointB, this.pointA, this.pointB);
+		}
+	}
+
+	/**
+	 * The edges of a line cell, in order of where they start along it.
+	 */
+	private static final class Line {
+		private final NavigableMap<Double, List<Edge>> edges = new TreeMap<Double, List<Edge>>();
+		private double maxLength;
+		private int size;
+
+		void add(Edge edge) {
+			List<Edge> starting = this.edges.get(edge.start);
+			if (starting == null) {
+				starting = new ArrayList<Edge>(1);
+				this.edges.put(edge.start, starting);
+			}
+			starting.add(edge);
+			this.maxLength = Math.max(this.maxLength, edge.end - edge.start);
+			this.size++;
+		}
+
+		boolean remove(Edge edge) {
+			List<Edge> starting = this.edges.get(edge.start);
+			if (starting == null || !starting.remove(edge)) {
+				return false;
+			}
+			if (starting.isEmpty()) {
+				this.edges.remove(edge.start);
+			}
+			this.size--;
+			return true;
+		}
+
+		void collect(double start, double end, Collection<Edge> candidates) {
+			for (List<Edge> starting : this.edges.subMap(start - this.maxLength, true, end, true).values()) {
+				for (Edge edge : starting) {
+					if (edge.end >= start) {
+						candidates.add(edge);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the edge from {@code pointA} to {@code pointB} is
+	 * colinear with, and overlaps, the edge from {@code pointC} to
+	 * {@code pointD}, as tested by
+	 * {@link DiscreteRegion#addRegionNeighbor(DiscreteRegion)}.
+	 */
+	public static boolean isAdjacent(Point pointA, Point pointB, Point pointC, Point pointD) {
+		return Polygons.testForColinearity(pointA, pointB, pointC, pointD) && Polygons.getBoundingRectIntersection(pointA, pointB, pointC, pointD);
+	}
+
+	private static int getAngleCell(double angle) {
+		return Math.max(0, Math.min(ANGLE_CELLS - 1, (int) Math.floor(angle / ANGLE_CELL)));
+	}
+
+	private static long getOffsetCell(double offset) {
+		return (long) Math.floor(offset / OFFSET_CELL);
+	}
+
+	private static long getKey(int angleCell, long offsetCell) {
+		// Distinct cells may share a key; that only adds candidates.
+		return (long) angleCell << 40 ^ offsetCell;
+	}
+
+	private final Map<Long, Line> lines = new HashMap<Long, Line>();
+	private final Set<Edge> unhashed = new LinkedHashSet<Edge>();
+	private final Map<DiscreteRegion, List<Edge>> regions = new IdentityHashMap<DiscreteRegion, List<Edge>>();
+	private int size;
+
+	/**
+	 * Returns the number of edges in this index.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Updates the neighbors of the specified regions, which replace every
+	 * region this index held before.
+	 * <p>
+	 * A region has changed if any of its points have moved since the last
+	 * update. Changed regions, and those that neighbor them before or after
+	 * the change, have their neighbors found again; the neighbors of every
+	 * other region are kept, less any that are no longer among the specified
+	 * regions.
+	 *
+	 * @return the number of regions whose neighbors were found again
+	 */
+	public int updateNeighbors(Collection<DiscreteRegion> regions) {
+		assert Logs.openNode("Edge Index Updates", "Updating neighbors (" + regions.size() + " region(s))");
+		Set<DiscreteRegion> current = Collections.newSetFromMap(new IdentityHashMap<DiscreteRegion, Boolean>());
+		current.addAll(regions);
+		Set<DiscreteRegion> affected = Collections.newSetFromMap(new IdentityHashMap<DiscreteRegion, Boolean>());
+		List<Edge> moved = new ArrayList<Edge>();
+		Iterator<Map.Entry<DiscreteRegion, List<Edge>>> entries = this.regions.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<DiscreteRegion, List<Edge>> entry = entries.next();
+			if (!current.contains(entry.getKey()) || !isIndexed(entry.getKey(), entry.getValue())) {
+				for (Edge edge : entry.getValue()) {
+					this.remove(edge);
+				}
+				moved.addAll(entry.getValue());
+				entries.remove();
+			}
+		}
+		for (DiscreteRegion region : current) {
+			if (this.regions.containsKey(region)) {
+				continue;
+			}
+			List<Edge> edges = getEdges(region);
+			for (Edge edge : edges) {
+				this.add(edge);
+			}
+			this.regions.put(region, edges);
+			moved.addAll(edges);
+			affected.add(region);
+		}
+		List<Edge> candidates = new ArrayList<Edge>();
+		for (Edge edge : moved) {
+			this.collect(edge, candidates);
+		}
+		for (Edge candidate : candidates) {
+			affected.add(candidate.region);
+		}
+		for (DiscreteRegion region : current) {
+			if (!affected.contains(region)) {
+				for (DiscreteRegion neighbor : region.getNeighbors()) {
+					if (!current.contains(neighbor)) {
+						affected.add(region);
+						break;
+					}
+				}
+			}
+		}
+		affected.retainAll(current);
+		assert Logs.addNode("Finding neighbors of " + affected.size() + " region(s)");
+		for (DiscreteRegion region : affected) {
+			region.resetNeighbors();
+		}
+		for (DiscreteRegion region : affected) {
+			for (Edge edge : this.regions.get(region)) {
+				candidates.clear();
+				this.collect(edge, candidates);
+				for (Edge candidate : candidates) {
+					if (candidate.region != region && edge.isAdjacent(candidate)) {
+						region.addNeighbor(candidate.region);
+						candidate.region.addNeighbor(region);
+					}
+				}
+			}
+		}
+		assert Logs.closeNode();
+		return affected.size();
+	}
+
+	/**
+	 * Returns whether the specified edges are still those of the region.
+	 */
+	private static boolean isIndexed(DiscreteRegion region, List<Edge> edges) {
+		List<Point> points = region.getPoints();
+		if (points.size() != edges.size()) {
+			return false;
+		}
+		for (int i = 0; i < points.size(); i++) {
+			if (!edges.get(i).isAt(points.get(i), points.get((i + 1) % points.size()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<Edge> getEdges(DiscreteRegion region) {
+		List<Point> points = region.getPoints();
+		List<Edge> edges = new ArrayList<Edge>(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			edges.add(new Edge(region, points.get(i), points.get((i + 1) % points.size())));
+		}
+		return edges;
+	}
+
+	private void add(Edge edge) {
+		if (edge.isHashed()) {
+			Line line = this.lines.get(edge.key);
+			if (line == null) {
+				line = new Line();
+				this.lines.put(edge.key, line);
+			}
+			line.add(edge);
+		} else {
+			this.unhashed.add(edge);
+		}
+		this.size++;
+	}
+
+	private void remove(Edge edge) {
+		if (edge.isHashed()) {
+			Line line = this.lines.get(edge.key);
+			if (line == null || !line.remove(edge)) {
+				return;
+			}
+			if (line.size == 0) {
+				this.lines.remove(edge.key);
+			}
+		} else if (!this.unhashed.remove(edge)) {
+			return;
+		}
+		this.size--;
+	}
+
+	/**
+	 * Adds every edge that may be adjacent to the specified edge to the
+	 * candidates.
+	 */
+	private void collect(Edge edge, Collection<Edge> candidates) {
+		candidates.addAll(this.unhashed);
+		if (!edge.isHashed()) {
+			for (Line line : this.lines.values()) {
+				line.collect(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, candidates);
+			}
+			return;
+		}
+		double slack = edge.getSlack();
+		double low = edge.angle - ANGLE_SLACK;
+		double high = edge.angle + ANGLE_SLACK;
+		this.collect(Math.max(0, low), Math.min(Math.PI, high), edge.offset, edge.start, edge.end, slack, candidates);
+		// Lines whose directions are near 0 and near pi are the same, but
+		// their offsets and extents are reversed.
+		if (low < 0) {
+			this.collect(low + Math.PI, Math.PI, -edge.offset, -edge.end, -edge.start, slack, candidates);
+		}
+		if (high >= Math.PI) {
+			this.collect(0, high - Math.PI, -edge.offset, -edge.end, -edge.start, slack, candidates);
+		}
+	}
+
+	private void collect(double lowAngle, double highAngle, double offset, double start, double end, double slack, Collection<Edge> candidates) {
+		long lowOffset = getOffsetCell(offset - slack);
+		long highOffset = getOffsetCell(offset + slack);
+		for (int angleCell = getAngleCell(lowAngle); angleCell <= getAngleCell(highAngle); angleCell++) {
+			for (long offsetCell = lowOffset; offsetCell <= highOffset; offsetCell++) {
+				Line line = this.lines.get(getKey(angleCell, offsetCell));
+				if (line != null) {
+					line.collect(start - slack, end + slack, candidates);
+				}
+			}
+		}
+	}
+}
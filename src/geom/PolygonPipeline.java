@@ -1,43 +1,48 @@
 package geom;
 
 import java.util.List;
+import java.util.function.Supplier;
 
-import asset.Terrestrial;
 import logging.Logs;
 
-public class PolygonPipeline extends Thread {
+/**
+ * Validates a region, by converting it to convex polygons, joining them, and
+ * optimizing the result. A pipeline only reads its region, so pipelines may
+ * run in parallel.
+ *
+ * @author Aaron Faanes
+ * @see RegionSplitter
+ */
+public class PolygonPipeline implements Supplier<List<DiscreteRegion>> {
 	public static final String POLYGONPIPELINESTRING = "Polygon Pipeline";
-	private static int threadNum = 0;
 
 	private final DiscreteRegion region;
-	private final Terrestrial terrestrial;
 
-	public PolygonPipeline(final Terrestrial panel, final DiscreteRegion region) {
-		super(POLYGONPIPELINESTRING + " " + threadNum++);
-		if (panel == null) {
-			throw new NullPointerException("panel must not be null");
-		}
+	public PolygonPipeline(final DiscreteRegion region) {
 		if (region == null) {
 			throw new NullPointerException("region must not be null");
 		}
-		this.terrestrial = panel;
 		this.region = region;
 	}
 
+	/**
+	 * @return the validated polygons, or {@code null} if the region was
+	 *         degenerate
+	 */
 	@Override
-	public void run() {
+	public List<DiscreteRegion> get() {
 		Logs.hitStopWatch();
 		assert Logs.openNode("Polygon Pipeline Executions", "Executing Polygon Pipeline");
 		assert Logs.addNode(this.region);
 		List<DiscreteRegion> polygonList = Polygons.convertPolyToConvex(this.region);
 		if (polygonList == null) {
 			assert Logs.closeNode("Region was degenerate");
-			return;
+			return null;
 		}
 		polygonList = Polygons.joinPolygons(polygonList);
 		polygonList = Polygons.optimizePolygons(polygonList);
-		this.terrestrial.addValidatedRegions(polygonList);
 		assert Logs.closeNode();
 		Logs.hitStopWatch();
+		return polygonList;
 	}
 }
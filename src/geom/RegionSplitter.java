@@ -1,41 +1,57 @@
 package geom;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-import asset.Terrestrial;
 import logging.Logs;
 
-public class SplitterThread extends Thread {
+/**
+ * Inserts regions into a BSP tree, splitting away the parts of existing
+ * regions that they overlap, and then updates the neighbors of the tree's
+ * regions from an {@link EdgeIndex}.
+ * <p>
+ * A splitter modifies its tree, so splitters of the same tree must not run at
+ * the same time.
+ *
+ * @author Aaron Faanes
+ * @see PolygonPipeline
+ */
+public class RegionSplitter implements Runnable {
 	private DiscreteRegionBSPNode root;
 	private Set<DiscreteRegion> regions;
 	private boolean recurse;
-	private static int threadNum = 0;
-	public static final String SPLITTERTHREADSTRING = "Splitter Pipeline";
-	private Terrestrial terrestrial;
+	private EdgeIndex edges;
 
-	public SplitterThread(Terrestrial terrestrial, DiscreteRegionBSPNode root, Collection<DiscreteRegion> regions, boolean recurse) {
-		super(SPLITTERTHREADSTRING + " " + threadNum++);
-		this.regions = new HashSet<DiscreteRegion>(regions);
-		this.root = root;
-		this.recurse = recurse;
-		this.terrestrial = terrestrial;
+	public RegionSplitter(DiscreteRegionBSPNode root, Collection<DiscreteRegion> regions, boolean recurse) {
+		this(root, regions, recurse, new EdgeIndex());
+	}
+
+	public RegionSplitter(DiscreteRegionBSPNode root, DiscreteRegion region, boolean recurse) {
+		this(root, Collections.singleton(region), recurse);
 	}
 
-	public SplitterThread(Terrestrial terrestrial, DiscreteRegionBSPNode root, DiscreteRegion region, boolean recurse) {
-		super(SPLITTERTHREADSTRING + " " + threadNum++);
-		this.regions = new HashSet<DiscreteRegion>();
-		this.regions.add(region);
+	/**
+	 * @param edges
+	 *            the edges of the tree's regions, as of the last split. Only
+	 *            the neighbors of the regions that this split changes, and of
+	 *            those they touch, are found again.
+	 */
+	public RegionSplitter(DiscreteRegionBSPNode root, Collection<DiscreteRegion> regions, boolean recurse, EdgeIndex edges) {
+		if (edges == null) {
+			throw new NullPointerException("edges must not be null");
+		}
+		this.regions = new HashSet<DiscreteRegion>(regions);
 		this.root = root;
 		this.recurse = recurse;
-		this.terrestrial = terrestrial;
+		this.edges = edges;
 	}
 
 	@Override
 	public void run() {
 		Logs.hitStopWatch();
-		assert Logs.openNode("Splitter Thread Executions", "Executing Splitter Thread (" + this.regions.size() + " region(s))");
+		assert Logs.openNode("Region Splitter Executions", "Executing Region Splitter (" + this.regions.size() + " region(s))");
 		assert Logs.addSnapNode("Regions (" + this.regions.size() + " region(s))", this.regions);
 		for (DiscreteRegion region : this.regions) {
 			this.root = Polygons.removeOverlappingPolygons(this.root, region, this.recurse);
@@ -47,10 +63,7 @@ public class SplitterThread extends Thread {
 			Set<DiscreteRegion> polygons = this.root.getRegionList();
 			Set<DiscreteRegion> neighbors = new HashSet<DiscreteRegion>();
 			this.root.clearTempList();
-			for (DiscreteRegion thisRegion : this.root.getRegionList()) {
-				thisRegion.resetNeighbors();
-				thisRegion.addRegionNeighbors(polygons);
-			}
+			this.edges.updateNeighbors(polygons);
 			if (!neighbors.equals(polygons)) {
 				assert Logs.openNode("Neighbors list does not match poly-list");
 				assert Logs.addNode("If the BSP tree is intended to be valid at all points within its maximum bounds, then this is an error.");
@@ -63,7 +76,6 @@ public class SplitterThread extends Thread {
 				this.root.addToTempList(neighbors);
 			}
 		}
-		this.terrestrial.decrementOpenThreads();
 		assert Logs.closeNode(this.root);
 		Logs.hitStopWatch();
 	}
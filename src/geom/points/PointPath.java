@@ -1,5 +1,6 @@
 package geom.points;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,6 +55,10 @@ public class PointPath extends Point implements Nodeable {
 		return this.points.get(0);
 	}
 
+	public List<Point> getPoints() {
+		return new ArrayList<Point>(this.points);
+	}
+
 	public double getLastMovementCost() {
 		return this.movementCosts.get(this.movementCosts.size() - 1).doubleValue();
 	}
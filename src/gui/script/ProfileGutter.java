@@ -0,0 +1,104 @@
+package gui.script;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.swing.JComponent;
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+
+/**
+ * A gutter drawn beside a script's text that marks each executed line with a
+ * color, from pale for rarely executed lines to red for the hottest. Heat is
+ * scaled logarithmically, so lines in the same loop are easy to tell apart
+ * from lines that ran once.
+ *
+ * @author Aaron Faanes
+ * @see ScriptPanel#showProfile(script.ScriptProfiler)
+ */
+public class ProfileGutter extends JComponent {
+
+	private static final int WIDTH = 12;
+
+	private final JTextArea textArea;
+
+	private SortedMap<Integer, Long> counts = Collections.emptySortedMap();
+
+	private long maximum;
+
+	public ProfileGutter(JTextArea textArea) {
+		this.textArea = textArea;
+		this.setToolTipText("");
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		return new Dimension(WIDTH, this.textArea.getPreferredSize().height);
+	}
+
+	@Override
+	public String getToolTipText(MouseEvent event) {
+		int offset = this.textArea.viewToModel2D(event.getPoint());
+		try {
+			int line = this.textArea.getLineOfOffset(offset) + 1;
+			Long count = this.counts.get(line);
+			if (count == null) {
+				return null;
+			}
+			return "Line " + line + ": executed " + count + " time(s)";
+		} catch (BadLocationException ex) {
+			return null;
+		}
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		if (this.maximum == 0) {
+			return;
+		}
+		Rectangle clip = g.getClipBounds();
+		for (Map.Entry<Integer, Long> entry : this.counts.entrySet()) {
+			int line = entry.getKey() - 1;
+			if (line < 0 || line >= this.textArea.getLineCount() || entry.getValue() == 0) {
+				continue;
+			}
+			Rectangle2D bounds;
+			try {
+				bounds = this.textArea.modelToView2D(this.textArea.getLineStartOffset(line));
+			} catch (BadLocationException ex) {
+				continue;
+			}
+			if (bounds == null || bounds.getMinY() > clip.y + clip.height || bounds.getMaxY() < clip.y) {
+				continue;
+			}
+			double heat = Math.log(1 + entry.getValue()) / Math.log(1 + this.maximum);
+			int fade = (int) (255 * (1 - heat));
+			g.setColor(new Color(255, fade, fade));
+			int top = (int) Math.floor(bounds.getMinY());
+			g.fillRect(0, top, WIDTH, (int) Math.ceil(bounds.getMaxY()) - top);
+		}
+	}
+
+	/**
+	 * Sets the executed line counts to show, keyed by line number.
+	 */
+	public void setCounts(SortedMap<Integer, Long> counts) {
+		this.counts = counts;
+		this.maximum = 0;
+		for (Long count : counts.values()) {
+			this.maximum = Math.max(this.maximum, count);
+		}
+		this.revalidate();
+		this.repaint();
+	}
+
+	private static final long serialVersionUID = -2867470232417960427L;
+}
@@ -0,0 +1,125 @@
+package gui.script;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+
+import script.ScriptProfiler;
+import script.ScriptProfiler.FunctionProfile;
+
+/**
+ * A sortable table of the functions measured by a {@link ScriptProfiler}.
+ * Functions are initially sorted by self time, so the hottest functions are
+ * shown first.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEditor
+ */
+public class ProfilePanel extends JPanel {
+
+	private static final String[] COLUMNS = { "Function", "Invocations", "Self (ms)", "Total (ms)", "Self per call (us)" };
+
+	private final ScriptProfiler profiler;
+
+	private List<FunctionProfile> profiles = new ArrayList<FunctionProfile>();
+
+	private final AbstractTableModel model = new AbstractTableModel() {
+		@Override
+		public Class<?> getColumnClass(int column) {
+			switch (column) {
+			case 0:
+				return String.class;
+			case 1:
+				return Long.class;
+			default:
+				return Double.class;
+			}
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		@Override
+		public int getRowCount() {
+			return profiles.size();
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			FunctionProfile profile = profiles.get(row);
+			switch (column) {
+			case 0:
+				return profile.getName();
+			case 1:
+				return profile.getInvocations();
+			case 2:
+				return profile.getSelfTime() / 1e6;
+			case 3:
+				return profile.getTotalTime() / 1e6;
+			case 4:
+				if (profile.getInvocations() == 0) {
+					return 0.0;
+				}
+				return profile.getSelfTime() / 1e3 / profile.getInvocations();
+			default:
+				throw new IllegalArgumentException("Unexpected column: " + column);
+			}
+		}
+	};
+
+	public ProfilePanel(ScriptProfiler profiler) {
+		super(new BorderLayout());
+		this.profiler = profiler;
+
+		JTable table = new JTable(this.model);
+		TableRowSorter<AbstractTableModel> sorter = new TableRowSorter<AbstractTableModel>(this.model);
+		List<RowSorter.SortKey> keys = new ArrayList<RowSorter.SortKey>();
+		keys.add(new RowSorter.SortKey(2, SortOrder.DESCENDING));
+		sorter.setSortKeys(keys);
+		table.setRowSorter(sorter);
+		this.add(new JScrollPane(table));
+
+		JButton refresh = new JButton("Refresh");
+		refresh.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+		this.add(refresh, BorderLayout.SOUTH);
+
+		this.refresh();
+	}
+
+	public ScriptProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	 * Updates this panel with the profiler's latest measurements.
+	 */
+	public void refresh() {
+		this.profiles = this.profiler.getFunctionProfiles();
+		this.model.fireTableDataChanged();
+	}
+
+	private static final long serialVersionUID = 4150652406962347853L;
+}
@@ -26,8 +26,11 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
@@ -40,7 +43,11 @@ import logging.Logs;
 import script.CompileRunnable;
 import script.ExecutionThread;
 import script.ScriptEnvironment;
+import script.ScriptProfiler;
 import script.exceptions.ScriptException;
+import script.parsing.Compilation;
+import script.parsing.CompilationCache;
+import script.parsing.ProgramCache;
 import strings.ExtensionFilter;
 
 /**
@@ -73,10 +80,27 @@ public class ScriptEditor extends JFrame {
 	private final JMenuItem compile = new JMenuItem("Compile", 'C');
 	private final JMenuItem execute = new JMenuItem("Execute", 'X');
 
+	/**
+	 * Whether compiled scripts are profiled when they are executed.
+	 */
+	private final JCheckBoxMenuItem profile = new JCheckBoxMenuItem("Profile");
+	private final JMenuItem showProfile = new JMenuItem("Show Profile", 'P');
+
 	private final JMenuItem saveFile = new JMenuItem("Save", 'S');
 
 	private ScriptEnvironment scriptEnvironment;
 
+	/**
+	 * The directory where compiled programs are stored between launches.
+	 */
+	public static final String PROGRAMCACHESTRING = ".riffcache";
+
+	/**
+	 * The files compiled into the script environment, used to only recompile
+	 * what has changed.
+	 */
+	private final CompilationCache compilationCache = new CompilationCache(new ScriptEnvironment(), new ProgramCache(new File(PROGRAMCACHESTRING)));
+
 	public ScriptEditor() {
 		super("RFE Script Editor");
 
@@ -226,6 +250,18 @@ public class ScriptEditor extends JFrame {
 		});
 		this.parserMenu.add(compileAndRun);
 
+		this.parserMenu.addSeparator();
+		this.parserMenu.add(this.profile);
+		this.parserMenu.add(this.showProfile);
+		this.showProfile.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0));
+		this.showProfile.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				showProfile();
+			}
+		});
+		this.showProfile.setEnabled(false);
+
 		openScripts(new File("."));
 	}
 
@@ -239,7 +275,13 @@ public class ScriptEditor extends JFrame {
 	}
 
 	private void compile(boolean runOnSuccess) {
-		scriptEnvironment = new ScriptEnvironment();
+		scriptEnvironment = compilationCache.getEnvironment();
+		if (this.profile.isSelected()) {
+			scriptEnvironment.setProfiler(new ScriptProfiler());
+		} else {
+			scriptEnvironment.setProfiler(null);
+		}
+		showProfile.setEnabled(this.profile.isSelected());
 		setStatus("Compiling...");
 		execute.setEnabled(false);
 
@@ -247,16 +289,58 @@ public class ScriptEditor extends JFrame {
 		new Thread(job, job.getName()).start();
 	}
 
-	public boolean compileAll() {
-		boolean succeeded = true;
+	/**
+	 * Shows the hottest functions of the last profiled run, and marks the
+	 * executed lines of every open script.
+	 */
+	private void showProfile() {
+		ScriptProfiler profiler = this.scriptEnvironment.getProfiler();
+		if (profiler == null) {
+			return;
+		}
+		for (int i = 0; i < scriptElements.getComponentCount(); ++i) {
+			((ScriptPanel) scriptElements.getComponentAt(i)).showProfile(profiler);
+		}
+		JFrame frame = new JFrame("Profile");
+		frame.getContentPane().add(new ProfilePanel(profiler));
+		frame.setSize(600, 400);
+		frame.setLocationRelativeTo(this);
+		frame.setVisible(true);
+	}
+
+	/**
+	 * Preparses every open script that has changed since it was last
+	 * compiled, along with the scripts that depend on it.
+	 * 
+	 * @return {@code true} if every preparsed script compiled successfully
+	 * @see CompilationCache#update(Map)
+	 */
+	public boolean compileAll(Compilation compilation) {
+		Map<String, ScriptPanel> panels = new LinkedHashMap<String, ScriptPanel>();
+		Map<String, String> sources = new LinkedHashMap<String, String>();
 		for (int i = 0; i < scriptElements.getComponentCount(); ++i) {
 			ScriptPanel panel = (ScriptPanel) scriptElements.getComponentAt(i);
-			succeeded = panel.compile(this.scriptEnvironment) && succeeded;
+			String filename = panel.getFilename();
+			panels.put(filename, panel);
+			sources.put(filename, panel.getText());
+		}
+		Map<String, String> changed = new LinkedHashMap<String, String>();
+		for (String filename : this.compilationCache.update(sources)) {
+			changed.put(filename, sources.get(filename));
+		}
+		boolean succeeded = true;
+		for (Map.Entry<String, List<Exception>> result : compilation.preparseFiles(changed).entrySet()) {
+			ScriptPanel panel = panels.get(result.getKey());
+			succeeded = panel.compile(result.getValue()) && succeeded;
 			resetTitle(panel);
 		}
 		return succeeded;
 	}
 
+	public CompilationCache getCompilationCache() {
+		return this.compilationCache;
+	}
+
 	/**
 	 * Open all scripts in the specified directory. This will not recurse.
 	 * 
@@ -8,12 +8,10 @@ import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
@@ -32,10 +30,9 @@ import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import javax.swing.undo.CompoundEdit;
 
-import script.ScriptEnvironment;
+import script.ScriptProfiler;
 import script.exceptions.InternalException;
 import script.exceptions.ScriptException;
-import script.parsing.Parser;
 import strings.ExtensionFilter;
 
 public class ScriptPanel extends JPanel implements UndoableEditListener, ListSelectionListener, ComponentListener, MouseListener {
@@ -44,6 +41,8 @@ public class ScriptPanel extends JPanel implements UndoableEditListener, ListSel
 	private static int fileNumber = 1;
 	private ScriptEditor debugger;
 	private JTextArea textArea;
+	private JScrollPane textPane;
+	private ProfileGutter gutter;
 	private Stack<CompoundEdit> edits = new Stack<CompoundEdit>();
 	private Stack<CompoundEdit> undoneEdits = new Stack<CompoundEdit>();
 	private long lastEdit;
@@ -114,17 +113,20 @@ public class ScriptPanel extends JPanel implements UndoableEditListener, ListSel
 		return this.saveFile();
 	}
 
-	public boolean compile(ScriptEnvironment env) {
+	/**
+	 * Shows the result of preparsing this file.
+	 *
+	 * @param exceptions
+	 *            the exceptions that occurred while preparsing
+	 * @return {@code true} if this file preparsed successfully
+	 */
+	public boolean compile(List<Exception> exceptions) {
 		this.width = this.getWidth();
 		this.splitPane.setRightComponent(new JScrollPane(this.errors = new JList<String>()));
 		this.splitPane.setDividerLocation(this.getWidth() - 200);
 		this.errors.addListSelectionListener(this);
 		this.errors.addMouseListener(this);
-		try {
-			this.exceptions = Parser.preparseFile(env, this.getFilename(), new BufferedReader(new StringReader(this.textArea.getText())));
-		} catch (IOException e) {
-			throw new AssertionError("IOExceptions should never occur with StringReader");
-		}
+		this.exceptions = new ArrayList<Exception>(exceptions);
 		this.displayedExceptions = new ArrayList<String>();
 		if (this.exceptions.size() == 0) {
 			this.errors.setBorder(BorderFactory.createTitledBorder("Compiled Successfully"));
@@ -181,6 +183,10 @@ public class ScriptPanel extends JPanel implements UndoableEditListener, ListSel
 		return this.prefix + this.getFilename();
 	}
 
+	public String getText() {
+		return this.textArea.getText();
+	}
+
 	public boolean hasChanged() {
 		return this.hasChanged;
 	}
@@ -251,7 +257,7 @@ public class ScriptPanel extends JPanel implements UndoableEditListener, ListSel
 	public boolean openFile(File file) {
 		this.setLayout(new GridLayout(0, 1));
 		this.splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
-		this.splitPane.add(new JScrollPane(this.textArea = new JTextArea()));
+		this.splitPane.add(this.textPane = new JScrollPane(this.textArea = new JTextArea()));
 		this.add(this.splitPane);
 		this.textArea.setFont(new Font("Courier", Font.PLAIN, 12));
 		if (file != null) {
@@ -356,6 +362,26 @@ public class ScriptPanel extends JPanel implements UndoableEditListener, ListSel
 		this.debugger.setChanged(changed);
 	}
 
+	/**
+	 * Marks the lines of this file that were executed under the specified
+	 * profiler. Pass {@code null} to remove the marks.
+	 */
+	public void showProfile(ScriptProfiler profiler) {
+		if (profiler == null) {
+			this.textPane.setRowHeaderView(null);
+			this.gutter = null;
+			return;
+		}
+		if (this.gutter == null) {
+			this.gutter = new ProfileGutter(this.textArea);
+			this.textPane.setRowHeaderView(this.gutter);
+		}
+		if (this.file != null) {
+			// Untitled files are given a new name on every call to getFilename
+			this.gutter.setCounts(profiler.getLineCounts(this.getFilename()));
+		}
+	}
+
 	public void setPrefix(String prefix) {
 		this.prefix = prefix;
 	}
@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package script;
+
+import java.util.Arrays;
+
+import inspect.Nodeable;
+import logging.Logs;
+import script.values.ScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Variable;
+
+/**
+ * A single record of a {@link ThreadStack}, holding the called object and
+ * function along with that call's local variables and return value. Frames
+ * are owned by one thread and are reused by later calls at the same depth, so
+ * they are never synchronized.
+ * 
+ * @author Aaron Faanes
+ */
+class CallFrame implements Nodeable {
+	private static final ScriptValue_Variable[] EMPTY_LOCALS = new ScriptValue_Variable[0];
+
+	private ScriptTemplate_Abstract object;
+	private ScriptFunction function;
+
+	/**
+	 * The local-variable slots of this frame. The array is kept between calls
+	 * and only replaced when a function needs more slots than it provides.
+	 */
+	private ScriptValue_Variable[] locals = EMPTY_LOCALS;
+	private int localCount;
+
+	private final VariableStack variables = new VariableStack();
+
+	/**
+	 * The value returned by this frame's call, or {@code null} if the call
+	 * has not returned a value.
+	 */
+	private ScriptValue returnValue;
+
+	public ScriptFunction getFunction() {
+		return this.function;
+	}
+
+	public ScriptValue_Variable[] getLocals() {
+		return this.locals;
+	}
+
+	public ScriptTemplate_Abstract getObject() {
+		return this.object;
+	}
+
+	public ScriptValue getReturnValue() {
+		return this.returnValue;
+	}
+
+	public VariableStack getVariables() {
+		return this.variables;
+	}
+
+	public void setReturnValue(ScriptValue returnValue) {
+		this.returnValue = returnValue;
+	}
+
+	@Override
+	public void nodificate() {
+		assert Logs.openNode("Call Frame");
+		assert Logs.addSnapNode("Object", this.object);
+		assert Logs.addSnapNode("Function", this.function);
+		assert Logs.addSnapNode("Locals (" + this.localCount + " slot(s))", Arrays.asList(this.locals).subList(0, this.localCount));
+		assert Logs.addNode(this.variables);
+		assert Logs.addSnapNode("Return Value", this.returnValue);
+		assert Logs.closeNode();
+	}
+
+	/**
+	 * Prepares this frame for a new call.
+	 */
+	void enter(ScriptTemplate_Abstract object, ScriptFunction function, int localCount) {
+		this.object = object;
+		this.function = function;
+		if (this.locals.length < localCount) {
+			this.locals = new ScriptValue_Variable[localCount];
+		}
+		this.localCount = localCount;
+		this.returnValue = null;
+	}
+
+	/**
+	 * Releases everything referenced by the call, leaving the frame ready for
+	 * reuse.
+	 */
+	void exit() {
+		this.object = null;
+		this.function = null;
+		Arrays.fill(this.locals, 0, this.localCount, null);
+		this.localCount = 0;
+		this.variables.clear();
+		this.returnValue = null;
+	}
+}
@@ -7,7 +7,8 @@ import java.util.List;
 
 import gui.script.ScriptEditor;
 import logging.Logs;
-import script.parsing.Parser;
+import script.parsing.Compilation;
+import script.parsing.CompilationCache;
 
 public class CompileRunnable implements Runnable {
 	public static final String COMPILETHREADSTRING = "Compilation";
@@ -34,13 +35,15 @@ public class CompileRunnable implements Runnable {
 	public void run() {
 		try {
 			Logs.hitStopWatch();
-			this.scriptEnvironment.reset();
-			Parser.clearPreparseLists();
-			if (!scriptEditor.compileAll()) {
+			Compilation compilation = new Compilation(this.scriptEnvironment);
+			CompilationCache cache = this.scriptEditor.getCompilationCache();
+			if (!scriptEditor.compileAll(compilation)) {
+				cache.finish(compilation, false);
 				this.scriptEditor.setStatus("One or more files had errors during compilation.");
 				return;
 			}
-			List<Exception> exceptions = Parser.parseElements(this.scriptEnvironment);
+			List<Exception> exceptions = compilation.parseElements();
+			cache.finish(compilation, exceptions.isEmpty());
 
 			if (exceptions.isEmpty()) {
 				this.scriptEditor.canExecute(true);
@@ -266,7 +266,7 @@ public final class Conversions {
 	}
 
 	public static FauxTemplate_Point wrapPoint(ScriptEnvironment env, Point point) throws ScriptException {
-		FauxTemplate_Point wrapped = new FauxTemplate_Point(env);
+		FauxTemplate_Point wrapped = new FauxTemplate_Point(env, ScriptValueType.createType(env, FauxTemplate_Point.POINTSTRING));
 		wrapped.setPoint(point);
 		return wrapped;
 	}
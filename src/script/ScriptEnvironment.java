@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JOptionPane;
 
@@ -50,12 +51,24 @@ import script.values.ScriptValueType;
 import script.values.ScriptValue_Variable;
 import asset.Ace;
 import asset.Asset;
+import timing.ClockThread;
 
 @Inspectable
 public class ScriptEnvironment {
 	private final Map<String, ScriptValueType> variableTypes = new HashMap<String, ScriptValueType>();
+	/**
+	 * The name of every type, by its identifier. Identifiers are dense and are
+	 * never reused, so a removed type leaves its name as null. The list is
+	 * only used while holding its lock, which also guards the type matrix.
+	 */
+	private final List<String> typeNames = new ArrayList<String>();
+	private int nextTypeIdentifier = ScriptValueType.PRIMITIVE_TYPES;
+	private volatile TypeMatrix typeMatrix;
 	private final Map<String, ScriptTemplate_Abstract> templates = new HashMap<String, ScriptTemplate_Abstract>();
-	private final List<javax.swing.Timer> timers = new LinkedList<javax.swing.Timer>();
+	private final List<ClockThread> clocks = new LinkedList<ClockThread>();
+	private final AtomicInteger templateGeneration = new AtomicInteger();
+	private volatile ScriptProfiler profiler;
+	private final AtomicInteger timeSlices = new AtomicInteger();
 	private final ThreadLocal<ThreadStack> threads = new ThreadLocal<ThreadStack>() {
 		@Override
 		protected ThreadStack initialValue() {
@@ -142,6 +155,56 @@ public class ScriptEnvironment {
 			throw new TemplateAlreadyDefinedException(ref, name);
 		}
 		this.templates.put(name, template);
+		this.templatesChanged();
+	}
+
+	/**
+	 * Removes the template and type of the specified name, so that it may be
+	 * defined again.
+	 */
+	public void removeTemplate(String name) {
+		this.templates.remove(name);
+		ScriptValueType type = this.variableTypes.remove(name);
+		if (type != null) {
+			synchronized (this.typeNames) {
+				this.typeNames.set(type.getIdentifier(), null);
+			}
+		}
+		this.templatesChanged();
+	}
+
+	/**
+	 * Returns a counter that changes whenever a template or function is added
+	 * or redefined. Anything that caches the result of function resolution
+	 * must discard its cache when this value changes.
+	 */
+	public int getTemplateGeneration() {
+		return this.templateGeneration.get();
+	}
+
+	/**
+	 * Invalidates all cached function resolutions in this environment.
+	 */
+	public void templatesChanged() {
+		this.templateGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Returns the profiler that observes this environment, or {@code null} if
+	 * this environment is not being profiled.
+	 */
+	public ScriptProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	 * Sets the profiler that observes this environment. Pass {@code null} to
+	 * stop profiling. Compiled function bodies are recompiled as needed on
+	 * their next invocation.
+	 */
+	public void setProfiler(ScriptProfiler profiler) {
+		this.profiler = profiler;
+		this.templatesChanged();
 	}
 
 	public ScriptTemplate_Abstract getTemplate(ScriptValueType code) {
@@ -162,8 +225,29 @@ public class ScriptEnvironment {
 	}
 
 	// Variable-type functions
+	/**
+	 * Creates a type with the next free identifier of this environment. The
+	 * type has no name until it's added.
+	 *
+	 * @see #addType(Referenced, String, ScriptValueType)
+	 */
+	public ScriptValueType createType() {
+		return new ScriptValueType(this, this.nextTypeIdentifier++);
+	}
+
+	/**
+	 * Returns the identifier that the next created type will have. Types that
+	 * are created with identifiers from this one onwards must be added before
+	 * any other type is created.
+	 *
+	 * @see #createType()
+	 */
+	public int getNextTypeIdentifier() {
+		return this.nextTypeIdentifier;
+	}
+
 	public void addType(Referenced ref, String name) throws ScriptException {
-		this.addType(ref, name, new ScriptValueType(this));
+		this.addType(ref, name, this.createType());
 	}
 
 	public void addType(Referenced ref, String name, ScriptTemplate_Abstract template) throws ScriptException {
@@ -176,7 +260,19 @@ public class ScriptEnvironment {
 		if (this.variableTypes.containsKey(name)) {
 			throw new VariableTypeAlreadyDefinedException(ref, name);
 		}
+		int id = keyword.getIdentifier();
+		synchronized (this.typeNames) {
+			while (this.typeNames.size() <= id) {
+				this.typeNames.add(null);
+			}
+			if (this.typeNames.get(id) != null) {
+				throw new InternalException(this, "Type identifier is already used by " + this.typeNames.get(id) + " (" + id + ")");
+			}
+			this.typeNames.set(id, name);
+		}
+		this.nextTypeIdentifier = Math.max(this.nextTypeIdentifier, id + 1);
 		this.variableTypes.put(name, keyword);
+		this.templatesChanged();
 	}
 
 	public void addVariableToStack(String name, ScriptValue_Variable var) throws ScriptException {
@@ -203,6 +299,41 @@ public class ScriptEnvironment {
 		return this.threads.get().getCurrentObject();
 	}
 
+	/**
+	 * Returns the local-variable slots of the current frame. Compiled function
+	 * bodies fetch this once per invocation rather than once per access.
+	 * 
+	 * @see script.operations.ScriptCompiler
+	 */
+	public ScriptValue_Variable[] getCurrentFrame() {
+		return this.threads.get().getCurrentFrame();
+	}
+
+	/**
+	 * Returns the local variable in the specified slot of the current frame.
+	 * Slots are assigned by the parser.
+	 */
+	public ScriptValue_Variable getLocalVariable(int slot) {
+		return this.threads.get().getLocalVariable(slot);
+	}
+
+	public void setLocalVariable(int slot, ScriptValue_Variable variable) {
+		this.threads.get().setLocalVariable(slot, variable);
+	}
+
+	/**
+	 * Returns the value returned by the current call, or {@code null} if it
+	 * has not returned a value. Return values are kept by the calling thread's
+	 * stack, so a function may be executing on many threads at once.
+	 */
+	public ScriptValue getReturnValue() {
+		return this.threads.get().getReturnValue();
+	}
+
+	public void setReturnValue(ScriptValue value) {
+		this.threads.get().setReturnValue(value);
+	}
+
 	public ScriptValue_Variable getVariableFromStack(String name) {
 		return this.threads.get().getVariableFromStack(name);
 	}
@@ -215,8 +346,47 @@ public class ScriptEnvironment {
 		this.threads.get().retreatStack();
 	}
 
+	/**
+	 * Marks a point at which the current thread may yield to other scripts,
+	 * if it is running with a time slice. Safe points are placed at every
+	 * function call and loop iteration, and each one counts as a single step
+	 * of the slice.
+	 * 
+	 * @see TimeSlicer
+	 */
+	public void safePoint() {
+		if (this.timeSlices.get() > 0) {
+			this.threads.get().safePoint();
+		}
+	}
+
+	/**
+	 * Sets the time slice of the current thread, or removes it if
+	 * {@code slice} is {@code null}. Safe points only look for the current
+	 * thread's slice while some thread has one.
+	 */
+	void setTimeSlice(TimeSlice slice) {
+		ThreadStack stack = this.threads.get();
+		if (slice != null && stack.getTimeSlice() == null) {
+			this.timeSlices.incrementAndGet();
+		} else if (slice == null && stack.getTimeSlice() != null) {
+			this.timeSlices.decrementAndGet();
+		}
+		stack.setTimeSlice(slice);
+	}
+
+	/**
+	 * Returns whether any thread is running with a time slice.
+	 */
+	boolean isTimeSliced() {
+		return this.timeSlices.get() > 0;
+	}
+
 	public void clearStacks() {
-		this.threads.set(new ThreadStack());
+		// The current thread keeps its time slice
+		ThreadStack stack = new ThreadStack();
+		stack.setTimeSlice(this.threads.get().getTimeSlice());
+		this.threads.set(stack);
 	}
 
 	public void execute() {
@@ -259,18 +429,65 @@ public class ScriptEnvironment {
 
 	public String getName(ScriptValueType keyword) {
 		assert keyword != null;
-		for (Map.Entry<String, ScriptValueType> entry : this.variableTypes.entrySet()) {
-			if (keyword.equals(entry.getValue())) {
-				return entry.getKey();
+		int id = keyword.getIdentifier();
+		synchronized (this.typeNames) {
+			if (id >= 0 && id < this.typeNames.size() && this.typeNames.get(id) != null) {
+				return this.typeNames.get(id);
 			}
 		}
 		throw new IllegalArgumentException("Name not found for keyword");
 	}
 
+	/**
+	 * Returns whether a value of the base type may be converted to the cast
+	 * type. The conversions of every type are kept in a matrix that is
+	 * rebuilt once templates change, so most tests are a single bit test.
+	 */
+	public boolean isConvertible(ScriptValueType base, ScriptValueType cast) {
+		int baseId = base.getIdentifier();
+		TypeMatrix matrix = this.getTypeMatrix();
+		if (matrix.hasRow(baseId)) {
+			int castId = cast.getIdentifier();
+			return castId >= 0 && matrix.isConvertible(baseId, castId);
+		}
+		if (ScriptValueType.isPrimitiveType(base)) {
+			return base.equals(cast);
+		}
+		return this.getTemplate(base).isConvertibleTo(cast);
+	}
+
+	/**
+	 * Returns whether the conversions of the specified type are known without
+	 * walking its template's hierarchy.
+	 */
+	public boolean hasConversions(ScriptValueType type) {
+		return this.getTypeMatrix().hasRow(type.getIdentifier());
+	}
+
+	private TypeMatrix getTypeMatrix() {
+		TypeMatrix matrix = this.typeMatrix;
+		int generation = this.templateGeneration.get();
+		if (matrix == null || matrix.getGeneration() != generation) {
+			synchronized (this.typeNames) {
+				matrix = this.typeMatrix;
+				if (matrix == null || matrix.getGeneration() != generation) {
+					matrix = new TypeMatrix(this, generation, this.typeNames);
+					this.typeMatrix = matrix;
+				}
+			}
+		}
+		return matrix;
+	}
+
 	public ScriptValueType getType(String name) {
 		return this.variableTypes.get(name);
 	}
 
+	@Inspectable
+	public Map<String, ScriptValueType> getTypes() {
+		return Collections.unmodifiableMap(this.variableTypes);
+	}
+
 	// Variable functions
 	public ScriptValue_Variable retrieveVariable(String name) throws ScriptException {
 		assert Logs.openNode("Variable Retrievals", "Retrieving Variable (" + name + ")");
@@ -302,21 +519,26 @@ public class ScriptEnvironment {
 		return value;
 	}
 
-	public void addTimer(javax.swing.Timer timer) {
-		this.timers.add(timer);
+	public void addClock(ClockThread clock) {
+		this.clocks.add(clock);
 	}
 
 	public void stopExecution() {
-		for (javax.swing.Timer timer : this.timers) {
-			timer.stop();
+		for (ClockThread clock : this.clocks) {
+			clock.stop();
 		}
-		this.timers.clear();
+		this.clocks.clear();
 	}
 
 	public void reset() {
 		assert Logs.openNode("Resetting Environment");
 		this.variableTypes.clear();
+		synchronized (this.typeNames) {
+			this.typeNames.clear();
+		}
+		this.nextTypeIdentifier = ScriptValueType.PRIMITIVE_TYPES;
 		this.templates.clear();
+		this.templatesChanged();
 		this.clearStacks();
 		System.gc();
 		this.initialize();
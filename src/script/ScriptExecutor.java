@@ -0,0 +1,170 @@
+/**
+ *
+ */
+package script;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logging.Logs;
+import script.exceptions.InternalException;
+import script.exceptions.ScriptException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.values.ScriptValue;
+
+/**
+ * Calls script functions concurrently over a single, shared environment.
+ * <p>
+ * Each call runs on one of a fixed set of worker threads, with its own thread
+ * stack, so the same functions may execute on many threads at once. The
+ * environment itself is treated as read-mostly: it must be compiled and
+ * initialized before calls are submitted, and must not be compiled or reset
+ * while any call is in progress. Submitting a call publishes everything the
+ * submitting thread has done to the environment so far to the worker that
+ * runs it.
+ * <p>
+ * Script objects are not synchronized. An object that is shared between calls
+ * that run at the same time must only be read by them, or must be guarded by
+ * the native code it wraps.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEnvironment
+ */
+public class ScriptExecutor {
+	private static final AtomicInteger threadNum = new AtomicInteger();
+
+	private final ScriptEnvironment environment;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates an executor with one worker thread for each available
+	 * processor.
+	 */
+	public ScriptExecutor(ScriptEnvironment env) {
+		this(env, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ScriptExecutor(ScriptEnvironment env, int threads) {
+		if (env == null) {
+			throw new NullPointerException("env must not be null");
+		}
+		this.environment = env;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, ExecutionThread.EXECUTIONTHREADSTRING + " Worker " + threadNum.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public ScriptEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/**
+	 * Calls the specified function of every specified object, and waits for
+	 * every call to complete.
+	 *
+	 * @return the value returned by each call, in the order of the objects
+	 * @throws ScriptException
+	 *             if any call failed. The remaining calls are still completed.
+	 */
+	public List<ScriptValue> invokeAll(List<? extends ScriptValue> objects, String name, List<ScriptValue> params) throws ScriptException, InterruptedException {
+		List<Future<ScriptValue>> futures = new ArrayList<Future<ScriptValue>>(objects.size());
+		for (ScriptValue object : objects) {
+			futures.add(this.submit(object, name, params));
+		}
+		List<ScriptValue> values = new ArrayList<ScriptValue>(futures.size());
+		ScriptException failure = null;
+		for (Future<ScriptValue> future : futures) {
+			try {
+				values.add(future.get());
+			} catch (ExecutionException ex) {
+				values.add(null);
+				if (failure == null) {
+					failure = this.unwrap(ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return values;
+	}
+
+	private ScriptException unwrap(ExecutionException ex) {
+		Throwable cause = ex.getCause();
+		if (cause instanceof ScriptException) {
+			return (ScriptException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new InternalException(this.getEnvironment(), "Unexpected exception during concurrent execution: " + cause);
+	}
+
+	public boolean isShutdown() {
+		return this.executor.isShutdown();
+	}
+
+	/**
+	 * Stops accepting calls. Calls that were already submitted are still
+	 * completed.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Calls the specified function on a worker thread.
+	 *
+	 * @param object
+	 *            the object or template whose function is called
+	 * @param params
+	 *            the parameters of the call. The list is copied, so it may be
+	 *            reused once this method returns.
+	 * @return the pending result of the call. The call's
+	 *         {@link ScriptException}, if any, is the cause of the exception
+	 *         thrown by {@link Future#get()}.
+	 */
+	public Future<ScriptValue> submit(final ScriptValue object, final String name, List<ScriptValue> params) {
+		final List<ScriptValue> values = new ArrayList<ScriptValue>(params);
+		return this.executor.submit(new Callable<ScriptValue>() {
+			@Override
+			public ScriptValue call() throws ScriptException {
+				ScriptEnvironment env = ScriptExecutor.this.getEnvironment();
+				assert Logs.openNode("Concurrent Executions", "Executing concurrent call (" + name + ")");
+				boolean completed = false;
+				try {
+					ScriptValue value = ScriptExecutable_CallFunction.callFunction(env, null, object, name, values);
+					completed = true;
+					return value;
+				} finally {
+					if (!completed) {
+						// A failed call leaves its frames behind, and they must
+						// not be seen by the next call on this thread.
+						env.clearStacks();
+					}
+					assert Logs.closeNode();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import script.parsing.ScriptElement;
+import script.values.RiffScriptFunction;
+import script.values.ScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+
+/**
+ * Collects invocation counts and timings for every called
+ * {@link ScriptFunction}, and execution counts for every line of script.
+ * <p>
+ * Profiling is opt-in: a profiler only observes an environment once it is
+ * passed to {@link ScriptEnvironment#setProfiler(ScriptProfiler)}. Function
+ * bodies that were compiled without line counters are recompiled with them
+ * on their next invocation. Counters are plain atomic longs that are resolved
+ * when a function is compiled, so a counted line costs a single increment.
+ * <p>
+ * Time is measured with {@link System#nanoTime()}. A function's total time
+ * includes the functions it calls, while its self time does not. Recursive
+ * invocations only add to the total time of their outermost invocation, so
+ * total times never exceed the time actually spent.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEnvironment#setProfiler(ScriptProfiler)
+ */
+public final class ScriptProfiler {
+
+	/**
+	 * The collected measurements for a single function.
+	 */
+	public static final class FunctionProfile {
+		private final String name;
+		private final AtomicLong invocations = new AtomicLong();
+		private final AtomicLong selfTime = new AtomicLong();
+		private final AtomicLong totalTime = new AtomicLong();
+
+		private FunctionProfile(String name) {
+			this.name = name;
+		}
+
+		public long getInvocations() {
+			return this.invocations.get();
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Returns the time spent in this function, excluding the functions it
+		 * called, in nanoseconds.
+		 */
+		public long getSelfTime() {
+			return this.selfTime.get();
+		}
+
+		/**
+		 * Returns the time spent in this function, including the functions it
+		 * called, in nanoseconds.
+		 */
+		public long getTotalTime() {
+			return this.totalTime.get();
+		}
+
+		@Override
+		public String toString() {
+			return this.name + " (" + this.getInvocations() + " invocation(s))";
+		}
+	}
+
+	/**
+	 * The active invocations of a single thread.
+	 */
+	private static final class Activations {
+		private FunctionProfile[] profiles = new FunctionProfile[16];
+		private long[] starts = new long[16];
+		private long[] childTimes = new long[16];
+		private int depth;
+
+		/**
+		 * The number of active invocations of each function, used to detect
+		 * recursion.
+		 */
+		private final Map<FunctionProfile, int[]> active = new IdentityHashMap<FunctionProfile, int[]>();
+
+		void enter(FunctionProfile profile) {
+			if (this.depth == this.profiles.length) {
+				this.profiles = Arrays.copyOf(this.profiles, this.depth * 2);
+				this.starts = Arrays.copyOf(this.starts, this.depth * 2);
+				this.childTimes = Arrays.copyOf(this.childTimes, this.depth * 2);
+			}
+			int[] count = this.active.get(profile);
+			if (count == null) {
+				count = new int[1];
+				this.active.put(profile, count);
+			}
+			count[0]++;
+			this.profiles[this.depth] = profile;
+			this.childTimes[this.depth] = 0;
+			this.starts[this.depth] = System.nanoTime();
+			this.depth++;
+		}
+
+		void exit() {
+			long now = System.nanoTime();
+			this.depth--;
+			FunctionProfile profile = this.profiles[this.depth];
+			this.profiles[this.depth] = null;
+			long elapsed = now - this.starts[this.depth];
+			profile.selfTime.addAndGet(elapsed - this.childTimes[this.depth]);
+			if (--this.active.get(profile)[0] == 0) {
+				profile.totalTime.addAndGet(elapsed);
+			}
+			if (this.depth > 0) {
+				this.childTimes[this.depth - 1] += elapsed;
+			}
+		}
+	}
+
+	private static final Comparator<FunctionProfile> SELF_TIME_ORDER = new Comparator<FunctionProfile>() {
+		@Override
+		public int compare(FunctionProfile a, FunctionProfile b) {
+			return Long.compare(b.getSelfTime(), a.getSelfTime());
+		}
+	};
+
+	private static String getDisplayName(ScriptTemplate_Abstract template, String name) {
+		String functionName = RiffScriptFunction.getDisplayableFunctionName(name);
+		try {
+			return template.getEnvironment().getName(template.getType()) + "." + functionName;
+		} catch (IllegalArgumentException ex) {
+			return functionName;
+		}
+	}
+
+	private final ConcurrentMap<ScriptFunction, FunctionProfile> functions = new ConcurrentHashMap<ScriptFunction, FunctionProfile>();
+
+	private final ConcurrentMap<String, ConcurrentMap<Integer, AtomicLong>> lines = new ConcurrentHashMap<String, ConcurrentMap<Integer, AtomicLong>>();
+
+	private final ThreadLocal<Activations> activations = new ThreadLocal<Activations>() {
+		@Override
+		protected Activations initialValue() {
+			return new Activations();
+		}
+	};
+
+	/**
+	 * Records the start of an invocation of the specified function. Every call
+	 * to this method must be followed by a call to {@link #exit()} on the
+	 * same thread, even if the function throws.
+	 *
+	 * @param function
+	 *            the invoked function
+	 * @param template
+	 *            the template that declares the function
+	 * @param name
+	 *            the name the function was called by
+	 */
+	public void enter(ScriptFunction function, ScriptTemplate_Abstract template, String name) {
+		FunctionProfile profile = this.functions.get(function);
+		if (profile == null) {
+			profile = new FunctionProfile(getDisplayName(template, name));
+			FunctionProfile existing = this.functions.putIfAbsent(function, profile);
+			if (existing != null) {
+				profile = existing;
+			}
+		}
+		profile.invocations.incrementAndGet();
+		this.activations.get().enter(profile);
+	}
+
+	/**
+	 * Records the end of the most recently entered invocation on this thread.
+	 */
+	public void exit() {
+		this.activations.get().exit();
+	}
+
+	/**
+	 * Returns the profiles of every invoked function, with the functions that
+	 * spent the most time in themselves first.
+	 */
+	public List<FunctionProfile> getFunctionProfiles() {
+		List<FunctionProfile> profiles = new ArrayList<FunctionProfile>(this.functions.values());
+		Collections.sort(profiles, SELF_TIME_ORDER);
+		return profiles;
+	}
+
+	/**
+	 * Returns the counter for the line of the specified element, or
+	 * {@code null} if the element has no line.
+	 */
+	public AtomicLong getLineCounter(ScriptElement element) {
+		if (element == null || element.getLineNumber() < 0 || element.getFilename() == null) {
+			return null;
+		}
+		ConcurrentMap<Integer, AtomicLong> file = this.lines.get(element.getFilename());
+		if (file == null) {
+			file = new ConcurrentHashMap<Integer, AtomicLong>();
+			ConcurrentMap<Integer, AtomicLong> existing = this.lines.putIfAbsent(element.getFilename(), file);
+			if (existing != null) {
+				file = existing;
+			}
+		}
+		AtomicLong counter = file.get(element.getLineNumber());
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong existing = file.putIfAbsent(element.getLineNumber(), counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Returns the number of times each counted line of the specified file was
+	 * executed, keyed by line number.
+	 */
+	public SortedMap<Integer, Long> getLineCounts(String filename) {
+		SortedMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+		ConcurrentMap<Integer, AtomicLong> file = this.lines.get(filename);
+		if (file != null) {
+			for (Map.Entry<Integer, AtomicLong> entry : file.entrySet()) {
+				counts.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		return counts;
+	}
+}
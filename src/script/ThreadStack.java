@@ -3,22 +3,34 @@
  */
 package script;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 
 import inspect.Nodeable;
 import logging.Logs;
 import script.exceptions.ScriptException;
+import script.values.RiffScriptFunction;
 import script.values.ScriptFunction;
 import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
 import script.values.ScriptValue_Variable;
 
+/**
+ * The call stack of a single thread. Thread stacks are confined to their
+ * thread by {@link ScriptEnvironment}, so none of their methods are
+ * synchronized.
+ * <p>
+ * Frames are kept in an array that only grows, and a frame is reused by every
+ * call made at its depth. Advancing and retreating the stack therefore only
+ * moves an index once the stack has reached its deepest point.
+ */
 class ThreadStack implements Nodeable {
-	private VariableTable variableTable = new VariableTable();
-	private Deque<ScriptTemplate_Abstract> objectStack = new ArrayDeque<ScriptTemplate_Abstract>(); // Stack of called objects
-	private Deque<ScriptFunction> functionStack = new ArrayDeque<ScriptFunction>(); // Stack of called functions
+	private static final int INITIAL_DEPTH = 16;
 
-	public synchronized void addVariable(String name, ScriptValue_Variable variable) {
+	private CallFrame[] frames = new CallFrame[INITIAL_DEPTH];
+	private int depth;
+	private TimeSlice slice;
+
+	public void addVariable(String name, ScriptValue_Variable variable) {
 		if (variable == null) {
 			assert Logs.openNode("Undefined Variable Stack Additions", "Adding Undefined Variable to the Stack (" + name + ")");
 		} else {
@@ -26,81 +38,115 @@ class ThreadStack implements Nodeable {
 			assert Logs.addNode(variable);
 		}
 		assert Logs.addNode(this);
-		this.variableTable.addVariable(name, variable);
+		this.getCurrentCall().getVariables().addVariable(name, variable);
 		assert Logs.closeNode();
 	}
 
-	public synchronized void advanceNestedStack() {
-		this.variableTable.advanceNestedStack();
+	public void advanceNestedStack() {
+		this.getCurrentCall().getVariables().advanceNestedStack();
 	}
 
-	public synchronized void advanceStack(ScriptTemplate_Abstract template, ScriptFunction fxn) throws ScriptException {
-		assert Logs.openNode("Stack Advancements and Retreats", "Advancing Stack (Stack size before advance: " + this.functionStack.size() + ")");
-		assert (this.functionStack.size() == this.objectStack.size()) && (this.objectStack.size() == this.variableTable.getStacks().size()) : "Stacks unequal: Function-stack: " + this.functionStack.size() + " Object-stack: " + this.objectStack.size() + " Variable-stack: " + this.variableTable.getStacks().size();
+	public void advanceStack(ScriptTemplate_Abstract template, ScriptFunction fxn) throws ScriptException {
+		assert Logs.openNode("Stack Advancements and Retreats", "Advancing Stack (Stack size before advance: " + this.depth + ")");
 		if (template != null) {
 			assert Logs.addSnapNode("Advancing object", template);
 		}
 		assert Logs.addSnapNode("Advancing function", fxn);
-		if (template == null) {
-			template = this.getCurrentObject();
+		if (template == null && this.depth > 0) {
+			template = this.frames[this.depth - 1].getObject();
 		}
 		if (template != null) {
-			this.objectStack.push((ScriptTemplate_Abstract) template.getValue());
-		} else {
-			this.objectStack.push(null);
+			template = (ScriptTemplate_Abstract) template.getValue();
 		}
-		this.functionStack.push(fxn);
-		this.variableTable.advanceStack();
+		int localCount = 0;
+		if (fxn instanceof RiffScriptFunction) {
+			localCount = ((RiffScriptFunction) fxn).getFrameSize();
+		}
+		if (this.depth == this.frames.length) {
+			this.frames = Arrays.copyOf(this.frames, this.frames.length * 2);
+		}
+		CallFrame frame = this.frames[this.depth];
+		if (frame == null) {
+			frame = new CallFrame();
+			this.frames[this.depth] = frame;
+		}
+		frame.enter(template, fxn, localCount);
+		this.depth++;
 		assert Logs.closeNode();
 	}
 
-	public synchronized ScriptFunction getCurrentFunction() {
-		if (this.functionStack.size() == 0) {
+	private CallFrame getCurrentCall() {
+		if (this.depth == 0) {
 			throw new IllegalStateException("No call stack");
 		}
-		return this.functionStack.peek();
+		return this.frames[this.depth - 1];
 	}
 
-	public synchronized ScriptTemplate_Abstract getCurrentObject() {
-		if (this.objectStack.size() == 0) {
-			throw new IllegalStateException("No call stack");
+	public ScriptFunction getCurrentFunction() {
+		return this.getCurrentCall().getFunction();
+	}
+
+	public ScriptTemplate_Abstract getCurrentObject() {
+		return this.getCurrentCall().getObject();
+	}
+
+	public ScriptValue getReturnValue() {
+		return this.getCurrentCall().getReturnValue();
+	}
+
+	public void setReturnValue(ScriptValue value) {
+		this.getCurrentCall().setReturnValue(value);
+	}
+
+	public ScriptValue_Variable[] getCurrentFrame() {
+		return this.getCurrentCall().getLocals();
+	}
+
+	public ScriptValue_Variable getLocalVariable(int slot) {
+		return this.frames[this.depth - 1].getLocals()[slot];
+	}
+
+	public void setLocalVariable(int slot, ScriptValue_Variable variable) {
+		this.frames[this.depth - 1].getLocals()[slot] = variable;
+	}
+
+	public void safePoint() {
+		if (this.slice != null) {
+			this.slice.step();
 		}
-		return this.objectStack.peek();
+	}
+
+	public void setTimeSlice(TimeSlice slice) {
+		this.slice = slice;
+	}
+
+	public TimeSlice getTimeSlice() {
+		return this.slice;
 	}
 
 	public ScriptValue_Variable getVariableFromStack(String name) {
-		return this.variableTable.getVariableFromStack(name);
+		return this.getCurrentCall().getVariables().getVariableFromStack(name);
 	}
 
 	@Override
-	public synchronized void nodificate() {
+	public void nodificate() {
 		assert Logs.openNode("Thread Stack");
-		assert Logs.addNode(this.variableTable);
-		assert Logs.addSnapNode("Object stack (" + this.objectStack.size() + ")", this.objectStack);
-		assert Logs.addSnapNode("Function stack (" + this.functionStack.size() + ")", this.functionStack);
+		assert Logs.addSnapNode("Call frames (" + this.depth + ")", Arrays.asList(this.frames).subList(0, this.depth));
 		assert Logs.closeNode();
 	}
 
-	public synchronized void retreatNestedStack() {
-		this.variableTable.retreatNestedStack();
+	public void retreatNestedStack() {
+		this.getCurrentCall().getVariables().retreatNestedStack();
 	}
 
-	public synchronized void retreatStack() {
-		assert Logs.openNode("Stack Advancements and Retreats", "Retreating Stack (Stack size before retreat: " + this.functionStack.size() + ")");
-		assert (this.functionStack.size() == this.objectStack.size()) && (this.objectStack.size() == this.variableTable.getStacks().size()) : "Stacks unequal: Function-stack: " + this.functionStack.size() + " Object-stack: " + this.objectStack.size() + " Variable-stack: " + this.variableTable.getStacks().size();
-		if (this.variableTable.getStacks().size() > 0) {
-			this.variableTable.retreatStack();
-		}
-		if (this.objectStack.size() > 0) {
-			this.objectStack.pop();
-			if (this.objectStack.size() > 0) {
-				assert Logs.addSnapNode("New Current Object", this.objectStack.peek());
-			}
-		}
-		if (this.functionStack.size() > 0) {
-			this.functionStack.pop();
-			if (this.functionStack.size() > 0) {
-				assert Logs.addSnapNode("New Current Function", this.functionStack.peek());
+	public void retreatStack() {
+		assert Logs.openNode("Stack Advancements and Retreats", "Retreating Stack (Stack size before retreat: " + this.depth + ")");
+		if (this.depth > 0) {
+			this.depth--;
+			this.frames[this.depth].exit();
+			if (this.depth > 0) {
+				assert Logs.addSnapNode("New Current Object", this.frames[this.depth - 1].getObject());
+				assert Logs.addSnapNode("New Current Function", this.frames[this.depth - 1].getFunction());
 			}
 		}
 		assert Logs.closeNode();
@@ -0,0 +1,70 @@
+/**
+ *
+ */
+package script;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * The time slice of a single task of a {@link TimeSlicer}. A task may only
+ * run while it holds one of its slicer's permits. Once it has taken as many
+ * steps as its slice allows, it gives its permit to the longest-waiting task,
+ * if there is one, and waits for a permit of its own.
+ * <p>
+ * A slice is only used by the thread running its task, so it is never
+ * synchronized.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEnvironment#safePoint()
+ */
+final class TimeSlice {
+	private final Semaphore permits;
+	private final int length;
+	private int remaining;
+	private int yields;
+
+	TimeSlice(Semaphore permits, int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be positive");
+		}
+		this.permits = permits;
+		this.length = length;
+	}
+
+	/**
+	 * Waits for a permit, and starts a new slice.
+	 */
+	void begin() {
+		this.permits.acquireUninterruptibly();
+		this.remaining = this.length;
+	}
+
+	/**
+	 * Releases this slice's permit.
+	 */
+	void end() {
+		this.permits.release();
+	}
+
+	/**
+	 * Returns the number of times this slice's task has yielded to another
+	 * task.
+	 */
+	int getYieldCount() {
+		return this.yields;
+	}
+
+	void step() {
+		if (--this.remaining > 0) {
+			return;
+		}
+		this.remaining = this.length;
+		if (this.permits.hasQueuedThreads()) {
+			// The semaphore is fair, so this task waits behind every task
+			// that was already waiting.
+			this.yields++;
+			this.permits.release();
+			this.permits.acquireUninterruptibly();
+		}
+	}
+}
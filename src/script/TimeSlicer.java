@@ -0,0 +1,217 @@
+/**
+ *
+ */
+package script;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logging.Logs;
+import script.exceptions.ScriptException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.values.ScriptValue;
+
+/**
+ * Runs many script calls fairly over a few processors, by giving each call a
+ * time slice.
+ * <p>
+ * Only as many calls as the slicer has permits run at once. A running call
+ * counts its steps at every safe point, which are function calls and loop
+ * iterations. Once it has used up its slice, it yields its permit to the call
+ * that has waited the longest, and resumes once a permit is free again. A
+ * long-running call therefore delays other calls by at most a slice at a
+ * time, rather than until it returns.
+ * <p>
+ * Every call is suspended along with the thread that runs it, so each call
+ * that has started holds a thread until it completes. The slicer keeps at
+ * most a fixed number of threads, and calls that are submitted while every
+ * thread is busy wait in a queue without one. Only the calls that have
+ * threads take turns with each other, so there must be more threads than
+ * permits for any call to yield. The slicer creates its threads from the
+ * given factory, which may create lightweight threads where the platform
+ * provides them.
+ * <p>
+ * The environment is shared by every call, as it is for a
+ * {@link ScriptExecutor}.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEnvironment#safePoint()
+ */
+public class TimeSlicer {
+	/**
+	 * The default number of steps in a slice.
+	 */
+	public static final int DEFAULT_SLICE = 10000;
+
+	/**
+	 * The default number of threads for each permit.
+	 */
+	public static final int DEFAULT_THREADS_PER_PERMIT = 4;
+
+	private static final AtomicInteger threadNum = new AtomicInteger();
+
+	private final ScriptEnvironment environment;
+	private final Semaphore permits;
+	private final int slice;
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong yields = new AtomicLong();
+
+	/**
+	 * Creates a slicer that runs a call on each available processor, with
+	 * slices of {@link #DEFAULT_SLICE} steps and
+	 * {@link #DEFAULT_THREADS_PER_PERMIT} threads for each permit.
+	 */
+	public TimeSlicer(ScriptEnvironment env) {
+		this(env, Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE);
+	}
+
+	public TimeSlicer(ScriptEnvironment env, int permits, int slice) {
+		this(env, permits, permits * DEFAULT_THREADS_PER_PERMIT, slice);
+	}
+
+	public TimeSlicer(ScriptEnvironment env, int permits, int threads, int slice) {
+		this(env, permits, threads, slice, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, ExecutionThread.EXECUTIONTHREADSTRING + " Slice " + threadNum.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @param permits
+	 *            the number of calls that may run at once
+	 * @param threads
+	 *            the number of calls that may have started at once
+	 * @param slice
+	 *            the number of steps a call may take before it yields
+	 * @param factory
+	 *            creates the threads that run calls
+	 */
+	public TimeSlicer(ScriptEnvironment env, int permits, int threads, int slice, ThreadFactory factory) {
+		if (env == null) {
+			throw new NullPointerException("env must not be null");
+		}
+		if (permits < 1) {
+			throw new IllegalArgumentException("permits must be positive");
+		}
+		if (threads < permits) {
+			throw new IllegalArgumentException("threads must not be fewer than permits");
+		}
+		if (slice < 1) {
+			throw new IllegalArgumentException("slice must be positive");
+		}
+		this.environment = env;
+		this.permits = new Semaphore(permits, true);
+		this.slice = slice;
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public ScriptEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/**
+	 * Returns the number of calls that may have started at once.
+	 */
+	public int getThreadCount() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	public int getSlice() {
+		return this.slice;
+	}
+
+	/**
+	 * Returns the number of times a call has yielded to another call.
+	 */
+	public long getYieldCount() {
+		return this.yields.get();
+	}
+
+	public boolean isShutdown() {
+		return this.executor.isShutdown();
+	}
+
+	/**
+	 * Stops accepting calls. Calls that were already submitted are still
+	 * completed.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Runs the specified task once a permit is available. The task may call
+	 * script functions, and yields at their safe points like any other call.
+	 *
+	 * @return the pending result of the task
+	 */
+	public <T> Future<T> submit(final Callable<T> task) {
+		return this.executor.submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				ScriptEnvironment env = TimeSlicer.this.getEnvironment();
+				TimeSlice slice = new TimeSlice(TimeSlicer.this.permits, TimeSlicer.this.slice);
+				slice.begin();
+				try {
+					env.setTimeSlice(slice);
+					return task.call();
+				} finally {
+					env.setTimeSlice(null);
+					TimeSlicer.this.yields.addAndGet(slice.getYieldCount());
+					slice.end();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Calls the specified function once a permit is available.
+	 *
+	 * @param object
+	 *            the object or template whose function is called
+	 * @param params
+	 *            the parameters of the call. The list is copied, so it may be
+	 *            reused once this method returns.
+	 * @return the pending result of the call
+	 * @see ScriptExecutor#submit(ScriptValue, String, List)
+	 */
+	public Future<ScriptValue> submit(final ScriptValue object, final String name, List<ScriptValue> params) {
+		final List<ScriptValue> values = new ArrayList<ScriptValue>(params);
+		return this.submit(new Callable<ScriptValue>() {
+			@Override
+			public ScriptValue call() throws ScriptException {
+				ScriptEnvironment env = TimeSlicer.this.getEnvironment();
+				assert Logs.openNode("Time-Sliced Executions", "Executing time-sliced call (" + name + ")");
+				boolean completed = false;
+				try {
+					ScriptValue value = ScriptExecutable_CallFunction.callFunction(env, null, object, name, values);
+					completed = true;
+					return value;
+				} finally {
+					if (!completed) {
+						env.clearStacks();
+					}
+					assert Logs.closeNode();
+				}
+			}
+		});
+	}
+}
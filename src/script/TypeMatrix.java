@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package script;
+
+import java.util.BitSet;
+import java.util.List;
+
+import script.exceptions.InternalException;
+import script.exceptions.ScriptException;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValueType;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * The convertibility of every pair of types in an environment, as one bit per
+ * pair.
+ * <p>
+ * A type's row holds the identifiers of every type it may be converted to: a
+ * template may be converted to itself, to its interfaces, and to anything its
+ * extended class may be converted to, while primitives follow the numeric
+ * conversion rules. A matrix describes the templates of a single generation,
+ * and must be rebuilt once they change.
+ * <p>
+ * A type has no row if it has no template, or if its template's hierarchy
+ * could not be resolved when the matrix was built. Its conversions must then
+ * be tested by walking that hierarchy, which reports the error as it always
+ * has.
+ *
+ * @author Aaron Faanes
+ * @see ScriptEnvironment#isConvertible(ScriptValueType, ScriptValueType)
+ */
+final class TypeMatrix {
+	private static final BitSet PENDING = new BitSet(0);
+
+	private final ScriptEnvironment environment;
+	private final int generation;
+	private final BitSet[] rows;
+
+	TypeMatrix(ScriptEnvironment env, int generation, List<String> names) {
+		this.environment = env;
+		this.generation = generation;
+		this.rows = new BitSet[Math.max(names.size(), ScriptValueType.PRIMITIVE_TYPES)];
+		for (int i = 0; i < ScriptValueType.PRIMITIVE_TYPES; i++) {
+			this.rows[i] = getPrimitiveRow(i);
+		}
+		for (int i = ScriptValueType.PRIMITIVE_TYPES; i < names.size(); i++) {
+			this.build(i, names);
+		}
+	}
+
+	private static BitSet getPrimitiveRow(int id) {
+		BitSet row = new BitSet(ScriptValueType.PRIMITIVE_TYPES);
+		row.set(id);
+		ScriptValueType base = ScriptValueType.getPrimitiveType(id);
+		if (ScriptValueType.isNumericType(base)) {
+			for (int i = 0; i < ScriptValueType.PRIMITIVE_TYPES; i++) {
+				if (ScriptValue_Numeric.testNumericValueConversion(base, ScriptValueType.getPrimitiveType(i))) {
+					row.set(i);
+				}
+			}
+		}
+		return row;
+	}
+
+	private BitSet build(int id, List<String> names) {
+		if (this.rows[id] != null) {
+			return this.rows[id] == PENDING ? null : this.rows[id];
+		}
+		String name = id < names.size() ? names.get(id) : null;
+		ScriptTemplate_Abstract template = name == null ? null : this.environment.getTemplate(name);
+		if (template == null) {
+			return null;
+		}
+		// Guards against a hierarchy that extends itself.
+		this.rows[id] = PENDING;
+		BitSet row = new BitSet(this.rows.length);
+		row.set(id);
+		try {
+			if (template.getInterfaces() != null) {
+				for (ScriptValueType scriptInterface : template.getInterfaces()) {
+					if (!this.include(row, scriptInterface.getType(), names)) {
+						this.rows[id] = null;
+						return null;
+					}
+				}
+			}
+			ScriptTemplate_Abstract extended = template.getExtendedClass();
+			if (extended != null && !this.include(row, extended.getType().getType(), names)) {
+				this.rows[id] = null;
+				return null;
+			}
+		} catch (ScriptException ex) {
+			this.rows[id] = null;
+			return null;
+		} catch (InternalException ex) {
+			this.rows[id] = null;
+			return null;
+		}
+		this.rows[id] = row;
+		return row;
+	}
+
+	private boolean include(BitSet row, int id, List<String> names) {
+		if (id < 0 || id >= this.rows.length) {
+			return false;
+		}
+		BitSet other = this.build(id, names);
+		if (other == null) {
+			return false;
+		}
+		row.or(other);
+		return true;
+	}
+
+	int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Returns whether this matrix knows the conversions of the specified type.
+	 */
+	boolean hasRow(int base) {
+		return base >= 0 && base < this.rows.length && this.rows[base] != null;
+	}
+
+	boolean isConvertible(int base, int cast) {
+		return this.rows[base].get(cast);
+	}
+}
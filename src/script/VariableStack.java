@@ -4,6 +4,7 @@
 package script;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,35 +13,57 @@ import inspect.Nodeable;
 import logging.Logs;
 import script.values.ScriptValue_Variable;
 
+/**
+ * The named variables of a single frame. Most local variables are resolved to
+ * frame slots by the parser, so the maps for nested scopes are only created
+ * once a variable is actually added to them.
+ * <p>
+ * Each variable stack belongs to a single {@link CallFrame}, and is cleared
+ * and reused along with it.
+ */
 class VariableStack implements Nodeable {
+	private static final Map<String, ScriptValue_Variable> EMPTY_SCOPE = Collections.emptyMap();
+
 	private Deque<Map<String, ScriptValue_Variable>> nestedStacks = new ArrayDeque<Map<String, ScriptValue_Variable>>();
 
 	public VariableStack() {
-		this.nestedStacks.push(new HashMap<String, ScriptValue_Variable>());
+		this.nestedStacks.push(EMPTY_SCOPE);
+	}
+
+	public void addVariable(String name, ScriptValue_Variable variable) {
+		Map<String, ScriptValue_Variable> scope = this.nestedStacks.peek();
+		if (scope == EMPTY_SCOPE) {
+			scope = new HashMap<String, ScriptValue_Variable>();
+			this.nestedStacks.pop();
+			this.nestedStacks.push(scope);
+		}
+		scope.put(name, variable);
 	}
 
-	public synchronized void addVariable(String name, ScriptValue_Variable variable) {
-		this.nestedStacks.peek().put(name, variable);
+	void clear() {
+		this.nestedStacks.clear();
+		this.nestedStacks.push(EMPTY_SCOPE);
 	}
 
-	public synchronized void advanceNestedStack() {
+	public void advanceNestedStack() {
 		assert Logs.openNode("Stack Advancements and Retreats", "Advancing Nested Stack (Nested stack size before advance: " + this.nestedStacks.size() + ")");
 		assert Logs.addNode(this);
-		this.nestedStacks.push(new HashMap<String, ScriptValue_Variable>());
+		this.nestedStacks.push(EMPTY_SCOPE);
 		assert Logs.closeNode();
 	}
 
-	public synchronized ScriptValue_Variable getVariableFromStack(String name) {
+	public ScriptValue_Variable getVariableFromStack(String name) {
 		for (Map<String, ScriptValue_Variable> map : this.nestedStacks) {
-			if (map.containsKey(name)) {
-				return map.get(name);
+			ScriptValue_Variable variable = map.get(name);
+			if (variable != null || map.containsKey(name)) {
+				return variable;
 			}
 		}
 		return null;
 	}
 
 	@Override
-	public synchronized void nodificate() {
+	public void nodificate() {
 		assert Logs.openNode("Variable Stack");
 		assert Logs.openNode("Nested Stacks (" + this.nestedStacks.size() + " stack(s))");
 		for (Map<String, ScriptValue_Variable> map : this.nestedStacks) {
@@ -52,7 +75,7 @@ class VariableStack implements Nodeable {
 		assert Logs.closeNode();
 	}
 
-	public synchronized void retreatNestedStack() {
+	public void retreatNestedStack() {
 		assert this.nestedStacks.size() > 0;
 		assert Logs.openNode("Stack Advancements and Retreats", "Retreating Nested Stack (Nested stack size before retreat: " + this.nestedStacks.size() + ")");
 		assert Logs.addNode(this);
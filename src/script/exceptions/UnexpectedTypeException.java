@@ -33,6 +33,18 @@ public class UnexpectedTypeException extends ScriptException {
 		this.expectedType = exp;
 	}
 
+	/**
+	 * Returns a description of what was expected in place of the provided
+	 * type.
+	 */
+	public String getExpectedType() {
+		return this.expectedType;
+	}
+
+	public Object getProvidedType() {
+		return this.providedType;
+	}
+
 	@Override
 	public void getExtendedInformation() {
 		assert Logs.addNode("The type or keyword, " + this.providedType + ", is unexpected here (" + this.expectedType + " is expected)");
@@ -0,0 +1,381 @@
+/**
+ *
+ */
+package script.operations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer for JVM class files, supporting only what
+ * {@link BytecodeCompiler} needs: a constant pool, methods, and int
+ * arithmetic with forward and backward branches.
+ * <p>
+ * Classes are written with class-file version 49, so the JVM verifies them by
+ * type inference and no stack map frames need to be computed.
+ *
+ * @author Aaron Faanes
+ * @see BytecodeCompiler
+ */
+final class BytecodeAssembler {
+
+	/**
+	 * A position in a method's code. Branches to a label that has not yet been
+	 * placed are patched when it is.
+	 */
+	static final class Label {
+		private int position = -1;
+		private final List<int[]> branches = new ArrayList<int[]>();
+	}
+
+	/**
+	 * The code of a single method.
+	 */
+	final class Code {
+		private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+		private byte[] patched;
+		private final List<Label> labels = new ArrayList<Label>();
+		private int stack;
+		private int maxStack;
+		private final int maxLocals;
+
+		private Code(int maxLocals) {
+			this.maxLocals = maxLocals;
+		}
+
+		private void adjustStack(int delta) {
+			this.stack += delta;
+			if (this.stack > this.maxStack) {
+				this.maxStack = this.stack;
+			}
+		}
+
+		public void branch(int opcode, Label label) {
+			int position = this.code.size();
+			this.code.write(opcode);
+			this.code.write(0);
+			this.code.write(0);
+			label.branches.add(new int[] { position, position + 1 });
+			if (!this.labels.contains(label)) {
+				this.labels.add(label);
+			}
+			switch (opcode) {
+			case GOTO:
+				break;
+			case IFEQ:
+			case IFNE:
+				this.adjustStack(-1);
+				break;
+			default:
+				this.adjustStack(-2);
+				break;
+			}
+		}
+
+		public void iinc(int local, int amount) {
+			this.code.write(IINC);
+			this.code.write(local);
+			this.code.write(amount);
+		}
+
+		public void insn(int opcode, int stackDelta) {
+			this.code.write(opcode);
+			this.adjustStack(stackDelta);
+		}
+
+		public void invoke(int opcode, String owner, String name, String descriptor, int argumentSlots, boolean returnsValue) {
+			this.code.write(opcode);
+			this.writeShort(BytecodeAssembler.this.methodRef(owner, name, descriptor));
+			int delta = -argumentSlots;
+			if (opcode != INVOKESTATIC) {
+				delta--;
+			}
+			if (returnsValue) {
+				delta++;
+			}
+			this.adjustStack(delta);
+		}
+
+		public void place(Label label) {
+			label.position = this.code.size();
+			if (!this.labels.contains(label)) {
+				this.labels.add(label);
+			}
+		}
+
+		public void pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				this.code.write(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				this.code.write(BIPUSH);
+				this.code.write(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				this.code.write(SIPUSH);
+				this.writeShort(value);
+			} else {
+				int index = BytecodeAssembler.this.integer(value);
+				if (index < 256) {
+					this.code.write(LDC);
+					this.code.write(index);
+				} else {
+					this.code.write(LDC_W);
+					this.writeShort(index);
+				}
+			}
+			this.adjustStack(1);
+		}
+
+		/**
+		 * Sets the current stack depth, for code that is only reachable by a
+		 * branch.
+		 */
+		public void setStack(int stack) {
+			this.stack = stack;
+		}
+
+		public int getStack() {
+			return this.stack;
+		}
+
+		public void var(int opcode, int local) {
+			if (local < 4) {
+				switch (opcode) {
+				case ILOAD:
+					this.code.write(ILOAD_0 + local);
+					break;
+				case ISTORE:
+					this.code.write(ISTORE_0 + local);
+					break;
+				case ALOAD:
+					this.code.write(ALOAD_0 + local);
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported local instruction: " + opcode);
+				}
+			} else {
+				this.code.write(opcode);
+				this.code.write(local);
+			}
+			if (opcode == ISTORE) {
+				this.adjustStack(-1);
+			} else {
+				this.adjustStack(1);
+			}
+		}
+
+		private void writeShort(int value) {
+			this.code.write((value >> 8) & 0xFF);
+			this.code.write(value & 0xFF);
+		}
+
+		private byte[] toByteArray() {
+			if (this.patched != null) {
+				return this.patched;
+			}
+			byte[] bytes = this.code.toByteArray();
+			for (Label label : this.labels) {
+				if (label.position == -1) {
+					throw new IllegalStateException("Label was never placed");
+				}
+				for (int[] branch : label.branches) {
+					int offset = label.position - branch[0];
+					if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+						throw new IllegalStateException("Branch offset out of range: " + offset);
+					}
+					bytes[branch[1]] = (byte) (offset >> 8);
+					bytes[branch[1] + 1] = (byte) offset;
+				}
+			}
+			this.patched = bytes;
+			return bytes;
+		}
+	}
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	static final int ICONST_0 = 0x03;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC = 0x12;
+	static final int LDC_W = 0x13;
+	static final int ILOAD = 0x15;
+	static final int ALOAD = 0x19;
+	static final int ILOAD_0 = 0x1a;
+	static final int ALOAD_0 = 0x2a;
+	static final int AALOAD = 0x32;
+	static final int ISTORE = 0x36;
+	static final int ISTORE_0 = 0x3b;
+	static final int DUP = 0x59;
+	static final int IADD = 0x60;
+	static final int ISUB = 0x64;
+	static final int IMUL = 0x68;
+	static final int IDIV = 0x6c;
+	static final int IREM = 0x70;
+	static final int IINC = 0x84;
+	static final int IFEQ = 0x99;
+	static final int IFNE = 0x9a;
+	static final int IF_ICMPEQ = 0x9f;
+	static final int IF_ICMPNE = 0xa0;
+	static final int IF_ICMPLT = 0xa1;
+	static final int IF_ICMPGE = 0xa2;
+	static final int IF_ICMPGT = 0xa3;
+	static final int IF_ICMPLE = 0xa4;
+	static final int GOTO = 0xa7;
+	static final int IRETURN = 0xac;
+	static final int RETURN = 0xb1;
+	static final int INVOKEVIRTUAL = 0xb6;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+	static final int ATHROW = 0xbf;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAMEANDTYPE = 12;
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOutput = new DataOutputStream(this.pool);
+	private final Map<String, Integer> constants = new HashMap<String, Integer>();
+	private int poolSize = 1;
+
+	private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+	private final DataOutputStream methodOutput = new DataOutputStream(this.methods);
+	private int methodCount;
+
+	private final String name;
+	private final String superName;
+
+	/**
+	 * @param name
+	 *            the internal name of the class, such as
+	 *            {@code script/operations/Example}
+	 * @param superName
+	 *            the internal name of the class's superclass
+	 */
+	public BytecodeAssembler(String name, String superName) {
+		this.name = name;
+		this.superName = superName;
+	}
+
+	public void addMethod(int access, String name, String descriptor, Code code) {
+		try {
+			byte[] bytes = code.toByteArray();
+			this.methodOutput.writeShort(access);
+			this.methodOutput.writeShort(this.utf8(name));
+			this.methodOutput.writeShort(this.utf8(descriptor));
+			this.methodOutput.writeShort(1);
+			this.methodOutput.writeShort(this.utf8("Code"));
+			this.methodOutput.writeInt(12 + bytes.length);
+			this.methodOutput.writeShort(code.maxStack);
+			this.methodOutput.writeShort(code.maxLocals);
+			this.methodOutput.writeInt(bytes.length);
+			this.methodOutput.write(bytes);
+			this.methodOutput.writeShort(0);
+			this.methodOutput.writeShort(0);
+			this.methodCount++;
+		} catch (IOException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	private int classRef(String internalName) {
+		return this.constant("C" + internalName, CONSTANT_CLASS, this.utf8(internalName), -1);
+	}
+
+	private int constant(String key, int tag, int first, int second) {
+		Integer index = this.constants.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			this.poolOutput.writeByte(tag);
+			switch (tag) {
+			case CONSTANT_INTEGER:
+				this.poolOutput.writeInt(first);
+				break;
+			case CONSTANT_CLASS:
+				this.poolOutput.writeShort(first);
+				break;
+			default:
+				this.poolOutput.writeShort(first);
+				this.poolOutput.writeShort(second);
+				break;
+			}
+		} catch (IOException ex) {
+			throw new AssertionError(ex);
+		}
+		index = this.poolSize++;
+		this.constants.put(key, index);
+		return index;
+	}
+
+	private int integer(int value) {
+		return this.constant("I" + value, CONSTANT_INTEGER, value, -1);
+	}
+
+	private int methodRef(String owner, String name, String descriptor) {
+		return this.constant("M" + owner + "." + name + ":" + descriptor, CONSTANT_METHODREF, this.classRef(owner), this.nameAndType(name, descriptor));
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		return this.constant("N" + name + ":" + descriptor, CONSTANT_NAMEANDTYPE, this.utf8(name), this.utf8(descriptor));
+	}
+
+	public Code newCode(int maxLocals) {
+		return new Code(maxLocals);
+	}
+
+	public byte[] toByteArray() {
+		int thisClass = this.classRef(this.name);
+		int superClass = this.classRef(this.superName);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(this.poolSize);
+			this.poolOutput.flush();
+			this.pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(this.methodCount);
+			this.methodOutput.flush();
+			this.methods.writeTo(out);
+			out.writeShort(0);
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	private int utf8(String value) {
+		String key = "U" + value;
+		Integer index = this.constants.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			this.poolOutput.writeByte(CONSTANT_UTF8);
+			this.poolOutput.writeUTF(value);
+		} catch (IOException ex) {
+			throw new AssertionError(ex);
+		}
+		index = this.poolSize++;
+		this.constants.put(key, index);
+		return index;
+	}
+}
@@ -0,0 +1,496 @@
+/**
+ *
+ */
+package script.operations;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logging.Logs;
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.parsing.Referenced;
+import script.parsing.ScriptOperatorType;
+import script.values.RiffScriptFunction;
+import script.values.ScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValueType;
+import script.values.ScriptValue_Boolean;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Translates hot functions into JVM classes. This is the second execution
+ * tier: a {@link RiffScriptFunction} first runs the closures produced by
+ * {@link ScriptCompiler}, and is handed to this compiler once it has been
+ * invoked {@link #INVOCATION_THRESHOLD} times.
+ * <p>
+ * Only functions that work entirely with {@code int} locals, parameters, and
+ * return values are translated. Their locals live in JVM locals, and calls to
+ * other such functions on the same object become direct calls within the
+ * generated class. Functions that use anything else are left to the
+ * closure-compiled tier.
+ * <p>
+ * Each generated class is defined by its own class loader, so it can be
+ * unloaded once its function is recompiled or discarded. The generated code
+ * is only valid while the environment's templates are unchanged; see
+ * {@link BytecodeStatement#isValid()}.
+ *
+ * @author Aaron Faanes
+ * @see BytecodeStatement
+ * @see BytecodeAssembler
+ */
+public final class BytecodeCompiler {
+
+	private static final class Loader extends ClassLoader {
+		private Loader(ClassLoader parent) {
+			super(parent);
+		}
+
+		private Class<?> define(String name, byte[] bytes) {
+			return this.defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	/**
+	 * Thrown when a function uses something this compiler cannot translate.
+	 */
+	private static final class UnsupportedException extends Exception {
+		private static final long serialVersionUID = -3470628373364406734L;
+
+		private UnsupportedException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * The number of invocations after which a function is translated.
+	 */
+	public static final int INVOCATION_THRESHOLD = 1000;
+
+	private static final String SUPERCLASS = "script/operations/BytecodeStatement";
+
+	private static final int MAX_LOCALS = 250;
+
+	private static final AtomicInteger classCount = new AtomicInteger();
+
+	/**
+	 * Translates the specified function, resolving any calls it makes against
+	 * the current object of the specified environment.
+	 *
+	 * @return the translated function body, or {@code null} if the function
+	 *         cannot be translated
+	 */
+	public static CompiledStatement compile(ScriptEnvironment env, RiffScriptFunction function) throws ScriptException {
+		if (env.getProfiler() != null) {
+			// Translated functions bypass the profiler's call hooks
+			return null;
+		}
+		assert Logs.openNode("Bytecode Compilations", "Translating Function to Bytecode");
+		BytecodeCompiler compiler = new BytecodeCompiler(env, function);
+		try {
+			CompiledStatement statement = compiler.translate();
+			assert Logs.closeNode("Translated function (" + compiler.functions.size() + " method(s))");
+			return statement;
+		} catch (UnsupportedException ex) {
+			assert Logs.closeNode("Function was not translated: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private static String getDescriptor(int parameters) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (int i = 0; i < parameters; i++) {
+			descriptor.append('I');
+		}
+		return descriptor.append(")I").toString();
+	}
+
+	private static boolean isInt(ScriptValue value) {
+		return ScriptValueType.INT.equals(value.getType());
+	}
+
+	/**
+	 * Small literals are parsed as shorts, but arithmetic on shorts always
+	 * produces ints, so they may be used wherever an int literal can.
+	 */
+	private static boolean isIntLiteral(ScriptValue value) {
+		return isInt(value) || ScriptValueType.SHORT.equals(value.getType());
+	}
+
+	private final ScriptEnvironment environment;
+	private final RiffScriptFunction root;
+	private final ScriptTemplate_Abstract object;
+	private final int generation;
+	private final String name;
+	private final BytecodeAssembler assembler;
+
+	/**
+	 * The translated functions, in the order of their generated methods.
+	 */
+	private final List<RiffScriptFunction> functions = new ArrayList<RiffScriptFunction>();
+	private final Map<RiffScriptFunction, Integer> methods = new IdentityHashMap<RiffScriptFunction, Integer>();
+
+	private final List<Referenced> references = new ArrayList<Referenced>();
+
+	private BytecodeCompiler(ScriptEnvironment env, RiffScriptFunction root) {
+		this.environment = env;
+		this.root = root;
+		this.object = env.getCurrentObject();
+		this.generation = env.getTemplateGeneration();
+		this.name = "script/operations/BytecodeFunction" + classCount.incrementAndGet();
+		this.assembler = new BytecodeAssembler(this.name, SUPERCLASS);
+	}
+
+	private int getMethod(RiffScriptFunction function) {
+		Integer method = this.methods.get(function);
+		if (method == null) {
+			method = this.functions.size();
+			this.functions.add(function);
+			this.methods.put(function, method);
+		}
+		return method;
+	}
+
+	private int getReference(Referenced ref) {
+		this.references.add(ref);
+		return this.references.size() - 1;
+	}
+
+	private int getSlot(ScriptValue value) throws UnsupportedException {
+		int slot = -1;
+		if (value instanceof ScriptExecutable_CreateVariable) {
+			slot = ((ScriptExecutable_CreateVariable) value).getSlot();
+		} else if (value instanceof ScriptExecutable_RetrieveVariable) {
+			slot = ((ScriptExecutable_RetrieveVariable) value).getSlot();
+		}
+		if (slot == -1 || !isInt(value)) {
+			throw new UnsupportedException("Variable is not an int local");
+		}
+		return 1 + slot;
+	}
+
+	private CompiledStatement translate() throws ScriptException, UnsupportedException {
+		this.getMethod(this.root);
+		for (int i = 0; i < this.functions.size(); i++) {
+			this.translateFunction(i);
+		}
+		this.translateEntry();
+		this.translateConstructor();
+		byte[] bytes = this.assembler.toByteArray();
+		try {
+			Class<?> type = new Loader(BytecodeCompiler.class.getClassLoader()).define(this.name.replace('/', '.'), bytes);
+			Constructor<?> constructor = type.getConstructor(ScriptEnvironment.class, RiffScriptFunction.class, ScriptTemplate_Abstract.class, int.class, Referenced[].class);
+			return (CompiledStatement) constructor.newInstance(this.environment, this.root, this.object, this.generation, this.references.toArray(new Referenced[this.references.size()]));
+		} catch (ReflectiveOperationException ex) {
+			throw new UnsupportedException("Generated class could not be instantiated: " + ex);
+		} catch (LinkageError ex) {
+			throw new UnsupportedException("Generated class could not be loaded: " + ex);
+		}
+	}
+
+	private void translateArithmetic(BytecodeAssembler.Code code, ScriptOperatorType operator, Referenced ref) {
+		switch (operator) {
+		case PLUS:
+		case PLUSEQUALS:
+			code.insn(BytecodeAssembler.IADD, -1);
+			return;
+		case MINUS:
+		case MINUSEQUALS:
+			code.insn(BytecodeAssembler.ISUB, -1);
+			return;
+		case MULTIPLY:
+		case MULTIPLYEQUALS:
+			code.insn(BytecodeAssembler.IMUL, -1);
+			return;
+		case DIVIDE:
+		case DIVIDEEQUALS:
+		case MODULUS:
+		case MODULUSEQUALS:
+			// Check the divisor, leaving the operands on the stack
+			int stack = code.getStack();
+			BytecodeAssembler.Label nonzero = new BytecodeAssembler.Label();
+			code.insn(BytecodeAssembler.DUP, 1);
+			code.branch(BytecodeAssembler.IFNE, nonzero);
+			code.var(BytecodeAssembler.ALOAD, 0);
+			code.pushInt(this.getReference(ref));
+			code.invoke(BytecodeAssembler.INVOKEVIRTUAL, SUPERCLASS, "divisionByZero", "(I)Lscript/exceptions/ScriptException;", 1, true);
+			code.insn(BytecodeAssembler.ATHROW, -1);
+			code.setStack(stack);
+			code.place(nonzero);
+			if (operator == ScriptOperatorType.DIVIDE || operator == ScriptOperatorType.DIVIDEEQUALS) {
+				code.insn(BytecodeAssembler.IDIV, -1);
+			} else {
+				code.insn(BytecodeAssembler.IREM, -1);
+			}
+			return;
+		default:
+			throw new AssertionError("Invalid default");
+		}
+	}
+
+	private void translateBlock(BytecodeAssembler.Code code, List<ScriptExecutable> expressions) throws ScriptException, UnsupportedException {
+		for (ScriptExecutable exec : expressions) {
+			this.translateStatement(code, exec);
+		}
+	}
+
+	private void translateCall(BytecodeAssembler.Code code, ScriptExecutable_CallFunction call) throws ScriptException, UnsupportedException {
+		if (call.getObject() != null) {
+			throw new UnsupportedException("Call is not made on the current object");
+		}
+		List<ScriptValue> params = call.getParameters();
+		if (params == null) {
+			params = Collections.emptyList();
+		}
+		List<ScriptValue> arguments = new ArrayList<ScriptValue>();
+		for (int i = 0; i < params.size(); i++) {
+			arguments.add(new ScriptValue_Numeric(this.environment, 0));
+		}
+		ScriptFunction function = this.object.getFunction(call.getFunctionName(), arguments);
+		if (function == null || function.getClass() != RiffScriptFunction.class || function.isAbstract()) {
+			throw new UnsupportedException("Called function is not a script function");
+		}
+		ScriptTemplate_Abstract functionTemplate = this.object.getFunctionTemplate(function);
+		if (functionTemplate.getType().equals(this.object.getType()) && !function.isStatic()) {
+			functionTemplate = this.object;
+		}
+		if (function.isStatic() == functionTemplate.isObject()) {
+			throw new UnsupportedException("Called function does not match its template");
+		}
+		int method = this.getMethod((RiffScriptFunction) function);
+		code.var(BytecodeAssembler.ALOAD, 0);
+		for (ScriptValue param : params) {
+			this.translateInt(code, param);
+		}
+		code.invoke(BytecodeAssembler.INVOKESPECIAL, this.name, "function" + method, getDescriptor(params.size()), params.size(), true);
+	}
+
+	/**
+	 * Translates the specified condition as a branch to the specified label,
+	 * taken if the condition evaluates to {@code jumpIf}.
+	 */
+	private void translateCondition(BytecodeAssembler.Code code, ScriptValue condition, BytecodeAssembler.Label target, boolean jumpIf) throws ScriptException, UnsupportedException {
+		if (condition instanceof ScriptValue_Boolean) {
+			if (((ScriptValue_Boolean) condition).getBooleanValue() == jumpIf) {
+				code.branch(BytecodeAssembler.GOTO, target);
+			}
+			return;
+		}
+		if (condition instanceof ScriptExecutable_InvertBoolean && ((ScriptExecutable_InvertBoolean) condition).getOperand() instanceof ScriptValue) {
+			this.translateCondition(code, (ScriptValue) ((ScriptExecutable_InvertBoolean) condition).getOperand(), target, !jumpIf);
+			return;
+		}
+		if (!(condition instanceof ScriptExecutable_EvaluateBoolean)) {
+			throw new UnsupportedException("Unsupported condition: " + condition.getClass().getSimpleName());
+		}
+		ScriptExecutable_EvaluateBoolean comparison = (ScriptExecutable_EvaluateBoolean) condition;
+		this.translateInt(code, comparison.getLeft());
+		this.translateInt(code, comparison.getRight());
+		ScriptOperatorType operator = comparison.getComparison();
+		if (!jumpIf) {
+			switch (operator) {
+			case EQUIVALENCY:
+				operator = ScriptOperatorType.NONEQUIVALENCY;
+				break;
+			case NONEQUIVALENCY:
+				operator = ScriptOperatorType.EQUIVALENCY;
+				break;
+			case LESS:
+				operator = ScriptOperatorType.GREATEREQUALS;
+				break;
+			case LESSEQUALS:
+				operator = ScriptOperatorType.GREATER;
+				break;
+			case GREATER:
+				operator = ScriptOperatorType.LESSEQUALS;
+				break;
+			case GREATEREQUALS:
+				operator = ScriptOperatorType.LESS;
+				break;
+			default:
+				throw new AssertionError("Invalid default");
+			}
+		}
+		switch (operator) {
+		case EQUIVALENCY:
+			code.branch(BytecodeAssembler.IF_ICMPEQ, target);
+			break;
+		case NONEQUIVALENCY:
+			code.branch(BytecodeAssembler.IF_ICMPNE, target);
+			break;
+		case LESS:
+			code.branch(BytecodeAssembler.IF_ICMPLT, target);
+			break;
+		case LESSEQUALS:
+			code.branch(BytecodeAssembler.IF_ICMPLE, target);
+			break;
+		case GREATER:
+			code.branch(BytecodeAssembler.IF_ICMPGT, target);
+			break;
+		case GREATEREQUALS:
+			code.branch(BytecodeAssembler.IF_ICMPGE, target);
+			break;
+		default:
+			throw new AssertionError("Invalid default");
+		}
+	}
+
+	private void translateConstructor() {
+		BytecodeAssembler.Code code = this.assembler.newCode(6);
+		code.var(BytecodeAssembler.ALOAD, 0);
+		code.var(BytecodeAssembler.ALOAD, 1);
+		code.var(BytecodeAssembler.ALOAD, 2);
+		code.var(BytecodeAssembler.ALOAD, 3);
+		code.var(BytecodeAssembler.ILOAD, 4);
+		code.var(BytecodeAssembler.ALOAD, 5);
+		String descriptor = "(Lscript/ScriptEnvironment;Lscript/values/RiffScriptFunction;Lscript/values/ScriptTemplate_Abstract;I[Lscript/parsing/Referenced;)V";
+		code.invoke(BytecodeAssembler.INVOKESPECIAL, SUPERCLASS, "<init>", descriptor, 5, false);
+		code.insn(BytecodeAssembler.RETURN, 0);
+		this.assembler.addMethod(BytecodeAssembler.ACC_PUBLIC, "<init>", descriptor, code);
+	}
+
+	/**
+	 * Translates the entry point, which reads the root function's parameters
+	 * from its frame and sets its return value.
+	 */
+	private void translateEntry() {
+		int parameters = this.root.getParameters().size();
+		BytecodeAssembler.Code code = this.assembler.newCode(2);
+		code.var(BytecodeAssembler.ALOAD, 0);
+		code.var(BytecodeAssembler.ALOAD, 0);
+		for (int i = 0; i < parameters; i++) {
+			code.var(BytecodeAssembler.ALOAD, 1);
+			code.pushInt(i);
+			code.insn(BytecodeAssembler.AALOAD, -1);
+			code.invoke(BytecodeAssembler.INVOKESTATIC, SUPERCLASS, "intValue", "(Lscript/values/ScriptValue_Variable;)I", 1, true);
+		}
+		code.invoke(BytecodeAssembler.INVOKESPECIAL, this.name, "function0", getDescriptor(parameters), parameters, true);
+		code.invoke(BytecodeAssembler.INVOKEVIRTUAL, SUPERCLASS, "returnValue", "(I)Z", 1, true);
+		code.insn(BytecodeAssembler.IRETURN, -1);
+		this.assembler.addMethod(BytecodeAssembler.ACC_PUBLIC, "execute", "([Lscript/values/ScriptValue_Variable;)Z", code);
+	}
+
+	private void translateFor(BytecodeAssembler.Code code, ScriptExecutable_ForStatement statement) throws ScriptException, UnsupportedException {
+		if (!(statement.getTester() instanceof ScriptValue)) {
+			throw new UnsupportedException("Unsupported for-statement condition");
+		}
+		BytecodeAssembler.Label test = new BytecodeAssembler.Label();
+		BytecodeAssembler.Label end = new BytecodeAssembler.Label();
+		this.translateStatement(code, statement.getInitializer());
+		code.place(test);
+		this.translateCondition(code, (ScriptValue) statement.getTester(), end, false);
+		this.translateBlock(code, statement.getExpressions());
+		this.translateStatement(code, statement.getRepeater());
+		this.translateSafePoint(code);
+		code.branch(BytecodeAssembler.GOTO, test);
+		code.place(end);
+	}
+
+	private void translateFunction(int method) throws ScriptException, UnsupportedException {
+		RiffScriptFunction function = this.functions.get(method);
+		if (function.getClass() != RiffScriptFunction.class || function.isAbstract() || !ScriptValueType.INT.equals(function.getReturnType())) {
+			throw new UnsupportedException("Function does not return an int");
+		}
+		if (function.getFrameSize() + 1 > MAX_LOCALS) {
+			throw new UnsupportedException("Function has too many locals");
+		}
+		List<ScriptValue> params = function.getParameters();
+		for (int i = 0; i < params.size(); i++) {
+			if (!(params.get(i) instanceof ScriptExecutable_CreateVariable) || this.getSlot(params.get(i)) != 1 + i) {
+				throw new UnsupportedException("Parameters are not int locals");
+			}
+		}
+		List<ScriptExecutable> expressions = function.getExpressions();
+		if (expressions.isEmpty() || !(expressions.get(expressions.size() - 1) instanceof ScriptExecutable_ReturnValue)) {
+			throw new UnsupportedException("Function does not end with a return statement");
+		}
+		BytecodeAssembler.Code code = this.assembler.newCode(1 + function.getFrameSize());
+		// Every local starts at zero, so each has a value on every path
+		for (int slot = params.size(); slot < function.getFrameSize(); slot++) {
+			code.pushInt(0);
+			code.var(BytecodeAssembler.ISTORE, 1 + slot);
+		}
+		// Calls between translated functions bypass callFunction, so every
+		// function has a safe point of its own.
+		this.translateSafePoint(code);
+		this.translateBlock(code, expressions);
+		this.assembler.addMethod(BytecodeAssembler.ACC_PRIVATE, "function" + method, getDescriptor(params.size()), code);
+	}
+
+	private void translateIf(BytecodeAssembler.Code code, ScriptExecutable_IfStatement statement) throws ScriptException, UnsupportedException {
+		BytecodeAssembler.Label otherwise = new BytecodeAssembler.Label();
+		BytecodeAssembler.Label end = new BytecodeAssembler.Label();
+		this.translateCondition(code, statement.getTestingValue(), otherwise, false);
+		this.translateBlock(code, statement.getExpressions());
+		code.branch(BytecodeAssembler.GOTO, end);
+		code.place(otherwise);
+		if (statement.getElseStatement() != null) {
+			this.translateIf(code, statement.getElseStatement());
+		}
+		code.place(end);
+	}
+
+	private void translateInt(BytecodeAssembler.Code code, ScriptValue value) throws ScriptException, UnsupportedException {
+		if (value instanceof ScriptValue_Numeric && isIntLiteral(value)) {
+			code.pushInt(((ScriptValue_Numeric) value).intValue());
+		} else if (value instanceof ScriptExecutable_RetrieveVariable) {
+			code.var(BytecodeAssembler.ILOAD, this.getSlot(value));
+		} else if (value instanceof ScriptExecutable_EvaluateMathExpression) {
+			ScriptExecutable_EvaluateMathExpression expression = (ScriptExecutable_EvaluateMathExpression) value;
+			this.translateInt(code, expression.getLeft());
+			this.translateInt(code, expression.getRight());
+			this.translateArithmetic(code, expression.getOperator(), expression);
+		} else if (value instanceof ScriptExecutable_CallFunction) {
+			this.translateCall(code, (ScriptExecutable_CallFunction) value);
+		} else {
+			throw new UnsupportedException("Unsupported value: " + (value == null ? null : value.getClass().getSimpleName()));
+		}
+	}
+
+	private void translateSafePoint(BytecodeAssembler.Code code) {
+		code.var(BytecodeAssembler.ALOAD, 0);
+		code.invoke(BytecodeAssembler.INVOKEVIRTUAL, SUPERCLASS, "safePoint", "()V", 0, false);
+	}
+
+	private void translateStatement(BytecodeAssembler.Code code, ScriptExecutable exec) throws ScriptException, UnsupportedException {
+		if (exec instanceof ScriptExecutable_ReturnValue) {
+			this.translateInt(code, ((ScriptExecutable_ReturnValue) exec).getReturnedValue());
+			code.insn(BytecodeAssembler.IRETURN, -1);
+		} else if (exec instanceof ScriptExecutable_IfStatement) {
+			this.translateIf(code, (ScriptExecutable_IfStatement) exec);
+		} else if (exec instanceof ScriptExecutable_ForStatement) {
+			this.translateFor(code, (ScriptExecutable_ForStatement) exec);
+		} else if (exec instanceof ScriptExecutable_AssignValue) {
+			ScriptExecutable_AssignValue assignment = (ScriptExecutable_AssignValue) exec;
+			int local = this.getSlot(assignment.getLeft());
+			this.translateInt(code, assignment.getRight());
+			code.var(BytecodeAssembler.ISTORE, local);
+		} else if (exec instanceof ScriptExecutable_EvalAssignMathExpression) {
+			ScriptExecutable_EvalAssignMathExpression expression = (ScriptExecutable_EvalAssignMathExpression) exec;
+			int local = this.getSlot(expression.getLeft());
+			code.var(BytecodeAssembler.ILOAD, local);
+			this.translateInt(code, expression.getRight());
+			this.translateArithmetic(code, expression.getOperator(), expression);
+			code.var(BytecodeAssembler.ISTORE, local);
+		} else if (exec instanceof ScriptExecutable_AutoMathematicator) {
+			ScriptExecutable_AutoMathematicator mathematicator = (ScriptExecutable_AutoMathematicator) exec;
+			int local = this.getSlot(mathematicator.getOperand());
+			if (mathematicator.getOperator() == ScriptOperatorType.INCREMENT) {
+				code.iinc(local, 1);
+			} else {
+				code.iinc(local, -1);
+			}
+		} else if (exec instanceof ScriptExecutable_CreateVariable) {
+			code.pushInt(0);
+			code.var(BytecodeAssembler.ISTORE, this.getSlot((ScriptValue) exec));
+		} else {
+			throw new UnsupportedException("Unsupported statement: " + (exec == null ? null : exec.getClass().getSimpleName()));
+		}
+	}
+}
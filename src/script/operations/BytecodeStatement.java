@@ -0,0 +1,69 @@
+/**
+ *
+ */
+package script.operations;
+
+import script.ScriptEnvironment;
+import script.exceptions.DivisionByZeroScriptException;
+import script.exceptions.ScriptException;
+import script.parsing.Referenced;
+import script.values.RiffScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_Variable;
+
+/**
+ * The superclass of every function body generated by
+ * {@link BytecodeCompiler}. Generated classes are defined by their own class
+ * loaders, so everything they need from the interpreter is provided here.
+ * <p>
+ * A generated body assumes that the templates it was compiled against have
+ * not changed, and that it is invoked on the same object. Generated methods
+ * call each other directly, so they are also abandoned while the environment
+ * is being profiled. Once any of these assumptions fails, {@link #isValid()}
+ * returns {@code false} and the function falls back to its
+ * {@link ScriptCompiler closure-compiled} body.
+ *
+ * @author Aaron Faanes
+ * @see BytecodeCompiler
+ */
+public abstract class BytecodeStatement extends CompiledStatement {
+	protected static int intValue(ScriptValue_Variable variable) throws ScriptException {
+		return ((ScriptValue_Numeric) variable.getValue()).intValue();
+	}
+
+	private final RiffScriptFunction function;
+	private final ScriptTemplate_Abstract object;
+	private final int generation;
+	private final Referenced[] references;
+
+	protected BytecodeStatement(ScriptEnvironment env, RiffScriptFunction function, ScriptTemplate_Abstract object, int generation, Referenced[] references) {
+		super(env);
+		this.function = function;
+		this.object = object;
+		this.generation = generation;
+		this.references = references;
+	}
+
+	protected final ScriptException divisionByZero(int reference) {
+		return new DivisionByZeroScriptException(this.references[reference]);
+	}
+
+	public RiffScriptFunction getFunction() {
+		return this.function;
+	}
+
+	@Override
+	public boolean isValid() {
+		return this.getEnvironment().getTemplateGeneration() == this.generation && this.getEnvironment().getCurrentObject() == this.object && this.getEnvironment().getProfiler() == null;
+	}
+
+	protected final void safePoint() {
+		this.getEnvironment().safePoint();
+	}
+
+	protected final boolean returnValue(int value) throws ScriptException {
+		this.function.setReturnValue(null, new ScriptValue_Numeric(this.getEnvironment(), value));
+		return true;
+	}
+}
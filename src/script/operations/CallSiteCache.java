@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package script.operations;
+
+import java.io.Serializable;
+import java.util.List;
+
+import script.values.ScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValueType;
+
+/**
+ * An inline cache of resolved functions for a single call site. Entries are
+ * keyed by the receiver's type and the types of the given arguments, so a call
+ * site that always sees the same types skips overload resolution entirely.
+ * <p>
+ * Up to {@link #POLYMORPHIC_LIMIT} different type combinations are cached. A
+ * call site that sees more than that is considered megamorphic and stops
+ * caching. The whole cache is discarded whenever the environment's template
+ * generation changes, which happens whenever templates or functions are
+ * added or redefined.
+ *
+ * @author Aaron Faanes
+ * @see ScriptExecutable_CallFunction
+ * @see script.ScriptEnvironment#getTemplateGeneration()
+ */
+final class CallSiteCache implements Serializable {
+
+	static final int POLYMORPHIC_LIMIT = 4;
+
+	static final class Entry {
+		private final ScriptValueType receiverType;
+		private final ScriptValueType[] argumentTypes;
+		private final ScriptFunction function;
+		private final ScriptTemplate_Abstract functionTemplate;
+
+		private Entry(ScriptValueType receiverType, ScriptValueType[] argumentTypes, ScriptFunction function, ScriptTemplate_Abstract functionTemplate) {
+			this.receiverType = receiverType;
+			this.argumentTypes = argumentTypes;
+			this.function = function;
+			this.functionTemplate = functionTemplate;
+		}
+
+		public ScriptFunction getFunction() {
+			return this.function;
+		}
+
+		public ScriptTemplate_Abstract getFunctionTemplate() {
+			return this.functionTemplate;
+		}
+
+		private boolean matches(ScriptValueType receiverType, List<ScriptValue> arguments) {
+			if (this.receiverType != receiverType || this.argumentTypes.length != arguments.size()) {
+				return false;
+			}
+			for (int i = 0; i < this.argumentTypes.length; i++) {
+				if (this.argumentTypes[i] != typeOf(arguments.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static ScriptValueType typeOf(ScriptValue value) {
+		if (value == null) {
+			return null;
+		}
+		return value.getType();
+	}
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	/**
+	 * The cached entries of a single template generation. A state is never
+	 * modified once published, so its entries are always tagged with the
+	 * generation they were resolved in.
+	 */
+	private static final class State {
+		private final int generation;
+		private final Entry[] entries;
+		private final boolean megamorphic;
+
+		State(int generation, Entry[] entries, boolean megamorphic) {
+			this.generation = generation;
+			this.entries = entries;
+			this.megamorphic = megamorphic;
+		}
+	}
+
+	private static final State EMPTY = new State(-1, NO_ENTRIES, false);
+
+	/**
+	 * The current state. Lookups need no locking; a racing addition at worst
+	 * loses an entry.
+	 */
+	private transient volatile State state = EMPTY;
+
+	/**
+	 * Resolutions are never stored, so a deserialized call site starts with an
+	 * empty cache.
+	 */
+	private Object readResolve() {
+		return new CallSiteCache();
+	}
+
+	/**
+	 * Returns the cached entry for the specified receiver and arguments, or
+	 * {@code null} if this call site has not yet resolved that combination.
+	 */
+	public Entry lookup(int generation, ScriptValueType receiverType, List<ScriptValue> arguments) {
+		State current = this.state;
+		if (current.generation != generation) {
+			return null;
+		}
+		Entry[] cached = current.entries;
+		for (int i = 0; i < cached.length; i++) {
+			if (cached[i].matches(receiverType, arguments)) {
+				return cached[i];
+			}
+		}
+		return null;
+	}
+
+	public void add(int generation, ScriptValueType receiverType, List<ScriptValue> arguments, ScriptFunction function, ScriptTemplate_Abstract functionTemplate) {
+		State current = this.state;
+		Entry[] cached = current.entries;
+		if (current.generation != generation) {
+			if (current.generation - generation > 0) {
+				// Resolved against templates that have since changed.
+				return;
+			}
+			cached = NO_ENTRIES;
+		} else if (current.megamorphic) {
+			return;
+		}
+		if (cached.length == POLYMORPHIC_LIMIT) {
+			this.state = new State(generation, cached, true);
+			return;
+		}
+		ScriptValueType[] argumentTypes = new ScriptValueType[arguments.size()];
+		for (int i = 0; i < argumentTypes.length; i++) {
+			argumentTypes[i] = typeOf(arguments.get(i));
+		}
+		Entry[] updated = new Entry[cached.length + 1];
+		System.arraycopy(cached, 0, updated, 0, cached.length);
+		updated[cached.length] = new Entry(receiverType, argumentTypes, function, functionTemplate);
+		this.state = new State(generation, updated, false);
+	}
+
+	public boolean isMegamorphic() {
+		return this.state.megamorphic;
+	}
+
+	public int size() {
+		return this.state.entries.length;
+	}
+
+	private static final long serialVersionUID = 5887119915072977155L;
+}
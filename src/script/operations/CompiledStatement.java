@@ -0,0 +1,59 @@
+/**
+ *
+ */
+package script.operations;
+
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.values.ScriptValue_Variable;
+
+/**
+ * A statement of a function body that has been compiled by
+ * {@link ScriptCompiler}. Compiled statements are resolved once, when the
+ * function is first executed, so they perform no type tests or casts that can
+ * be decided ahead of time.
+ * <p>
+ * Local variables are passed explicitly as the current frame's slots rather
+ * than being looked up through the environment's thread stack on every
+ * access.
+ *
+ * @author Aaron Faanes
+ * @see ScriptCompiler
+ */
+public abstract class CompiledStatement {
+	private final ScriptEnvironment environment;
+
+	protected CompiledStatement(ScriptEnvironment env) {
+		this.environment = env;
+	}
+
+	/**
+	 * Executes this statement using the current frame of its environment.
+	 *
+	 * @return {@code true} if the enclosing function should return
+	 */
+	public boolean execute() throws ScriptException {
+		return this.execute(this.getEnvironment().getCurrentFrame());
+	}
+
+	/**
+	 * Executes this statement using the specified local-variable slots.
+	 *
+	 * @return {@code true} if the enclosing function should return
+	 */
+	public abstract boolean execute(ScriptValue_Variable[] locals) throws ScriptException;
+
+	public ScriptEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/**
+	 * Returns whether this statement may still be executed. Statements that
+	 * made assumptions about the environment when they were compiled return
+	 * {@code false} once those assumptions no longer hold, and must then be
+	 * recompiled.
+	 */
+	public boolean isValid() {
+		return true;
+	}
+}
@@ -0,0 +1,890 @@
+/**
+ *
+ */
+package script.operations;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logging.Logs;
+import script.ScriptEnvironment;
+import script.ScriptProfiler;
+import script.exceptions.DivisionByZeroScriptException;
+import script.exceptions.ScriptException;
+import script.parsing.ScriptKeywordType;
+import script.parsing.ScriptOperatorType;
+import script.values.Returnable;
+import script.values.RiffScriptFunction;
+import script.values.ScriptValue;
+import script.values.ScriptValueType;
+import script.values.ScriptValue_Boolean;
+import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
+import script.values.ScriptValue_Variable;
+
+/**
+ * Compiles the parsed expressions of a function body into a tree of
+ * {@link CompiledStatement}s. Each node of the parse tree is turned into a
+ * closure specialized for that node, so the type tests, casts, and
+ * {@link Returnable} checks that the interpreter repeats on every execution
+ * are decided once.
+ * <p>
+ * Arithmetic and comparisons between local variables and literals that are
+ * statically known to be {@code int} or {@code double} are compiled to
+ * primitive operations, so they create no intermediate values. Everything
+ * else falls back to the parsed node itself, so the compiled tree always has
+ * the same semantics as the interpreter, and errors are reported against the
+ * same {@link script.parsing.Referenced} elements.
+ *
+ * @author Aaron Faanes
+ * @see RiffScriptFunction#execute(script.parsing.Referenced, List)
+ */
+public final class ScriptCompiler {
+
+	abstract static class Condition {
+		abstract boolean test(ScriptValue_Variable[] locals) throws ScriptException;
+	}
+
+	abstract static class DoubleValue {
+		abstract double getDouble(ScriptValue_Variable[] locals) throws ScriptException;
+	}
+
+	abstract static class IntValue {
+		abstract int getInt(ScriptValue_Variable[] locals) throws ScriptException;
+	}
+
+	abstract static class Value {
+		abstract ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException;
+	}
+
+	abstract static class Variable {
+		abstract ScriptValue_Variable getVariable(ScriptValue_Variable[] locals) throws ScriptException;
+	}
+
+	/**
+	 * Compiles the specified function body.
+	 *
+	 * @param function
+	 *            the function that owns the body, and that receives its return
+	 *            values
+	 * @param expressions
+	 *            the parsed expressions of the function body
+	 */
+	public static CompiledStatement compile(RiffScriptFunction function, List<ScriptExecutable> expressions) throws ScriptException {
+		assert Logs.openNode("Function Compilations", "Compiling Function (" + expressions.size() + " expressions)");
+		ScriptEnvironment env = null;
+		if (!expressions.isEmpty()) {
+			env = expressions.get(0).getDebugReference().getEnvironment();
+		}
+		final CompiledStatement body = new ScriptCompiler(env, function).compileBlock(expressions);
+		assert Logs.closeNode();
+		if (env == null) {
+			return body;
+		}
+		final ScriptProfiler profiler = env.getProfiler();
+		return new CompiledStatement(env) {
+			@Override
+			public boolean execute() throws ScriptException {
+				return body.execute();
+			}
+
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				return body.execute(locals);
+			}
+
+			@Override
+			public boolean isValid() {
+				// Line counters are compiled in, so profiling requires a new body
+				return this.getEnvironment().getProfiler() == profiler;
+			}
+		};
+	}
+
+	/**
+	 * Compares two doubles the same way as
+	 * {@link ScriptValue_Numeric#valuesCompare(script.parsing.Referenced, ScriptValue)}
+	 * .
+	 */
+	private static int compare(double left, double right) {
+		if (Double.doubleToLongBits(left) == Double.doubleToLongBits(right)) {
+			return 0;
+		}
+		if (left > right) {
+			return 1;
+		}
+		return -1;
+	}
+
+	private static boolean isType(ScriptValue value, ScriptValueType type) {
+		return type.equals(value.getType());
+	}
+
+	private final ScriptEnvironment environment;
+
+	private final RiffScriptFunction function;
+
+	/**
+	 * Whether the block currently being compiled declares a variable that is
+	 * not assigned to a frame slot, and so needs its own nested stack.
+	 */
+	private boolean usesNestedStack;
+
+	/**
+	 * The profiler whose line counters are compiled into each statement, or
+	 * {@code null} if the environment is not being profiled.
+	 */
+	private final ScriptProfiler profiler;
+
+	private ScriptCompiler(ScriptEnvironment env, RiffScriptFunction function) {
+		this.environment = env;
+		this.function = function;
+		if (env != null) {
+			this.profiler = env.getProfiler();
+		} else {
+			this.profiler = null;
+		}
+	}
+
+	private CompiledStatement compileAssignment(final ScriptExecutable_AssignValue assignment) throws ScriptException {
+		final Value value = this.compileValue(assignment.getRight());
+		final ScriptValue left = assignment.getLeft();
+		if (left instanceof ScriptExecutable_CreateVariable || left instanceof ScriptExecutable_RetrieveVariable && ((ScriptExecutable_RetrieveVariable) left).getSlot() != -1) {
+			final Variable variable = this.compileVariable(left);
+			return new CompiledStatement(this.environment) {
+				@Override
+				public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+					ScriptValue assigned = value.getValue(locals);
+					variable.getVariable(locals).setValue(assignment, assigned);
+					return false;
+				}
+			};
+		}
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				left.setValue(assignment, value.getValue(locals));
+				return false;
+			}
+		};
+	}
+
+	private CompiledStatement compileAutoMathematicator(final ScriptExecutable_AutoMathematicator mathematicator) throws ScriptException {
+		final Value operand = this.compileValue(mathematicator.getOperand());
+		if (mathematicator.getOperator() == ScriptOperatorType.INCREMENT) {
+			return new CompiledStatement(this.environment) {
+				@Override
+				public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+					((ScriptValue_Numeric) operand.getValue(locals)).increment();
+					return false;
+				}
+			};
+		}
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				((ScriptValue_Numeric) operand.getValue(locals)).decrement();
+				return false;
+			}
+		};
+	}
+
+	private CompiledStatement compileBlock(List<ScriptExecutable> expressions) throws ScriptException {
+		final CompiledStatement[] statements = new CompiledStatement[expressions.size()];
+		for (int i = 0; i < statements.length; i++) {
+			statements[i] = this.profile(expressions.get(i), this.compileStatement(expressions.get(i)));
+		}
+		if (statements.length == 1) {
+			return statements[0];
+		}
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute() throws ScriptException {
+				if (statements.length == 0) {
+					return false;
+				}
+				return super.execute();
+			}
+
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				for (int i = 0; i < statements.length; i++) {
+					if (statements[i].execute(locals)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	private Condition compileComparison(final ScriptExecutable_EvaluateBoolean comparison) throws ScriptException {
+		final IntValue leftInt = this.compileInt(comparison.getLeft());
+		final IntValue rightInt = this.compileInt(comparison.getRight());
+		if (leftInt != null && rightInt != null) {
+			switch (comparison.getComparison()) {
+			case EQUIVALENCY:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) == rightInt.getInt(locals);
+					}
+				};
+			case NONEQUIVALENCY:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) != rightInt.getInt(locals);
+					}
+				};
+			case LESS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) < rightInt.getInt(locals);
+					}
+				};
+			case LESSEQUALS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) <= rightInt.getInt(locals);
+					}
+				};
+			case GREATER:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) > rightInt.getInt(locals);
+					}
+				};
+			case GREATEREQUALS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftInt.getInt(locals) >= rightInt.getInt(locals);
+					}
+				};
+			default:
+				throw new AssertionError("Invalid default");
+			}
+		}
+		final DoubleValue leftDouble = this.compileDouble(comparison.getLeft());
+		final DoubleValue rightDouble = this.compileWidenedDouble(comparison.getRight());
+		if (leftDouble != null && rightDouble != null) {
+			switch (comparison.getComparison()) {
+			case EQUIVALENCY:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftDouble.getDouble(locals) == rightDouble.getDouble(locals);
+					}
+				};
+			case NONEQUIVALENCY:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return leftDouble.getDouble(locals) != rightDouble.getDouble(locals);
+					}
+				};
+			case LESS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return compare(leftDouble.getDouble(locals), rightDouble.getDouble(locals)) < 0;
+					}
+				};
+			case LESSEQUALS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return compare(leftDouble.getDouble(locals), rightDouble.getDouble(locals)) <= 0;
+					}
+				};
+			case GREATER:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return compare(leftDouble.getDouble(locals), rightDouble.getDouble(locals)) > 0;
+					}
+				};
+			case GREATEREQUALS:
+				return new Condition() {
+					@Override
+					boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+						return compare(leftDouble.getDouble(locals), rightDouble.getDouble(locals)) >= 0;
+					}
+				};
+			default:
+				throw new AssertionError("Invalid default");
+			}
+		}
+		final Value left = this.compileValue(comparison.getLeft());
+		final Value right = this.compileValue(comparison.getRight());
+		final ScriptOperatorType operator = comparison.getComparison();
+		return new Condition() {
+			@Override
+			boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+				ScriptValue lhs = left.getValue(locals);
+				ScriptValue rhs = right.getValue(locals);
+				switch (operator) {
+				case EQUIVALENCY:
+					return lhs.valuesEqual(comparison, rhs);
+				case NONEQUIVALENCY:
+					return !lhs.valuesEqual(comparison, rhs);
+				case LESS:
+					return lhs.valuesCompare(comparison, rhs) < 0;
+				case LESSEQUALS:
+					return lhs.valuesCompare(comparison, rhs) <= 0;
+				case GREATER:
+					return lhs.valuesCompare(comparison, rhs) > 0;
+				case GREATEREQUALS:
+					return lhs.valuesCompare(comparison, rhs) >= 0;
+				default:
+					throw new AssertionError("Invalid default");
+				}
+			}
+		};
+	}
+
+	private Condition compileCondition(final ScriptValue value) throws ScriptException {
+		if (value instanceof ScriptExecutable_EvaluateBoolean) {
+			return this.compileComparison((ScriptExecutable_EvaluateBoolean) value);
+		}
+		if (value instanceof ScriptExecutable_InvertBoolean && ((ScriptExecutable_InvertBoolean) value).getOperand() instanceof ScriptValue) {
+			final Condition inverted = this.compileCondition((ScriptValue) ((ScriptExecutable_InvertBoolean) value).getOperand());
+			return new Condition() {
+				@Override
+				boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+					return !inverted.test(locals);
+				}
+			};
+		}
+		if (value instanceof ScriptValue_Boolean) {
+			return new Condition() {
+				@Override
+				boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+					return ((ScriptValue_Boolean) value).getBooleanValue();
+				}
+			};
+		}
+		final Value compiled = this.compileValue(value);
+		return new Condition() {
+			@Override
+			boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+				return ((ScriptValue_Boolean) compiled.getValue(locals)).getBooleanValue();
+			}
+		};
+	}
+
+	private Variable compileDeclaration(final ScriptExecutable_CreateVariable declaration) throws ScriptException {
+		final int slot = declaration.getSlot();
+		if (slot == -1) {
+			this.usesNestedStack = true;
+			return new Variable() {
+				@Override
+				ScriptValue_Variable getVariable(ScriptValue_Variable[] locals) throws ScriptException {
+					return (ScriptValue_Variable) declaration.execute();
+				}
+			};
+		}
+		final ScriptEnvironment env = declaration.getEnvironment();
+		final ScriptValueType type = declaration.getType();
+		final ScriptKeywordType permission = declaration.getPermission();
+		return new Variable() {
+			@Override
+			ScriptValue_Variable getVariable(ScriptValue_Variable[] locals) throws ScriptException {
+				ScriptValue_Variable variable = new ScriptValue_Variable(env, type, permission);
+				locals[slot] = variable;
+				return variable;
+			}
+		};
+	}
+
+	/**
+	 * Returns a closure that evaluates the specified value as a primitive
+	 * double, or {@code null} if the value is not statically known to be a
+	 * double.
+	 */
+	private DoubleValue compileDouble(ScriptValue value) throws ScriptException {
+		if (value instanceof ScriptValue_Numeric && isType(value, ScriptValueType.DOUBLE)) {
+			final ScriptValue_Numeric literal = (ScriptValue_Numeric) value;
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) {
+					return literal.doubleValue();
+				}
+			};
+		}
+		if (value instanceof ScriptExecutable_RetrieveVariable && ((ScriptExecutable_RetrieveVariable) value).getSlot() != -1 && isType(value, ScriptValueType.DOUBLE)) {
+			final int slot = ((ScriptExecutable_RetrieveVariable) value).getSlot();
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					return ((ScriptValue_Numeric) locals[slot].getValue()).doubleValue();
+				}
+			};
+		}
+		if (!(value instanceof ScriptExecutable_EvaluateMathExpression)) {
+			return null;
+		}
+		final ScriptExecutable_EvaluateMathExpression expression = (ScriptExecutable_EvaluateMathExpression) value;
+		final DoubleValue left = this.compileDouble(expression.getLeft());
+		if (left == null) {
+			return null;
+		}
+		final DoubleValue right = this.compileWidenedDouble(expression.getRight());
+		if (right == null) {
+			return null;
+		}
+		switch (expression.getOperator()) {
+		case PLUS:
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getDouble(locals) + right.getDouble(locals);
+				}
+			};
+		case MINUS:
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getDouble(locals) - right.getDouble(locals);
+				}
+			};
+		case MULTIPLY:
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getDouble(locals) * right.getDouble(locals);
+				}
+			};
+		case DIVIDE:
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					double dividend = left.getDouble(locals);
+					double divisor = right.getDouble(locals);
+					if (divisor == 0) {
+						throw new DivisionByZeroScriptException(expression);
+					}
+					return dividend / divisor;
+				}
+			};
+		case MODULUS:
+			return new DoubleValue() {
+				@Override
+				double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+					double dividend = left.getDouble(locals);
+					double divisor = right.getDouble(locals);
+					if (divisor == 0) {
+						throw new DivisionByZeroScriptException(expression);
+					}
+					return dividend % divisor;
+				}
+			};
+		default:
+			throw new AssertionError("Invalid default");
+		}
+	}
+
+	private CompiledStatement compileEvalAssignment(final ScriptExecutable_EvalAssignMathExpression expression) throws ScriptException {
+		final Value left = this.compileValue(expression.getLeft());
+		final Value right = this.compileValue(expression.getRight());
+		final ScriptOperatorType operator = expression.getOperator();
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				ScriptExecutable_EvalAssignMathExpression.assign(expression, left.getValue(locals), operator, right.getValue(locals));
+				return false;
+			}
+		};
+	}
+
+	private CompiledStatement compileFor(ScriptExecutable_ForStatement statement) throws ScriptException {
+		boolean enclosing = this.usesNestedStack;
+		this.usesNestedStack = false;
+		final CompiledStatement initializer = this.compileStatement(statement.getInitializer());
+		final Condition tester;
+		if (statement.getTester() instanceof ScriptValue) {
+			tester = this.compileCondition((ScriptValue) statement.getTester());
+		} else {
+			final ScriptExecutable executable = statement.getTester();
+			tester = new Condition() {
+				@Override
+				boolean test(ScriptValue_Variable[] locals) throws ScriptException {
+					return ((ScriptValue_Boolean) executable.execute().getValue()).getBooleanValue();
+				}
+			};
+		}
+		final CompiledStatement repeater = this.compileStatement(statement.getRepeater());
+		final boolean scoped = this.usesNestedStack;
+		this.usesNestedStack = enclosing || scoped;
+		final CompiledStatement body = this.compileNestedBlock(statement.getExpressions());
+		final ScriptEnvironment env = statement.getEnvironment();
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				if (scoped) {
+					env.advanceNestedStack();
+				}
+				try {
+					initializer.execute(locals);
+					while (tester.test(locals)) {
+						if (body.execute(locals)) {
+							return true;
+						}
+						repeater.execute(locals);
+						env.safePoint();
+					}
+					return false;
+				} finally {
+					if (scoped) {
+						env.retreatNestedStack();
+					}
+				}
+			}
+		};
+	}
+
+	private CompiledStatement compileIf(ScriptExecutable_IfStatement statement) throws ScriptException {
+		final Condition tester = this.compileCondition(statement.getTestingValue());
+		final CompiledStatement body = this.compileNestedBlock(statement.getExpressions());
+		if (statement.getElseStatement() == null) {
+			return new CompiledStatement(this.environment) {
+				@Override
+				public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+					if (tester.test(locals)) {
+						return body.execute(locals);
+					}
+					return false;
+				}
+			};
+		}
+		final CompiledStatement elseStatement = this.compileIf(statement.getElseStatement());
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				if (tester.test(locals)) {
+					return body.execute(locals);
+				}
+				return elseStatement.execute(locals);
+			}
+		};
+	}
+
+	/**
+	 * Returns a closure that evaluates the specified value as a primitive int,
+	 * or {@code null} if the value is not statically known to be an int.
+	 */
+	private IntValue compileInt(ScriptValue value) throws ScriptException {
+		if (value instanceof ScriptValue_Numeric && (isType(value, ScriptValueType.INT) || isType(value, ScriptValueType.SHORT))) {
+			// Small literals are parsed as shorts, but promote to ints like Java's
+			final ScriptValue_Numeric literal = (ScriptValue_Numeric) value;
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) {
+					return literal.intValue();
+				}
+			};
+		}
+		if (value instanceof ScriptExecutable_RetrieveVariable && ((ScriptExecutable_RetrieveVariable) value).getSlot() != -1 && isType(value, ScriptValueType.INT)) {
+			final int slot = ((ScriptExecutable_RetrieveVariable) value).getSlot();
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					return ((ScriptValue_Numeric) locals[slot].getValue()).intValue();
+				}
+			};
+		}
+		if (!(value instanceof ScriptExecutable_EvaluateMathExpression)) {
+			return null;
+		}
+		final ScriptExecutable_EvaluateMathExpression expression = (ScriptExecutable_EvaluateMathExpression) value;
+		final IntValue left = this.compileInt(expression.getLeft());
+		if (left == null) {
+			return null;
+		}
+		final IntValue right = this.compileInt(expression.getRight());
+		if (right == null) {
+			return null;
+		}
+		switch (expression.getOperator()) {
+		case PLUS:
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getInt(locals) + right.getInt(locals);
+				}
+			};
+		case MINUS:
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getInt(locals) - right.getInt(locals);
+				}
+			};
+		case MULTIPLY:
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					return left.getInt(locals) * right.getInt(locals);
+				}
+			};
+		case DIVIDE:
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					int dividend = left.getInt(locals);
+					int divisor = right.getInt(locals);
+					if (divisor == 0) {
+						throw new DivisionByZeroScriptException(expression);
+					}
+					return dividend / divisor;
+				}
+			};
+		case MODULUS:
+			return new IntValue() {
+				@Override
+				int getInt(ScriptValue_Variable[] locals) throws ScriptException {
+					int dividend = left.getInt(locals);
+					int divisor = right.getInt(locals);
+					if (divisor == 0) {
+						throw new DivisionByZeroScriptException(expression);
+					}
+					return dividend % divisor;
+				}
+			};
+		default:
+			throw new AssertionError("Invalid default");
+		}
+	}
+
+	/**
+	 * Compiles the specified statements as a nested block, which pushes its
+	 * own nested stack only if it declares variables that aren't assigned to
+	 * frame slots.
+	 */
+	private CompiledStatement compileNestedBlock(List<ScriptExecutable> expressions) throws ScriptException {
+		boolean enclosing = this.usesNestedStack;
+		this.usesNestedStack = false;
+		final CompiledStatement block = this.compileBlock(expressions);
+		boolean scoped = this.usesNestedStack;
+		this.usesNestedStack = enclosing || scoped;
+		if (!scoped) {
+			return block;
+		}
+		final ScriptEnvironment env = this.environment;
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				env.advanceNestedStack();
+				try {
+					return block.execute(locals);
+				} finally {
+					env.retreatNestedStack();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Counts each execution of the specified statement against its line, if
+	 * the environment is being profiled.
+	 */
+	private CompiledStatement profile(ScriptExecutable exec, final CompiledStatement statement) {
+		if (this.profiler == null) {
+			return statement;
+		}
+		final AtomicLong counter = this.profiler.getLineCounter(exec.getDebugReference());
+		if (counter == null) {
+			return statement;
+		}
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				counter.incrementAndGet();
+				return statement.execute(locals);
+			}
+		};
+	}
+
+	private CompiledStatement compileReturn(final ScriptExecutable_ReturnValue statement) throws ScriptException {
+		final RiffScriptFunction function = this.function;
+		final Value value = this.compileValue(statement.getReturnedValue());
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				function.setReturnValue(statement, value.getValue(locals));
+				return true;
+			}
+		};
+	}
+
+	private CompiledStatement compileStatement(final ScriptExecutable exec) throws ScriptException {
+		if (exec instanceof ScriptExecutable_ReturnValue) {
+			return this.compileReturn((ScriptExecutable_ReturnValue) exec);
+		}
+		if (exec instanceof ScriptExecutable_IfStatement) {
+			return this.compileIf((ScriptExecutable_IfStatement) exec);
+		}
+		if (exec instanceof ScriptExecutable_ForStatement) {
+			return this.compileFor((ScriptExecutable_ForStatement) exec);
+		}
+		if (exec instanceof ScriptExecutable_AssignValue) {
+			return this.compileAssignment((ScriptExecutable_AssignValue) exec);
+		}
+		if (exec instanceof ScriptExecutable_EvalAssignMathExpression) {
+			return this.compileEvalAssignment((ScriptExecutable_EvalAssignMathExpression) exec);
+		}
+		if (exec instanceof ScriptExecutable_AutoMathematicator) {
+			return this.compileAutoMathematicator((ScriptExecutable_AutoMathematicator) exec);
+		}
+		if (exec instanceof ScriptExecutable_CreateVariable) {
+			final Variable variable = this.compileDeclaration((ScriptExecutable_CreateVariable) exec);
+			return new CompiledStatement(this.environment) {
+				@Override
+				public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+					variable.getVariable(locals);
+					return false;
+				}
+			};
+		}
+		if (exec instanceof Returnable) {
+			final RiffScriptFunction function = this.function;
+			return new CompiledStatement(this.environment) {
+				@Override
+				public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+					exec.execute();
+					if (((Returnable) exec).shouldReturn()) {
+						function.setReturnValue(exec.getDebugReference(), ((Returnable) exec).getReturnValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+		return new CompiledStatement(this.environment) {
+			@Override
+			public boolean execute(ScriptValue_Variable[] locals) throws ScriptException {
+				exec.execute();
+				return false;
+			}
+		};
+	}
+
+	private Value compileValue(final ScriptValue value) throws ScriptException {
+		if (value == null || value instanceof ScriptValue_Numeric || value instanceof ScriptValue_Boolean || value instanceof ScriptValue_String) {
+			// Literals are their own values
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) {
+					return value;
+				}
+			};
+		}
+		if (value instanceof ScriptExecutable_RetrieveVariable && ((ScriptExecutable_RetrieveVariable) value).getSlot() != -1) {
+			final int slot = ((ScriptExecutable_RetrieveVariable) value).getSlot();
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+					return locals[slot].getValue();
+				}
+			};
+		}
+		if (value instanceof ScriptExecutable_CreateVariable) {
+			final Variable variable = this.compileDeclaration((ScriptExecutable_CreateVariable) value);
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+					return variable.getVariable(locals).getValue();
+				}
+			};
+		}
+		if (value instanceof ScriptExecutable_EvaluateMathExpression) {
+			return this.compileMath((ScriptExecutable_EvaluateMathExpression) value);
+		}
+		if (value instanceof ScriptExecutable_EvaluateBoolean || value instanceof ScriptExecutable_InvertBoolean && ((ScriptExecutable_InvertBoolean) value).getOperand() instanceof ScriptValue) {
+			final Condition condition = this.compileCondition(value);
+			final ScriptEnvironment env = ((ScriptExecutable) value).getDebugReference().getEnvironment();
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+					return new ScriptValue_Boolean(env, condition.test(locals));
+				}
+			};
+		}
+		return new Value() {
+			@Override
+			ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+				return value.getValue();
+			}
+		};
+	}
+
+	private Value compileMath(final ScriptExecutable_EvaluateMathExpression expression) throws ScriptException {
+		final ScriptEnvironment env = expression.getEnvironment();
+		final IntValue intValue = this.compileInt(expression);
+		if (intValue != null) {
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+					return new ScriptValue_Numeric(env, intValue.getInt(locals));
+				}
+			};
+		}
+		final DoubleValue doubleValue = this.compileDouble(expression);
+		if (doubleValue != null) {
+			return new Value() {
+				@Override
+				ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+					return new ScriptValue_Numeric(env, doubleValue.getDouble(locals));
+				}
+			};
+		}
+		final Value left = this.compileValue(expression.getLeft());
+		final Value right = this.compileValue(expression.getRight());
+		final ScriptOperatorType operator = expression.getOperator();
+		return new Value() {
+			@Override
+			ScriptValue getValue(ScriptValue_Variable[] locals) throws ScriptException {
+				return ScriptExecutable_EvaluateMathExpression.evaluate(expression, left.getValue(locals), operator, right.getValue(locals));
+			}
+		};
+	}
+
+	private Variable compileVariable(ScriptValue value) throws ScriptException {
+		if (value instanceof ScriptExecutable_CreateVariable) {
+			return this.compileDeclaration((ScriptExecutable_CreateVariable) value);
+		}
+		final int slot = ((ScriptExecutable_RetrieveVariable) value).getSlot();
+		return new Variable() {
+			@Override
+			ScriptValue_Variable getVariable(ScriptValue_Variable[] locals) {
+				return locals[slot];
+			}
+		};
+	}
+
+	/**
+	 * Returns a closure that evaluates the specified value as a primitive
+	 * double, widening int values, or {@code null} if the value is not
+	 * statically known to be a double or an int.
+	 */
+	private DoubleValue compileWidenedDouble(ScriptValue value) throws ScriptException {
+		DoubleValue doubleValue = this.compileDouble(value);
+		if (doubleValue != null) {
+			return doubleValue;
+		}
+		final IntValue intValue = this.compileInt(value);
+		if (intValue == null) {
+			return null;
+		}
+		return new DoubleValue() {
+			@Override
+			double getDouble(ScriptValue_Variable[] locals) throws ScriptException {
+				return intValue.getInt(locals);
+			}
+		};
+	}
+}
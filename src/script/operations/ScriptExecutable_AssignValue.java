@@ -18,6 +18,10 @@ public class ScriptExecutable_AssignValue extends ScriptElement implements Scrip
 		this.value = rhs;
 	}
 
+	ScriptValue getRight() {
+		return this.value;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.variable.castToType(ref, type);
@@ -87,4 +91,6 @@ public class ScriptExecutable_AssignValue extends ScriptElement implements Scrip
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.variable.valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -3957313705713648528L;
 }
@@ -22,6 +22,18 @@ public class ScriptExecutable_AutoMathematicator extends ScriptElement implement
 		this.isPost = isPost;
 	}
 
+	ScriptValue getOperand() {
+		return this.value;
+	}
+
+	ScriptOperatorType getOperator() {
+		return this.operator;
+	}
+
+	boolean isPost() {
+		return this.isPost;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.value = this.value.castToType(ref, type);
@@ -33,9 +45,9 @@ public class ScriptExecutable_AutoMathematicator extends ScriptElement implement
 		assert Logs.openNode("Auto-Mathematicator Executions", "Executing Auto-Mathematicator");
 		ScriptValue returning;
 		if (this.operator == ScriptOperatorType.INCREMENT) {
-			returning = ((ScriptValue_Numeric) this.value.getValue()).setNumericValue(((ScriptValue_Numeric) this.value.getValue()).increment(this));
+			returning = ((ScriptValue_Numeric) this.value.getValue()).increment();
 		} else {
-			returning = ((ScriptValue_Numeric) this.value.getValue()).setNumericValue(((ScriptValue_Numeric) this.value.getValue()).decrement(this));
+			returning = ((ScriptValue_Numeric) this.value.getValue()).decrement();
 		}
 		assert Logs.closeNode();
 		return returning;
@@ -50,7 +62,7 @@ public class ScriptExecutable_AutoMathematicator extends ScriptElement implement
 	@Override
 	public ScriptValue getValue() throws ScriptException {
 		assert this.value.getValue() instanceof ScriptValue_Numeric : "Should be a ScriptValue_Numeric: " + this.value.getValue();
-		ScriptValue_Numeric value = new ScriptValue_Numeric(this.getEnvironment(), ((ScriptValue_Numeric) this.value.getValue()).getNumericValue());
+		ScriptValue_Numeric value = ((ScriptValue_Numeric) this.value.getValue()).copy();
 		ScriptValue_Numeric otherValue = (ScriptValue_Numeric) this.execute().getValue();
 		if (this.isPost) {
 			return value;
@@ -98,4 +110,6 @@ public class ScriptExecutable_AutoMathematicator extends ScriptElement implement
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = 7305751848719090441L;
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import inspect.Nodeable;
 import logging.Logs;
 import script.ScriptEnvironment;
+import script.ScriptProfiler;
 import script.exceptions.InternalException;
 import script.exceptions.FunctionNotFoundScriptException;
 import script.exceptions.IllegalNullReturnValueException;
@@ -21,6 +22,10 @@ import script.values.ScriptValueType;
 
 public class ScriptExecutable_CallFunction extends ScriptElement implements ScriptExecutable, ScriptValue, Nodeable {
 	public static ScriptValue callFunction(ScriptEnvironment env, Referenced ref, ScriptValue object, String name, List<ScriptValue> params) throws ScriptException {
+		return callFunction(env, ref, object, name, params, null);
+	}
+
+	private static ScriptValue callFunction(ScriptEnvironment env, Referenced ref, ScriptValue object, String name, List<ScriptValue> params, CallSiteCache cache) throws ScriptException {
 		assert Logs.openNode("Function Calls", "Calling Function (" + RiffScriptFunction.getDisplayableFunctionName(name) + ")");
 		assert Logs.openNode("Function Call Details");
 		// Get our object
@@ -42,8 +47,24 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 			assert Logs.closeNode("Core value params", baseList);
 		}
 		// Get our function
-		ScriptFunction function = ((ScriptTemplate_Abstract) object).getFunction(name, baseList);
-		ScriptTemplate_Abstract functionTemplate = ((ScriptTemplate_Abstract) object).getFunctionTemplate(function);
+		ScriptFunction function;
+		ScriptTemplate_Abstract functionTemplate;
+		CallSiteCache.Entry cached = null;
+		if (cache != null) {
+			cached = cache.lookup(env.getTemplateGeneration(), object.getType(), baseList);
+		}
+		if (cached != null) {
+			assert Logs.addNode("Function resolved from inline cache");
+			function = cached.getFunction();
+			functionTemplate = cached.getFunctionTemplate();
+		} else {
+			int generation = env.getTemplateGeneration();
+			function = ((ScriptTemplate_Abstract) object).getFunction(name, baseList);
+			functionTemplate = ((ScriptTemplate_Abstract) object).getFunctionTemplate(function);
+			if (cache != null && function != null) {
+				cache.add(generation, object.getType(), baseList, function, functionTemplate);
+			}
+		}
 		if (function == null) {
 			if (ref == null) {
 				throw new FunctionNotFoundScriptException(env, name, params);
@@ -63,14 +84,21 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 			throw new FunctionNotFoundScriptException(ref, name, params);
 		}
 		// Execute that function
-		if (function instanceof ScriptFunction_Faux) {
-			((ScriptFunction_Faux) function).setFauxTemplate(functionTemplate);
-			((ScriptFunction_Faux) function).setTemplate((ScriptTemplate_Abstract) object);
-		}
 		assert Logs.closeNode();
+		env.safePoint();
 		env.advanceStack((ScriptTemplate_Abstract) object, function);
-		env.getCurrentFunction().execute(ref, baseList);
-		ScriptValue returning = env.getCurrentFunction().getReturnValue();
+		ScriptProfiler profiler = env.getProfiler();
+		if (profiler == null) {
+			execute(ref, function, functionTemplate, (ScriptTemplate_Abstract) object, baseList);
+		} else {
+			profiler.enter(function, functionTemplate, name);
+			try {
+				execute(ref, function, functionTemplate, (ScriptTemplate_Abstract) object, baseList);
+			} finally {
+				profiler.exit();
+			}
+		}
+		ScriptValue returning = env.getReturnValue();
 		if (returning == null && !env.getCurrentFunction().getReturnType().equals(ScriptValueType.VOID)) {
 			if (ref == null) {
 				throw new IllegalNullReturnValueException(env, env.getCurrentFunction());
@@ -83,11 +111,26 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 		return returning;
 	}
 
+	/**
+	 * Executes the specified function in the current frame. Faux functions are
+	 * shared between objects, so they are given the template and object they
+	 * were resolved against.
+	 */
+	private static void execute(Referenced ref, ScriptFunction function, ScriptTemplate_Abstract functionTemplate, ScriptTemplate_Abstract object, List<ScriptValue> params) throws ScriptException {
+		if (function instanceof ScriptFunction_Faux) {
+			((ScriptFunction_Faux) function).execute(ref, params, functionTemplate, object);
+		} else {
+			function.execute(ref, params);
+		}
+	}
+
 	private String functionName;
 	private List<ScriptValue> params;
 
 	private ScriptValue object;
 
+	private final CallSiteCache cache = new CallSiteCache();
+
 	public ScriptExecutable_CallFunction(Referenced ref, ScriptValue object, String functionName, List<ScriptValue> params) {
 		super(ref);
 		this.object = object;
@@ -95,6 +138,18 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 		this.params = params;
 	}
 
+	String getFunctionName() {
+		return this.functionName;
+	}
+
+	ScriptValue getObject() {
+		return this.object;
+	}
+
+	List<ScriptValue> getParameters() {
+		return this.params;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.getValue().castToType(ref, type);
@@ -103,7 +158,7 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 	// ScriptExecutable implementation
 	@Override
 	public ScriptValue execute() throws ScriptException {
-		return callFunction(this.getEnvironment(), this, this.object, this.functionName, this.params);
+		return callFunction(this.getEnvironment(), this, this.object, this.functionName, this.params, this.cache);
 	}
 
 	// ScriptValue_Abstract implementation
@@ -147,4 +202,6 @@ public class ScriptExecutable_CallFunction extends ScriptElement implements Scri
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -2797428258627388218L;
 }
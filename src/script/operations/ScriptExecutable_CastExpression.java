@@ -18,6 +18,10 @@ public class ScriptExecutable_CastExpression extends ScriptElement implements Sc
 		this.type = type;
 	}
 
+	ScriptExecutable getOperand() {
+		return this.castExpression;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.getValue().castToType(ref, type);
@@ -71,4 +75,6 @@ public class ScriptExecutable_CastExpression extends ScriptElement implements Sc
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -7293959006898675424L;
 }
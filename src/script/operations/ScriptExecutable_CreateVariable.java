@@ -15,6 +15,8 @@ public class ScriptExecutable_CreateVariable extends ScriptValue_Variable implem
 	private ScriptKeywordType permission;
 	private String name;
 	private ScriptElement reference;
+	private int slot = -1;
+	private boolean member;
 
 	public ScriptExecutable_CreateVariable(Referenced ref, ScriptValueType type, String name, ScriptKeywordType permission) throws ScriptException {
 		super(ref.getEnvironment(), type, permission);
@@ -32,8 +34,12 @@ public class ScriptExecutable_CreateVariable extends ScriptValue_Variable implem
 	@Override
 	public ScriptValue execute() throws ScriptException {
 		assert Logs.openNode("Creating Variable (" + this.name + ")");
-		ScriptValue_Variable value;
-		this.getEnvironment().getCurrentObject().addVariable(this, this.name, value = new ScriptValue_Variable(this.getEnvironment(), this.getType(), this.getPermission()));
+		ScriptValue_Variable value = new ScriptValue_Variable(this.getEnvironment(), this.getType(), this.getPermission());
+		if (this.slot != -1) {
+			this.getEnvironment().setLocalVariable(this.slot, value);
+		} else {
+			this.getEnvironment().getCurrentObject().addVariable(this, this.name, value);
+		}
 		assert Logs.addSnapNode("Variable Created", value);
 		assert Logs.closeNode();
 		return value;
@@ -55,6 +61,30 @@ public class ScriptExecutable_CreateVariable extends ScriptValue_Variable implem
 		return this.name;
 	}
 
+	/**
+	 * Returns this variable's slot in its function's frame, or {@code -1} if
+	 * this variable is not a local variable.
+	 */
+	public int getSlot() {
+		return this.slot;
+	}
+
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns whether this declares a member variable of its template's
+	 * objects.
+	 */
+	public boolean isMember() {
+		return this.member;
+	}
+
+	public void setMember(boolean member) {
+		this.member = member;
+	}
+
 	// Overloaded ScriptValue_Variable functions
 	@Override
 	public ScriptKeywordType getPermission() throws ScriptException {
@@ -98,4 +128,6 @@ public class ScriptExecutable_CreateVariable extends ScriptValue_Variable implem
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = 3946757223312586792L;
 }
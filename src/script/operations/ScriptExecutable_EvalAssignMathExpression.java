@@ -2,13 +2,13 @@ package script.operations;
 
 import inspect.Nodeable;
 import logging.Logs;
-import script.exceptions.DivisionByZeroScriptException;
 import script.exceptions.ScriptException;
 import script.parsing.Referenced;
 import script.parsing.ScriptElement;
 import script.parsing.ScriptOperatorType;
 import script.values.ScriptValue;
 import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
 
 public class ScriptExecutable_EvalAssignMathExpression extends ScriptElement implements ScriptExecutable, Nodeable {
 	private ScriptValue left, right;
@@ -21,40 +21,41 @@ public class ScriptExecutable_EvalAssignMathExpression extends ScriptElement imp
 		this.operation = operation;
 	}
 
+	ScriptValue getLeft() {
+		return this.left;
+	}
+
+	ScriptOperatorType getOperator() {
+		return this.operation;
+	}
+
+	ScriptValue getRight() {
+		return this.right;
+	}
+
 	// ScriptExecutable implementation
 	@Override
 	public ScriptValue execute() throws ScriptException {
 		assert Logs.openNode("'Evaluate and Assign' Executions", "Executing 'Evaluate and Assign' Expression");
 		assert Logs.addNode(this);
-		ScriptValue_Numeric left = (ScriptValue_Numeric) this.left.getValue();
-		ScriptValue_Numeric right = (ScriptValue_Numeric) this.right.getValue();
-		if ((this.operation == ScriptOperatorType.DIVIDE || this.operation == ScriptOperatorType.MODULUS) && right.getNumericValue().doubleValue() == 0.0d) {
-			throw new DivisionByZeroScriptException(this);
-		}
-		ScriptValue returning = null;
-		switch (this.operation) {
-		case PLUSEQUALS:
-			returning = left.setNumericValue(left.increment(this, right));
-			break;
-		case MINUSEQUALS:
-			returning = left.setNumericValue(left.decrement(this, right));
-			break;
-		case MULTIPLYEQUALS:
-			returning = left.setNumericValue(left.multiply(this, right));
-			break;
-		case DIVIDEEQUALS:
-			returning = left.setNumericValue(left.divide(this, right));
-			break;
-		case MODULUSEQUALS:
-			returning = left.setNumericValue(left.modulus(this, right));
-			break;
-		default:
-			throw new AssertionError("Invalid default");
-		}
+		ScriptValue returning = assign(this, this.left.getValue(), this.operation, this.right.getValue());
 		assert Logs.closeNode();
 		return returning;
 	}
 
+	/**
+	 * Performs the specified operation in place, appending to the left
+	 * operand if it's a string.
+	 */
+	static ScriptValue assign(Referenced ref, ScriptValue left, ScriptOperatorType operation, ScriptValue right) throws ScriptException {
+		if (left instanceof ScriptValue_String) {
+			return ((ScriptValue_String) left).assign(ref, operation, right);
+		}
+		ScriptExecutable_EvaluateMathExpression.checkNumeric(ref, left, operation);
+		ScriptExecutable_EvaluateMathExpression.checkNumeric(ref, right, operation);
+		return ((ScriptValue_Numeric) left).assign(ref, operation, (ScriptValue_Numeric) right);
+	}
+
 	@Override
 	public void nodificate() {
 		assert Logs.openNode("'Evaluate and Assign' mathematical expression (" + this.operation + ")");
@@ -62,4 +63,6 @@ public class ScriptExecutable_EvalAssignMathExpression extends ScriptElement imp
 		assert Logs.addSnapNode("Right side", this.right);
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -8869830780866621303L;
 }
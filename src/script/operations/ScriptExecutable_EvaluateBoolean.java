@@ -22,6 +22,18 @@ public class ScriptExecutable_EvaluateBoolean extends ScriptElement implements S
 		this.comparison = comparison;
 	}
 
+	ScriptOperatorType getComparison() {
+		return this.comparison;
+	}
+
+	ScriptValue getLeft() {
+		return this.lhs;
+	}
+
+	ScriptValue getRight() {
+		return this.rhs;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		assert Logs.addNode("Type Casting", "Casting (" + this.getType() + " to " + type + ")");
@@ -111,4 +123,6 @@ public class ScriptExecutable_EvaluateBoolean extends ScriptElement implements S
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -1102785597077882354L;
 }
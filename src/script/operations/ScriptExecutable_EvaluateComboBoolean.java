@@ -94,4 +94,6 @@ public class ScriptExecutable_EvaluateComboBoolean extends ScriptElement impleme
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = 5810943817114700559L;
 }
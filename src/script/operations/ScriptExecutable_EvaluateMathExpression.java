@@ -3,14 +3,15 @@ package script.operations;
 import inspect.Nodeable;
 import logging.Logs;
 import script.exceptions.InternalException;
-import script.exceptions.DivisionByZeroScriptException;
 import script.exceptions.ScriptException;
+import script.exceptions.UnexpectedTypeException;
 import script.parsing.Referenced;
 import script.parsing.ScriptElement;
 import script.parsing.ScriptOperatorType;
 import script.values.ScriptValue;
 import script.values.ScriptValueType;
 import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
 
 public class ScriptExecutable_EvaluateMathExpression extends ScriptElement implements ScriptValue, ScriptExecutable, Nodeable {
 	private ScriptValue lhs, rhs;
@@ -35,6 +36,18 @@ public class ScriptExecutable_EvaluateMathExpression extends ScriptElement imple
 		}
 	}
 
+	ScriptValue getLeft() {
+		return this.lhs;
+	}
+
+	ScriptOperatorType getOperator() {
+		return this.operator;
+	}
+
+	ScriptValue getRight() {
+		return this.rhs;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.getValue().castToType(ref, type);
@@ -56,35 +69,34 @@ public class ScriptExecutable_EvaluateMathExpression extends ScriptElement imple
 	public ScriptValue getValue() throws ScriptException {
 		assert Logs.openNode("Mathematic Expressions", "Executing Mathematic Expression");
 		assert Logs.addNode(this);
-		ScriptValue_Numeric left = (ScriptValue_Numeric) this.lhs.getValue();
-		ScriptValue_Numeric right = (ScriptValue_Numeric) this.rhs.getValue();
-		if ((this.operator == ScriptOperatorType.DIVIDE || this.operator == ScriptOperatorType.MODULUS) && right.getNumericValue().doubleValue() == 0.0d) {
-			throw new DivisionByZeroScriptException(this);
-		}
-		ScriptValue returning = null;
-		switch (this.operator) {
-		case PLUS:
-			returning = new ScriptValue_Numeric(this.getEnvironment(), left.increment(this, right));
-			break;
-		case MINUS:
-			returning = new ScriptValue_Numeric(this.getEnvironment(), left.decrement(this, right));
-			break;
-		case MODULUS:
-			returning = new ScriptValue_Numeric(this.getEnvironment(), left.modulus(this, right));
-			break;
-		case MULTIPLY:
-			returning = new ScriptValue_Numeric(this.getEnvironment(), left.multiply(this, right));
-			break;
-		case DIVIDE:
-			returning = new ScriptValue_Numeric(this.getEnvironment(), left.divide(this, right));
-			break;
-		default:
-			throw new AssertionError("Unexpected default");
-		}
+		ScriptValue returning = evaluate(this, this.lhs.getValue(), this.operator, this.rhs.getValue());
 		assert Logs.closeNode();
 		return returning;
 	}
 
+	/**
+	 * Evaluates the specified operation, concatenating the operands if the
+	 * left one is a string.
+	 */
+	static ScriptValue evaluate(Referenced ref, ScriptValue left, ScriptOperatorType operator, ScriptValue right) throws ScriptException {
+		if (left instanceof ScriptValue_String) {
+			return ((ScriptValue_String) left).evaluate(ref, operator, right);
+		}
+		checkNumeric(ref, left, operator);
+		checkNumeric(ref, right, operator);
+		return ((ScriptValue_Numeric) left).evaluate(ref, operator, (ScriptValue_Numeric) right);
+	}
+
+	/**
+	 * Throws if the specified operand of a numeric operation isn't a number,
+	 * naming the operator and the type that was given instead.
+	 */
+	static void checkNumeric(Referenced ref, ScriptValue operand, ScriptOperatorType operator) throws ScriptException {
+		if (!(operand instanceof ScriptValue_Numeric)) {
+			throw new UnexpectedTypeException(ref, ScriptValueType.getName(operand.getType()), "A numeric operand of '" + operator.getOperator() + "'");
+		}
+	}
+
 	@Override
 	public boolean isConvertibleTo(ScriptValueType type) {
 		return this.lhs.isConvertibleTo(type);
@@ -112,4 +124,6 @@ public class ScriptExecutable_EvaluateMathExpression extends ScriptElement imple
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs.castToType(ref, this.getType()));
 	}
+
+	private static final long serialVersionUID = 2152380865871085885L;
 }
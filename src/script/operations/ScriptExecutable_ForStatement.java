@@ -25,10 +25,28 @@ public class ScriptExecutable_ForStatement extends ScriptElement implements Scri
 		this.expressions = expressions;
 	}
 
+	List<ScriptExecutable> getExpressions() {
+		return this.expressions;
+	}
+
+	ScriptExecutable getInitializer() {
+		return this.initializer;
+	}
+
+	ScriptExecutable getRepeater() {
+		return this.repeater;
+	}
+
+	ScriptExecutable getTester() {
+		return this.tester;
+	}
+
 	// ScriptExecutable implementation
 	@Override
 	public ScriptValue execute() throws ScriptException {
 		assert Logs.openNode("For-Statement Executions", "Executing For-Statement");
+		this.shouldReturn = false;
+		this.returnValue = null;
 		this.getEnvironment().advanceNestedStack();
 		assert Logs.openNode("Initializing");
 		this.initializer.execute();
@@ -50,6 +68,7 @@ public class ScriptExecutable_ForStatement extends ScriptElement implements Scri
 			assert Logs.openNode("Executing repeater");
 			this.repeater.execute();
 			assert Logs.closeNode();
+			this.getEnvironment().safePoint();
 		}
 		this.getEnvironment().retreatNestedStack();
 		assert Logs.closeNode();
@@ -79,4 +98,6 @@ public class ScriptExecutable_ForStatement extends ScriptElement implements Scri
 	public boolean shouldReturn() {
 		return this.shouldReturn;
 	}
+
+	private static final long serialVersionUID = -5991520938751888927L;
 }
@@ -24,10 +24,24 @@ public class ScriptExecutable_IfStatement extends ScriptElement implements Scrip
 		this.expressions = list;
 	}
 
+	ScriptExecutable_IfStatement getElseStatement() {
+		return this.elseStatement;
+	}
+
+	List<ScriptExecutable> getExpressions() {
+		return this.expressions;
+	}
+
+	ScriptValue getTestingValue() {
+		return this.testingValue;
+	}
+
 	// ScriptExecutable implementation
 	@Override
 	public ScriptValue execute() throws ScriptException {
 		assert Logs.openNode("If-Statement Executions", "Executing If-Statements");
+		this.shouldReturn = false;
+		this.returnValue = null;
 		if (((ScriptValue_Boolean) this.testingValue.getValue()).getBooleanValue()) {
 			this.getEnvironment().advanceNestedStack();
 			for (ScriptExecutable exec : this.expressions) {
@@ -43,6 +57,10 @@ public class ScriptExecutable_IfStatement extends ScriptElement implements Scrip
 		} else {
 			if (this.elseStatement != null) {
 				this.elseStatement.execute();
+				if (this.elseStatement.shouldReturn()) {
+					this.returnValue = this.elseStatement.getReturnValue();
+					this.shouldReturn = true;
+				}
 			}
 		}
 		assert Logs.closeNode();
@@ -79,4 +97,6 @@ public class ScriptExecutable_IfStatement extends ScriptElement implements Scrip
 	public boolean shouldReturn() {
 		return this.shouldReturn;
 	}
+
+	private static final long serialVersionUID = 8290674516988919452L;
 }
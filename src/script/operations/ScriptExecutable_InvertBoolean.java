@@ -17,6 +17,10 @@ public class ScriptExecutable_InvertBoolean extends ScriptElement implements Scr
 		this.value = value;
 	}
 
+	ScriptExecutable getOperand() {
+		return this.value;
+	}
+
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		return this.getValue().castToType(ref, type);
@@ -65,4 +69,6 @@ public class ScriptExecutable_InvertBoolean extends ScriptElement implements Scr
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = 5062266795214439772L;
 }
@@ -87,11 +87,6 @@ public class ScriptExecutable_ParseFunction extends ScriptElement implements Scr
 		return this.returnType;
 	}
 
-	@Override
-	public ScriptValue getReturnValue() {
-		throw new UnsupportedOperationException("Invalid call in unparsed function");
-	}
-
 	// ScriptFunction implementation
 	@Override
 	public boolean isAbstract() {
@@ -115,4 +110,6 @@ public class ScriptExecutable_ParseFunction extends ScriptElement implements Scr
 	public void setReturnValue(Referenced element, ScriptValue value) {
 		throw new UnsupportedOperationException("Invalid call in unparsed function");
 	}
+
+	private static final long serialVersionUID = -219730382372370668L;
 }
@@ -89,4 +89,6 @@ public class ScriptExecutable_RetrieveCurrentObject extends ScriptValue_Variable
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -3741978737916306638L;
 }
@@ -7,6 +7,8 @@ import script.exceptions.ScriptException;
 import script.parsing.Referenced;
 import script.parsing.ScriptElement;
 import script.parsing.ScriptKeywordType;
+import script.values.ScriptShape;
+import script.values.ScriptTemplate;
 import script.values.ScriptTemplate_Abstract;
 import script.values.ScriptValue;
 import script.values.ScriptValueType;
@@ -16,6 +18,22 @@ public class ScriptExecutable_RetrieveVariable extends ScriptValue_Variable impl
 	private String name;
 	private ScriptValue template;
 	private ScriptElement reference;
+	private int slot = -1;
+	private boolean member;
+	private transient volatile MemberReference memberReference;
+
+	/**
+	 * The index of a member variable in the objects of a shape.
+	 */
+	private static final class MemberReference {
+		private final ScriptShape shape;
+		private final int index;
+
+		MemberReference(ScriptShape shape, String name) {
+			this.shape = shape;
+			this.index = shape.indexOf(name);
+		}
+	}
 
 	public ScriptExecutable_RetrieveVariable(Referenced ref, ScriptValue template, String name, ScriptValueType type) throws ScriptException {
 		super(ref.getEnvironment(), type, ScriptKeywordType.PRIVATE);
@@ -58,6 +76,15 @@ public class ScriptExecutable_RetrieveVariable extends ScriptValue_Variable impl
 	}
 
 	public ScriptValue_Variable getVariable() throws ScriptException {
+		if (this.slot != -1) {
+			return this.getEnvironment().getLocalVariable(this.slot);
+		}
+		if (this.member) {
+			ScriptValue_Variable variable = this.getMemberVariable();
+			if (variable != null) {
+				return variable;
+			}
+		}
 		assert Logs.openNode("Executing Variable Retrieval (" + this.name + ")");
 		ScriptValue_Variable variable;
 		if (this.template != null) {
@@ -71,6 +98,66 @@ public class ScriptExecutable_RetrieveVariable extends ScriptValue_Variable impl
 		return variable;
 	}
 
+	/**
+	 * Returns the member variable of the current object from its shape, or
+	 * {@code null} if it must be retrieved by name.
+	 */
+	private ScriptValue_Variable getMemberVariable() throws ScriptException {
+		ScriptTemplate_Abstract current = this.getEnvironment().getCurrentObject();
+		if (!(current instanceof ScriptTemplate) || !current.isObject()) {
+			return null;
+		}
+		ScriptTemplate object = (ScriptTemplate) current;
+		ScriptShape shape = object.getShape();
+		if (shape == null) {
+			return null;
+		}
+		MemberReference reference = this.memberReference;
+		if (reference == null || reference.shape != shape) {
+			reference = new MemberReference(shape, this.name);
+			this.memberReference = reference;
+		}
+		if (reference.index == -1) {
+			return null;
+		}
+		ScriptValue_Variable variable = object.getSlot(reference.index);
+		if (variable == null) {
+			return null;
+		}
+		// The current object may see both its public and private variables.
+		ScriptKeywordType permission = variable.getPermission();
+		if (permission.equals(ScriptKeywordType.PUBLIC) || permission.equals(ScriptKeywordType.PRIVATE)) {
+			return variable;
+		}
+		return null;
+	}
+
+	/**
+	 * Marks this placeholder as referring to a member variable of the current
+	 * object, which is then retrieved by its index in the object's shape. The
+	 * index is resolved against the shape of the specified template, which is
+	 * the template whose function is being parsed.
+	 */
+	public void setMember(ScriptTemplate_Abstract template) {
+		this.member = true;
+		if (template instanceof ScriptTemplate && !template.isObject()) {
+			ScriptShape shape = ((ScriptTemplate) template).getShape();
+			this.memberReference = new MemberReference(shape, this.name);
+		}
+	}
+
+	/**
+	 * Returns the frame slot of the local variable this placeholder refers to,
+	 * or {@code -1} if the variable is resolved by name.
+	 */
+	public int getSlot() {
+		return this.slot;
+	}
+
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 	// Abstract-value implementation
 	@Override
 	public boolean isConvertibleTo(ScriptValueType type) {
@@ -106,4 +193,6 @@ public class ScriptExecutable_RetrieveVariable extends ScriptValue_Variable impl
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -4547979030354114043L;
 }
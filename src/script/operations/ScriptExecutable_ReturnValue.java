@@ -16,6 +16,10 @@ public class ScriptExecutable_ReturnValue extends ScriptElement implements Scrip
 		this.value = value;
 	}
 
+	ScriptValue getReturnedValue() {
+		return this.value;
+	}
+
 	// ScriptExecutable implementation
 	@Override
 	public ScriptValue execute() throws ScriptException {
@@ -42,4 +46,6 @@ public class ScriptExecutable_ReturnValue extends ScriptElement implements Scrip
 	public boolean shouldReturn() {
 		return true;
 	}
+
+	private static final long serialVersionUID = 7435660666634050345L;
 }
@@ -0,0 +1,449 @@
+/**
+ *
+ */
+package script.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import logging.Logs;
+import script.exceptions.ScriptException;
+import script.parsing.Referenced;
+import script.parsing.ScriptOperatorType;
+import script.values.ScriptValue;
+import script.values.ScriptValueType;
+import script.values.ScriptValue_Boolean;
+import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
+
+/**
+ * Simplifies the parsed expressions of a function body before they are
+ * compiled. The optimizer never changes the parse tree it is given: every
+ * simplified node is replaced by a new node that refers to the same
+ * {@link Referenced} element as the original.
+ * <p>
+ * Arithmetic, comparisons, casts and inversions whose operands are all
+ * literals are evaluated once, here. If evaluating them fails, such as for a
+ * division by zero, they are left as they are, so the error is still raised
+ * when, and only if, they are executed.
+ * <p>
+ * {@code if} statements whose condition is a literal lose the branches that
+ * can never be taken, statements that follow a {@code return} are removed,
+ * and a store to a local variable is removed if the next statement
+ * overwrites it without reading it. Assignments that add or subtract one
+ * from a local variable become {@link ScriptExecutable_AutoMathematicator}s,
+ * which update the variable in place.
+ *
+ * @author Aaron Faanes
+ * @see script.parsing.Parser#parseFunction(ScriptExecutable_ParseFunction,
+ *      ScriptValueType)
+ */
+public final class ScriptOptimizer {
+
+	private ScriptOptimizer() {
+		// Suppress default constructor to ensure non-instantiability.
+		throw new AssertionError("Instantiation not allowed");
+	}
+
+	/**
+	 * Returns the optimized form of the specified function body.
+	 *
+	 * @param expressions
+	 *            the parsed expressions of the function body, which are left
+	 *            unchanged
+	 */
+	public static List<ScriptExecutable> optimize(List<ScriptExecutable> expressions) {
+		assert Logs.openNode("Function Optimizations", "Optimizing Function (" + expressions.size() + " expressions)");
+		List<ScriptExecutable> optimized = optimizeBlock(expressions);
+		assert Logs.addSnapNode("Optimized expressions (" + optimized.size() + " expressions)", optimized);
+		assert Logs.closeNode();
+		return optimized;
+	}
+
+	/**
+	 * Returns whether the specified statements declare a variable that would
+	 * be visible outside of them if they were not in their own block.
+	 */
+	private static boolean declaresVariables(List<ScriptExecutable> expressions) {
+		for (ScriptExecutable exec : expressions) {
+			if (exec instanceof ScriptExecutable_CreateVariable) {
+				return true;
+			}
+			if (exec instanceof ScriptExecutable_AssignValue && ((ScriptExecutable_AssignValue) exec).getLeft() instanceof ScriptExecutable_CreateVariable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the frame slot of the specified local variable, or {@code -1} if
+	 * the value is not a local variable.
+	 */
+	private static int getSlot(ScriptValue value) {
+		if (value instanceof ScriptExecutable_RetrieveVariable) {
+			return ((ScriptExecutable_RetrieveVariable) value).getSlot();
+		}
+		if (value instanceof ScriptExecutable_CreateVariable) {
+			return ((ScriptExecutable_CreateVariable) value).getSlot();
+		}
+		return -1;
+	}
+
+	private static boolean isLiteral(ScriptValue value) {
+		return value instanceof ScriptValue_Numeric || value instanceof ScriptValue_Boolean || value instanceof ScriptValue_String;
+	}
+
+	/**
+	 * Returns whether the specified value is the integral literal one. A
+	 * fractional literal would be truncated when added to an integral
+	 * variable, so it is never considered.
+	 */
+	private static boolean isOne(ScriptValue value) {
+		if (!(value instanceof ScriptValue_Numeric)) {
+			return false;
+		}
+		ScriptValueType type = value.getType();
+		if (!ScriptValueType.SHORT.equals(type) && !ScriptValueType.INT.equals(type) && !ScriptValueType.LONG.equals(type)) {
+			return false;
+		}
+		return ((ScriptValue_Numeric) value).longValue() == 1;
+	}
+
+	/**
+	 * Returns whether the specified value can be stored in a numeric local
+	 * variable without side effects or errors.
+	 */
+	private static boolean isPureNumeric(ScriptValue value) {
+		if (value instanceof ScriptValue_Numeric) {
+			return true;
+		}
+		return value instanceof ScriptExecutable_RetrieveVariable && getSlot(value) != -1 && ScriptValueType.isNumericType(value.getType());
+	}
+
+	/**
+	 * Returns whether evaluating the specified value may read the local
+	 * variable in the specified slot. Values that are not understood are
+	 * assumed to read it.
+	 */
+	private static boolean mayRead(ScriptValue value, int slot) {
+		if (isLiteral(value)) {
+			return false;
+		}
+		if (value instanceof ScriptExecutable_RetrieveVariable && getSlot(value) != -1) {
+			return getSlot(value) == slot;
+		}
+		if (value instanceof ScriptExecutable_EvaluateMathExpression) {
+			ScriptExecutable_EvaluateMathExpression expression = (ScriptExecutable_EvaluateMathExpression) value;
+			return mayRead(expression.getLeft(), slot) || mayRead(expression.getRight(), slot);
+		}
+		if (value instanceof ScriptExecutable_EvaluateBoolean) {
+			ScriptExecutable_EvaluateBoolean comparison = (ScriptExecutable_EvaluateBoolean) value;
+			return mayRead(comparison.getLeft(), slot) || mayRead(comparison.getRight(), slot);
+		}
+		return true;
+	}
+
+	private static ScriptExecutable optimizeAssignment(ScriptExecutable_AssignValue assignment) {
+		ScriptValue left = assignment.getLeft();
+		ScriptValue right = assignment.getRight();
+		if (right instanceof ScriptExecutable_EvaluateMathExpression && left instanceof ScriptExecutable_RetrieveVariable && getSlot(left) != -1) {
+			ScriptExecutable_EvaluateMathExpression expression = (ScriptExecutable_EvaluateMathExpression) right;
+			// Increments promote shorts to ints, but the assignment would
+			// convert the sum back to a short.
+			ScriptValueType type = left.getType();
+			if (ScriptValueType.isNumericType(type) && !ScriptValueType.SHORT.equals(type) && expression.getLeft() instanceof ScriptExecutable_RetrieveVariable && getSlot(expression.getLeft()) == getSlot(left) && isOne(optimizeValue(expression.getRight()))) {
+				switch (expression.getOperator()) {
+				case PLUS:
+					assert Logs.addNode("Assignment replaced by increment");
+					return new ScriptExecutable_AutoMathematicator(assignment, left, ScriptOperatorType.INCREMENT, true);
+				case MINUS:
+					assert Logs.addNode("Assignment replaced by decrement");
+					return new ScriptExecutable_AutoMathematicator(assignment, left, ScriptOperatorType.DECREMENT, true);
+				default:
+					break;
+				}
+			}
+		}
+		ScriptValue optimized = optimizeValue(right);
+		if (optimized == right) {
+			return assignment;
+		}
+		return new ScriptExecutable_AssignValue(assignment, left, optimized);
+	}
+
+	private static List<ScriptExecutable> optimizeBlock(List<ScriptExecutable> expressions) {
+		List<ScriptExecutable> block = new ArrayList<ScriptExecutable>(expressions.size());
+		for (int i = 0; i < expressions.size(); i++) {
+			optimizeStatement(expressions.get(i), block);
+			if (!block.isEmpty() && block.get(block.size() - 1) instanceof ScriptExecutable_ReturnValue) {
+				if (i < expressions.size() - 1) {
+					assert Logs.addNode("Unreachable statements removed (" + (expressions.size() - 1 - i) + " statement(s))");
+				}
+				break;
+			}
+		}
+		removeDeadStores(block);
+		return block;
+	}
+
+	private static ScriptValue optimizeCast(ScriptExecutable_CastExpression cast) {
+		ScriptExecutable operand = cast.getOperand();
+		if (!(operand instanceof ScriptValue)) {
+			return cast;
+		}
+		ScriptValue optimized = optimizeValue((ScriptValue) operand);
+		if (isLiteral(optimized)) {
+			try {
+				return optimized.castToType(cast, cast.getType());
+			} catch (ScriptException ex) {
+				// Left for the cast to fail when it's executed
+				return cast;
+			}
+		}
+		if (optimized == operand || !(optimized instanceof ScriptExecutable)) {
+			return cast;
+		}
+		return new ScriptExecutable_CastExpression(cast, cast.getType(), (ScriptExecutable) optimized);
+	}
+
+	private static ScriptValue optimizeComparison(ScriptExecutable_EvaluateBoolean comparison) {
+		ScriptValue left = optimizeValue(comparison.getLeft());
+		ScriptValue right = optimizeValue(comparison.getRight());
+		if (left != comparison.getLeft() || right != comparison.getRight()) {
+			comparison = new ScriptExecutable_EvaluateBoolean(comparison, left, right, comparison.getComparison());
+		}
+		// Only literals of the same kind are compared, so a mismatch is still
+		// reported when the comparison is executed.
+		if (left instanceof ScriptValue_Numeric && right instanceof ScriptValue_Numeric || left instanceof ScriptValue_Boolean && right instanceof ScriptValue_Boolean || left instanceof ScriptValue_String && right instanceof ScriptValue_String) {
+			try {
+				return comparison.execute();
+			} catch (ScriptException ex) {
+				return comparison;
+			}
+		}
+		return comparison;
+	}
+
+	/**
+	 * Returns the optimized form of a statement whose value is discarded, or
+	 * {@code null} if the statement has no effect.
+	 */
+	private static ScriptExecutable optimizeExpression(ScriptExecutable exec) {
+		if (exec instanceof ScriptExecutable_AssignValue) {
+			return optimizeAssignment((ScriptExecutable_AssignValue) exec);
+		}
+		if (exec instanceof ScriptExecutable_EvalAssignMathExpression) {
+			ScriptExecutable_EvalAssignMathExpression expression = (ScriptExecutable_EvalAssignMathExpression) exec;
+			ScriptValue right = optimizeValue(expression.getRight());
+			if (isOne(right) && ScriptValueType.isNumericType(expression.getLeft().getType())) {
+				switch (expression.getOperator()) {
+				case PLUSEQUALS:
+					assert Logs.addNode("Assignment replaced by increment");
+					return new ScriptExecutable_AutoMathematicator(expression, expression.getLeft(), ScriptOperatorType.INCREMENT, true);
+				case MINUSEQUALS:
+					assert Logs.addNode("Assignment replaced by decrement");
+					return new ScriptExecutable_AutoMathematicator(expression, expression.getLeft(), ScriptOperatorType.DECREMENT, true);
+				default:
+					break;
+				}
+			}
+			if (right == expression.getRight()) {
+				return expression;
+			}
+			return new ScriptExecutable_EvalAssignMathExpression(expression, expression.getLeft(), right, expression.getOperator());
+		}
+		if (exec instanceof ScriptExecutable_CreateVariable || exec instanceof ScriptExecutable_AutoMathematicator || !(exec instanceof ScriptValue)) {
+			return exec;
+		}
+		ScriptValue optimized = optimizeValue((ScriptValue) exec);
+		if (optimized instanceof ScriptExecutable) {
+			return (ScriptExecutable) optimized;
+		}
+		// The statement was folded to a literal
+		return null;
+	}
+
+	private static ScriptExecutable_ForStatement optimizeFor(ScriptExecutable_ForStatement statement) {
+		ScriptExecutable initializer = optimizeExpression(statement.getInitializer());
+		if (initializer == null) {
+			initializer = statement.getInitializer();
+		}
+		ScriptExecutable tester = statement.getTester();
+		if (tester instanceof ScriptValue) {
+			ScriptValue optimized = optimizeValue((ScriptValue) tester);
+			if (optimized instanceof ScriptExecutable) {
+				tester = (ScriptExecutable) optimized;
+			}
+		}
+		ScriptExecutable repeater = optimizeExpression(statement.getRepeater());
+		if (repeater == null) {
+			repeater = statement.getRepeater();
+		}
+		return new ScriptExecutable_ForStatement(initializer, tester, repeater, optimizeBlock(statement.getExpressions()));
+	}
+
+	/**
+	 * Returns the optimized form of the specified {@code if} statement and its
+	 * {@code else} statements, or {@code null} if none of their branches can
+	 * be taken.
+	 */
+	private static ScriptExecutable_IfStatement optimizeIf(ScriptExecutable_IfStatement statement) {
+		ScriptValue test = optimizeValue(statement.getTestingValue());
+		if (test instanceof ScriptValue_Boolean) {
+			if (!((ScriptValue_Boolean) test).getBooleanValue()) {
+				assert Logs.addNode("Branch removed (condition is always false)");
+				if (statement.getElseStatement() == null) {
+					return null;
+				}
+				return optimizeIf(statement.getElseStatement());
+			}
+			// Every following branch is unreachable
+			return new ScriptExecutable_IfStatement(statement, test, optimizeBlock(statement.getExpressions()));
+		}
+		ScriptExecutable_IfStatement optimized = new ScriptExecutable_IfStatement(statement, test, optimizeBlock(statement.getExpressions()));
+		if (statement.getElseStatement() != null) {
+			ScriptExecutable_IfStatement elseStatement = optimizeIf(statement.getElseStatement());
+			if (elseStatement != null) {
+				optimized.setElseStatement(elseStatement);
+			}
+		}
+		return optimized;
+	}
+
+	private static ScriptValue optimizeInversion(ScriptExecutable_InvertBoolean inversion) {
+		ScriptExecutable operand = inversion.getOperand();
+		if (!(operand instanceof ScriptValue)) {
+			return inversion;
+		}
+		ScriptValue optimized = optimizeValue((ScriptValue) operand);
+		if (optimized instanceof ScriptValue_Boolean) {
+			return new ScriptValue_Boolean(inversion.getEnvironment(), !((ScriptValue_Boolean) optimized).getBooleanValue());
+		}
+		if (optimized == operand || !(optimized instanceof ScriptExecutable)) {
+			return inversion;
+		}
+		return new ScriptExecutable_InvertBoolean(inversion, (ScriptExecutable) optimized);
+	}
+
+	private static ScriptValue optimizeMath(ScriptExecutable_EvaluateMathExpression expression) {
+		ScriptValue left = optimizeValue(expression.getLeft());
+		ScriptValue right = optimizeValue(expression.getRight());
+		if (left instanceof ScriptValue_Numeric && right instanceof ScriptValue_Numeric || left instanceof ScriptValue_String && right instanceof ScriptValue_String) {
+			try {
+				return ScriptExecutable_EvaluateMathExpression.evaluate(expression, left, expression.getOperator(), right);
+			} catch (ScriptException ex) {
+				// Left for the error to be raised when it's executed
+			}
+		}
+		if (left == expression.getLeft() && right == expression.getRight()) {
+			return expression;
+		}
+		return new ScriptExecutable_EvaluateMathExpression(expression, left, right, expression.getOperator());
+	}
+
+	private static void optimizeStatement(ScriptExecutable exec, List<ScriptExecutable> block) {
+		if (exec instanceof ScriptExecutable_IfStatement) {
+			ScriptExecutable_IfStatement statement = optimizeIf((ScriptExecutable_IfStatement) exec);
+			if (statement == null) {
+				return;
+			}
+			if (statement.getTestingValue() instanceof ScriptValue_Boolean && !declaresVariables(statement.getExpressions())) {
+				// The branch is always taken, and needs no scope of its own
+				block.addAll(statement.getExpressions());
+				return;
+			}
+			block.add(statement);
+			return;
+		}
+		if (exec instanceof ScriptExecutable_ForStatement) {
+			block.add(optimizeFor((ScriptExecutable_ForStatement) exec));
+			return;
+		}
+		if (exec instanceof ScriptExecutable_ReturnValue) {
+			ScriptExecutable_ReturnValue statement = (ScriptExecutable_ReturnValue) exec;
+			if (statement.getReturnedValue() != null) {
+				ScriptValue value = optimizeValue(statement.getReturnedValue());
+				if (value != statement.getReturnedValue()) {
+					statement = new ScriptExecutable_ReturnValue(statement, value);
+				}
+			}
+			block.add(statement);
+			return;
+		}
+		ScriptExecutable optimized = optimizeExpression(exec);
+		if (optimized != null) {
+			block.add(optimized);
+		}
+	}
+
+	private static ScriptValue optimizeValue(ScriptValue value) {
+		if (value instanceof ScriptExecutable_EvaluateMathExpression) {
+			return optimizeMath((ScriptExecutable_EvaluateMathExpression) value);
+		}
+		if (value instanceof ScriptExecutable_EvaluateBoolean) {
+			return optimizeComparison((ScriptExecutable_EvaluateBoolean) value);
+		}
+		if (value instanceof ScriptExecutable_InvertBoolean) {
+			return optimizeInversion((ScriptExecutable_InvertBoolean) value);
+		}
+		if (value instanceof ScriptExecutable_CastExpression) {
+			return optimizeCast((ScriptExecutable_CastExpression) value);
+		}
+		if (value instanceof ScriptExecutable_AssignValue) {
+			ScriptExecutable_AssignValue assignment = (ScriptExecutable_AssignValue) value;
+			ScriptValue right = optimizeValue(assignment.getRight());
+			if (right == assignment.getRight()) {
+				return assignment;
+			}
+			return new ScriptExecutable_AssignValue(assignment, assignment.getLeft(), right);
+		}
+		if (value instanceof ScriptExecutable_CallFunction) {
+			ScriptExecutable_CallFunction call = (ScriptExecutable_CallFunction) value;
+			if (call.getParameters() == null) {
+				return call;
+			}
+			List<ScriptValue> params = new ArrayList<ScriptValue>(call.getParameters().size());
+			boolean changed = false;
+			for (ScriptValue param : call.getParameters()) {
+				ScriptValue optimized = optimizeValue(param);
+				changed |= optimized != param;
+				params.add(optimized);
+			}
+			if (!changed) {
+				return call;
+			}
+			return new ScriptExecutable_CallFunction(call, call.getObject(), call.getFunctionName(), params);
+		}
+		return value;
+	}
+
+	/**
+	 * Removes every store to a numeric local variable that is overwritten by
+	 * the following statement before it can be read. A store that also
+	 * declares its variable is replaced by the declaration.
+	 */
+	private static void removeDeadStores(List<ScriptExecutable> block) {
+		for (int i = 0; i < block.size() - 1; i++) {
+			if (!(block.get(i) instanceof ScriptExecutable_AssignValue) || !(block.get(i + 1) instanceof ScriptExecutable_AssignValue)) {
+				continue;
+			}
+			ScriptExecutable_AssignValue store = (ScriptExecutable_AssignValue) block.get(i);
+			ScriptExecutable_AssignValue overwrite = (ScriptExecutable_AssignValue) block.get(i + 1);
+			int slot = getSlot(store.getLeft());
+			if (slot == -1 || !ScriptValueType.isNumericType(store.getLeft().getType()) || !isPureNumeric(store.getRight())) {
+				continue;
+			}
+			if (!(overwrite.getLeft() instanceof ScriptExecutable_RetrieveVariable) || getSlot(overwrite.getLeft()) != slot || mayRead(overwrite.getRight(), slot)) {
+				continue;
+			}
+			assert Logs.addNode("Dead store removed");
+			if (store.getLeft() instanceof ScriptExecutable_CreateVariable) {
+				block.set(i, (ScriptExecutable_CreateVariable) store.getLeft());
+			} else {
+				block.remove(i);
+				i--;
+			}
+		}
+	}
+}
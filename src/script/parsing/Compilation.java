@@ -0,0 +1,167 @@
+/**
+ *
+ */
+package script.parsing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import logging.CommonString;
+import logging.Logs;
+import script.ScriptEnvironment;
+import script.exceptions.InternalException;
+import script.exceptions.ScriptException;
+import script.parsing.tokens.RiffLexer;
+
+/**
+ * A single compilation of one or more script files into an environment.
+ * Files are first preparsed, which collects the templates they define, and
+ * then every collected template is parsed at once.
+ * <p>
+ * Lexing a file with a {@link RiffLexer} doesn't touch the environment, so
+ * {@link #preparseFiles(Map)} lexes its files in parallel on the common
+ * fork/join pool. The templates of each file are then registered with the environment
+ * one file at a time, in the order the files were given, so the result does
+ * not depend on which file finished first.
+ *
+ * @author Aaron Faanes
+ * @see Parser
+ */
+public final class Compilation {
+
+	/**
+	 * The outcome of lexing a single file.
+	 */
+	private static final class LexedFile {
+		private List<Object> elements;
+		private Exception failure;
+	}
+
+	private final ScriptEnvironment environment;
+
+	private final List<TemplateParams> templates = new ArrayList<TemplateParams>();
+
+	public Compilation(ScriptEnvironment env) {
+		if (env == null) {
+			throw new NullPointerException("env must not be null");
+		}
+		this.environment = env;
+	}
+
+	public ScriptEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/**
+	 * Returns the templates that have been preparsed by this compilation, in
+	 * the order they were defined.
+	 */
+	List<TemplateParams> getTemplates() {
+		return Collections.unmodifiableList(this.templates);
+	}
+
+	private LexedFile lex(String filename, BufferedReader reader) throws IOException {
+		LexedFile file = new LexedFile();
+		assert Logs.openNode("File Preparsing", "Lexing file (" + filename + ")");
+		try {
+			file.elements = new RiffLexer(this.environment, filename, reader).readElements();
+			assert Logs.addSnapNode(CommonString.ELEMENTS, file.elements);
+		} catch (ScriptException ex) {
+			file.failure = ex;
+		} catch (InternalException ex) {
+			file.failure = ex;
+		} finally {
+			assert Logs.closeNode();
+		}
+		return file;
+	}
+
+	private List<Exception> merge(String filename, LexedFile file) {
+		List<Exception> exceptions = new ArrayList<Exception>();
+		assert Logs.openNode("File Preparsing", "Preparsing file (" + filename + ")");
+		try {
+			if (file.failure != null) {
+				Logs.printException(file.failure);
+				exceptions.add(file.failure);
+				return exceptions;
+			}
+			Parser.preparseElements(this.environment, file.elements, this.templates);
+			assert Logs.addNode("Preparsed successfully");
+		} catch (ScriptException ex) {
+			Logs.printException(ex);
+			exceptions.add(ex);
+		} catch (InternalException ex) {
+			Logs.printException(ex);
+			exceptions.add(ex);
+		} finally {
+			assert Logs.closeNode();
+		}
+		return exceptions;
+	}
+
+	/**
+	 * Preparses a single file on the current thread.
+	 *
+	 * @return the exceptions that occurred while preparsing the file
+	 */
+	public List<Exception> preparseFile(String filename, BufferedReader reader) throws IOException {
+		return this.merge(filename, this.lex(filename, reader));
+	}
+
+	/**
+	 * Preparses the specified files, running the lexical passes for each file
+	 * in parallel.
+	 *
+	 * @param sources
+	 *            the content of each file, keyed by filename
+	 * @return the exceptions that occurred while preparsing each file, keyed
+	 *         by filename in the order the files were given
+	 */
+	public Map<String, List<Exception>> preparseFiles(Map<String, String> sources) {
+		Map<String, ForkJoinTask<LexedFile>> tasks = new LinkedHashMap<String, ForkJoinTask<LexedFile>>();
+		for (final Map.Entry<String, String> source : sources.entrySet()) {
+			tasks.put(source.getKey(), ForkJoinPool.commonPool().submit(new Callable<LexedFile>() {
+				@Override
+				public LexedFile call() throws IOException {
+					return lex(source.getKey(), new BufferedReader(new StringReader(source.getValue())));
+				}
+			}));
+		}
+		Map<String, List<Exception>> exceptions = new LinkedHashMap<String, List<Exception>>();
+		for (Map.Entry<String, ForkJoinTask<LexedFile>> task : tasks.entrySet()) {
+			exceptions.put(task.getKey(), this.merge(task.getKey(), task.getValue().join()));
+		}
+		return exceptions;
+	}
+
+	/**
+	 * Parses every template that has been preparsed by this compilation.
+	 *
+	 * @return the exceptions that occurred while parsing
+	 */
+	public List<Exception> parseElements() {
+		List<Exception> exceptions = new ArrayList<Exception>();
+		assert Logs.openNode("Element Parsing", "Parsing Elements");
+		try {
+			Parser.parseElements(this.environment, this.templates);
+		} catch (ScriptException ex) {
+			Logs.printException(ex);
+			exceptions.add(ex);
+		} catch (InternalException ex) {
+			Logs.printException(ex);
+			exceptions.add(ex);
+		} finally {
+			assert Logs.closeNode();
+		}
+		return exceptions;
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ *
+ */
+package script.parsing;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import logging.Logs;
+import script.ScriptEnvironment;
+
+/**
+ * Remembers which files have been compiled into an environment, keyed by the
+ * hash of their content, so that a recompile only preparses and parses the
+ * files that changed.
+ * <p>
+ * A file must be recompiled if its content changed, or if it refers to a
+ * template that is defined by a file that must be recompiled. References are
+ * found by name, so a file that mentions a template anywhere in its text is
+ * considered to depend on it. The templates of every other file are left in
+ * the environment untouched.
+ * <p>
+ * Parsing consumes the preparsed trees of a file, so they are not kept
+ * between compiles: unchanged files keep their parsed templates instead. If a
+ * compile fails, the environment may hold a partial result, so the next
+ * compile starts over from a reset environment.
+ * <p>
+ * If a {@link ProgramCache} is given, a compile that starts over first tries
+ * to restore the program from it, and every compile of the whole program is
+ * stored in it.
+ *
+ * @author Aaron Faanes
+ * @see script.CompileRunnable
+ */
+public final class CompilationCache {
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * What is known about a single compiled file.
+	 */
+	private static final class CompiledFile {
+		private final String hash;
+		private final Set<String> identifiers;
+		private final Set<String> templates = new HashSet<String>();
+
+		CompiledFile(String hash, Set<String> identifiers) {
+			this.hash = hash;
+			this.identifiers = identifiers;
+		}
+	}
+
+	static String hash(String source) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(UTF_8));
+			StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+				builder.append(Character.forDigit(b & 0xF, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new AssertionError("SHA-256 is required to be supported");
+		}
+	}
+
+	private static Set<String> getIdentifiers(String source) {
+		Set<String> identifiers = new HashSet<String>();
+		Matcher matcher = IDENTIFIER.matcher(source);
+		while (matcher.find()) {
+			identifiers.add(matcher.group());
+		}
+		return identifiers;
+	}
+
+	private final ScriptEnvironment environment;
+
+	private final ProgramCache programCache;
+
+	private final Map<String, CompiledFile> files = new HashMap<String, CompiledFile>();
+
+	/**
+	 * The files being compiled by the current compile, or {@code null} if no
+	 * compile is in progress.
+	 */
+	private Map<String, CompiledFile> pending;
+
+	/**
+	 * The content of every file given to the current compile.
+	 */
+	private Map<String, String> sources;
+
+	private boolean isValid;
+
+	public CompilationCache(ScriptEnvironment env) {
+		this(env, null);
+	}
+
+	/**
+	 * @param programCache
+	 *            the cache of whole compiled programs, or {@code null} to
+	 *            always compile the program after a reset
+	 */
+	public CompilationCache(ScriptEnvironment env, ProgramCache programCache) {
+		this.environment = env;
+		this.programCache = programCache;
+	}
+
+	/**
+	 * Forgets every compiled file, so the next compile resets the environment
+	 * and compiles everything.
+	 */
+	public void clear() {
+		this.files.clear();
+		this.pending = null;
+		this.sources = null;
+		this.isValid = false;
+	}
+
+	/**
+	 * Records the result of the compile started by the last call to
+	 * {@link #update(Map)}. The templates that were preparsed by the
+	 * compilation are attributed to the files that define them.
+	 *
+	 * @param compilation
+	 *            the compilation of the files returned by {@link #update(Map)}
+	 * @param succeeded
+	 *            whether every file compiled successfully. If not, the cache is
+	 *            cleared.
+	 */
+	public void finish(Compilation compilation, boolean succeeded) {
+		if (this.pending == null) {
+			throw new IllegalStateException("No compile is in progress");
+		}
+		if (!succeeded) {
+			this.clear();
+			return;
+		}
+		for (TemplateParams params : compilation.getTemplates()) {
+			CompiledFile file = this.pending.get(params.getDebugReference().getDebugReference().getFilename());
+			if (file != null) {
+				file.templates.add(params.getName());
+			}
+		}
+		this.files.putAll(this.pending);
+		if (this.programCache != null && !this.pending.isEmpty() && this.pending.size() == this.sources.size()) {
+			Map<String, List<String>> templatesByFile = new LinkedHashMap<String, List<String>>();
+			for (String filename : this.sources.keySet()) {
+				templatesByFile.put(filename, new ArrayList<String>(this.files.get(filename).templates));
+			}
+			this.programCache.store(this.environment, this.sources, templatesByFile);
+		}
+		this.pending = null;
+		this.sources = null;
+		this.isValid = true;
+	}
+
+	public ScriptEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/**
+	 * Restores the program compiled from the specified files from the program
+	 * cache, if it was stored there.
+	 */
+	private void restore(Map<String, String> sources) {
+		if (this.programCache == null) {
+			return;
+		}
+		Map<String, List<String>> templatesByFile = this.programCache.load(this.environment, sources);
+		if (templatesByFile == null) {
+			return;
+		}
+		for (Map.Entry<String, String> source : sources.entrySet()) {
+			CompiledFile file = new CompiledFile(hash(source.getValue()), getIdentifiers(source.getValue()));
+			file.templates.addAll(templatesByFile.get(source.getKey()));
+			this.files.put(source.getKey(), file);
+		}
+	}
+
+	/**
+	 * Prepares the environment for compiling the specified files, removing the
+	 * templates of every file that must be recompiled.
+	 *
+	 * @param sources
+	 *            the content of every file to compile, keyed by filename.
+	 *            Files that were compiled before but are not included are
+	 *            removed.
+	 * @return the names of the files that must be preparsed and parsed, in
+	 *         the order they were given
+	 */
+	public Set<String> update(Map<String, String> sources) {
+		assert Logs.openNode("Incremental Compilations", "Updating Compilation Cache (" + sources.size() + " file(s))");
+		try {
+			if (!this.isValid) {
+				this.environment.reset();
+				this.files.clear();
+				this.restore(sources);
+			}
+			this.pending = new HashMap<String, CompiledFile>();
+			this.sources = sources;
+			Set<String> dirty = new LinkedHashSet<String>();
+			Set<String> removedTemplates = new HashSet<String>();
+			for (Map.Entry<String, CompiledFile> entry : this.files.entrySet()) {
+				String source = sources.get(entry.getKey());
+				if (source == null || !entry.getValue().hash.equals(hash(source))) {
+					dirty.add(entry.getKey());
+					removedTemplates.addAll(entry.getValue().templates);
+				}
+			}
+			for (String filename : sources.keySet()) {
+				if (!this.files.containsKey(filename)) {
+					dirty.add(filename);
+				}
+			}
+			// Files that refer to a removed template must be recompiled too,
+			// which removes their own templates in turn.
+			boolean changed = !removedTemplates.isEmpty();
+			while (changed) {
+				changed = false;
+				for (Map.Entry<String, CompiledFile> entry : this.files.entrySet()) {
+					if (dirty.contains(entry.getKey())) {
+						continue;
+					}
+					if (!Collections.disjoint(entry.getValue().identifiers, removedTemplates)) {
+						dirty.add(entry.getKey());
+						removedTemplates.addAll(entry.getValue().templates);
+						changed = true;
+					}
+				}
+			}
+			for (String filename : dirty) {
+				this.files.remove(filename);
+			}
+			for (String name : removedTemplates) {
+				this.environment.removeTemplate(name);
+			}
+			Set<String> compiled = new LinkedHashSet<String>();
+			for (Map.Entry<String, String> entry : sources.entrySet()) {
+				if (dirty.contains(entry.getKey())) {
+					compiled.add(entry.getKey());
+					this.pending.put(entry.getKey(), new CompiledFile(hash(entry.getValue()), getIdentifiers(entry.getValue())));
+				}
+			}
+			assert Logs.addSnapNode("Files to compile (" + compiled.size() + " file(s))", compiled);
+			return compiled;
+		} finally {
+			assert Logs.closeNode();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ *
+ */
+package script.parsing;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import script.operations.ScriptExecutable_CreateVariable;
+
+/**
+ * Assigns the local variables of a single function to slots in that
+ * function's frame. RiffScript has no nested functions, so every local
+ * variable lives at depth zero relative to its own frame; the slot is all
+ * that's needed to address it at runtime.
+ * <p>
+ * Nested blocks do not reuse slots, so a variable's slot is unique for the
+ * lifetime of its frame.
+ *
+ * @author Aaron Faanes
+ * @see Parser#parseFunction(script.operations.ScriptExecutable_ParseFunction,
+ *      script.values.ScriptValueType)
+ */
+class FrameLayout {
+	private final Map<ScriptExecutable_CreateVariable, Integer> slots = new IdentityHashMap<ScriptExecutable_CreateVariable, Integer>();
+
+	public int declare(ScriptExecutable_CreateVariable variable) {
+		Integer slot = this.slots.get(variable);
+		if (slot == null) {
+			slot = this.slots.size();
+			this.slots.put(variable, slot);
+		}
+		variable.setSlot(slot);
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the specified declaration, or {@code -1} if it was
+	 * not declared in this frame.
+	 */
+	public int getSlot(Object declaration) {
+		Integer slot = this.slots.get(declaration);
+		if (slot == null) {
+			return -1;
+		}
+		return slot;
+	}
+
+	public int size() {
+		return this.slots.size();
+	}
+}
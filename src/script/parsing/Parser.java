@@ -4,17 +4,11 @@
 package script.parsing;
 
 import java.awt.Color;
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 
-import logic.iterators.LineIterator;
-import logic.iterators.UnderlyingIOException;
 import gui.style.Stylesheet;
 import gui.style.StylesheetBackgroundColorElement;
 import gui.style.StylesheetBorderElement;
@@ -33,7 +27,6 @@ import logging.Logs;
 import script.ScriptEnvironment;
 import script.exceptions.InternalException;
 import script.exceptions.TemplateNotFoundException;
-import script.exceptions.UnenclosedBracketException;
 import script.exceptions.UnexpectedTypeException;
 import script.exceptions.UnknownModifierException;
 import script.exceptions.UnparseableElementException;
@@ -55,8 +48,7 @@ import script.operations.ScriptExecutable_ParseFunction;
 import script.operations.ScriptExecutable_RetrieveCurrentObject;
 import script.operations.ScriptExecutable_RetrieveVariable;
 import script.operations.ScriptExecutable_ReturnValue;
-import script.parsing.parsers.CommentRemover;
-import script.parsing.parsers.QuoteTokenizer;
+import script.operations.ScriptOptimizer;
 import script.proxies.FauxTemplate_Object;
 import script.values.NoopScriptFunction;
 import script.values.RiffScriptFunction;
@@ -80,6 +72,10 @@ import script.values.ScriptValue_Variable;
  * <li>Comments-removed naked strings --> Curly Bracket Groupings
  * <li>Curly Bracket Groupings --> Lists of line of code
  * </ol>
+ * <p>
+ * The parser itself holds no state between files. The templates collected
+ * while preparsing belong to a {@link Compilation}, which drives these
+ * methods.
  * 
  * @author Aaron Faanes
  * 
@@ -90,59 +86,11 @@ public final class Parser {
 		throw new AssertionError("Instantiation is not allowed");
 	}
 
-	private static final List<TemplateParams> classParams = new LinkedList<TemplateParams>();
-
-	public static void clearPreparseLists() {
-		classParams.clear();
-	}
-
-	public static List<Exception> preparseFile(ScriptEnvironment env, String filename, BufferedReader reader) throws IOException {
-		try {
-			Iterator<String> iter = new LineIterator(reader);
-			List<Object> strings = new ArrayList<Object>();
-			int i = 1;
-			while (iter.hasNext()) {
-				strings.add(new ScriptLine(env, filename, i++, iter.next()));
-			}
-			return preparseFile(env, filename, strings);
-		} catch (UnderlyingIOException ex) {
-			// Unwrap and throw the IOException
-			throw ex.getCause();
-		}
-	}
-
-	private static List<Object> preparseList(List<Object> stringList) throws ScriptException {
-		new CommentRemover().apply(stringList);
-		stringList = new QuoteTokenizer().apply(stringList);
-		stringList = createGroupings(stringList, CharacterGroup.CURLY_BRACES);
-		stringList = createGroupings(stringList, CharacterGroup.PARENTHESES);
-		stringList = parseOperators(stringList);
-		stringList = removeEmptyScriptLines(stringList);
-		stringList = splitByWhitespace(stringList);
-		stringList = removeEmptyScriptLines(stringList);
-		stringList = extractKeywords(stringList);
-		stringList = extractNumbers(stringList);
-		return stringList;
-	}
-
-	private static List<Exception> preparseFile(ScriptEnvironment env, String filename, List<Object> stringList) {
-		List<Exception> exceptions = new ArrayList<Exception>();
-		assert Logs.openNode("File Preparsing", "Preparsing file (" + filename + ")");
-		try {
-			assert Logs.addSnapNode(CommonString.ELEMENTS, stringList);
-			preparseElements(env, preparseList(stringList));
-			assert Logs.addNode("Preparsed successfully");
-		} catch (ScriptException ex) {
-			Logs.printException(ex);
-			exceptions.add(ex);
-		} catch (InternalException ex) {
-			Logs.printException(ex);
-			exceptions.add(ex);
-		} finally {
-			assert Logs.closeNode();
-		}
-		return exceptions;
-	}
+	/**
+	 * The frame layout of the function whose body is currently being parsed,
+	 * or {@code null} if no function body is being parsed.
+	 */
+	private static final ThreadLocal<FrameLayout> frameLayout = new ThreadLocal<FrameLayout>();
 
 	private static ScriptExecutable_ParseFunction preparseFunction(ScriptEnvironment env, final ScriptTemplate_Abstract object, List<Object> modifiers, ScriptGroup paramGroup, ScriptGroup body, String name) throws ScriptException {
 		if (name.equals("")) {
@@ -233,376 +181,7 @@ public final class Parser {
 		return function;
 	}
 
-	private static List<Object> createGroupings(List<Object> stringList, CharacterGroup group) throws ScriptException {
-		assert Logs.openNode("Character-Group Parsing", "Creating Groupings (" + group + ")");
-		assert Logs.addSnapNode(CommonString.ELEMENTS, stringList);
-		assert Logs.addSnapNode("Character Group", group);
-		stringList = removeSingleLineGroupings(stringList, group);
-		boolean foundGroup = false;
-		for (int i = 0; i < stringList.size(); i++) {
-			Object obj = stringList.get(i);
-			if (obj instanceof ScriptGroup) {
-				if (group.isRecursive()) {
-					assert Logs.openNode("Group found - recursing to parse");
-					((ScriptGroup) obj).setElements(createGroupings(((ScriptGroup) obj).getElements(), group));
-					assert Logs.closeNode();
-				}
-				continue;
-			}
-			if (!(obj instanceof ScriptLine)) {
-				continue;
-			}
-			ScriptLine scriptLine = (ScriptLine) obj;
-			int j = scriptLine.getString().indexOf(group.getEnd());
-			if (j == -1) {
-				continue;
-			}
-			assert Logs.addSnapNode("Found closing character - searching backwards for opening character", scriptLine);
-			assert foundGroup = true;
-			List<Object> newList = new LinkedList<Object>();
-			newList.add(new ScriptLine(scriptLine.getString().substring(0, j), scriptLine, (short) 0));
-			scriptLine.setString(scriptLine.getString().substring(j + group.getEnd().length()));
-			for (int q = i - 1; q >= 0; q--) {
-				if (!(stringList.get(q) instanceof ScriptLine)) {
-					newList.add(stringList.get(q));
-					stringList.remove(q);
-					i--;
-					continue;
-				}
-				ScriptLine backwardScriptLine = (ScriptLine) stringList.get(q);
-				int x = backwardScriptLine.getString().lastIndexOf(group.getStart());
-				if (x == -1) {
-					if (q == 0) {
-						throw new UnenclosedBracketException(scriptLine);
-					}
-					newList.add(backwardScriptLine);
-					stringList.remove(q);
-					i--;
-					continue;
-				}
-				assert Logs.addSnapNode("Found opening character", backwardScriptLine);
-				newList.add(new ScriptLine(
-						backwardScriptLine.getString().substring(x + group.getStart().length()),
-						backwardScriptLine,
-						x + group.getStart().length()
-						));
-				backwardScriptLine.setString(backwardScriptLine.getString().substring(0, x));
-				Collections.reverse(newList);
-				assert Logs.openNode("Recursing to parse elements in newly created group");
-				stringList.add(i, new ScriptGroup((Referenced) newList.get(0), createGroupings(newList, group), group));
-				assert Logs.closeNode();
-				assert Logs.openNode("Recursing to parse remaining elements");
-				List<Object> list = createGroupings(stringList, group);
-				assert Logs.closeNode();
-				assert Logs.closeNode();
-				return list;
-			}
-		}
-		if (!foundGroup) {
-			assert Logs.closeNode("No group found - naturally returning");
-		}
-		return stringList;
-	}
-
-	private static List<Object> parseOperator(ScriptLine line, String operator) {
-		int location = line.getString().indexOf(operator);
-		if (location == -1) {
-			return null;
-		}
-		assert Logs.openNode("Operator Parsing", ScriptOperatorType.parse(operator) + " found in script-line: " + line.getString());
-		assert Logs.addNode(line);
-		List<Object> list = new LinkedList<Object>();
-		String string = line.getString().substring(0, location).trim();
-		String originalString = line.getString();
-		if (string.length() > 0) {
-			list.add(line);
-			line.setString(string);
-		}
-		list.add(new ScriptOperator(new ScriptLine(operator, line, location), ScriptOperatorType.parse(operator)));
-		string = originalString.substring(location + operator.length()).trim();
-		if (string.length() > 0) {
-			list.add(new ScriptLine(string, line, (short) (location + operator.length())));
-		}
-		assert Logs.closeNode("Split-string list formed from operator parse", list);
-		return list;
-	}
-
-	private static List<Object> parseOperators(List<Object> list) {
-		for (int i = 0; i < list.size(); i++) {
-			Object element = list.get(i);
-			if (element instanceof ScriptGroup) {
-				((ScriptGroup) element).setElements(parseOperators(((ScriptGroup) element).getElements()));
-				continue;
-			}
-			if (!(element instanceof ScriptLine)) {
-				continue;
-			}
-			list.remove(i);
-			list.addAll(i, parseOperators((ScriptLine) element));
-		}
-		return list;
-	}
-
-	private static List<Object> parseOperators(ScriptLine line) {
-		List<Object> list = parseOperator(line, ";");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, ",");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, ".");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, ":");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "#");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		// Comparision operations
-		list = parseOperator(line, "==");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "!=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, ">=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "<=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, ">");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "<");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		// Boolean operations
-		list = parseOperator(line, "!");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "&&");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "||");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		// Single-line equation operations
-		list = parseOperator(line, "++");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "--");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "+=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "-=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "*=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "/=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "%=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		// Assignment operation
-		list = parseOperator(line, "=");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		// Mathematical operations.
-		list = parseOperator(line, "-");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "+");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "*");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "/");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		list = parseOperator(line, "%");
-		if (list != null) {
-			return parseOperators(list);
-		}
-		return Collections.<Object> singletonList(line);
-	}
-
-	private static List<Object> removeEmptyScriptLines(List<Object> list) {
-		assert Logs.openNode("Empty Script-Line Removals", "Empty Script-Line Removal");
-		assert Logs.addSnapNode(CommonString.ELEMENTS, list);
-		Iterator<Object> iter = list.iterator();
-		while (iter.hasNext()) {
-			Object element = iter.next();
-			if (element instanceof ScriptGroup) {
-				assert Logs.openNode("Found script-group - recursing to parse");
-				((ScriptGroup) element).setElements(removeEmptyScriptLines(((ScriptGroup) element).getElements()));
-				assert Logs.closeNode();
-				continue;
-			}
-			if (!(element instanceof ScriptLine)) {
-				continue;
-			}
-			if (((ScriptLine) element).getString().trim().length() == 0) {
-				assert Logs.addSnapNode("Removing line", element);
-				iter.remove();
-			}
-		}
-		assert Logs.closeNode();
-		return list;
-	}
-
-	private static List<Object> extractKeywords(List<Object> lineList) throws ScriptException {
-		ListIterator<Object> iter = lineList.listIterator();
-		while (iter.hasNext()) {
-			Object line = iter.next();
-			if (line instanceof ScriptGroup) {
-				ScriptGroup group = (ScriptGroup) line;
-				group.setElements(extractKeywords(group.getElements()));
-				continue;
-			}
-			if (!(line instanceof ScriptLine)) {
-				continue;
-			}
-			ScriptLine scriptLine = (ScriptLine) line;
-			ScriptKeywordType keyword = ScriptKeywordType.fromCanonical(scriptLine.getString());
-			if (keyword == null) {
-				continue;
-			}
-			iter.remove();
-			iter.add(new ScriptKeyword(scriptLine, keyword));
-		}
-		return lineList;
-	}
-
 	// Procedural parsing functions
-	private static List<Object> extractNumbers(List<Object> lineList) {
-		for (int i = 0; i < lineList.size(); i++) {
-			if (lineList.get(i) instanceof ScriptGroup) {
-				((ScriptGroup) lineList.get(i)).setElements(extractNumbers(((ScriptGroup) lineList.get(i)).getElements()));
-				continue;
-			}
-			if (!(lineList.get(i) instanceof ScriptLine)) {
-				continue;
-			}
-			ScriptLine line = (ScriptLine) lineList.get(i);
-			String number = line.getString();
-			if (number.matches("^[0-9]*px$")) {
-				String numString = ((ScriptLine) lineList.get(i)).getString().substring(0, ((ScriptLine) lineList.get(i)).getString().length() - 2);
-				ScriptValue_Numeric scriptShort = new ScriptValue_Numeric(line.getEnvironment(), Short.parseShort(numString));
-				assert Logs.addSnapNode("Number Extractions", "Short numeric value parsed (" + number + ")", scriptShort);
-				lineList.remove(i);
-				lineList.add(i, scriptShort);
-				continue;
-			}
-			if (!number.matches("^[0-9]+[fd]{0,1}$")) {
-				continue;
-			}
-			if (number.matches("^[0-9]*$") && i < lineList.size() - 1 && lineList.get(i + 1) instanceof ScriptOperator && ((ScriptOperator) lineList.get(i + 1)).getType() == ScriptOperatorType.MODULUS) {
-				ScriptValue_Numeric scriptFloat = new ScriptValue_Numeric(line.getEnvironment(), Float.parseFloat(number));
-				lineList.remove(i);
-				lineList.add(i, scriptFloat);
-				continue;
-			}
-			if (i > 0 && lineList.get(i - 1) instanceof ScriptOperator && ((ScriptOperator) lineList.get(i - 1)).getType() == ScriptOperatorType.PERIOD) {
-				number = "." + number;
-				lineList.remove(i - 1);
-				i--;
-				if (i > 0 && lineList.get(i - 1) instanceof ScriptOperator && ((ScriptOperator) lineList.get(i - 1)).getType() == ScriptOperatorType.MINUS) {
-					if (i <= 1 || !(lineList.get(i - 2) instanceof ScriptValue_Numeric)) {
-						number = "-" + number;
-						lineList.remove(i - 1);
-						i--;
-					}
-				}
-			} else if (i > 0 && lineList.get(i - 1) instanceof ScriptOperator && ((ScriptOperator) lineList.get(i - 1)).getType() == ScriptOperatorType.MINUS) {
-				if (i <= 1 || !(lineList.get(i - 2) instanceof ScriptValue_Numeric)) {
-					number = "-" + number;
-					lineList.remove(i - 1);
-					i--;
-				}
-			}
-			if (i < lineList.size() - 1 && lineList.get(i + 1) instanceof ScriptOperator && ((ScriptOperator) lineList.get(i + 1)).getType() == ScriptOperatorType.PERIOD) {
-				number += "." + ((ScriptLine) lineList.get(i + 2)).getString();
-				lineList.remove(i + 1);
-				lineList.remove(i + 1);
-			}
-			if (number.length() > 3 && number.substring(number.length() - 2).equals("em")) {
-				number = number.substring(0, number.length() - 2);
-				ScriptValue_Numeric scriptFloat = new ScriptValue_Numeric(line.getEnvironment(), Float.parseFloat(number) * 14);
-				assert Logs.addSnapNode("Number Extractions", "Float numeric value parsed (" + number + ")", scriptFloat);
-				lineList.remove(i);
-				lineList.remove(i);
-				lineList.add(i, scriptFloat);
-				continue;
-			}
-			if (number.charAt(number.length() - 1) == 'f') {
-				ScriptValue_Numeric scriptFloat = new ScriptValue_Numeric(line.getEnvironment(), Float.parseFloat(number));
-				assert Logs.addSnapNode("Number Extractions", "Float numeric value parsed (" + number + ")", scriptFloat);
-				lineList.remove(i);
-				lineList.add(i, scriptFloat);
-				continue;
-			}
-			if (number.indexOf(".") != -1) {
-				ScriptValue_Numeric scriptDouble = new ScriptValue_Numeric(line.getEnvironment(), Double.parseDouble(number));
-				assert Logs.addSnapNode("Number Extractions", "Double numeric value parsed (" + number + ")", scriptDouble);
-				lineList.remove(i);
-				lineList.add(i, scriptDouble);
-				continue;
-			}
-			if (number.length() < 5) {
-				ScriptValue_Numeric scriptShort = new ScriptValue_Numeric(line.getEnvironment(), Short.parseShort(number));
-				lineList.remove(i);
-				lineList.add(i, scriptShort);
-				continue;
-			}
-			if (number.length() < 10) {
-				ScriptValue_Numeric scriptInt = new ScriptValue_Numeric(line.getEnvironment(), Integer.parseInt(number));
-				assert Logs.addSnapNode("Number Extractions", "Integer numeric value parsed (" + number + ")", scriptInt);
-				lineList.remove(i);
-				lineList.add(i, scriptInt);
-				continue;
-			}
-			ScriptValue_Numeric scriptLong = new ScriptValue_Numeric(line.getEnvironment(), Long.parseLong(number));
-			assert Logs.addSnapNode("Number Extractions", "Long numeric value parsed (" + number + ")", scriptLong);
-			lineList.remove(i);
-			lineList.add(i, scriptLong);
-		}
-		return lineList;
-	}
-
 	private static List<ScriptExecutable> parseBodyList(ScriptEnvironment env, List<Object> bodyElements, ScriptValueType type) throws ScriptException {
 		assert Logs.openNode("Body List Parsing", "Parsing Body List (" + bodyElements.size() + " element(s))");
 		List<Object> elements = new LinkedList<Object>();
@@ -630,29 +209,20 @@ public final class Parser {
 		return statementBodyList;
 	}
 
-	public static List<Exception> parseElements(ScriptEnvironment env) {
-		List<Exception> exceptions = new ArrayList<Exception>();
-		assert Logs.openNode("Element Parsing", "Parsing Elements");
-		try {
-			List<ScriptTemplate_Abstract> queuedTemplates = new LinkedList<ScriptTemplate_Abstract>();
-			for (TemplateParams params : classParams) {
-				ScriptTemplate_Abstract template = preparseTemplate(params.getDebugReference(), env, params.getModifiers(), params.getBody(), params.getName());
-				queuedTemplates.add(template);
-				env.addTemplate(params.getDebugReference(), params.getName(), template);
-			}
-			for (int i = 0; i < queuedTemplates.size(); i++) {
-				queuedTemplates.get(i).initializeFunctions(classParams.get(i).getDebugReference());
-			}
-		} catch (ScriptException ex) {
-			Logs.printException(ex);
-			exceptions.add(ex);
-		} catch (InternalException ex) {
-			Logs.printException(ex);
-			exceptions.add(ex);
-		} finally {
-			assert Logs.closeNode();
+	/**
+	 * Creates and registers a template for each of the specified preparsed
+	 * templates, and then parses their functions.
+	 */
+	static void parseElements(ScriptEnvironment env, List<TemplateParams> templates) throws ScriptException {
+		List<ScriptTemplate_Abstract> queuedTemplates = new ArrayList<ScriptTemplate_Abstract>();
+		for (TemplateParams params : templates) {
+			ScriptTemplate_Abstract template = preparseTemplate(params.getDebugReference(), env, params.getModifiers(), params.getBody(), params.getName());
+			queuedTemplates.add(template);
+			env.addTemplate(params.getDebugReference(), params.getName(), template);
+		}
+		for (int i = 0; i < queuedTemplates.size(); i++) {
+			queuedTemplates.get(i).initializeFunctions(templates.get(i).getDebugReference());
 		}
-		return exceptions;
 	}
 
 	private static ScriptExecutable parseExpression(ScriptEnvironment env, List<Object> list, boolean automaticallyAddToStack, ScriptValueType type) throws ScriptException {
@@ -769,6 +339,9 @@ public final class Parser {
 							env.getCurrentObject().addPreconstructorExpression(exec);
 						}
 					}
+					if (!automaticallyAddToStack) {
+						declareLocalVariable((ScriptExecutable_CreateVariable) creator);
+					}
 					env.addVariableToStack(name, creator);
 					list.remove(i);
 					list.remove(i);
@@ -936,7 +509,7 @@ public final class Parser {
 						throw new VariableNotFoundException((Referenced) obj, ((ScriptLine) obj).getString());
 					}
 					list.remove(i);
-					returnValue = new ScriptExecutable_RetrieveVariable((Referenced) obj, null, ((ScriptLine) obj).getString(), env.retrieveVariable(((ScriptLine) obj).getString()).getType());
+					returnValue = createVariablePlaceholder(env, (Referenced) obj, ((ScriptLine) obj).getString());
 					list.add(i, returnValue);
 					if (nextObj == null) {
 						assert Logs.addSnapNode("Expression Parsing", "Variable placeholder parsed", returnValue);
@@ -984,6 +557,9 @@ public final class Parser {
 							env.getCurrentObject().addPreconstructorExpression(creator);
 						}
 					}
+					if (!automaticallyAddToStack) {
+						declareLocalVariable(creator);
+					}
 					env.addVariableToStack(creator.getName(), creator);
 					list.remove(i);
 					list.remove(i);
@@ -998,6 +574,36 @@ public final class Parser {
 		throw new AssertionError("Defaulted in parseExpression");
 	}
 
+	/**
+	 * Assigns the specified variable a slot in the frame of the function being
+	 * parsed. Variables declared outside of a function body, such as member
+	 * and static variables, are left to be resolved by name.
+	 */
+	private static void declareLocalVariable(ScriptExecutable_CreateVariable creator) {
+		FrameLayout layout = frameLayout.get();
+		if (layout != null) {
+			layout.declare(creator);
+		}
+	}
+
+	/**
+	 * Creates a placeholder for the named variable, resolving it to a frame
+	 * slot if it is a local variable of the function being parsed, or to an
+	 * index in the shape of the current object if it is a member variable.
+	 */
+	private static ScriptExecutable_RetrieveVariable createVariablePlaceholder(ScriptEnvironment env, Referenced ref, String name) throws ScriptException {
+		ScriptValue_Variable declaration = env.retrieveVariable(name);
+		ScriptExecutable_RetrieveVariable placeholder = new ScriptExecutable_RetrieveVariable(ref, null, name, declaration.getType());
+		FrameLayout layout = frameLayout.get();
+		if (layout != null) {
+			placeholder.setSlot(layout.getSlot(declaration));
+		}
+		if (placeholder.getSlot() == -1 && declaration instanceof ScriptExecutable_CreateVariable && ((ScriptExecutable_CreateVariable) declaration).isMember()) {
+			placeholder.setMember(env.getCurrentObject());
+		}
+		return placeholder;
+	}
+
 	private static ScriptExecutable parseFlowElement(ScriptEnvironment env, List<Object> list, ScriptValueType type) throws ScriptException {
 		assert Logs.openNode("Flow Element Parsing", "Parsing Flow Element");
 		assert Logs.addSnapNode(CommonString.ELEMENTS, list);
@@ -1083,7 +689,21 @@ public final class Parser {
 		} else {
 			fxn = new RiffScriptFunction(function.getReturnType(), function.getParameters(), function.getPermission(), function.isAbstract(), function.isStatic());
 		}
-		fxn.addExpressions(parseBodyList(function.getEnvironment(), function.getBody().getElements(), type));
+		FrameLayout layout = new FrameLayout();
+		for (ScriptValue param : function.getParameters()) {
+			if (param instanceof ScriptExecutable_CreateVariable) {
+				layout.declare((ScriptExecutable_CreateVariable) param);
+			}
+		}
+		FrameLayout enclosingLayout = frameLayout.get();
+		frameLayout.set(layout);
+		try {
+			fxn.addExpressions(ScriptOptimizer.optimize(parseBodyList(function.getEnvironment(), function.getBody().getElements(), type)));
+		} finally {
+			frameLayout.set(enclosingLayout);
+		}
+		((RiffScriptFunction) fxn).setFrameSize(layout.size());
+		assert Logs.addNode("Frame size: " + layout.size() + " slot(s)");
 		assert Logs.closeNode();
 		return fxn;
 	}
@@ -1363,7 +983,14 @@ public final class Parser {
 	}
 
 	// Object-oriented parsing functions
-	private static void preparseElements(ScriptEnvironment env, List<Object> lineList) throws ScriptException {
+	/**
+	 * Collects the templates of a preparsed file, registering their types with
+	 * the environment.
+	 *
+	 * @param templates
+	 *            the list that receives the file's templates
+	 */
+	static void preparseElements(ScriptEnvironment env, List<Object> lineList, List<TemplateParams> templates) throws ScriptException {
 		assert Logs.openNode("Preparsing Elements", "Preparsing Elements (" + lineList.size() + " element(s))");
 		assert Logs.addSnapNode(CommonString.ELEMENTS, lineList);
 		List<Object> modifiers = new LinkedList<Object>();
@@ -1405,7 +1032,7 @@ public final class Parser {
 					}
 					List<Object> thisModifiers = new LinkedList<Object>();
 					thisModifiers.addAll(modifiers);
-					classParams.add(new TemplateParams(element, name, thisModifiers, body));
+					templates.add(new TemplateParams(element, name, thisModifiers, body));
 					env.addType(element, name);
 					modifiers.clear();
 					continue;
@@ -1507,120 +1134,6 @@ public final class Parser {
 		return template;
 	}
 
-	private static List<Object> removeSingleLineGroupings(List<Object> lineList, CharacterGroup group) {
-		for (int i = 0; i < lineList.size(); i++) {
-			if (lineList.get(i) instanceof ScriptGroup) {
-				if (group.isRecursive()) {
-					((ScriptGroup) lineList.get(i)).setElements(removeSingleLineGroupings(((ScriptGroup) lineList.get(i)).getElements(), group));
-				}
-				continue;
-			}
-			if (!(lineList.get(i) instanceof ScriptLine)) {
-				continue;
-			}
-			List<Object> returnedList = removeSingleLineGroupings((ScriptLine) lineList.get(i), group);
-			lineList.remove(i);
-			lineList.addAll(i, returnedList);
-		}
-		return lineList;
-	}
-
-	private static List<Object> removeSingleLineGroupings(ScriptLine line, CharacterGroup group) {
-		String openChar = group.getStart();
-		String closingChar = group.getEnd();
-		boolean recurse = group.isRecursive();
-		int endGroup = -1;
-		int beginGroup = -1;
-		int offset = 0;
-		String string;
-		while (true) {
-			endGroup = line.getString().indexOf(closingChar, offset);
-			if (endGroup == -1) {
-				List<Object> list = new LinkedList<Object>();
-				list.add(line);
-				return list;
-			}
-			string = line.getString().substring(0, endGroup);
-			beginGroup = string.lastIndexOf(openChar);
-			if (beginGroup != -1) {
-				break;
-			}
-			offset = endGroup + 1;
-		}
-		assert Logs.openNode("Single-Line Grouping Removals", "Removing Single-Line Groupings (Syntax: " + openChar + "..." + closingChar + " )");
-		assert Logs.addNode(line);
-		assert Logs.addNode("Allowed to Recurse: " + recurse);
-		List<Object> list = new LinkedList<Object>();
-		List<Object> itemList = new LinkedList<Object>();
-		ScriptLine newGroup = new ScriptLine(string.substring(beginGroup + openChar.length()), line, (short) (beginGroup + openChar.length()));
-		assert Logs.openNode("Recursing for left-side groups.");
-		list.addAll(removeSingleLineGroupings(
-				new ScriptLine(line.getString().substring(0, beginGroup), line, (short) 0),
-				group));
-		assert Logs.closeNode();
-		itemList.add(newGroup);
-		list.add(new ScriptGroup(line, itemList, group));
-		assert Logs.openNode("Recursing for right-side groups.");
-		list.addAll(removeSingleLineGroupings(
-				new ScriptLine(line.getString().substring(endGroup + closingChar.length()), line, (short) (endGroup + closingChar.length())),
-				group));
-		assert Logs.closeNode();
-		assert Logs.closeNode();
-		return list;
-	}
-
-	private static List<Object> splitByWhitespace(List<Object> list) {
-		assert Logs.openNode("Split-By-Whitespace List Operations", "Splitting lines in list by whitespace (" + list.size() + " element(s))");
-		assert Logs.addSnapNode("Elements", list);
-		for (int i = 0; i < list.size(); i++) {
-			Object obj = list.get(i);
-			if (obj instanceof ScriptGroup) {
-				((ScriptGroup) obj).setElements(splitByWhitespace(((ScriptGroup) obj).getElements()));
-				continue;
-			}
-			if (!(obj instanceof ScriptLine)) {
-				continue;
-			}
-			list.remove(i);
-			list.addAll(i, splitByWhitespace((ScriptLine) obj));
-		}
-		assert Logs.closeNode();
-		return list;
-	}
-
-	private static List<Object> splitByWhitespace(ScriptLine line) {
-		assert Logs.openNode("Split-By-Whitespace Operations", "Splitting line by whitespace (" + line.getLineNumber() + ":'" + line.getString() + "')");
-		assert Logs.addSnapNode("Line", line);
-		List<Object> list = new LinkedList<Object>();
-		if (line.getString().indexOf(" ") == -1 && line.getString().indexOf("\t") == -1) {
-			list.add(line);
-			assert Logs.closeNode("Line contains no whitespace.");
-			return list;
-		}
-		String string = line.getString();
-		String nextWord = "";
-		int offset = 0;
-		while (string.length() > 0) {
-			if (string.indexOf(" ") == 0 || string.indexOf("\t") == 0) {
-				if (nextWord.length() > 0) {
-					list.add(line = new ScriptLine(nextWord, line, offset));
-					offset = nextWord.length();
-					nextWord = "";
-				}
-				offset++;
-				string = string.substring(1);
-			} else {
-				nextWord += string.charAt(0);
-				string = string.substring(1);
-			}
-		}
-		if (nextWord.length() > 0) {
-			list.add(new ScriptLine(nextWord, line, offset));
-		}
-		assert Logs.closeNode("Returning list", list);
-		return list;
-	}
-
 }
 
 class StylesheetParams {
@@ -1652,33 +1165,3 @@ class StylesheetParams {
 		return this.name;
 	}
 }
-
-class TemplateParams {
-	private Referenced reference;
-	private List<Object> modifiers;
-	private String name;
-	private ScriptGroup body;
-
-	public TemplateParams(Referenced ref, String name, List<Object> modifiers, ScriptGroup body) {
-		this.reference = ref;
-		this.modifiers = modifiers;
-		this.name = name;
-		this.body = body;
-	}
-
-	public ScriptGroup getBody() {
-		return this.body;
-	}
-
-	public Referenced getDebugReference() {
-		return this.reference;
-	}
-
-	public List<Object> getModifiers() {
-		return this.modifiers;
-	}
-
-	public String getName() {
-		return this.name;
-	}
-}
@@ -0,0 +1,399 @@
+/**
+ *
+ */
+package script.parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import logging.Logs;
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValueType;
+
+/**
+ * Stores a compiled program on disk, so that a later environment can be
+ * restored without lexing or parsing the files it was compiled from.
+ * <p>
+ * A program is stored along with the hash of every file it was compiled
+ * from, and is only loaded if none of those files changed. Templates are
+ * written using Java serialization, along with their functions, expressions
+ * and debug references. The environment, and every type and template the
+ * environment defines by name, are written as references that are resolved
+ * against the environment that loads the program.
+ * <p>
+ * Only classes of the script packages, of {@code java.lang} and
+ * {@code java.util}, and those that make up a concurrent map are written or
+ * read; a stored program that names any other class is rejected before that
+ * class is loaded. Serialized classes
+ * declare their serial versions, so changes to their serialized fields, as
+ * well as to the layout of the file itself, must increment
+ * {@link #FORMAT_VERSION}.
+ *
+ * @author Aaron Faanes
+ * @see CompilationCache
+ */
+public final class ProgramCache {
+
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x52494646;
+
+	private static final String FILENAME = "program.cache";
+
+	/**
+	 * The classes outside {@code java.lang} and {@code java.util} that make up
+	 * the serialized form of a template's members.
+	 */
+	private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+			"java.util.concurrent.ConcurrentHashMap",
+			"java.util.concurrent.ConcurrentHashMap$Segment",
+			"java.util.concurrent.locks.ReentrantLock",
+			"java.util.concurrent.locks.ReentrantLock$Sync",
+			"java.util.concurrent.locks.ReentrantLock$NonfairSync",
+			"java.util.concurrent.locks.AbstractQueuedSynchronizer",
+			"java.util.concurrent.locks.AbstractOwnableSynchronizer"));
+
+	/**
+	 * Returns whether the specified class may be part of a stored program.
+	 *
+	 * @param name
+	 *            the binary name of the class, as returned by
+	 *            {@link Class#getName()}
+	 */
+	static boolean isAllowedClass(String name) {
+		int dimensions = 0;
+		while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+			dimensions++;
+		}
+		if (dimensions > 0) {
+			if (name.length() == dimensions + 1) {
+				// An array of primitives
+				return true;
+			}
+			if (name.charAt(dimensions) != 'L' || !name.endsWith(";")) {
+				return false;
+			}
+			name = name.substring(dimensions + 1, name.length() - 1);
+		}
+		if (name.startsWith("script.") || ALLOWED_CLASSES.contains(name)) {
+			return true;
+		}
+		int packageEnd = name.lastIndexOf('.');
+		if (packageEnd < 0) {
+			return false;
+		}
+		String packageName = name.substring(0, packageEnd);
+		return packageName.equals("java.lang") || packageName.equals("java.util");
+	}
+
+	/**
+	 * Stands in for the environment of a stored program.
+	 */
+	private static final class EnvironmentReference implements Serializable {
+		private static final long serialVersionUID = 3419815235612788470L;
+	}
+
+	/**
+	 * Stands in for a type that is registered with the environment.
+	 */
+	private static final class TypeReference implements Serializable {
+		private final String name;
+
+		TypeReference(String name) {
+			this.name = name;
+		}
+
+		private static final long serialVersionUID = -3786406521707651207L;
+	}
+
+	/**
+	 * Stands in for a template that every environment defines on its own.
+	 */
+	private static final class TemplateReference implements Serializable {
+		private final String name;
+
+		TemplateReference(String name) {
+			this.name = name;
+		}
+
+		private static final long serialVersionUID = 8520911406880785113L;
+	}
+
+	private static final class ProgramOutputStream extends ObjectOutputStream {
+		private final ScriptEnvironment environment;
+		private final Map<Object, String> types = new IdentityHashMap<Object, String>();
+		private final Map<Object, String> templates = new IdentityHashMap<Object, String>();
+
+		ProgramOutputStream(OutputStream out, ScriptEnvironment env, Map<String, ScriptTemplate_Abstract> builtinTemplates) throws IOException {
+			super(out);
+			this.environment = env;
+			for (Map.Entry<String, ScriptValueType> entry : env.getTypes().entrySet()) {
+				this.types.put(entry.getValue(), entry.getKey());
+			}
+			for (Map.Entry<String, ScriptTemplate_Abstract> entry : builtinTemplates.entrySet()) {
+				this.templates.put(entry.getValue(), entry.getKey());
+			}
+			this.enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			if (obj == this.environment) {
+				return new EnvironmentReference();
+			}
+			String name = this.types.get(obj);
+			if (name != null) {
+				return new TypeReference(name);
+			}
+			name = this.templates.get(obj);
+			if (name != null) {
+				return new TemplateReference(name);
+			}
+			if (obj != null && obj.getClass() == ScriptValueType.class) {
+				// Types are compared by identifier, which isn't stable between
+				// environments, so every written type must be registered.
+				throw new NotSerializableException("Unregistered type: " + obj);
+			}
+			if (obj != null && !isAllowedClass(obj.getClass().getName())) {
+				// It would only be rejected when the program is loaded.
+				throw new NotSerializableException(obj.getClass().getName());
+			}
+			return obj;
+		}
+	}
+
+	private static final class ProgramInputStream extends ObjectInputStream {
+		private final ScriptEnvironment environment;
+		private final Map<String, ScriptValueType> types;
+
+		ProgramInputStream(InputStream in, ScriptEnvironment env, Map<String, ScriptValueType> types) throws IOException {
+			super(in);
+			this.environment = env;
+			this.types = types;
+			this.enableResolveObject(true);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!isAllowedClass(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "Class is not allowed in a stored program");
+			}
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("Proxy classes are not allowed in a stored program");
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException {
+			if (obj instanceof EnvironmentReference) {
+				return this.environment;
+			}
+			if (obj instanceof TypeReference) {
+				ScriptValueType type = this.types.get(((TypeReference) obj).name);
+				if (type == null) {
+					throw new InvalidObjectException("Type not found: " + ((TypeReference) obj).name);
+				}
+				return type;
+			}
+			if (obj instanceof TemplateReference) {
+				ScriptTemplate_Abstract template = this.environment.getTemplate(((TemplateReference) obj).name);
+				if (template == null) {
+					throw new InvalidObjectException("Template not found: " + ((TemplateReference) obj).name);
+				}
+				return template;
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * Returns a hash of the specified files and their content.
+	 */
+	private static String getKey(Map<String, String> sources) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(FORMAT_VERSION);
+		for (Map.Entry<String, String> source : new TreeMap<String, String>(sources).entrySet()) {
+			builder.append('\0').append(source.getKey()).append('\0').append(source.getValue());
+		}
+		return CompilationCache.hash(builder.toString());
+	}
+
+	private final File directory;
+
+	public ProgramCache(File directory) {
+		if (directory == null) {
+			throw new NullPointerException("directory must not be null");
+		}
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Removes the stored program, if any.
+	 */
+	public void clear() {
+		new File(this.directory, FILENAME).delete();
+	}
+
+	/**
+	 * Restores the program that was compiled from the specified files into
+	 * the specified environment. The environment must not define any of the
+	 * program's templates, and is left untouched if the program can't be
+	 * restored.
+	 *
+	 * @param sources
+	 *            the content of every file of the program, keyed by filename
+	 * @return the names of the templates defined by each file, or
+	 *         {@code null} if no program was stored for these files
+	 */
+	public Map<String, List<String>> load(ScriptEnvironment env, Map<String, String> sources) {
+		File file = new File(this.directory, FILENAME);
+		if (!file.isFile()) {
+			return null;
+		}
+		assert Logs.openNode("Program Caches", "Loading cached program (" + file + ")");
+		try {
+			Map<String, ScriptValueType> types = new LinkedHashMap<String, ScriptValueType>(env.getTypes());
+			ObjectInputStream in = new ProgramInputStream(new BufferedInputStream(new FileInputStream(file)), env, types);
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(getKey(sources))) {
+					assert Logs.addNode("Cached program is out of date");
+					return null;
+				}
+				@SuppressWarnings("unchecked")
+				Map<String, List<String>> templatesByFile = (Map<String, List<String>>) in.readObject();
+				// The program's own types are created anew, so that their
+				// identifiers are unique in this environment. Nothing is added
+				// to the environment until the whole program has been read.
+				Map<String, ScriptValueType> programTypes = new LinkedHashMap<String, ScriptValueType>();
+				int nextIdentifier = env.getNextTypeIdentifier();
+				for (List<String> templateNames : templatesByFile.values()) {
+					for (String name : templateNames) {
+						if (types.containsKey(name) || env.getTemplate(name) != null) {
+							assert Logs.addNode("Cached program defines an existing type (" + name + ")");
+							return null;
+						}
+						ScriptValueType type = new ScriptValueType(env, nextIdentifier++);
+						types.put(name, type);
+						programTypes.put(name, type);
+					}
+				}
+				@SuppressWarnings("unchecked")
+				Map<String, ScriptTemplate_Abstract> templates = (Map<String, ScriptTemplate_Abstract>) in.readObject();
+				for (String name : programTypes.keySet()) {
+					if (!(templates.get(name) instanceof ScriptTemplate_Abstract)) {
+						assert Logs.addNode("Cached program is missing a template (" + name + ")");
+						return null;
+					}
+				}
+				for (Map.Entry<String, ScriptValueType> entry : programTypes.entrySet()) {
+					env.addType(null, entry.getKey(), entry.getValue());
+					env.addTemplate(null, entry.getKey(), templates.get(entry.getKey()));
+				}
+				assert Logs.addSnapNode("Cached program loaded (" + templates.size() + " template(s))", templates.keySet());
+				return templatesByFile;
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			assert Logs.addNode("Cached program could not be read: " + ex);
+			return null;
+		} catch (ClassNotFoundException ex) {
+			assert Logs.addNode("Cached program could not be read: " + ex);
+			return null;
+		} catch (ClassCastException ex) {
+			assert Logs.addNode("Cached program could not be read: " + ex);
+			return null;
+		} catch (ScriptException ex) {
+			assert Logs.addNode("Cached program could not be restored: " + ex);
+			return null;
+		} finally {
+			assert Logs.closeNode();
+		}
+	}
+
+	/**
+	 * Stores the program that was just compiled into the specified
+	 * environment, replacing any previously stored program. The environment
+	 * must not have executed since it was compiled. Programs that contain
+	 * values that can't be serialized are not stored.
+	 *
+	 * @param sources
+	 *            the content of every file of the program, keyed by filename
+	 * @param templatesByFile
+	 *            the names of the templates defined by each file
+	 */
+	public void store(ScriptEnvironment env, Map<String, String> sources, Map<String, List<String>> templatesByFile) {
+		File file = new File(this.directory, FILENAME);
+		assert Logs.openNode("Program Caches", "Storing compiled program (" + file + ")");
+		File temporary = null;
+		try {
+			Map<String, ScriptTemplate_Abstract> builtinTemplates = new LinkedHashMap<String, ScriptTemplate_Abstract>(env.getTemplates());
+			Map<String, ScriptTemplate_Abstract> templates = new LinkedHashMap<String, ScriptTemplate_Abstract>();
+			Map<String, List<String>> names = new LinkedHashMap<String, List<String>>();
+			for (Map.Entry<String, List<String>> entry : templatesByFile.entrySet()) {
+				names.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+				for (String name : entry.getValue()) {
+					templates.put(name, builtinTemplates.remove(name));
+				}
+			}
+			if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+				throw new IOException("Directory could not be created: " + this.directory);
+			}
+			temporary = File.createTempFile(FILENAME, null, this.directory);
+			ObjectOutputStream out = new ProgramOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)), env, builtinTemplates);
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(getKey(sources));
+				out.writeObject(names);
+				out.writeObject(templates);
+			} finally {
+				out.close();
+			}
+			file.delete();
+			if (!temporary.renameTo(file)) {
+				throw new IOException("Cached program could not be replaced: " + file);
+			}
+			temporary = null;
+			assert Logs.addSnapNode("Compiled program stored (" + templates.size() + " template(s))", templates.keySet());
+		} catch (IOException ex) {
+			assert Logs.addNode("Compiled program could not be stored: " + ex);
+		} finally {
+			if (temporary != null) {
+				temporary.delete();
+			}
+			assert Logs.closeNode();
+		}
+	}
+}
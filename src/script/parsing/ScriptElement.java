@@ -1,10 +1,12 @@
 package script.parsing;
 
+import java.io.Serializable;
+
 import inspect.Inspectable;
 import script.ScriptEnvironment;
 
 @Inspectable
-public class ScriptElement implements Referenced {
+public class ScriptElement implements Referenced, Serializable {
 	private final ScriptEnvironment environment;
 	private final int lineNumber, originalLineOffset, length;
 	private final String original, filename;
@@ -107,4 +109,6 @@ public class ScriptElement implements Referenced {
 		}
 		return String.format("ScriptElement[%s@%d]=\"%s\"", this.getFilename(), this.getLineNumber(), this.getOriginalString().substring(0, Math.min(this.getOriginalString().length() - 1, 20)));
 	}
+
+	private static final long serialVersionUID = 8913735419120793878L;
 }
@@ -35,4 +35,6 @@ public class ScriptGroup extends ScriptElement implements RiffToken {
 	public void accept(RiffTokenVisitor visitor) {
 		visitor.visitGroup(this);
 	}
+
+	private static final long serialVersionUID = 8462284826477057357L;
 }
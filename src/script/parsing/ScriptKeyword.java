@@ -50,4 +50,6 @@ public class ScriptKeyword extends ScriptElement {
 	public String toString() {
 		return this.getType().toString();
 	}
+
+	private static final long serialVersionUID = -8693523674155109520L;
 }
@@ -37,4 +37,6 @@ public class ScriptLine extends ScriptElement implements RiffToken {
 	public void accept(RiffTokenVisitor visitor) {
 		visitor.visitUnparsed(this.getString());
 	}
+
+	private static final long serialVersionUID = 8006444335512950914L;
 }
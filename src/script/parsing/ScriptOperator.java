@@ -48,4 +48,6 @@ public class ScriptOperator extends ScriptElement implements RiffToken {
 	public void accept(RiffTokenVisitor visitor) {
 		visitor.visitOperator(this.getType());
 	}
+
+	private static final long serialVersionUID = -4836390182309245148L;
 }
@@ -0,0 +1,44 @@
+/**
+ *
+ */
+package script.parsing;
+
+import java.util.List;
+
+/**
+ * The preparsed declaration of a template: its name, its modifiers, and the
+ * unparsed group that forms its body. A {@link Compilation} keeps these
+ * between preparsing and parsing its elements.
+ *
+ * @author Aaron Faanes
+ * @see Parser#preparseElements(script.ScriptEnvironment, List, List)
+ */
+class TemplateParams {
+	private Referenced reference;
+	private List<Object> modifiers;
+	private String name;
+	private ScriptGroup body;
+
+	public TemplateParams(Referenced ref, String name, List<Object> modifiers, ScriptGroup body) {
+		this.reference = ref;
+		this.modifiers = modifiers;
+		this.name = name;
+		this.body = body;
+	}
+
+	public ScriptGroup getBody() {
+		return this.body;
+	}
+
+	public Referenced getDebugReference() {
+		return this.reference;
+	}
+
+	public List<Object> getModifiers() {
+		return this.modifiers;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+}
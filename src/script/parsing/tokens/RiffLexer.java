@@ -0,0 +1,403 @@
+/**
+ *
+ */
+package script.parsing.tokens;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.exceptions.UnenclosedBracketException;
+import script.exceptions.UnenclosedStringLiteralException;
+import script.parsing.CharacterGroup;
+import script.parsing.ScriptGroup;
+import script.parsing.ScriptKeyword;
+import script.parsing.ScriptKeywordType;
+import script.parsing.ScriptLine;
+import script.parsing.ScriptOperator;
+import script.parsing.ScriptOperatorType;
+import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
+
+/**
+ * Reads a script file into the tokens consumed by the parser, in a single pass
+ * over its characters.
+ * <p>
+ * Comments are skipped, and words, operators, keywords, string literals and
+ * numeric literals are added to the elements of the innermost open group as
+ * they are read. Curly braces and parentheses open and close
+ * {@link ScriptGroup}s, so the returned elements are already grouped. Every
+ * token refers to the line and offset it was read from.
+ * <p>
+ * Comment markers inside string literals are part of the string, and string
+ * literals must be closed on the line they were opened.
+ *
+ * @author Aaron Faanes
+ * @see script.parsing.Compilation
+ */
+public final class RiffLexer {
+
+	/**
+	 * A group whose closing bracket has not been read yet.
+	 */
+	private static final class OpenGroup {
+		private final ScriptLine reference;
+		private final CharacterGroup type;
+		private final List<Object> elements = new ArrayList<Object>();
+
+		OpenGroup(ScriptLine reference, CharacterGroup type) {
+			this.reference = reference;
+			this.type = type;
+		}
+	}
+
+	private final ScriptEnvironment environment;
+	private final String filename;
+	private final BufferedReader reader;
+
+	private final List<OpenGroup> groups = new ArrayList<OpenGroup>();
+
+	/**
+	 * The elements of the innermost open group.
+	 */
+	private List<Object> elements;
+
+	/**
+	 * The line being read, which every token of the line refers to.
+	 */
+	private ScriptLine line;
+	private String string;
+	private int position;
+
+	private boolean inBlockComment;
+
+	public RiffLexer(ScriptEnvironment env, String filename, BufferedReader reader) {
+		this.environment = env;
+		this.filename = filename;
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the entire file.
+	 *
+	 * @return the top-level elements of the file
+	 */
+	public List<Object> readElements() throws IOException, ScriptException {
+		OpenGroup file = new OpenGroup(null, null);
+		this.groups.add(file);
+		this.elements = file.elements;
+		int lineNumber = 1;
+		String next;
+		while ((next = this.reader.readLine()) != null) {
+			this.line = new ScriptLine(this.environment, this.filename, lineNumber++, next);
+			this.string = next;
+			this.position = 0;
+			this.readLine();
+		}
+		if (this.groups.size() > 1) {
+			throw new UnenclosedBracketException(this.groups.get(this.groups.size() - 1).reference);
+		}
+		return file.elements;
+	}
+
+	private void readLine() throws ScriptException {
+		int length = this.string.length();
+		while (this.position < length) {
+			if (this.inBlockComment) {
+				int end = this.string.indexOf("*/", this.position);
+				if (end == -1) {
+					return;
+				}
+				this.inBlockComment = false;
+				this.position = end + 2;
+				continue;
+			}
+			char c = this.string.charAt(this.position);
+			if (c <= ' ') {
+				this.position++;
+				continue;
+			}
+			switch (c) {
+			case '/':
+				if (this.peek(1) == '/') {
+					return;
+				}
+				if (this.peek(1) == '*') {
+					this.inBlockComment = true;
+					this.position += 2;
+					continue;
+				}
+				break;
+			case '"':
+				this.readDoubleQuotedString();
+				continue;
+			case '\'':
+				this.readSingleQuotedString();
+				continue;
+			case '{':
+				this.openGroup(CharacterGroup.CURLY_BRACES);
+				continue;
+			case '(':
+				this.openGroup(CharacterGroup.PARENTHESES);
+				continue;
+			case '}':
+				this.closeGroup(CharacterGroup.CURLY_BRACES);
+				continue;
+			case ')':
+				this.closeGroup(CharacterGroup.PARENTHESES);
+				continue;
+			}
+			int operatorLength = this.getOperatorLength(this.position);
+			if (operatorLength > 0) {
+				String operator = this.string.substring(this.position, this.position + operatorLength);
+				this.elements.add(new ScriptOperator(new ScriptLine(operator, this.line, this.position), ScriptOperatorType.parse(operator)));
+				this.position += operatorLength;
+				continue;
+			}
+			this.readWord();
+		}
+	}
+
+	private char peek(int offset) {
+		int index = this.position + offset;
+		if (index >= this.string.length()) {
+			return 0;
+		}
+		return this.string.charAt(index);
+	}
+
+	/**
+	 * Returns the length of the operator that starts at the specified index,
+	 * or 0 if no operator starts there. The longest operator is always
+	 * matched.
+	 */
+	private int getOperatorLength(int index) {
+		char c = this.string.charAt(index);
+		char next = index + 1 < this.string.length() ? this.string.charAt(index + 1) : 0;
+		switch (c) {
+		case ';':
+		case ',':
+		case '.':
+		case ':':
+		case '#':
+			return 1;
+		case '=':
+		case '!':
+		case '<':
+		case '>':
+		case '*':
+		case '/':
+		case '%':
+			return next == '=' ? 2 : 1;
+		case '+':
+		case '-':
+			return next == c || next == '=' ? 2 : 1;
+		case '&':
+		case '|':
+			return next == c ? 2 : 0;
+		default:
+			return 0;
+		}
+	}
+
+	private boolean isWordCharacter(int index) {
+		char c = this.string.charAt(index);
+		switch (c) {
+		case '"':
+		case '\'':
+		case '{':
+		case '}':
+		case '(':
+		case ')':
+			return false;
+		default:
+			return c > ' ' && this.getOperatorLength(index) == 0;
+		}
+	}
+
+	private int findWordEnd(int index) {
+		while (index < this.string.length() && this.isWordCharacter(index)) {
+			index++;
+		}
+		return index;
+	}
+
+	private int skipBlanks(int index) {
+		while (index < this.string.length() && this.string.charAt(index) <= ' ') {
+			index++;
+		}
+		return index;
+	}
+
+	private void openGroup(CharacterGroup type) {
+		OpenGroup group = new OpenGroup(new ScriptLine(type.getStart(), this.line, this.position), type);
+		this.groups.add(group);
+		this.elements = group.elements;
+		this.position++;
+	}
+
+	private void closeGroup(CharacterGroup type) throws ScriptException {
+		OpenGroup group = this.groups.get(this.groups.size() - 1);
+		if (group.type != type) {
+			throw new UnenclosedBracketException(new ScriptLine(type.getEnd(), this.line, this.position));
+		}
+		this.groups.remove(this.groups.size() - 1);
+		this.elements = this.groups.get(this.groups.size() - 1).elements;
+		this.elements.add(new ScriptGroup(group.reference, group.elements, type));
+		this.position++;
+	}
+
+	private void readDoubleQuotedString() throws ScriptException {
+		int end = this.string.indexOf('"', this.position + 1);
+		// A quotation mark preceded by a backslash is part of the string.
+		while (end != -1 && this.string.charAt(end - 1) == '\\') {
+			end = this.string.indexOf('"', end + 1);
+		}
+		this.readString(end);
+	}
+
+	private void readSingleQuotedString() throws ScriptException {
+		this.readString(this.string.indexOf('\'', this.position + 1));
+	}
+
+	private void readString(int end) throws ScriptException {
+		if (end == -1) {
+			throw new UnenclosedStringLiteralException(new ScriptLine(this.string.substring(this.position), this.line, this.position));
+		}
+		this.elements.add(new ScriptValue_String(this.environment, this.string.substring(this.position + 1, end)));
+		this.position = end + 1;
+	}
+
+	private void readWord() throws ScriptException {
+		int start = this.position;
+		this.position = this.findWordEnd(start);
+		String word = this.string.substring(start, this.position);
+		ScriptKeywordType keyword = ScriptKeywordType.fromCanonical(word);
+		if (keyword != null) {
+			this.elements.add(new ScriptKeyword(new ScriptLine(word, this.line, start), keyword));
+			return;
+		}
+		if (!this.readNumber(word)) {
+			this.elements.add(new ScriptLine(word, this.line, start));
+		}
+	}
+
+	private static boolean isDigits(String string, int start, int end) {
+		if (start >= end) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			char c = string.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the specified word is a number with an optional suffix:
+	 * "f" for floats, "d" for doubles, or "em" for font sizes.
+	 */
+	private static boolean isNumber(String word, boolean allowEm) {
+		int end = word.length();
+		if (allowEm && word.endsWith("em")) {
+			end -= 2;
+		} else if (word.endsWith("f") || word.endsWith("d")) {
+			end--;
+		}
+		return isDigits(word, 0, end);
+	}
+
+	private boolean isLastOperator(int offset, ScriptOperatorType type) {
+		int index = this.elements.size() - 1 - offset;
+		if (index < 0 || !(this.elements.get(index) instanceof ScriptOperator)) {
+			return false;
+		}
+		return ((ScriptOperator) this.elements.get(index)).getType() == type;
+	}
+
+	/**
+	 * Returns whether the element before the last may be the left operand of
+	 * a minus sign that was just read: a literal, a name, or a parenthesized
+	 * expression. A parenthesized type keyword is a cast, so a minus sign that
+	 * follows it is a sign.
+	 */
+	private boolean isMinusBinary() {
+		int index = this.elements.size() - 2;
+		if (index < 0) {
+			return false;
+		}
+		Object element = this.elements.get(index);
+		if (element instanceof ScriptValue_Numeric || element instanceof ScriptValue_String || element instanceof ScriptLine) {
+			return true;
+		}
+		if (element instanceof ScriptGroup && ((ScriptGroup) element).getType() == CharacterGroup.PARENTHESES) {
+			List<Object> grouped = ((ScriptGroup) element).getElements();
+			return !(grouped.size() == 1 && grouped.get(0) instanceof ScriptKeyword);
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the specified word as a numeric literal, if it is one. A period or
+	 * a minus sign that was just read becomes part of the number, unless the
+	 * minus sign follows an operand. A fractional part that follows the word is
+	 * read as well.
+	 *
+	 * @return {@code true} if the word was added as a number
+	 */
+	private boolean readNumber(String word) {
+		if (word.endsWith("px") && isDigits(word, 0, word.length() - 2)) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Short.parseShort(word.substring(0, word.length() - 2))));
+			return true;
+		}
+		if (!isNumber(word, false)) {
+			return false;
+		}
+		if (isDigits(word, 0, word.length())) {
+			// A percentage is a float
+			int next = this.skipBlanks(this.position);
+			if (next < this.string.length() && this.string.charAt(next) == '%' && this.getOperatorLength(next) == 1) {
+				this.elements.add(new ScriptValue_Numeric(this.environment, Float.parseFloat(word)));
+				return true;
+			}
+		}
+		String number = word;
+		if (this.isLastOperator(0, ScriptOperatorType.PERIOD)) {
+			number = "." + number;
+			this.elements.remove(this.elements.size() - 1);
+		}
+		if (this.isLastOperator(0, ScriptOperatorType.MINUS) && !this.isMinusBinary()) {
+			number = "-" + number;
+			this.elements.remove(this.elements.size() - 1);
+		}
+		int period = this.skipBlanks(this.position);
+		if (number.indexOf('.') == -1 && period < this.string.length() && this.string.charAt(period) == '.') {
+			int fractionStart = this.skipBlanks(period + 1);
+			int fractionEnd = this.findWordEnd(fractionStart);
+			String fraction = this.string.substring(fractionStart, fractionEnd);
+			if (isNumber(fraction, true)) {
+				number += "." + fraction;
+				this.position = fractionEnd;
+			}
+		}
+		if (number.endsWith("em")) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Float.parseFloat(number.substring(0, number.length() - 2)) * 14));
+		} else if (number.endsWith("f")) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Float.parseFloat(number)));
+		} else if (number.endsWith("d") || number.indexOf('.') != -1) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Double.parseDouble(number)));
+		} else if (number.length() < 5) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Short.parseShort(number)));
+		} else if (number.length() < 10) {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Integer.parseInt(number)));
+		} else {
+			this.elements.add(new ScriptValue_Numeric(this.environment, Long.parseLong(number)));
+		}
+		return true;
+	}
+}
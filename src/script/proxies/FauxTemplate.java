@@ -19,6 +19,11 @@ import script.values.ScriptValue;
 import script.values.ScriptValueType;
 
 public abstract class FauxTemplate extends ScriptTemplate implements ScriptValue {
+	/**
+	 * The method ID of faux functions that are executed by name.
+	 */
+	public static final int NO_METHOD = -1;
+
 	public static List<ScriptValue> createEmptyParamList() {
 		return new LinkedList<ScriptValue>();
 	}
@@ -40,7 +45,21 @@ public abstract class FauxTemplate extends ScriptTemplate implements ScriptValue
 	}
 
 	public void addFauxFunction(String name, ScriptValueType returnType, List<ScriptValue> params, ScriptKeywordType permission, boolean isAbstract, boolean isStatic) throws ScriptException {
-		this.addFunction(null, name, new ScriptFunction_Faux(this, name, returnType, params, permission, isAbstract, isStatic));
+		this.addFauxFunction(name, NO_METHOD, returnType, params, permission, isAbstract, isStatic);
+	}
+
+	/**
+	 * Adds a faux function that is executed by
+	 * {@link #execute(Referenced, int, List, ScriptTemplate_Abstract)}, rather
+	 * than by name. The method ID is bound once, when this template is
+	 * initialized, so a call only has to switch on it.
+	 * 
+	 * @param method
+	 *            the ID of the function, which only needs to be unique among
+	 *            the functions this template adds
+	 */
+	public void addFauxFunction(String name, int method, ScriptValueType returnType, List<ScriptValue> params, ScriptKeywordType permission, boolean isAbstract, boolean isStatic) throws ScriptException {
+		this.addFunction(null, name, new ScriptFunction_Faux(this, name, method, returnType, params, permission, isAbstract, isStatic));
 	}
 
 	@Override
@@ -58,6 +77,16 @@ public abstract class FauxTemplate extends ScriptTemplate implements ScriptValue
 		throw new InternalException("Invalid default in FauxTemplate:execute");
 	}
 
+	/**
+	 * Executes the function with the specified method ID, as given to
+	 * {@link #addFauxFunction(String, int, ScriptValueType, List, ScriptKeywordType, boolean, boolean)}.
+	 * Only the template that added the function is asked to execute it, so
+	 * subclasses may reuse the IDs of their extended template.
+	 */
+	public ScriptValue execute(Referenced ref, int method, List<ScriptValue> params, ScriptTemplate_Abstract rawTemplate) throws ScriptException {
+		throw new InternalException(this.getEnvironment(), "Invalid method ID in FauxTemplate:execute (" + method + ")");
+	}
+
 	public FauxTemplate getExtendedFauxClass() {
 		return (FauxTemplate) this.getExtendedClass();
 	}
@@ -87,4 +116,6 @@ public abstract class FauxTemplate extends ScriptTemplate implements ScriptValue
 	public int valuesCompare(Referenced ref, ScriptValue rhs) throws ScriptException {
 		throw new InternalException(this.getEnvironment(), "Invalid call in FauxTemplate");
 	}
+
+	private static final long serialVersionUID = -7481157536992391709L;
 }
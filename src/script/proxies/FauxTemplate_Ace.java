@@ -110,4 +110,6 @@ public class FauxTemplate_Ace extends FauxTemplate implements ScriptConvertible<
 	public void setAce(Ace ace) {
 		this.ace = ace;
 	}
+
+	private static final long serialVersionUID = -5254623153772757023L;
 }
@@ -114,4 +114,6 @@ public class FauxTemplate_Archetype extends FauxTemplate implements ScriptConver
 	public void setArchetype(Archetype archetype) {
 		this.archetype = archetype;
 	}
+
+	private static final long serialVersionUID = 2052903913508323739L;
 }
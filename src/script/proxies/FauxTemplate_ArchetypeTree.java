@@ -108,4 +108,6 @@ public class FauxTemplate_ArchetypeTree extends FauxTemplate implements ScriptCo
 	public void setTree(ArchetypeMapNode tree) {
 		this.tree = tree;
 	}
+
+	private static final long serialVersionUID = -340100645090369974L;
 }
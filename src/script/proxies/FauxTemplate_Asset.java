@@ -139,4 +139,6 @@ public class FauxTemplate_Asset extends FauxTemplate implements ScriptConvertibl
 	public void setAsset(Asset asset) {
 		this.asset = asset;
 	}
+
+	private static final long serialVersionUID = 769736544316729729L;
 }
@@ -210,4 +210,6 @@ public class FauxTemplate_Color extends FauxTemplate implements ScriptConvertibl
 	public void setColor(java.awt.Color color) {
 		this.color = color;
 	}
+
+	private static final long serialVersionUID = -2295595764817766065L;
 }
@@ -142,4 +142,6 @@ public class FauxTemplate_DiscreteRegion extends FauxTemplate_GraphicalElement i
 	public void setRegion(DiscreteRegion region) {
 		this.region = region;
 	}
+
+	private static final long serialVersionUID = -2329859761989096551L;
 }
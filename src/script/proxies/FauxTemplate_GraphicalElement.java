@@ -57,4 +57,6 @@ public class FauxTemplate_GraphicalElement extends FauxTemplate {
 	public ScriptTemplate instantiateTemplate() {
 		return new FauxTemplate_GraphicalElement(this.getEnvironment(), this.getType());
 	}
+
+	private static final long serialVersionUID = -6519528080732813073L;
 }
@@ -93,4 +93,6 @@ public class FauxTemplate_Interface extends FauxTemplate implements Nodeable {
 		assert Logs.addNode(this.riffInterface);
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 8799052593355614922L;
 }
@@ -142,4 +142,6 @@ public class FauxTemplate_InterfaceElement extends FauxTemplate implements Nodea
 		this.element = element;
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 507492333996760301L;
 }
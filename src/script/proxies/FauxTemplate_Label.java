@@ -112,4 +112,6 @@ public class FauxTemplate_Label extends FauxTemplate_InterfaceElement implements
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 6848343058250827715L;
 }
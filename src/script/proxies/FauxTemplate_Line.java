@@ -22,6 +22,20 @@ import script.values.ScriptValue_Faux;
 
 public class FauxTemplate_Line extends FauxTemplate_InterfaceElement implements Nodeable {
 	public static final String LINESTRING = "Line";
+
+	private static final int GET_X1 = 0;
+	private static final int GET_Y1 = 1;
+	private static final int GET_X2 = 2;
+	private static final int GET_Y2 = 3;
+	private static final int SET_X1 = 4;
+	private static final int SET_Y1 = 5;
+	private static final int SET_X2 = 6;
+	private static final int SET_Y2 = 7;
+	private static final int GET_POINT_A = 8;
+	private static final int GET_POINT_B = 9;
+	private static final int SET_POINT_A = 10;
+	private static final int SET_POINT_B = 11;
+
 	public Point pointA, pointB;
 
 	public FauxTemplate_Line(ScriptEnvironment env) {
@@ -66,35 +80,50 @@ public class FauxTemplate_Line extends FauxTemplate_InterfaceElement implements
 			returning = this.getExtendedFauxClass().execute(ref, name, params, template);
 			assert Logs.closeNode();
 			return returning;
-		} else if (name.equals("getX1")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), template.getPointA().getX());
-		} else if (name.equals("getY1")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), template.getPointA().getY());
-		} else if (name.equals("getX2")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), template.getPointB().getX());
-		} else if (name.equals("getY2")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), template.getPointB().getY());
-		} else if (name.equals("setX1")) {
+		} else {
+			returning = this.getExtendedFauxClass().execute(ref, name, params, template);
+		}
+		assert Logs.closeNode();
+		return returning;
+	}
+
+	@Override
+	public ScriptValue execute(Referenced ref, int method, List<ScriptValue> params, ScriptTemplate_Abstract rawTemplate) throws ScriptException {
+		FauxTemplate_Line template = (FauxTemplate_Line) rawTemplate;
+		switch (method) {
+		case GET_X1:
+			return Conversions.wrapDouble(this.getEnvironment(), template.getPointA().getX());
+		case GET_Y1:
+			return Conversions.wrapDouble(this.getEnvironment(), template.getPointA().getY());
+		case GET_X2:
+			return Conversions.wrapDouble(this.getEnvironment(), template.getPointB().getX());
+		case GET_Y2:
+			return Conversions.wrapDouble(this.getEnvironment(), template.getPointB().getY());
+		case SET_X1:
 			template.getPointA().setX(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("setY1")) {
+			return null;
+		case SET_Y1:
 			template.getPointA().setY(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("setX2")) {
+			return null;
+		case SET_X2:
 			template.getPointB().setX(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("setY2")) {
+			return null;
+		case SET_Y2:
 			template.getPointB().setY(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("getPointA")) {
-			returning = Conversions.wrapPoint(this.getEnvironment(), template.getPointA());
-		} else if (name.equals("getPointB")) {
-			returning = Conversions.wrapPoint(this.getEnvironment(), template.getPointB());
-		} else if (name.equals("setPointA")) {
+			return null;
+		case GET_POINT_A:
+			return Conversions.wrapPoint(this.getEnvironment(), template.getPointA());
+		case GET_POINT_B:
+			return Conversions.wrapPoint(this.getEnvironment(), template.getPointB());
+		case SET_POINT_A:
 			template.setPointA(Conversions.getPoint(this.getEnvironment(), params.get(0)));
-		} else if (name.equals("setPointB")) {
+			return null;
+		case SET_POINT_B:
 			template.setPointB(Conversions.getPoint(this.getEnvironment(), params.get(0)));
-		} else {
-			returning = this.getExtendedFauxClass().execute(ref, name, params, template);
+			return null;
+		default:
+			return super.execute(ref, method, params, rawTemplate);
 		}
-		assert Logs.closeNode();
-		return returning;
 	}
 
 	public Point getPointA() {
@@ -125,22 +154,22 @@ public class FauxTemplate_Line extends FauxTemplate_InterfaceElement implements
 		this.getExtendedClass().initialize();
 		fxnParams = FauxTemplate.createEmptyParamList();
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.createType(this.getEnvironment(), FauxTemplate_Point.POINTSTRING)));
-		this.addFauxFunction("setPointA", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setPointB", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setPointA", SET_POINT_A, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setPointB", SET_POINT_B, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		fxnParams = FauxTemplate.createEmptyParamList();
-		this.addFauxFunction("getPointA", ScriptValueType.createType(this.getEnvironment(), FauxTemplate_Point.POINTSTRING), fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getPointB", ScriptValueType.createType(this.getEnvironment(), FauxTemplate_Point.POINTSTRING), fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getPointA", GET_POINT_A, ScriptValueType.createType(this.getEnvironment(), FauxTemplate_Point.POINTSTRING), fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getPointB", GET_POINT_B, ScriptValueType.createType(this.getEnvironment(), FauxTemplate_Point.POINTSTRING), fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		fxnParams = FauxTemplate.createEmptyParamList();
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.DOUBLE));
-		this.addFauxFunction("setX1", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setY1", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setX2", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setY2", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setX1", SET_X1, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setY1", SET_Y1, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setX2", SET_X2, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setY2", SET_Y2, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		fxnParams = FauxTemplate.createEmptyParamList();
-		this.addFauxFunction("getX1", ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getY1", ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getX2", ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getY2", ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getX1", GET_X1, ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getY1", GET_Y1, ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getX2", GET_X2, ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getY2", GET_Y2, ScriptValueType.DOUBLE, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		assert Logs.closeNode();
 	}
 
@@ -166,4 +195,6 @@ public class FauxTemplate_Line extends FauxTemplate_InterfaceElement implements
 	public void setPointB(Point point) {
 		this.pointB = point;
 	}
+
+	private static final long serialVersionUID = 8743584588303122544L;
 }
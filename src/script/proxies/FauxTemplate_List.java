@@ -118,4 +118,6 @@ public class FauxTemplate_List extends FauxTemplate implements ScriptConvertible
 	public void setList(List<ScriptValue> list) {
 		this.list = list;
 	}
+
+	private static final long serialVersionUID = -50226247865918034L;
 }
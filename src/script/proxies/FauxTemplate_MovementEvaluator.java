@@ -66,4 +66,6 @@ public class FauxTemplate_MovementEvaluator extends FauxTemplate implements Node
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -7647915122178528309L;
 }
@@ -77,4 +77,6 @@ public class FauxTemplate_Object extends FauxTemplate implements ScriptConvertib
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 4658892840394700537L;
 }
@@ -167,4 +167,6 @@ public class FauxTemplate_Panel extends FauxTemplate_InterfaceElement implements
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 653040449004708982L;
 }
@@ -89,4 +89,6 @@ public class FauxTemplate_Path extends FauxTemplate_Point implements ScriptConve
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -3407144902868873816L;
 }
@@ -23,6 +23,14 @@ import script.values.ScriptValue_Faux;
 
 public class FauxTemplate_Point extends FauxTemplate implements ScriptConvertible<Point>, Nodeable {
 	public static final String POINTSTRING = "Point";
+
+	private static final int GET_X = 0;
+	private static final int GET_Y = 1;
+	private static final int GET_Z = 2;
+	private static final int SET_X = 3;
+	private static final int SET_Y = 4;
+	private static final int SET_Z = 5;
+
 	public Point point;
 
 	public FauxTemplate_Point(ScriptEnvironment env) {
@@ -64,19 +72,6 @@ public class FauxTemplate_Point extends FauxTemplate implements ScriptConvertibl
 			}
 			params.clear();
 			returning = this.getExtendedFauxClass().execute(ref, name, params, template);
-		}
-		if (name.equals("getX")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), (template).getPoint().getX());
-		} else if (name.equals("getY")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), (template).getPoint().getY());
-		} else if (name.equals("getZ")) {
-			returning = Conversions.wrapDouble(this.getEnvironment(), (template).getPoint().getZ());
-		} else if (name.equals("setX")) {
-			(template).getPoint().setX(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("setY")) {
-			(template).getPoint().setY(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
-		} else if (name.equals("setZ")) {
-			(template).getPoint().setZ(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
 		} else {
 			returning = this.getExtendedFauxClass().execute(ref, name, params, template);
 		}
@@ -84,6 +79,30 @@ public class FauxTemplate_Point extends FauxTemplate implements ScriptConvertibl
 		return returning;
 	}
 
+	@Override
+	public ScriptValue execute(Referenced ref, int method, List<ScriptValue> params, ScriptTemplate_Abstract rawTemplate) throws ScriptException {
+		Point point = ((FauxTemplate_Point) rawTemplate).getPoint();
+		switch (method) {
+		case GET_X:
+			return Conversions.wrapDouble(this.getEnvironment(), point.getX());
+		case GET_Y:
+			return Conversions.wrapDouble(this.getEnvironment(), point.getY());
+		case GET_Z:
+			return Conversions.wrapDouble(this.getEnvironment(), point.getZ());
+		case SET_X:
+			point.setX(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
+			return null;
+		case SET_Y:
+			point.setY(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
+			return null;
+		case SET_Z:
+			point.setZ(Conversions.getDouble(this.getEnvironment(), params.get(0)).doubleValue());
+			return null;
+		default:
+			return super.execute(ref, method, params, rawTemplate);
+		}
+	}
+
 	public Point getPoint() {
 		return this.point;
 	}
@@ -101,14 +120,14 @@ public class FauxTemplate_Point extends FauxTemplate implements ScriptConvertibl
 		this.addConstructor(this.getType(), fxnParams);
 		this.disableFullCreation();
 		this.getExtendedClass().initialize();
-		this.addFauxFunction("getX", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getY", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getZ", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getX", GET_X, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getY", GET_Y, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getZ", GET_Z, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
 		fxnParams = new LinkedList<ScriptValue>();
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.DOUBLE));
-		this.addFauxFunction("setX", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setY", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setZ", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setX", SET_X, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setY", SET_Y, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setZ", SET_Z, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		assert Logs.closeNode();
 	}
 
@@ -129,4 +148,6 @@ public class FauxTemplate_Point extends FauxTemplate implements ScriptConvertibl
 	public void setPoint(Point point) {
 		this.point = point;
 	}
+
+	private static final long serialVersionUID = 6813651799868274711L;
 }
@@ -81,4 +81,6 @@ public class FauxTemplate_Rectangle extends FauxTemplate_InterfaceElement implem
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 2916285054116027189L;
 }
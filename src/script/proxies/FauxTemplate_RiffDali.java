@@ -74,4 +74,6 @@ public class FauxTemplate_RiffDali extends FauxTemplate implements Nodeable {
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -6087516385390499409L;
 }
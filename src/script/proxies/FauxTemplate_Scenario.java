@@ -115,4 +115,6 @@ public class FauxTemplate_Scenario extends FauxTemplate implements ScriptConvert
 	public void setScenario(Scenario scenario) {
 		this.scenario = scenario;
 	}
+
+	private static final long serialVersionUID = 6403014418242652775L;
 }
@@ -129,4 +129,6 @@ public class FauxTemplate_Scheduler extends FauxTemplate implements Nodeable, Sc
 	public void setScheduler(Scheduler scheduler) {
 		this.scheduler = scheduler;
 	}
+
+	private static final long serialVersionUID = -2134497286806245597L;
 }
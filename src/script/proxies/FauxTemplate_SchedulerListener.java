@@ -66,4 +66,6 @@ public class FauxTemplate_SchedulerListener extends FauxTemplate implements Node
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -4901309300813374893L;
 }
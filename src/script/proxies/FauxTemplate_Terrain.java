@@ -22,6 +22,28 @@ import asset.Terrain;
 
 public class FauxTemplate_Terrain extends FauxTemplate implements Nodeable, ScriptConvertible<Terrain> {
 	public static final String TERRAINSTRING = "Terrain";
+
+	private static final int GET_BRUSH_DENSITY_WEIGHT = 0;
+	private static final int GET_ELEVATION_WEIGHT = 1;
+	private static final int GET_GROUND_COHESION_WEIGHT = 2;
+	private static final int GET_TEMPERATURE_WEIGHT = 3;
+	private static final int GET_WATER_DEPTH_WEIGHT = 4;
+	private static final int GET_BRUSH_DENSITY = 5;
+	private static final int GET_ELEVATION = 6;
+	private static final int GET_GROUND_COHESION = 7;
+	private static final int GET_TEMPERATURE = 8;
+	private static final int GET_WATER_DEPTH = 9;
+	private static final int SET_BRUSH_DENSITY_WEIGHT = 10;
+	private static final int SET_ELEVATION_WEIGHT = 11;
+	private static final int SET_GROUND_COHESION_WEIGHT = 12;
+	private static final int SET_TEMPERATURE_WEIGHT = 13;
+	private static final int SET_WATER_DEPTH_WEIGHT = 14;
+	private static final int SET_BRUSH_DENSITY = 15;
+	private static final int SET_ELEVATION = 16;
+	private static final int SET_GROUND_COHESION = 17;
+	private static final int SET_TEMPERATURE = 18;
+	private static final int SET_WATER_DEPTH = 19;
+
 	private Terrain terrain;
 
 	public FauxTemplate_Terrain(ScriptEnvironment env) {
@@ -54,105 +76,84 @@ public class FauxTemplate_Terrain extends FauxTemplate implements Nodeable, Scri
 			}
 			assert Logs.closeNode();
 			return template;
-		} else if (name.equals("getBrushDensityWeight")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getBrushDensityWeight());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getElevationWeight")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getElevationWeight());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getGroundCohesionWeight")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getGroundCohesionWeight());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getTemperatureWeight")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getTemperatureWeight());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getWaterDepthWeight")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getWaterDepthWeight());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getBrushDensity")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getBrushDensity());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getElevation")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getElevation());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getGroundCohesion")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getGroundCohesion());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getTemperature")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getTemperature());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("getWaterDepth")) {
-			returning = Conversions.wrapDouble(ref.getEnvironment(), template.getTerrain().getWaterDepth());
-			assert Logs.closeNode();
-			return returning;
-		} else if (name.equals("setBrushDensityWeight")) {
-			template.getTerrain().setBrushDensityWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
-			assert Logs.closeNode();
+		}
+		returning = this.getExtendedFauxClass().execute(ref, name, params, template);
+		assert Logs.closeNode();
+		return returning;
+	}
+
+	@Override
+	public ScriptValue execute(Referenced ref, int method, List<ScriptValue> params, ScriptTemplate_Abstract rawTemplate) throws ScriptException {
+		Terrain terrain = ((FauxTemplate_Terrain) rawTemplate).getTerrain();
+		switch (method) {
+		case GET_BRUSH_DENSITY_WEIGHT:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getBrushDensityWeight());
+		case GET_ELEVATION_WEIGHT:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getElevationWeight());
+		case GET_GROUND_COHESION_WEIGHT:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getGroundCohesionWeight());
+		case GET_TEMPERATURE_WEIGHT:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getTemperatureWeight());
+		case GET_WATER_DEPTH_WEIGHT:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getWaterDepthWeight());
+		case GET_BRUSH_DENSITY:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getBrushDensity());
+		case GET_ELEVATION:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getElevation());
+		case GET_GROUND_COHESION:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getGroundCohesion());
+		case GET_TEMPERATURE:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getTemperature());
+		case GET_WATER_DEPTH:
+			return Conversions.wrapDouble(ref.getEnvironment(), terrain.getWaterDepth());
+		case SET_BRUSH_DENSITY_WEIGHT:
+			terrain.setBrushDensityWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			return null;
-		} else if (name.equals("setElevationWeight")) {
-			template.getTerrain().setElevationWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
-			assert Logs.closeNode();
+		case SET_ELEVATION_WEIGHT:
+			terrain.setElevationWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			return null;
-		} else if (name.equals("setGroundCohesionWeight")) {
-			template.getTerrain().setGroundCohesionWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
-			assert Logs.closeNode();
+		case SET_GROUND_COHESION_WEIGHT:
+			terrain.setGroundCohesionWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			return null;
-		} else if (name.equals("setTemperatureWeight")) {
-			template.getTerrain().setTemperatureWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
-			assert Logs.closeNode();
+		case SET_TEMPERATURE_WEIGHT:
+			terrain.setTemperatureWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			return null;
-		} else if (name.equals("setWaterDepthWeight")) {
-			template.getTerrain().setWaterDepthWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
-			assert Logs.closeNode();
+		case SET_WATER_DEPTH_WEIGHT:
+			terrain.setWaterDepthWeight(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			return null;
-		} else if (name.equals("setBrushDensity")) {
-			template.getTerrain().setBrushDensity(Conversions.getDouble(this.getEnvironment(), params.get(0)));
+		case SET_BRUSH_DENSITY:
+			terrain.setBrushDensity(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			if (params.size() == 2) {
-				template.getTerrain().setBrushDensityWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
+				terrain.setBrushDensityWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
 			}
-			assert Logs.closeNode();
 			return null;
-		} else if (name.equals("setElevation")) {
-			template.getTerrain().setElevation(Conversions.getDouble(this.getEnvironment(), params.get(0)));
+		case SET_ELEVATION:
+			terrain.setElevation(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			if (params.size() == 2) {
-				template.getTerrain().setElevationWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
+				terrain.setElevationWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
 			}
-			assert Logs.closeNode();
 			return null;
-		} else if (name.equals("setGroundCohesion")) {
-			template.getTerrain().setGroundCohesion(Conversions.getDouble(this.getEnvironment(), params.get(0)));
+		case SET_GROUND_COHESION:
+			terrain.setGroundCohesion(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			if (params.size() == 2) {
-				template.getTerrain().setGroundCohesionWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
+				terrain.setGroundCohesionWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
 			}
-			assert Logs.closeNode();
 			return null;
-		} else if (name.equals("setTemperature")) {
-			template.getTerrain().setTemperature(Conversions.getDouble(this.getEnvironment(), params.get(0)));
+		case SET_TEMPERATURE:
+			terrain.setTemperature(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			if (params.size() == 2) {
-				template.getTerrain().setTemperatureWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
+				terrain.setTemperatureWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
 			}
-			assert Logs.closeNode();
 			return null;
-		} else if (name.equals("setWaterDepth")) {
-			template.getTerrain().setWaterDepth(Conversions.getDouble(this.getEnvironment(), params.get(0)));
+		case SET_WATER_DEPTH:
+			terrain.setWaterDepth(Conversions.getDouble(this.getEnvironment(), params.get(0)));
 			if (params.size() == 2) {
-				template.getTerrain().setWaterDepthWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
+				terrain.setWaterDepthWeight(Conversions.getDouble(this.getEnvironment(), params.get(1)));
 			}
-			assert Logs.closeNode();
 			return null;
+		default:
+			return super.execute(ref, method, params, rawTemplate);
 		}
-		returning = this.getExtendedFauxClass().execute(ref, name, params, template);
-		assert Logs.closeNode();
-		return returning;
 	}
 
 	public Terrain getTerrain() {
@@ -167,36 +168,36 @@ public class FauxTemplate_Terrain extends FauxTemplate implements Nodeable, Scri
 		this.addConstructor(this.getType());
 		this.disableFullCreation();
 		this.getExtendedClass().initialize();
-		this.addFauxFunction("getBrushDensityWeight", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getElevationWeight", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getGroundCohesionWeight", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getTemperatureWeight", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getWaterDepthWeight", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getBrushDensity", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getElevation", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getGroundCohesion", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getTemperature", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("getWaterDepth", ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getBrushDensityWeight", GET_BRUSH_DENSITY_WEIGHT, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getElevationWeight", GET_ELEVATION_WEIGHT, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getGroundCohesionWeight", GET_GROUND_COHESION_WEIGHT, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getTemperatureWeight", GET_TEMPERATURE_WEIGHT, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getWaterDepthWeight", GET_WATER_DEPTH_WEIGHT, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getBrushDensity", GET_BRUSH_DENSITY, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getElevation", GET_ELEVATION, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getGroundCohesion", GET_GROUND_COHESION, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getTemperature", GET_TEMPERATURE, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("getWaterDepth", GET_WATER_DEPTH, ScriptValueType.DOUBLE, Collections.<ScriptValue> emptyList(), ScriptKeywordType.PUBLIC, false, false);
 		List<ScriptValue> fxnParams = new LinkedList<ScriptValue>();
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.DOUBLE));
-		this.addFauxFunction("setBrushDensityWeight", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setElevationWeight", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setGroundCohesionWeight", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setTemperatureWeight", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setWaterDepthWeight", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setBrushDensity", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setElevation", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setGroundCohesion", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setTemperature", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setWaterDepth", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setBrushDensityWeight", SET_BRUSH_DENSITY_WEIGHT, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setElevationWeight", SET_ELEVATION_WEIGHT, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setGroundCohesionWeight", SET_GROUND_COHESION_WEIGHT, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setTemperatureWeight", SET_TEMPERATURE_WEIGHT, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setWaterDepthWeight", SET_WATER_DEPTH_WEIGHT, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setBrushDensity", SET_BRUSH_DENSITY, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setElevation", SET_ELEVATION, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setGroundCohesion", SET_GROUND_COHESION, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setTemperature", SET_TEMPERATURE, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setWaterDepth", SET_WATER_DEPTH, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		fxnParams = new LinkedList<ScriptValue>();
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.DOUBLE));
 		fxnParams.add(new ScriptValue_Faux(this.getEnvironment(), ScriptValueType.DOUBLE));
-		this.addFauxFunction("setBrushDensity", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setElevation", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setGroundCohesion", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setTemperature", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
-		this.addFauxFunction("setWaterDepth", ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setBrushDensity", SET_BRUSH_DENSITY, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setElevation", SET_ELEVATION, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setGroundCohesion", SET_GROUND_COHESION, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setTemperature", SET_TEMPERATURE, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
+		this.addFauxFunction("setWaterDepth", SET_WATER_DEPTH, ScriptValueType.VOID, fxnParams, ScriptKeywordType.PUBLIC, false, false);
 		assert Logs.closeNode();
 	}
 
@@ -217,4 +218,6 @@ public class FauxTemplate_Terrain extends FauxTemplate implements Nodeable, Scri
 	public void setTerrain(Terrain terrain) {
 		this.terrain = terrain;
 	}
+
+	private static final long serialVersionUID = 8156891700316868769L;
 }
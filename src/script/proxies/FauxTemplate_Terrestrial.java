@@ -117,4 +117,6 @@ public class FauxTemplate_Terrestrial extends FauxTemplate implements ScriptConv
 	public void setTerrestrial(Terrestrial terrestrial) {
 		this.terrestrial = terrestrial;
 	}
+
+	private static final long serialVersionUID = -2531068024297721733L;
 }
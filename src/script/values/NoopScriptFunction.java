@@ -3,6 +3,7 @@
  */
 package script.values;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 
@@ -19,7 +20,7 @@ import script.parsing.ScriptKeywordType;
  * @author Aaron Faanes
  * 
  */
-public class NoopScriptFunction implements ScriptFunction {
+public class NoopScriptFunction implements ScriptFunction, Serializable {
 
 	private static final NoopScriptFunction INSTANCE = new NoopScriptFunction();
 
@@ -30,6 +31,10 @@ public class NoopScriptFunction implements ScriptFunction {
 	private NoopScriptFunction() {
 	}
 
+	private Object readResolve() {
+		return INSTANCE;
+	}
+
 	@Override
 	public void addExpression(ScriptExecutable exp) throws ScriptException {
 		throw new UnsupportedOperationException("Noop function does not accept expressions");
@@ -70,11 +75,6 @@ public class NoopScriptFunction implements ScriptFunction {
 		return ScriptValueType.VOID;
 	}
 
-	@Override
-	public ScriptValue getReturnValue() {
-		return new ScriptValue_Null(null);
-	}
-
 	@Override
 	public boolean isAbstract() {
 		return false;
@@ -90,4 +90,5 @@ public class NoopScriptFunction implements ScriptFunction {
 		throw new UnsupportedOperationException("Return value must not be set");
 	}
 
+	private static final long serialVersionUID = 718318797745009523L;
 }
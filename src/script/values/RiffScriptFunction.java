@@ -1,18 +1,27 @@
 package script.values;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import inspect.Nodeable;
 import logging.CommonString;
 import logging.Logs;
 import script.exceptions.ScriptException;
+import script.operations.BytecodeCompiler;
+import script.operations.CompiledStatement;
+import script.operations.ScriptCompiler;
 import script.operations.ScriptExecutable;
 import script.parsing.Referenced;
 import script.parsing.ScriptKeywordType;
 
-public class RiffScriptFunction implements Nodeable, ScriptFunction {
+public class RiffScriptFunction implements Nodeable, ScriptFunction, Serializable {
 	public static boolean areParametersConvertible(List<ScriptValue> parameters, List<ScriptValue> values) {
 		assert Logs.openNode("Parameter-Convertibility Tests", "Parameter-Convertibility Test");
 		assert Logs.addNode("Keys must be convertible to their function-param socket counterpart.");
@@ -65,12 +74,30 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 	private ScriptValueType type;
 	private List<ScriptValue> params;
 	private ScriptKeywordType permission;
-	private ScriptValue returnValue;
 
 	private boolean isAbstract, isStatic;
 
+	private int frameSize;
+
 	private List<ScriptExecutable> expressions = new LinkedList<ScriptExecutable>();
 
+	/**
+	 * The compiled form of this function's expressions, or {@code null} if
+	 * they have not yet been compiled.
+	 */
+	private transient volatile CompiledStatement body;
+
+	/**
+	 * The number of times the current body has been executed.
+	 */
+	private transient AtomicInteger invocations = new AtomicInteger();
+
+	/**
+	 * Whether the current body has been claimed for translation to bytecode,
+	 * so that only one caller ever translates it.
+	 */
+	private transient AtomicBoolean translated = new AtomicBoolean();
+
 	public RiffScriptFunction(ScriptValueType returnType, List<ScriptValue> params, ScriptKeywordType permission, boolean isAbstract, boolean isStatic) {
 		this.type = returnType;
 		this.params = new ArrayList<ScriptValue>(params);
@@ -94,6 +121,7 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 	public void addExpression(ScriptExecutable exp) throws ScriptException {
 		assert exp != null;
 		this.expressions.add(exp);
+		this.body = null;
 	}
 
 	@Override
@@ -126,18 +154,54 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 				}
 				assert Logs.closeNode();
 			}
-			for (ScriptExecutable exec : this.expressions) {
-				exec.execute();
-				if (exec instanceof Returnable && ((Returnable) exec).shouldReturn()) {
-					this.setReturnValue(exec.getDebugReference(), ((Returnable) exec).getReturnValue());
-					return;
-				}
-			}
+			this.getBody().execute();
 		} finally {
 			assert Logs.closeNode();
 		}
 	}
 
+	/**
+	 * Returns the compiled form of this function's expressions, compiling them
+	 * if necessary. Functions start out compiled to closures, and are
+	 * translated to bytecode once they've been invoked
+	 * {@link BytecodeCompiler#INVOCATION_THRESHOLD} times. If a translated
+	 * body is invalidated, the function returns to closures.
+	 */
+	private CompiledStatement getBody() throws ScriptException {
+		CompiledStatement body = this.body;
+		if (body == null || !body.isValid()) {
+			body = ScriptCompiler.compile(this, this.expressions);
+			this.invocations.set(0);
+			this.translated.set(false);
+			this.body = body;
+		} else if (!this.translated.get() && this.invocations.incrementAndGet() >= BytecodeCompiler.INVOCATION_THRESHOLD && body.getEnvironment() != null && this.translated.compareAndSet(false, true)) {
+			CompiledStatement translated = BytecodeCompiler.compile(body.getEnvironment(), this);
+			if (translated != null) {
+				this.body = translated;
+				body = translated;
+			}
+		}
+		return body;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.invocations = new AtomicInteger();
+		this.translated = new AtomicBoolean();
+	}
+
+	public List<ScriptExecutable> getExpressions() {
+		return Collections.unmodifiableList(this.expressions);
+	}
+
+	/**
+	 * Returns the number of local-variable slots that each invocation of this
+	 * function requires.
+	 */
+	public int getFrameSize() {
+		return this.frameSize;
+	}
+
 	@Override
 	public List<ScriptValue> getParameters() {
 		return this.params;
@@ -153,11 +217,6 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 		return this.type;
 	}
 
-	@Override
-	public ScriptValue getReturnValue() {
-		return this.returnValue;
-	}
-
 	@Override
 	public boolean isAbstract() {
 		return this.isAbstract;
@@ -196,10 +255,18 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 		}
 		assert Logs.addNode("Abstract: " + this.isAbstract);
 		assert Logs.addNode("Static: " + this.isStatic);
-		assert Logs.addNode("Return Value Reference: " + this.returnValue);
 		assert Logs.closeNode();
 	}
 
+	public void setFrameSize(int frameSize) {
+		this.frameSize = frameSize;
+	}
+
+	/**
+	 * Sets the value returned by the current call of this function. The value
+	 * is kept by the current call frame rather than by this function, so that
+	 * this function may be called from many threads at once.
+	 */
 	@Override
 	public void setReturnValue(Referenced ref, ScriptValue value) throws ScriptException {
 		if (this.getReturnType().equals(ScriptKeywordType.VOID)) {
@@ -208,7 +275,10 @@ public class RiffScriptFunction implements Nodeable, ScriptFunction {
 		assert Logs.openNode("Setting Return-Value");
 		assert Logs.addSnapNode("Function", this);
 		assert Logs.addSnapNode("Value", value);
-		this.returnValue = value.castToType(ref, this.getReturnType());
+		ScriptValue returning = value.castToType(ref, this.getReturnType());
+		returning.getEnvironment().setReturnValue(returning);
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 3983293904094353915L;
 }
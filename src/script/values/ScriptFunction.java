@@ -24,8 +24,6 @@ public interface ScriptFunction {
 
 	public ScriptValueType getReturnType();
 
-	public ScriptValue getReturnValue();
-
 	// ScriptFunction implementation
 	public boolean isAbstract();
 
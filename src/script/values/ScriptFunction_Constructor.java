@@ -22,8 +22,8 @@ public class ScriptFunction_Constructor extends RiffScriptFunction {
 		ScriptTemplate_Abstract object = this.getEnvironment().getTemplate(this.getReturnType()).createObject(ref, null);
 		this.getEnvironment().advanceStack(object, this);
 		super.execute(ref, valuesGiven);
-		this.setReturnValue(ref, object);
 		this.getEnvironment().retreatStack();
+		this.setReturnValue(ref, object);
 		assert Logs.closeNode();
 	}
 
@@ -37,4 +37,6 @@ public class ScriptFunction_Constructor extends RiffScriptFunction {
 		super.nodificate();
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = -7109022417699942602L;
 }
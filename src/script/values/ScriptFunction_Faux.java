@@ -10,15 +10,32 @@ import script.parsing.Referenced;
 import script.parsing.ScriptKeywordType;
 import script.proxies.FauxTemplate;
 
+/**
+ * A function whose body is implemented by a {@link FauxTemplate}. Faux
+ * functions are shared by every object of their template, so the template and
+ * object of a call are given to each call rather than kept by the function.
+ * 
+ * @author Aaron Faanes
+ */
 public class ScriptFunction_Faux extends RiffScriptFunction implements ScriptFunction, Nodeable {
-	private FauxTemplate fauxTemplate;
-	private ScriptTemplate_Abstract object;
-	private String name;
+	private final FauxTemplate fauxTemplate;
+	private final String name;
+	private final int method;
 
 	public ScriptFunction_Faux(FauxTemplate template, String name, ScriptValueType type, List<ScriptValue> params, ScriptKeywordType permission, boolean isAbstract, boolean isStatic) {
+		this(template, name, FauxTemplate.NO_METHOD, type, params, permission, isAbstract, isStatic);
+	}
+
+	/**
+	 * @param method
+	 *            the ID this function is executed by, or
+	 *            {@link FauxTemplate#NO_METHOD} if it is executed by name
+	 */
+	public ScriptFunction_Faux(FauxTemplate template, String name, int method, ScriptValueType type, List<ScriptValue> params, ScriptKeywordType permission, boolean isAbstract, boolean isStatic) {
 		super(type, params, permission, isAbstract, isStatic);
 		this.fauxTemplate = template;
 		this.name = name;
+		this.method = method;
 	}
 
 	@Override
@@ -33,13 +50,27 @@ public class ScriptFunction_Faux extends RiffScriptFunction implements ScriptFun
 
 	@Override
 	public void execute(Referenced ref, List<ScriptValue> params) throws ScriptException {
-		if (this.name.equals("")) {
-			this.setReturnValue(ref, this.fauxTemplate.execute(ref, this.name, params, null));
+		this.execute(ref, params, this.fauxTemplate, this.fauxTemplate);
+	}
+
+	/**
+	 * Executes this function on the specified object.
+	 * 
+	 * @param template
+	 *            the template that implements this function, which may be a
+	 *            subclass of the template that defined it
+	 * @param object
+	 *            the object this function is called on
+	 */
+	public void execute(Referenced ref, List<ScriptValue> params, ScriptTemplate_Abstract template, ScriptTemplate_Abstract object) throws ScriptException {
+		assert Logs.addSnapNode("Faux Function Objects", "Executing faux function on object", object);
+		if (this.method != FauxTemplate.NO_METHOD) {
+			// Method IDs belong to the template that added this function.
+			this.setReturnValue(ref, this.fauxTemplate.execute(ref, this.method, params, object));
+		} else if (this.name.equals("")) {
+			this.setReturnValue(ref, ((FauxTemplate) template).execute(ref, this.name, params, null));
 		} else {
-			if (this.object == null) {
-				this.object = this.fauxTemplate;
-			}
-			this.setReturnValue(ref, this.fauxTemplate.execute(ref, this.name, params, this.object));
+			this.setReturnValue(ref, ((FauxTemplate) template).execute(ref, this.name, params, object));
 		}
 	}
 
@@ -51,19 +82,5 @@ public class ScriptFunction_Faux extends RiffScriptFunction implements ScriptFun
 		assert Logs.closeNode();
 	}
 
-	public void setFauxTemplate(ScriptTemplate_Abstract template) {
-		assert Logs.openNode("Faux Function Referenced-Template Changes", "Changing Faux-Function Object");
-		assert Logs.addNode(this);
-		assert Logs.addSnapNode("New object", template);
-		this.fauxTemplate = (FauxTemplate) template;
-		assert Logs.closeNode();
-	}
-
-	public void setTemplate(ScriptTemplate_Abstract template) {
-		assert Logs.openNode("Faux Function Object Changes", "Changing Object");
-		assert Logs.addNode(this);
-		assert Logs.addSnapNode("New object", template);
-		this.object = template;
-		assert Logs.closeNode();
-	}
+	private static final long serialVersionUID = -4614170078946185771L;
 }
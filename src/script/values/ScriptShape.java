@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package script.values;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import inspect.Nodeable;
+import logging.Logs;
+
+/**
+ * The layout of the member variables of a template's objects. Every object of
+ * a template shares its shape, and keeps its variables in an array in the
+ * order of the shape, rather than in a map of its own.
+ * <p>
+ * A shape lists the variables of the extended template first, then those of
+ * the implemented templates, and then the template's own variables. A shape is
+ * never changed once built. When the templates of its environment change,
+ * the shape is rebuilt, and replaced only if its variables have changed, so
+ * objects and resolved variable accesses keep sharing it.
+ *
+ * @author Aaron Faanes
+ * @see ScriptTemplate#getShape()
+ */
+public final class ScriptShape implements Nodeable {
+	private final String[] names;
+	private final Map<String, Integer> indices;
+
+	ScriptShape(List<String> names) {
+		this.names = names.toArray(new String[names.size()]);
+		Map<String, Integer> indices = new HashMap<String, Integer>();
+		for (int i = 0; i < this.names.length; i++) {
+			indices.put(this.names[i], i);
+		}
+		this.indices = Collections.unmodifiableMap(indices);
+	}
+
+	/**
+	 * Returns whether this shape lists exactly the specified variables, in
+	 * order.
+	 */
+	boolean hasNames(List<String> names) {
+		return Arrays.asList(this.names).equals(names);
+	}
+
+	/**
+	 * Returns the index of the named variable, or {@code -1} if objects of
+	 * this shape have no such variable.
+	 */
+	public int indexOf(String name) {
+		Integer index = this.indices.get(name);
+		if (index == null) {
+			return -1;
+		}
+		return index;
+	}
+
+	public String getName(int index) {
+		return this.names[index];
+	}
+
+	public int size() {
+		return this.names.length;
+	}
+
+	@Override
+	public void nodificate() {
+		assert Logs.openNode("Object Shape (" + this.names.length + " variable(s))");
+		for (int i = 0; i < this.names.length; i++) {
+			assert Logs.addNode(i + ": " + this.names[i]);
+		}
+		assert Logs.closeNode();
+	}
+}
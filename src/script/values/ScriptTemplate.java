@@ -1,9 +1,12 @@
 package script.values;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import inspect.Nodeable;
 import logging.Logs;
@@ -28,7 +31,21 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 	}
 
 	protected Map<String, List<ScriptFunction>> functions;
+	/**
+	 * The static variables of a template, or the variables of an object that
+	 * are not part of its shape.
+	 */
 	protected Map<String, ScriptValue_Variable> variables;
+	/**
+	 * The layout of a template's objects, or the layout an object was created
+	 * with.
+	 */
+	private transient volatile ScriptShape shape;
+	private transient volatile int shapeGeneration;
+	/**
+	 * The variables of an object, in the order of its shape.
+	 */
+	private ScriptValue_Variable[] slots;
 	private boolean isObject, isAbstract;
 	private boolean isConstructing, fullCreation;
 	private List<ScriptExecutable> preconstructors;
@@ -41,15 +58,17 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 		this.isObject = true;
 		this.fullCreation = true;
 		this.isConstructing = true;
-		this.variables = new HashMap<String, ScriptValue_Variable>();
 	}
 
 	protected ScriptTemplate(ScriptEnvironment env, ScriptValueType type, ScriptValueType extended, List<ScriptValueType> interfaces, boolean isAbstract) {
 		super(env, type, extended, interfaces);
 		this.fullCreation = true;
 		this.isObject = false;
-		this.variables = new HashMap<String, ScriptValue_Variable>();
-		this.functions = new HashMap<String, List<ScriptFunction>>();
+		// Templates are shared by every thread that executes their functions,
+		// unlike objects, which are confined to the thread that constructs them
+		// until they are published.
+		this.variables = new ConcurrentHashMap<String, ScriptValue_Variable>();
+		this.functions = new ConcurrentHashMap<String, List<ScriptFunction>>();
 		this.templatePreconstructors = new LinkedList<ScriptExecutable>();
 		this.preconstructors = new LinkedList<ScriptExecutable>();
 		this.extended = extended;
@@ -66,6 +85,7 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 			this.getEnvironment().getTemplate(this.getType()).addFunction(ref, name, function);
 			return;
 		}
+		this.getEnvironment().templatesChanged();
 		assert Logs.openNode("Object Function Additions", "Adding Function to Object (" + RiffScriptFunction.getDisplayableFunctionName(name) + ")");
 		assert Logs.addNode(this);
 		assert Logs.addNode(function);
@@ -113,9 +133,29 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 		assert Logs.addNode("Template", this);
 		assert Logs.addNode(exec);
 		this.preconstructors.add(exec);
+		ScriptExecutable_CreateVariable declaration = getDeclaration(exec);
+		if (declaration != null) {
+			declaration.setMember(true);
+			// The shapes of this template and its subclasses are now stale.
+			this.getEnvironment().templatesChanged();
+		}
 		assert Logs.closeNode();
 	}
 
+	/**
+	 * Returns the variable declared by the specified preconstructor, or
+	 * {@code null} if it declares none.
+	 */
+	private static ScriptExecutable_CreateVariable getDeclaration(ScriptExecutable exec) {
+		if (exec instanceof ScriptExecutable_CreateVariable) {
+			return (ScriptExecutable_CreateVariable) exec;
+		}
+		if (exec instanceof ScriptExecutable_AssignValue && ((ScriptExecutable_AssignValue) exec).getLeft() instanceof ScriptExecutable_CreateVariable) {
+			return (ScriptExecutable_CreateVariable) ((ScriptExecutable_AssignValue) exec).getLeft();
+		}
+		return null;
+	}
+
 	@Override
 	public void addTemplatePreconstructorExpression(ScriptExecutable exec) throws ScriptException {
 		assert Logs.openNode("Template Preconstructor Additions", "Adding Template Preconstructor");
@@ -131,11 +171,20 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 			assert Logs.openNode("Object Variable Additions", "Adding Variable to Object (" + name + ")");
 			assert Logs.addNode(this);
 			assert Logs.addNode(value);
-			if (this.variables.get(name) != null) {
+			ScriptValue_Variable[] slots = this.getSlots();
+			int index = slots == null ? -1 : this.shape.indexOf(name);
+			if (this.getMemberVariable(name) != null) {
 				throw new VariableAlreadyDefinedException(ref, this, name);
 			}
 			if (this.isFullCreation() || !value.getPermission().equals(ScriptKeywordType.PRIVATE)) {
-				this.variables.put(name, value);
+				if (index != -1) {
+					slots[index] = value;
+				} else {
+					if (this.variables == null) {
+						this.variables = new HashMap<String, ScriptValue_Variable>();
+					}
+					this.variables.put(name, value);
+				}
 				assert Logs.addSnapNode("Variable successfully added", this);
 			} else {
 				assert Logs.addNode("Variable is private, and our template is not in its full-creation phase.");
@@ -160,7 +209,11 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 			if (this.isAbstract()) {
 				throw new IllegalAbstractObjectCreationScriptException(ref);
 			}
-			object = this.instantiateTemplate();
+			ScriptTemplate instance = this.instantiateTemplate();
+			if (instance != null) {
+				instance.allocate(this.getShape());
+			}
+			object = instance;
 		}
 		assert Logs.addNode(object);
 		this.getEnvironment().advanceStack(object, NoopScriptFunction.instance());
@@ -203,6 +256,112 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 		return object;
 	}
 
+	/**
+	 * Gives this object the specified shape, and room for its variables.
+	 */
+	private void allocate(ScriptShape shape) {
+		this.shape = shape;
+		this.slots = new ScriptValue_Variable[shape.size()];
+	}
+
+	/**
+	 * Returns the variables of this object, in the order of its shape, or
+	 * {@code null} if this is a template, or an object of an unregistered
+	 * template.
+	 */
+	private ScriptValue_Variable[] getSlots() {
+		if (this.slots == null && this.isObject()) {
+			ScriptTemplate_Abstract template = this.getEnvironment().getTemplate(this.getType());
+			if (template instanceof ScriptTemplate && template != this) {
+				this.allocate(((ScriptTemplate) template).getShape());
+			}
+		}
+		return this.slots;
+	}
+
+	/**
+	 * Returns the shape of this template's objects, or the shape of this
+	 * object, which may be {@code null} if the object has no variables yet.
+	 * <p>
+	 * A template's shape is rebuilt once the templates of its environment
+	 * have changed, but the same shape is returned for as long as the
+	 * template's variables stay the same.
+	 */
+	public ScriptShape getShape() {
+		if (this.isObject()) {
+			return this.shape;
+		}
+		ScriptTemplate_Abstract registered = this.getEnvironment().getTemplate(this.getType());
+		if (registered != this && registered instanceof ScriptTemplate) {
+			return ((ScriptTemplate) registered).getShape();
+		}
+		int generation = this.getEnvironment().getTemplateGeneration();
+		ScriptShape shape = this.shape;
+		if (shape != null && this.shapeGeneration == generation) {
+			return shape;
+		}
+		List<String> names = new ArrayList<String>();
+		ScriptTemplate_Abstract extended = this.getExtendedClass();
+		if (extended instanceof ScriptTemplate) {
+			addNames(names, ((ScriptTemplate) extended).getShape());
+		}
+		if (this.getInterfaces() != null) {
+			for (ScriptValueType interfaceType : this.getInterfaces()) {
+				ScriptTemplate_Abstract implemented = this.getEnvironment().getTemplate(interfaceType);
+				if (implemented instanceof ScriptTemplate) {
+					addNames(names, ((ScriptTemplate) implemented).getShape());
+				}
+			}
+		}
+		if (this.preconstructors != null) {
+			for (ScriptExecutable exec : this.preconstructors) {
+				ScriptExecutable_CreateVariable declaration = getDeclaration(exec);
+				if (declaration != null && !names.contains(declaration.getName())) {
+					names.add(declaration.getName());
+				}
+			}
+		}
+		if (shape == null || !shape.hasNames(names)) {
+			shape = new ScriptShape(names);
+			this.shape = shape;
+		}
+		this.shapeGeneration = generation;
+		return shape;
+	}
+
+	private static void addNames(List<String> names, ScriptShape shape) {
+		for (int i = 0; i < shape.size(); i++) {
+			if (!names.contains(shape.getName(i))) {
+				names.add(shape.getName(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the variable at the specified index of this object's shape, or
+	 * {@code null} if this object has not added it.
+	 */
+	public ScriptValue_Variable getSlot(int index) {
+		return this.slots[index];
+	}
+
+	/**
+	 * Returns the named variable of this object or template, without checking
+	 * its permission or the static variables of its template.
+	 */
+	private ScriptValue_Variable getMemberVariable(String name) {
+		if (this.slots != null) {
+			int index = this.shape.indexOf(name);
+			if (index != -1) {
+				return this.slots[index];
+			}
+		}
+		if (this.variables == null) {
+			return null;
+		}
+		return this.variables.get(name);
+	}
+
 	@Override
 	public void disableFullCreation() {
 		this.fullCreation = false;
@@ -275,7 +434,7 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 	public ScriptValue_Variable getVariable(String name) throws ScriptException {
 		assert Logs.openNode("Object Variable Retrievals", "Retrieving Variable From Object ('" + name + "')");
 		assert Logs.addNode(this);
-		ScriptValue_Variable var = this.variables.get(name);
+		ScriptValue_Variable var = this.getMemberVariable(name);
 		if (var == null && this.isObject()) {
 			assert Logs.openNode("Variable not a member, so checking static members");
 			var = this.getEnvironment().getTemplate(this.getType()).getVariable(name);
@@ -298,7 +457,9 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 
 	@Override
 	public void initialize() throws ScriptException {
-		this.variables.clear();
+		if (this.variables != null) {
+			this.variables.clear();
+		}
 		if (this.templatePreconstructors == null || this.templatePreconstructors.size() == 0) {
 			return;
 		}
@@ -369,6 +530,7 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 					ScriptFunction function = Parser.parseFunction(fxn, this.getType());
 					assert Logs.addSnapNode("Adding function to this template", function);
 					functions.add(i, function);
+					this.getEnvironment().templatesChanged();
 					this.getEnvironment().retreatNestedStack();
 				}
 			}
@@ -432,6 +594,10 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 			}
 			assert Logs.closeNode();
 		}
+		if (this.slots != null && this.slots.length > 0) {
+			assert Logs.addSnapNode("Shape", this.shape);
+			assert Logs.addSnapNode("Variables (" + this.slots.length + " slot(s))", Arrays.asList(this.slots));
+		}
 		if (this.variables != null && this.variables.size() > 0) {
 			assert Logs.addSnapNode("Variables (" + this.variables.size() + " member variable(s))", this.variables);
 		}
@@ -457,4 +623,6 @@ public class ScriptTemplate extends ScriptTemplate_Abstract implements ScriptVal
 		assert Logs.addNode(this);
 		assert Logs.closeNode();
 	}
+
+	private static final long serialVersionUID = 5875606811135172820L;
 }
@@ -1,5 +1,6 @@
 package script.values;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 
@@ -11,7 +12,7 @@ import script.exceptions.ScriptException;
 import script.operations.ScriptExecutable;
 import script.parsing.Referenced;
 
-public abstract class ScriptTemplate_Abstract implements ScriptValue, Nodeable {
+public abstract class ScriptTemplate_Abstract implements ScriptValue, Nodeable, Serializable {
 	private final ScriptEnvironment environment;
 	private final ScriptValueType type;
 	private ScriptValueType extended;
@@ -106,6 +107,9 @@ public abstract class ScriptTemplate_Abstract implements ScriptValue, Nodeable {
 
 	@Override
 	public boolean isConvertibleTo(ScriptValueType type) {
+		if (this.getEnvironment().hasConversions(this.getType())) {
+			return this.getEnvironment().isConvertible(this.getType(), type);
+		}
 		if (this.getEnvironment().getTemplate(this.getType()) != null && this.getEnvironment().getTemplate(this.getType()) != this) {
 			return this.getEnvironment().getTemplate(this.getType()).isConvertibleTo(type);
 		}
@@ -159,4 +163,6 @@ public abstract class ScriptTemplate_Abstract implements ScriptValue, Nodeable {
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return (this == rhs);
 	}
+
+	private static final long serialVersionUID = -7274505957741195169L;
 }
@@ -177,4 +177,6 @@ public class ScriptTemplate_Placeholder extends ScriptTemplate_Abstract implemen
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getTemplate().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -7089223872295336075L;
 }
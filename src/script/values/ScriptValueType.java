@@ -1,5 +1,7 @@
 package script.values;
 
+import java.io.Serializable;
+
 import script.ScriptEnvironment;
 import script.exceptions.InternalException;
 import script.exceptions.ScriptException;
@@ -7,15 +9,39 @@ import script.parsing.Referenced;
 import script.parsing.ScriptKeywordType;
 import script.proxies.FauxTemplate_Object;
 
-public class ScriptValueType {
-	public static final ScriptValueType VOID = new ScriptValueType();
-	public static final ScriptValueType BOOLEAN = new ScriptValueType();
-	public static final ScriptValueType SHORT = new ScriptValueType();
-	public static final ScriptValueType INT = new ScriptValueType();
-	public static final ScriptValueType LONG = new ScriptValueType();
-	public static final ScriptValueType FLOAT = new ScriptValueType();
-	public static final ScriptValueType DOUBLE = new ScriptValueType();
-	public static final ScriptValueType STRING = new ScriptValueType();
+public class ScriptValueType implements Serializable {
+	/**
+	 * The identifier of a type that defers to another type, and so has no
+	 * identifier of its own.
+	 */
+	public static final int DEFERRED = -1;
+
+	public static final ScriptValueType VOID = new ScriptValueType(null, 0);
+	public static final ScriptValueType BOOLEAN = new ScriptValueType(null, 1);
+	public static final ScriptValueType SHORT = new ScriptValueType(null, 2);
+	public static final ScriptValueType INT = new ScriptValueType(null, 3);
+	public static final ScriptValueType LONG = new ScriptValueType(null, 4);
+	public static final ScriptValueType FLOAT = new ScriptValueType(null, 5);
+	public static final ScriptValueType DOUBLE = new ScriptValueType(null, 6);
+	public static final ScriptValueType STRING = new ScriptValueType(null, 7);
+
+	/**
+	 * The number of primitive types. Every environment gives its own types the
+	 * identifiers that follow them.
+	 */
+	public static final int PRIMITIVE_TYPES = 8;
+
+	private static final ScriptValueType[] primitiveTypes = {
+		VOID, BOOLEAN, SHORT, INT, LONG, FLOAT, DOUBLE, STRING
+	};
+
+	private static final ScriptKeywordType[] primitiveKeywords = {
+		ScriptKeywordType.VOID, ScriptKeywordType.BOOLEAN, ScriptKeywordType.SHORT, ScriptKeywordType.INT, ScriptKeywordType.LONG, ScriptKeywordType.FLOAT, ScriptKeywordType.DOUBLE, ScriptKeywordType.STRING
+	};
+
+	private static final String[] primitiveNames = {
+		"void", "boolean", "short", "int", "long", "float", "double", "string"
+	};
 
 	public static ScriptValueType createType(Referenced ref, String type) {
 		return new ScriptValueType_StringDeferrer(ref, type);
@@ -39,22 +65,9 @@ public class ScriptValueType {
 	}
 
 	public static String getName(ScriptValueType type) {
-		if (type.equals(VOID)) {
-			return "void";
-		} else if (type.equals(BOOLEAN)) {
-			return "boolean";
-		} else if (type.equals(SHORT)) {
-			return "short";
-		} else if (type.equals(INT)) {
-			return "int";
-		} else if (type.equals(LONG)) {
-			return "long";
-		} else if (type.equals(FLOAT)) {
-			return "float";
-		} else if (type.equals(DOUBLE)) {
-			return "double";
-		} else if (type.equals(STRING)) {
-			return "string";
+		int id = type.getIdentifier();
+		if (id >= 0 && id < PRIMITIVE_TYPES) {
+			return primitiveNames[id];
 		}
 		assert type.getEnvironment() != null;
 		return type.getEnvironment().getName(type);
@@ -64,6 +77,13 @@ public class ScriptValueType {
 		return createType(env, FauxTemplate_Object.OBJECTSTRING);
 	}
 
+	/**
+	 * Returns the primitive type of the specified identifier.
+	 */
+	public static ScriptValueType getPrimitiveType(int id) {
+		return primitiveTypes[id];
+	}
+
 	// Easy-check functions
 	public static ScriptValueType getType(Number number) {
 		if (number instanceof Integer) {
@@ -89,13 +109,7 @@ public class ScriptValueType {
 	}
 
 	public static boolean isConvertibleTo(ScriptEnvironment env, ScriptValueType base, ScriptValueType cast) {
-		if (isNumericType(base)) {
-			return ScriptValue_Numeric.testNumericValueConversion(base, cast);
-		}
-		if (isPrimitiveType(base)) {
-			return base.equals(cast);
-		}
-		return env.getTemplate(base).isConvertibleTo(cast);
+		return env.isConvertible(base, cast);
 	}
 
 	public static boolean isNumericType(ScriptValueType type) {
@@ -131,19 +145,21 @@ public class ScriptValueType {
 
 	private final int type;
 
-	private static int identifierSeed = 0;
-
 	private final ScriptEnvironment environment;
 
-	public ScriptValueType() {
-		this(null);
-	}
-
-	public ScriptValueType(ScriptEnvironment env) {
-		this.type = identifierSeed++;
-		this.environment = env;
+	/**
+	 * Creates a type that defers to another type. Subclasses must override
+	 * {@link #getBaseType()}.
+	 */
+	protected ScriptValueType(ScriptEnvironment env) {
+		this(env, DEFERRED);
 	}
 
+	/**
+	 * Creates a type of the specified identifier. Identifiers are only unique
+	 * within an environment, so new types should be created by
+	 * {@link ScriptEnvironment#createType()}.
+	 */
 	public ScriptValueType(ScriptEnvironment env, int type) {
 		this.type = type;
 		this.environment = env;
@@ -162,29 +178,9 @@ public class ScriptValueType {
 	}
 
 	public ScriptKeywordType getKeywordType() {
-		if (this.equals(VOID)) {
-			return ScriptKeywordType.VOID;
-		}
-		if (this.equals(BOOLEAN)) {
-			return ScriptKeywordType.BOOLEAN;
-		}
-		if (this.equals(SHORT)) {
-			return ScriptKeywordType.SHORT;
-		}
-		if (this.equals(INT)) {
-			return ScriptKeywordType.INT;
-		}
-		if (this.equals(LONG)) {
-			return ScriptKeywordType.LONG;
-		}
-		if (this.equals(FLOAT)) {
-			return ScriptKeywordType.FLOAT;
-		}
-		if (this.equals(DOUBLE)) {
-			return ScriptKeywordType.DOUBLE;
-		}
-		if (this.equals(STRING)) {
-			return ScriptKeywordType.STRING;
+		int id = this.getIdentifier();
+		if (id >= 0 && id < PRIMITIVE_TYPES) {
+			return primitiveKeywords[id];
 		}
 		return null;
 	}
@@ -193,6 +189,19 @@ public class ScriptValueType {
 		return getName(this);
 	}
 
+	/**
+	 * Returns the identifier of this type, as {@link #getType()} does, but
+	 * fails with an {@link InternalException} if a deferred type cannot be
+	 * resolved.
+	 */
+	public int getIdentifier() {
+		try {
+			return this.getType();
+		} catch (ScriptException e) {
+			throw new InternalException(this.getEnvironment(), e);
+		}
+	}
+
 	public int getType() throws ScriptException {
 		if (this.getBaseType() == this) {
 			return this.type;
@@ -219,24 +228,18 @@ public class ScriptValueType {
 		if (!(obj instanceof ScriptValueType)) {
 			return false;
 		}
-		try {
-			return ((ScriptValueType) obj).getType() == this.getType();
-		} catch (ScriptException e) {
-			throw new InternalException(this.getEnvironment(), e);
-		}
+		return ((ScriptValueType) obj).getIdentifier() == this.getIdentifier();
 	}
 
 	@Override
 	public int hashCode() {
-		try {
-			return this.getType();
-		} catch (ScriptException e) {
-			throw new InternalException(this.getEnvironment(), e);
-		}
+		return this.getIdentifier();
 	}
 
 	@Override
 	public String toString() {
 		return String.format("ScriptValueType[%s]", this.getName());
 	}
+
+	private static final long serialVersionUID = -7170656074437764188L;
 }
@@ -27,4 +27,6 @@ public class ScriptValueType_ObjectDeferrer extends ScriptValueType {
 			return this.getEnvironment().retrieveVariable(this.name).getType();
 		}
 	}
+
+	private static final long serialVersionUID = 4018880029695343727L;
 }
@@ -8,6 +8,21 @@ import script.parsing.Referenced;
 public class ScriptValueType_StringDeferrer extends ScriptValueType {
 	private final String typeString;
 	private Referenced reference;
+	private transient volatile Resolution resolution;
+
+	/**
+	 * The type this deferrer resolved to, which is kept until the templates of
+	 * its environment change.
+	 */
+	private static final class Resolution {
+		private final int generation;
+		private final ScriptValueType type;
+
+		Resolution(int generation, ScriptValueType type) {
+			this.generation = generation;
+			this.type = type;
+		}
+	}
 
 	public ScriptValueType_StringDeferrer(Referenced ref, String string) {
 		super(ref.getEnvironment());
@@ -26,6 +41,11 @@ public class ScriptValueType_StringDeferrer extends ScriptValueType {
 
 	@Override
 	public ScriptValueType getBaseType() throws ScriptException {
+		int generation = this.getEnvironment().getTemplateGeneration();
+		Resolution resolution = this.resolution;
+		if (resolution != null && resolution.generation == generation) {
+			return resolution.type;
+		}
 		ScriptValueType kw = this.getEnvironment().getType(this.typeString);
 		if (kw == null) {
 			if (this.reference == null) {
@@ -34,6 +54,9 @@ public class ScriptValueType_StringDeferrer extends ScriptValueType {
 				throw new VariableTypeNotFoundException(this.reference, this.typeString);
 			}
 		}
+		this.resolution = new Resolution(generation, kw);
 		return kw;
 	}
+
+	private static final long serialVersionUID = 1345430790303409119L;
 }
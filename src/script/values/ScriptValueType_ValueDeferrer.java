@@ -16,4 +16,6 @@ public class ScriptValueType_ValueDeferrer extends ScriptValueType {
 	public ScriptValueType getBaseType() throws ScriptException {
 		return this.value.getType();
 	}
+
+	private static final long serialVersionUID = -2618677116628443508L;
 }
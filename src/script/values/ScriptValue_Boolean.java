@@ -1,5 +1,7 @@
 package script.values;
 
+import java.io.Serializable;
+
 import inspect.Nodeable;
 import logging.Logs;
 import script.ScriptConvertible;
@@ -9,7 +11,7 @@ import script.exceptions.IncompatibleObjectsException;
 import script.exceptions.ScriptException;
 import script.parsing.Referenced;
 
-public class ScriptValue_Boolean implements ScriptConvertible<Boolean>, ScriptValue, Nodeable {
+public class ScriptValue_Boolean implements ScriptConvertible<Boolean>, ScriptValue, Nodeable, Serializable {
 	private boolean value;
 	private final ScriptEnvironment environment;
 
@@ -83,4 +85,6 @@ public class ScriptValue_Boolean implements ScriptConvertible<Boolean>, ScriptVa
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return ((ScriptValue_Boolean) this.getValue()).getBooleanValue() == ((ScriptValue_Boolean) rhs.castToType(ref, this.getType())).getBooleanValue();
 	}
+
+	private static final long serialVersionUID = -3084209466899140948L;
 }
@@ -58,4 +58,6 @@ public class ScriptValue_Null extends ScriptElement implements ScriptExecutable,
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return (rhs == null || rhs.getValue() == null || rhs.getValue() instanceof ScriptValue_Null);
 	}
+
+	private static final long serialVersionUID = -2029389439785855L;
 }
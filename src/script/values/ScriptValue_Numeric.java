@@ -1,5 +1,7 @@
 package script.values;
 
+import java.io.Serializable;
+
 import inspect.Nodeable;
 import logging.CommonString;
 import logging.Logs;
@@ -10,8 +12,25 @@ import script.exceptions.DivisionByZeroScriptException;
 import script.exceptions.ScriptException;
 import script.parsing.Referenced;
 import script.parsing.ScriptKeywordType;
-
-public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Number>, Nodeable {
+import script.parsing.ScriptOperatorType;
+
+/**
+ * A numeric script value. The value is stored unboxed: integral types are kept
+ * in a {@code long} and floating-point types in a {@code double}, with
+ * {@link #kind} recording which primitive type the value currently has.
+ * <p>
+ * {@link #evaluate(Referenced, ScriptOperatorType, ScriptValue_Numeric)} and
+ * {@link #assign(Referenced, ScriptOperatorType, ScriptValue_Numeric)} perform
+ * arithmetic without creating any boxed {@link Number} objects, and the latter
+ * modifies this value in place. The {@code Number}-returning methods remain
+ * for callers that need them.
+ * <p>
+ * Since values are modified in place, they are never cached or shared, not
+ * even small integers; loops stay free of allocations by updating their
+ * values with {@code assign} instead. Only the boxed numbers returned by
+ * {@link #getNumericValue()} come from the {@code valueOf} caches.
+ */
+public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Number>, Nodeable, Serializable {
 	// Static functions
 	public static boolean testNumericValueConversion(ScriptValueType base, ScriptValueType cast) {
 		// If type is a short or integer, all numeric types are valid (We implement all shorts as integers)
@@ -50,100 +69,392 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 	}
 
 	private final ScriptEnvironment environment;
-	private final ScriptValueType type;
 
-	private Number number;
+	/**
+	 * The current primitive type of this value. This is one of
+	 * {@link ScriptKeywordType#SHORT}, {@link ScriptKeywordType#INT},
+	 * {@link ScriptKeywordType#LONG}, {@link ScriptKeywordType#FLOAT}, or
+	 * {@link ScriptKeywordType#DOUBLE}.
+	 */
+	private ScriptKeywordType kind;
+
+	/**
+	 * The value, if {@link #kind} is integral.
+	 */
+	private long integral;
+
+	/**
+	 * The value, if {@link #kind} is floating-point.
+	 */
+	private double floating;
 
 	public ScriptValue_Numeric(ScriptEnvironment env, double value) {
-		this(env, new Double(value));
+		this.environment = env;
+		this.setDouble(value);
 	}
 
 	public ScriptValue_Numeric(ScriptEnvironment env, float value) {
-		this(env, new Float(value));
+		this.environment = env;
+		this.setFloat(value);
 	}
 
 	public ScriptValue_Numeric(ScriptEnvironment env, int value) {
-		this(env, new Integer(value));
+		this.environment = env;
+		this.setInt(value);
 	}
 
 	public ScriptValue_Numeric(ScriptEnvironment env, long value) {
-		this(env, new Long(value));
+		this.environment = env;
+		this.setLong(value);
 	}
 
 	public ScriptValue_Numeric(ScriptEnvironment env, Number value) {
 		this.environment = env;
-		this.type = ScriptValueType.getType(value);
-		this.number = value;
+		this.setNumber(value);
 	}
 
 	public ScriptValue_Numeric(ScriptEnvironment env, short value) {
-		this(env, new Short(value));
+		this.environment = env;
+		this.setShort(value);
+	}
+
+	private ScriptValue_Numeric(ScriptEnvironment env, ScriptKeywordType kind, long integral, double floating) {
+		this.environment = env;
+		this.kind = kind;
+		this.integral = integral;
+		this.floating = floating;
+	}
+
+	private static ScriptValueType getType(ScriptKeywordType kind) {
+		switch (kind) {
+		case SHORT:
+			return ScriptValueType.SHORT;
+		case INT:
+			return ScriptValueType.INT;
+		case LONG:
+			return ScriptValueType.LONG;
+		case FLOAT:
+			return ScriptValueType.FLOAT;
+		case DOUBLE:
+			return ScriptValueType.DOUBLE;
+		default:
+			throw new AssertionError("Invalid default");
+		}
+	}
+
+	private boolean isIntegral() {
+		return this.kind != ScriptKeywordType.FLOAT && this.kind != ScriptKeywordType.DOUBLE;
+	}
+
+	private void setShort(short value) {
+		this.kind = ScriptKeywordType.SHORT;
+		this.integral = value;
+	}
+
+	private void setInt(int value) {
+		this.kind = ScriptKeywordType.INT;
+		this.integral = value;
+	}
+
+	private void setLong(long value) {
+		this.kind = ScriptKeywordType.LONG;
+		this.integral = value;
+	}
+
+	private void setFloat(float value) {
+		this.kind = ScriptKeywordType.FLOAT;
+		this.floating = value;
+	}
+
+	private void setDouble(double value) {
+		this.kind = ScriptKeywordType.DOUBLE;
+		this.floating = value;
+	}
+
+	private void setNumber(Number value) {
+		if (value instanceof Integer) {
+			this.setInt(value.intValue());
+		} else if (value instanceof Double) {
+			this.setDouble(value.doubleValue());
+		} else if (value instanceof Short) {
+			this.setShort(value.shortValue());
+		} else if (value instanceof Long) {
+			this.setLong(value.longValue());
+		} else if (value instanceof Float) {
+			this.setFloat(value.floatValue());
+		} else {
+			throw new IllegalArgumentException("Invalid default");
+		}
+	}
+
+	/**
+	 * Converts this value to the specified kind, in place. This has
+	 * the same effect as casting the value to that type.
+	 */
+	private void convertTo(ScriptKeywordType kind) {
+		switch (kind) {
+		case SHORT:
+			this.setShort(this.shortValue());
+			break;
+		case INT:
+			this.setInt(this.intValue());
+			break;
+		case LONG:
+			this.setLong(this.longValue());
+			break;
+		case FLOAT:
+			this.setFloat(this.floatValue());
+			break;
+		case DOUBLE:
+			this.setDouble(this.doubleValue());
+			break;
+		default:
+			throw new AssertionError("Invalid default");
+		}
 	}
 
 	@Override
 	public ScriptValue castToType(Referenced ref, ScriptValueType type) throws ScriptException {
 		assert Logs.openNode("Type Casting", "Casting (" + this.getType() + " to " + type + ")");
-		ScriptValue value;
 		ScriptEnvironment environment = this.getEnvironment();
 		if (ref != null) {
 			environment = ref.getEnvironment();
 		}
-		switch (type.getKeywordType()) {
+		ScriptKeywordType kind = type.getKeywordType();
+		if (kind == null) {
+			throw new ClassCastScriptException(ref, this, type);
+		}
+		switch (kind) {
 		case SHORT:
-			value = new ScriptValue_Numeric(environment, new Short(this.number.shortValue()));
-			break;
 		case INT:
-			value = new ScriptValue_Numeric(environment, new Integer(this.number.intValue()));
-			break;
 		case LONG:
-			value = new ScriptValue_Numeric(environment, new Long(this.number.longValue()));
-			break;
 		case FLOAT:
-			value = new ScriptValue_Numeric(environment, new Float(this.number.floatValue()));
-			break;
 		case DOUBLE:
-			value = new ScriptValue_Numeric(environment, new Double(this.number.doubleValue()));
 			break;
 		default:
 			throw new ClassCastScriptException(ref, this, type);
 		}
+		ScriptValue_Numeric value = new ScriptValue_Numeric(environment, this.kind, this.integral, this.floating);
+		value.convertTo(kind);
 		assert Logs.closeNode("Returned value", this);
 		return value;
 	}
 
+	/**
+	 * Returns a new numeric value with the same type and value as this one.
+	 */
+	public ScriptValue_Numeric copy() {
+		return new ScriptValue_Numeric(this.getEnvironment(), this.kind, this.integral, this.floating);
+	}
+
 	// Overloaded Functions
 	@Override
 	public Number convert(ScriptEnvironment env) {
-		return this.number;
+		return this.getNumericValue();
 	}
 
-	public Number decrement(Referenced ref) throws ScriptException {
-		return this.increment(ref, new ScriptValue_Numeric(this.getEnvironment(), 1.0d));
+	/**
+	 * Returns the result of the specified arithmetic operation as a new value,
+	 * leaving this value unchanged. The right-hand value is cast to this
+	 * value's type before the operation is performed.
+	 * 
+	 * @param operator
+	 *            the arithmetic operator, or its assigning counterpart
+	 * @throws DivisionByZeroScriptException
+	 *             if the operation is a division or modulus and the cast
+	 *             right-hand value is zero
+	 */
+	public ScriptValue_Numeric evaluate(Referenced ref, ScriptOperatorType operator, ScriptValue_Numeric value) throws ScriptException {
+		// Short arithmetic always produces an integer, which assign() does
+		ScriptValue_Numeric result = new ScriptValue_Numeric(this.getEnvironment(), this.kind, this.integral, this.floating);
+		result.assign(ref, operator, value);
+		return result;
 	}
 
-	public Number decrement(Referenced ref, ScriptValue value) throws ScriptException {
-		assert Logs.openNode("Numeric Value Decrements", "Decrementing Numeric Value");
-		assert Logs.addSnapNode("Number before decrement", value);
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		switch (this.getType().getKeywordType()) {
+	/**
+	 * Performs the specified arithmetic operation, storing the result in this
+	 * value. No objects are allocated. The right-hand value is cast to this
+	 * value's type before the operation is performed.
+	 * 
+	 * @param operator
+	 *            the arithmetic operator, or its assigning counterpart
+	 * @return this value
+	 * @throws DivisionByZeroScriptException
+	 *             if the operation is a division or modulus and the cast
+	 *             right-hand value is zero
+	 */
+	public ScriptValue_Numeric assign(Referenced ref, ScriptOperatorType operator, ScriptValue_Numeric value) throws ScriptException {
+		switch (this.kind) {
 		case SHORT:
-			number = new Integer(this.getNumericValue().intValue() - number.intValue());
+			this.setInt(evaluate(ref, operator, this.intValue(), value.shortValue()));
 			break;
 		case INT:
-			number = new Integer(this.getNumericValue().intValue() - number.intValue());
+			this.setInt(evaluate(ref, operator, this.intValue(), value.intValue()));
 			break;
 		case LONG:
-			number = new Long(this.getNumericValue().longValue() - number.longValue());
+			this.setLong(evaluate(ref, operator, this.longValue(), value.longValue()));
 			break;
 		case FLOAT:
-			number = new Float(this.getNumericValue().floatValue() - number.floatValue());
+			this.setFloat(evaluate(ref, operator, this.floatValue(), value.floatValue()));
 			break;
 		case DOUBLE:
-			number = new Double(this.getNumericValue().doubleValue() - number.doubleValue());
+			this.setDouble(evaluate(ref, operator, this.doubleValue(), value.doubleValue()));
 			break;
 		default:
 			throw new ClassCastScriptException(ref, this, value);
 		}
+		return this;
+	}
+
+	private static int evaluate(Referenced ref, ScriptOperatorType operator, int left, int right) throws ScriptException {
+		switch (operator) {
+		case PLUS:
+		case PLUSEQUALS:
+		case INCREMENT:
+			return left + right;
+		case MINUS:
+		case MINUSEQUALS:
+		case DECREMENT:
+			return left - right;
+		case MULTIPLY:
+		case MULTIPLYEQUALS:
+			return left * right;
+		case DIVIDE:
+		case DIVIDEEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left / right;
+		case MODULUS:
+		case MODULUSEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left % right;
+		default:
+			throw new IllegalArgumentException("Operator must be an arithmetic operator");
+		}
+	}
+
+	private static long evaluate(Referenced ref, ScriptOperatorType operator, long left, long right) throws ScriptException {
+		switch (operator) {
+		case PLUS:
+		case PLUSEQUALS:
+		case INCREMENT:
+			return left + right;
+		case MINUS:
+		case MINUSEQUALS:
+		case DECREMENT:
+			return left - right;
+		case MULTIPLY:
+		case MULTIPLYEQUALS:
+			return left * right;
+		case DIVIDE:
+		case DIVIDEEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left / right;
+		case MODULUS:
+		case MODULUSEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left % right;
+		default:
+			throw new IllegalArgumentException("Operator must be an arithmetic operator");
+		}
+	}
+
+	private static float evaluate(Referenced ref, ScriptOperatorType operator, float left, float right) throws ScriptException {
+		switch (operator) {
+		case PLUS:
+		case PLUSEQUALS:
+		case INCREMENT:
+			return left + right;
+		case MINUS:
+		case MINUSEQUALS:
+		case DECREMENT:
+			return left - right;
+		case MULTIPLY:
+		case MULTIPLYEQUALS:
+			return left * right;
+		case DIVIDE:
+		case DIVIDEEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left / right;
+		case MODULUS:
+		case MODULUSEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left % right;
+		default:
+			throw new IllegalArgumentException("Operator must be an arithmetic operator");
+		}
+	}
+
+	private static double evaluate(Referenced ref, ScriptOperatorType operator, double left, double right) throws ScriptException {
+		switch (operator) {
+		case PLUS:
+		case PLUSEQUALS:
+		case INCREMENT:
+			return left + right;
+		case MINUS:
+		case MINUSEQUALS:
+		case DECREMENT:
+			return left - right;
+		case MULTIPLY:
+		case MULTIPLYEQUALS:
+			return left * right;
+		case DIVIDE:
+		case DIVIDEEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left / right;
+		case MODULUS:
+		case MODULUSEQUALS:
+			if (right == 0) {
+				throw new DivisionByZeroScriptException(ref);
+			}
+			return left % right;
+		default:
+			throw new IllegalArgumentException("Operator must be an arithmetic operator");
+		}
+	}
+
+	/**
+	 * Applies the specified operation to a copy of this value, returning the
+	 * result as a boxed number.
+	 */
+	private Number evaluateNumber(Referenced ref, ScriptOperatorType operator, ScriptValue value) throws ScriptException {
+		if (!(value instanceof ScriptValue_Numeric)) {
+			value = value.castToType(ref, this.getType());
+		}
+		return this.evaluate(ref, operator, (ScriptValue_Numeric) value).getNumericValue();
+	}
+
+	/**
+	 * Decrements this value by one, in place.
+	 * 
+	 * @return this value
+	 */
+	public ScriptValue_Numeric decrement() {
+		this.step(-1);
+		return this;
+	}
+
+	public Number decrement(Referenced ref) throws ScriptException {
+		return this.decrement(ref, new ScriptValue_Numeric(this.getEnvironment(), 1.0d));
+	}
+
+	public Number decrement(Referenced ref, ScriptValue value) throws ScriptException {
+		assert Logs.openNode("Numeric Value Decrements", "Decrementing Numeric Value");
+		assert Logs.addSnapNode("Number before decrement", value);
+		Number number = this.evaluateNumber(ref, ScriptOperatorType.MINUS, value);
 		assert Logs.closeNode("Number after decrement", "" + number);
 		return number;
 	}
@@ -151,40 +462,24 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 	public Number divide(Referenced ref, ScriptValue value) throws ScriptException {
 		assert Logs.openNode("Numeric Value Divisions", "Dividing Numeric Value");
 		assert Logs.addSnapNode("Number before division", value);
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		if (number.doubleValue() == 0) {
-			throw new DivisionByZeroScriptException(ref);
-		}
-		switch (this.getType().getKeywordType()) {
-		case SHORT:
-			number = new Integer(this.getNumericValue().intValue() / number.intValue());
-			break;
-		case INT:
-			number = new Integer(this.getNumericValue().intValue() / number.intValue());
-			break;
-		case LONG:
-			number = new Long(this.getNumericValue().longValue() / number.longValue());
-			break;
-		case FLOAT:
-			number = new Float(this.getNumericValue().floatValue() / number.floatValue());
-			break;
-		case DOUBLE:
-			number = new Double(this.getNumericValue().doubleValue() / number.doubleValue());
-			break;
-		default:
-			throw new ClassCastScriptException(ref, this, value);
-		}
+		Number number = this.evaluateNumber(ref, ScriptOperatorType.DIVIDE, value);
 		assert Logs.closeNode("Number after division", "" + number);
 		return number;
 	}
 
 	// Extensions for number-stuff
 	public double doubleValue() {
-		return this.getNumericValue().doubleValue();
+		if (this.isIntegral()) {
+			return this.integral;
+		}
+		return this.floating;
 	}
 
 	public float floatValue() {
-		return this.getNumericValue().floatValue();
+		if (this.isIntegral()) {
+			return this.integral;
+		}
+		return (float) this.floating;
 	}
 
 	// Required ScriptValue_Abstract implementation
@@ -193,13 +488,30 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 		return this.environment;
 	}
 
+	/**
+	 * Returns this value as a boxed number. Small integral values are shared,
+	 * so callers should prefer the primitive accessors where possible.
+	 */
 	public Number getNumericValue() {
-		return this.number;
+		switch (this.kind) {
+		case SHORT:
+			return Short.valueOf((short) this.integral);
+		case INT:
+			return Integer.valueOf((int) this.integral);
+		case LONG:
+			return Long.valueOf(this.integral);
+		case FLOAT:
+			return Float.valueOf((float) this.floating);
+		case DOUBLE:
+			return Double.valueOf(this.floating);
+		default:
+			throw new AssertionError("Invalid default");
+		}
 	}
 
 	@Override
 	public ScriptValueType getType() {
-		return ScriptValueType.getType(this.number);
+		return getType(this.kind);
 	}
 
 	@Override
@@ -207,39 +519,59 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 		return this;
 	}
 
-	public Number increment(Referenced ref) throws ScriptException {
-		return this.increment(ref, new ScriptValue_Numeric(this.getEnvironment(), 1.0d));
+	/**
+	 * Increments this value by one, in place.
+	 * 
+	 * @return this value
+	 */
+	public ScriptValue_Numeric increment() {
+		this.step(1);
+		return this;
 	}
 
-	public Number increment(Referenced ref, ScriptValue value) throws ScriptException {
-		assert Logs.openNode("Numeric Value Increments", "Incrementing Numeric Value");
-		assert Logs.addSnapNode("Number before increment", value);
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		switch (this.getType().getKeywordType()) {
+	/**
+	 * Adds the specified amount to this value, in place. Like the other
+	 * arithmetic operations, short values are promoted to integers.
+	 */
+	private void step(int amount) {
+		switch (this.kind) {
 		case SHORT:
-			number = new Integer(this.getNumericValue().intValue() + number.intValue());
+			this.setInt(this.intValue() + amount);
 			break;
 		case INT:
-			number = new Integer(this.getNumericValue().intValue() + number.intValue());
+			this.setInt(this.intValue() + amount);
 			break;
 		case LONG:
-			number = new Long(this.getNumericValue().longValue() + number.longValue());
+			this.setLong(this.integral + amount);
 			break;
 		case FLOAT:
-			number = new Float(this.getNumericValue().floatValue() + number.floatValue());
+			this.setFloat(this.floatValue() + amount);
 			break;
 		case DOUBLE:
-			number = new Double(this.getNumericValue().doubleValue() + number.doubleValue());
+			this.setDouble(this.floating + amount);
 			break;
 		default:
-			throw new ClassCastScriptException(ref, this, value);
+			throw new AssertionError("Invalid default");
 		}
+	}
+
+	public Number increment(Referenced ref) throws ScriptException {
+		return this.increment(ref, new ScriptValue_Numeric(this.getEnvironment(), 1.0d));
+	}
+
+	public Number increment(Referenced ref, ScriptValue value) throws ScriptException {
+		assert Logs.openNode("Numeric Value Increments", "Incrementing Numeric Value");
+		assert Logs.addSnapNode("Number before increment", value);
+		Number number = this.evaluateNumber(ref, ScriptOperatorType.PLUS, value);
 		assert Logs.closeNode("Number after increment", "" + number);
 		return number;
 	}
 
 	public int intValue() {
-		return this.getNumericValue().intValue();
+		if (this.isIntegral()) {
+			return (int) this.integral;
+		}
+		return (int) this.floating;
 	}
 
 	@Override
@@ -248,35 +580,16 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 	}
 
 	public long longValue() {
-		return this.getNumericValue().longValue();
+		if (this.isIntegral()) {
+			return this.integral;
+		}
+		return (long) this.floating;
 	}
 
 	public Number modulus(Referenced ref, ScriptValue value) throws ScriptException {
 		assert Logs.openNode("Numeric Value Modulations", "Modulating Numeric Value");
 		assert Logs.addSnapNode("Number before modulus", value);
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		if (number.doubleValue() == 0) {
-			throw new DivisionByZeroScriptException(ref);
-		}
-		switch (this.getType().getKeywordType()) {
-		case SHORT:
-			number = new Integer(this.getNumericValue().intValue() % number.intValue());
-			break;
-		case INT:
-			number = new Integer(this.getNumericValue().intValue() % number.intValue());
-			break;
-		case LONG:
-			number = new Long(this.getNumericValue().longValue() % number.longValue());
-			break;
-		case FLOAT:
-			number = new Float(this.getNumericValue().floatValue() % number.floatValue());
-			break;
-		case DOUBLE:
-			number = new Double(this.getNumericValue().doubleValue() % number.doubleValue());
-			break;
-		default:
-			throw new ClassCastScriptException(ref, this, value);
-		}
+		Number number = this.evaluateNumber(ref, ScriptOperatorType.MODULUS, value);
 		assert Logs.closeNode("Number after modulus", "" + number);
 		return number;
 	}
@@ -284,33 +597,14 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 	public Number multiply(Referenced ref, ScriptValue value) throws ScriptException {
 		assert Logs.openNode("Numeric Value Multiplications", "Multiplying Numeric Value");
 		assert Logs.addSnapNode("Number before multiplication", value);
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		switch (this.getType().getKeywordType()) {
-		case SHORT:
-			number = new Integer(this.getNumericValue().intValue() * number.intValue());
-			break;
-		case INT:
-			number = new Integer(this.getNumericValue().intValue() * number.intValue());
-			break;
-		case LONG:
-			number = new Long(this.getNumericValue().longValue() * number.longValue());
-			break;
-		case FLOAT:
-			number = new Float(this.getNumericValue().floatValue() * number.floatValue());
-			break;
-		case DOUBLE:
-			number = new Double(this.getNumericValue().doubleValue() * number.doubleValue());
-			break;
-		default:
-			throw new ClassCastScriptException(ref, this, value);
-		}
+		Number number = this.evaluateNumber(ref, ScriptOperatorType.MULTIPLY, value);
 		assert Logs.closeNode("Number after multiplication", "" + number);
 		return number;
 	}
 
 	@Override
 	public void nodificate() {
-		switch (this.getType().getKeywordType()) {
+		switch (this.kind) {
 		case SHORT:
 			assert Logs.openNode(CommonString.NUMERICSCRIPTVALUESHORT);
 			break;
@@ -329,56 +623,85 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 		default:
 			throw new AssertionError("Invalid default");
 		}
-		if (this.number == null) {
-			assert Logs.addNode("Numeric value: null");
-		} else {
-			assert Logs.addNode("Numeric value: " + this.number.doubleValue());
-		}
+		assert Logs.addNode("Numeric value: " + this.doubleValue());
 		assert Logs.addNode("Reference: " + this);
 		assert Logs.closeNode();
 	}
 
 	public ScriptValue setNumericValue(Number value) {
-		this.number = value;
+		this.setNumber(value);
 		return this;
 	}
 
 	@Override
 	public ScriptValue setValue(Referenced ref, ScriptValue value) throws ScriptException {
-		Number number = ((ScriptValue_Numeric) value.castToType(ref, this.getType())).getNumericValue();
-		switch (this.type.getKeywordType()) {
+		ScriptValue_Numeric numeric;
+		if (value instanceof ScriptValue_Numeric) {
+			numeric = (ScriptValue_Numeric) value;
+		} else {
+			numeric = (ScriptValue_Numeric) value.castToType(ref, this.getType());
+		}
+		// Cast the given value to our current type
+		ScriptKeywordType current = this.kind;
+		this.kind = numeric.kind;
+		this.integral = numeric.integral;
+		this.floating = numeric.floating;
+		this.convertTo(current);
+		return this;
+	}
+
+	public short shortValue() {
+		if (this.isIntegral()) {
+			return (short) this.integral;
+		}
+		return (short) (int) this.floating;
+	}
+
+	@Override
+	public int valuesCompare(Referenced ref, ScriptValue rhs) throws ScriptException {
+		ScriptValue_Numeric right;
+		if (rhs instanceof ScriptValue_Numeric) {
+			right = (ScriptValue_Numeric) rhs;
+		} else {
+			right = (ScriptValue_Numeric) rhs.castToType(ref, this.getType());
+		}
+		// Compare against the right-hand value as if it were cast to our type
+		double other;
+		switch (this.kind) {
 		case SHORT:
-			this.number = new Short(number.shortValue());
+			if (this.shortValue() == right.shortValue()) {
+				return 0;
+			}
+			other = right.shortValue();
 			break;
 		case INT:
-			this.number = new Integer(number.intValue());
+			if (this.intValue() == right.intValue()) {
+				return 0;
+			}
+			other = right.intValue();
 			break;
 		case LONG:
-			this.number = new Long(number.longValue());
+			if (this.longValue() == right.longValue()) {
+				return 0;
+			}
+			other = right.longValue();
 			break;
 		case FLOAT:
-			this.number = new Float(number.floatValue());
+			if (Float.floatToIntBits(this.floatValue()) == Float.floatToIntBits(right.floatValue())) {
+				return 0;
+			}
+			other = right.floatValue();
 			break;
 		case DOUBLE:
-			this.number = new Double(number.doubleValue());
+			if (Double.doubleToLongBits(this.doubleValue()) == Double.doubleToLongBits(right.doubleValue())) {
+				return 0;
+			}
+			other = right.doubleValue();
 			break;
 		default:
-			throw new ClassCastScriptException(ref, this, value);
-		}
-		return this;
-	}
-
-	public short shortValue() {
-		return this.getNumericValue().shortValue();
-	}
-
-	@Override
-	public int valuesCompare(Referenced ref, ScriptValue rhs) throws ScriptException {
-		ScriptValue_Numeric right = (ScriptValue_Numeric) rhs.castToType(ref, this.getType());
-		if (this.number.equals(right.getNumericValue())) {
-			return 0;
+			throw new AssertionError("Invalid default");
 		}
-		if (this.number.doubleValue() > right.getNumericValue().doubleValue()) {
+		if (this.doubleValue() > other) {
 			return 1;
 		}
 		return -1;
@@ -389,6 +712,8 @@ public class ScriptValue_Numeric implements ScriptValue, ScriptConvertible<Numbe
 		if (!ScriptValueType.isNumericType(rhs.getType())) {
 			throw new ClassCastScriptException(ref, rhs, this.getType());
 		}
-		return ((ScriptValue_Numeric) this.getValue()).doubleValue() == ((ScriptValue_Numeric) rhs.getValue()).doubleValue();
+		return this.doubleValue() == ((ScriptValue_Numeric) rhs.getValue()).doubleValue();
 	}
+
+	private static final long serialVersionUID = -4428483230928566278L;
 }
@@ -1,20 +1,94 @@
 package script.values;
 
+import java.io.Serializable;
+
 import inspect.Nodeable;
 import logging.Logs;
 import script.ScriptConvertible;
 import script.ScriptEnvironment;
 import script.exceptions.ClassCastScriptException;
 import script.exceptions.ScriptException;
+import script.exceptions.UnexpectedTypeException;
 import script.parsing.Referenced;
+import script.parsing.ScriptOperatorType;
 
-public class ScriptValue_String implements ScriptValue, ScriptConvertible<String>, Nodeable {
-	private String value;
+/**
+ * A string value. Its text is kept as a {@link StringRope}, so concatenations
+ * are deferred until the flat text is read, and assigning a string shares its
+ * text rather than copying it.
+ */
+public class ScriptValue_String implements ScriptValue, ScriptConvertible<String>, Nodeable, Serializable {
+	private StringRope value;
 	private final ScriptEnvironment environment;
 
 	public ScriptValue_String(ScriptEnvironment env, String string) {
+		this(env, new StringRope(string));
+	}
+
+	private ScriptValue_String(ScriptEnvironment env, StringRope rope) {
 		this.environment = env;
-		this.value = string;
+		this.value = rope;
+	}
+
+	/**
+	 * Appends the string form of the specified value to this value.
+	 *
+	 * @see #evaluate(Referenced, ScriptOperatorType, ScriptValue)
+	 */
+	public ScriptValue assign(Referenced ref, ScriptOperatorType operator, ScriptValue value) throws ScriptException {
+		if (operator != ScriptOperatorType.PLUSEQUALS) {
+			throw new UnexpectedTypeException(ref, ScriptValueType.getName(this.getType()), "A numeric operand of '" + operator.getOperator() + "'");
+		}
+		assert Logs.openNode("Value Assignments", "Appending to String Value");
+		this.value = StringRope.concatenate(this.value, getConcatenatedRope(ref, value));
+		assert Logs.closeNode("New value", this);
+		return this;
+	}
+
+	/**
+	 * Returns the concatenation of this value and the string form of the
+	 * specified value. Only {@link ScriptOperatorType#PLUS} applies to
+	 * strings.
+	 */
+	public ScriptValue evaluate(Referenced ref, ScriptOperatorType operator, ScriptValue value) throws ScriptException {
+		if (operator != ScriptOperatorType.PLUS) {
+			throw new UnexpectedTypeException(ref, ScriptValueType.getName(this.getType()), "A numeric operand of '" + operator.getOperator() + "'");
+		}
+		return new ScriptValue_String(this.getEnvironment(), StringRope.concatenate(this.value, getConcatenatedRope(ref, value)));
+	}
+
+	/**
+	 * Returns the text that the specified value adds to a concatenation:
+	 * strings add their text, while numbers, booleans and null add their
+	 * literal form.
+	 */
+	private static StringRope getConcatenatedRope(Referenced ref, ScriptValue value) throws ScriptException {
+		value = value.getValue();
+		if (value instanceof ScriptValue_String) {
+			return ((ScriptValue_String) value).value;
+		}
+		if (value instanceof ScriptValue_Numeric) {
+			return new StringRope(String.valueOf(((ScriptValue_Numeric) value).getNumericValue()));
+		}
+		if (value instanceof ScriptValue_Boolean) {
+			return new StringRope(String.valueOf(((ScriptValue_Boolean) value).getBooleanValue()));
+		}
+		if (value instanceof ScriptValue_Null) {
+			return new StringRope("null");
+		}
+		throw new UnexpectedTypeException(ref, ScriptValueType.getName(value.getType()), "A string, numeric or boolean value to concatenate");
+	}
+
+	private StringRope getRope(Referenced ref, ScriptValue value) throws ScriptException {
+		return ((ScriptValue_String) value.castToType(ref, this.getType())).value;
+	}
+
+	/**
+	 * Returns the number of characters of this string, without flattening
+	 * it.
+	 */
+	public int length() {
+		return this.value.length();
 	}
 
 	@Override
@@ -29,7 +103,7 @@ public class ScriptValue_String implements ScriptValue, ScriptConvertible<String
 	// Interface implementations
 	@Override
 	public String convert(ScriptEnvironment env) {
-		return this.value;
+		return this.value.toString();
 	}
 
 	// Abstract-value implementation
@@ -39,7 +113,7 @@ public class ScriptValue_String implements ScriptValue, ScriptConvertible<String
 	}
 
 	public String getStringValue() {
-		return this.value;
+		return this.value.toString();
 	}
 
 	@Override
@@ -59,7 +133,7 @@ public class ScriptValue_String implements ScriptValue, ScriptConvertible<String
 
 	@Override
 	public void nodificate() {
-		assert Logs.openNode("String Script-Value (" + this.getStringValue().length() + " character(s): " + this.getStringValue());
+		assert Logs.openNode("String Script-Value (" + this.length() + " character(s): " + this.getStringValue());
 		assert Logs.addSnapNode("Reference", super.toString());
 		assert Logs.closeNode();
 	}
@@ -68,7 +142,7 @@ public class ScriptValue_String implements ScriptValue, ScriptConvertible<String
 	public ScriptValue setValue(Referenced ref, ScriptValue value) throws ScriptException {
 		assert Logs.openNode("Value Assignments", "Setting String Value");
 		assert Logs.addSnapNode("Former value", this);
-		this.value = ((ScriptValue_String) value.castToType(ref, this.getType())).getStringValue();
+		this.value = this.getRope(ref, value);
 		assert Logs.closeNode("New value", this);
 		return this;
 	}
@@ -82,4 +156,6 @@ public class ScriptValue_String implements ScriptValue, ScriptConvertible<String
 	public boolean valuesEqual(Referenced ref, ScriptValue rhs) throws ScriptException {
 		return this.getStringValue().equals(((ScriptValue_String) rhs.castToType(ref, this.getType())).getStringValue());
 	}
+
+	private static final long serialVersionUID = 1181202336987587507L;
 }
@@ -1,5 +1,7 @@
 package script.values;
 
+import java.io.Serializable;
+
 import inspect.Nodeable;
 import logging.CommonString;
 import logging.Logs;
@@ -9,7 +11,7 @@ import script.exceptions.ScriptException;
 import script.parsing.Referenced;
 import script.parsing.ScriptKeywordType;
 
-public class ScriptValue_Variable implements ScriptValue, Nodeable {
+public class ScriptValue_Variable implements ScriptValue, Nodeable, Serializable {
 
 	public static ScriptValue createUninitializedObject(ScriptEnvironment env, ScriptValueType type) {
 		if (type == null) {
@@ -180,4 +182,6 @@ public class ScriptValue_Variable implements ScriptValue, Nodeable {
 		}
 		return this.getValue().valuesEqual(ref, rhs);
 	}
+
+	private static final long serialVersionUID = -6969856486804186340L;
 }
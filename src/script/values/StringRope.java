@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package script.values;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The text of a string value, as an immutable tree of concatenations.
+ * <p>
+ * Concatenating two ropes only creates a node that refers to both, so a string
+ * that is built up piece by piece takes time in proportion to its pieces,
+ * rather than copying everything built so far at every step. The flat text is
+ * assembled the first time it's needed, and kept for every later read.
+ * <p>
+ * Pieces that are short enough are copied into a single leaf instead, so a
+ * string built a character at a time doesn't become a node per character.
+ *
+ * @author Aaron Faanes
+ * @see ScriptValue_String
+ */
+final class StringRope implements Serializable {
+	private static final long serialVersionUID = 6217830915541740823L;
+
+	/**
+	 * The longest text that is copied rather than referred to by a
+	 * concatenation.
+	 */
+	private static final int SHORT_LENGTH = 64;
+
+	static final StringRope EMPTY = new StringRope("");
+
+	private final StringRope left, right;
+	private final int length;
+	private volatile String flat;
+
+	StringRope(String text) {
+		this.left = null;
+		this.right = null;
+		this.length = text.length();
+		this.flat = text;
+	}
+
+	private StringRope(StringRope left, StringRope right) {
+		this.left = left;
+		this.right = right;
+		this.length = left.length + right.length;
+	}
+
+	/**
+	 * Returns the concatenation of the specified ropes.
+	 */
+	static StringRope concatenate(StringRope left, StringRope right) {
+		if (right.length == 0) {
+			return left;
+		}
+		if (left.length == 0) {
+			return right;
+		}
+		if (left.length + right.length < 0) {
+			throw new OutOfMemoryError("String length exceeds " + Integer.MAX_VALUE);
+		}
+		if (left.length + right.length <= SHORT_LENGTH) {
+			return new StringRope(left.toString().concat(right.toString()));
+		}
+		if (right.length <= SHORT_LENGTH && left.right != null && left.right.length + right.length <= SHORT_LENGTH) {
+			// Appends short pieces to the last leaf, so they share a node.
+			return new StringRope(left.left, new StringRope(left.right.toString().concat(right.toString())));
+		}
+		return new StringRope(left, right);
+	}
+
+	int length() {
+		return this.length;
+	}
+
+	/**
+	 * Returns the flat text of this rope. The text is assembled from the
+	 * rightmost leaf to the leftmost, so that a string built by appending
+	 * never needs more than a few pending nodes.
+	 */
+	@Override
+	public String toString() {
+		String text = this.flat;
+		if (text != null) {
+			return text;
+		}
+		char[] chars = new char[this.length];
+		int end = this.length;
+		Deque<StringRope> pending = new ArrayDeque<StringRope>();
+		pending.push(this);
+		while (!pending.isEmpty()) {
+			StringRope rope = pending.pop();
+			String piece = rope.flat;
+			if (piece != null) {
+				end -= piece.length();
+				piece.getChars(0, piece.length(), chars, end);
+			} else {
+				pending.push(rope.left);
+				pending.push(rope.right);
+			}
+		}
+		assert end == 0;
+		text = new String(chars);
+		this.flat = text;
+		return text;
+	}
+
+	/**
+	 * Serializes ropes as a single leaf, so that deep ropes don't exhaust
+	 * the stack.
+	 */
+	private Object writeReplace() {
+		if (this.left == null) {
+			return this;
+		}
+		return new StringRope(this.toString());
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.TimeSlicer;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptTemplate_Placeholder;
+
+/**
+ * Tests for {@link Scheduler}.
+ *
+ * @author Aaron Faanes
+ * @see Scheduler
+ */
+public class SchedulerTests {
+
+	@Test
+	public void eventsOfTheDefaultListenerShareAPartition() {
+		ScheduledEvent first = new ScheduledEvent(0, null, null, "first");
+		ScheduledEvent second = new ScheduledEvent(0, null, null, "second");
+		assertSame(Scheduler.getPartitionKey(first), Scheduler.getPartitionKey(second));
+	}
+
+	@Test
+	public void eventsWithListenersArePartitionedByConflictKey() {
+		ScriptTemplate_Abstract listener = new ScriptTemplate_Placeholder(null, "Listener");
+		ScheduledEvent first = new ScheduledEvent(0, null, listener, "first");
+		ScheduledEvent second = new ScheduledEvent(0, null, listener, "second");
+		ScheduledEvent defaulted = new ScheduledEvent(0, null, null, "first");
+		assertSame("first", Scheduler.getPartitionKey(first));
+		assertSame("second", Scheduler.getPartitionKey(second));
+		assertNotSame(Scheduler.getPartitionKey(first), Scheduler.getPartitionKey(defaulted));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void timeSlicersMustShareTheEnvironment() {
+		Scheduler scheduler = new Scheduler(new ScriptEnvironment());
+		TimeSlicer slicer = new TimeSlicer(new ScriptEnvironment(), 1, 100);
+		try {
+			scheduler.setTimeSlicer(slicer);
+		} finally {
+			slicer.shutdown();
+		}
+	}
+
+	@Test
+	public void restartedSchedulersWaitForNewEvents() {
+		Scheduler scheduler = new Scheduler(new ScriptEnvironment());
+		scheduler.tick(TimeUnit.SECONDS.toNanos(10));
+		scheduler.start();
+		scheduler.stop();
+		scheduler.schedule(5000, null, new ScriptTemplate_Placeholder(null, "Listener"));
+		scheduler.tick(TimeUnit.MILLISECONDS.toNanos(Scheduler.STEP));
+		assertEquals(1, scheduler.getPendingCount());
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * 
+ */
+package actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimingWheel}.
+ *
+ * @author Aaron Faanes
+ * @see TimingWheel
+ */
+public class TimingWheelTests {
+
+	/**
+	 * The span of the highest level of the wheel.
+	 */
+	private static final long SPAN = 1L << 36;
+
+	private ScheduledEvent add(TimingWheel wheel, long time) {
+		ScheduledEvent event = new ScheduledEvent(time, null, null);
+		wheel.add(event);
+		return event;
+	}
+
+	@Test
+	public void eventsComeDueInOrderOfDeadlineThenScheduling() {
+		TimingWheel wheel = new TimingWheel(0);
+		ScheduledEvent late = this.add(wheel, 5);
+		ScheduledEvent first = this.add(wheel, 3);
+		ScheduledEvent second = this.add(wheel, 3);
+		wheel.advance(4);
+		assertSame(first, wheel.poll());
+		assertSame(second, wheel.poll());
+		assertNull(wheel.poll());
+		wheel.advance(5);
+		assertSame(late, wheel.poll());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void eventsInHigherLevelsCascadeDown() {
+		TimingWheel wheel = new TimingWheel(0);
+		long time = (3L << 18) + (2L << 12) + (1L << 6) + 7;
+		ScheduledEvent event = this.add(wheel, time);
+		wheel.advance(time - 1);
+		assertNull(wheel.poll());
+		assertEquals(time - 1, wheel.getCurrentTime());
+		wheel.advance(time);
+		assertSame(event, wheel.poll());
+	}
+
+	@Test
+	public void overflowedEventsComeDueOnTime() {
+		TimingWheel wheel = new TimingWheel(0);
+		ScheduledEvent event = this.add(wheel, SPAN + 5);
+		wheel.advance(SPAN + 4);
+		assertNull(wheel.poll());
+		wheel.advance(SPAN + 5);
+		assertSame(event, wheel.poll());
+	}
+
+	@Test
+	public void overflowedEventsComeDueOnTimeFromAnyStart() {
+		long start = 3 * SPAN + 100;
+		TimingWheel wheel = new TimingWheel(start);
+		ScheduledEvent near = this.add(wheel, 4 * SPAN + 1);
+		ScheduledEvent far = this.add(wheel, 9 * SPAN + 2);
+		wheel.advance(4 * SPAN);
+		assertNull(wheel.poll());
+		wheel.advance(4 * SPAN + 1);
+		assertSame(near, wheel.poll());
+		wheel.advance(9 * SPAN + 1);
+		assertNull(wheel.poll());
+		wheel.advance(9 * SPAN + 2);
+		assertSame(far, wheel.poll());
+	}
+
+	@Test
+	public void pastEventsComeDueOnTheNextAdvance() {
+		TimingWheel wheel = new TimingWheel(100);
+		ScheduledEvent event = this.add(wheel, 50);
+		assertNull(wheel.poll());
+		wheel.advance(100);
+		assertSame(event, wheel.poll());
+	}
+
+	@Test
+	public void removedEventsNeverComeDue() {
+		TimingWheel wheel = new TimingWheel(0);
+		ScheduledEvent removed = this.add(wheel, 10);
+		ScheduledEvent kept = this.add(wheel, 10);
+		assertTrue(wheel.remove(removed));
+		assertFalse(wheel.remove(removed));
+		wheel.advance(10);
+		assertSame(kept, wheel.poll());
+		assertNull(wheel.poll());
+	}
+
+	@Test
+	public void randomEventsComeDueExactlyWhenTheirDeadlinePasses() {
+		Random random = new Random(7);
+		TimingWheel wheel = new TimingWheel(0);
+		List<ScheduledEvent> pending = new ArrayList<ScheduledEvent>();
+		long time = 0;
+		for (int round = 0; round < 200; round++) {
+			for (int i = 0; i < 20; i++) {
+				// Deadlines fall in every level, and past the highest one
+				long delay = (long) Math.pow(2, random.nextDouble() * 40);
+				pending.add(this.add(wheel, time + delay));
+			}
+			time += (long) Math.pow(2, random.nextDouble() * 38);
+			wheel.advance(time);
+			List<ScheduledEvent> expected = new ArrayList<ScheduledEvent>();
+			for (ScheduledEvent event : pending) {
+				if (event.getTime() <= time) {
+					expected.add(event);
+				}
+			}
+			Collections.sort(expected);
+			pending.removeAll(expected);
+			for (ScheduledEvent event : expected) {
+				assertSame(event, wheel.poll());
+			}
+			assertNull(wheel.poll());
+			assertEquals(pending.size(), wheel.size());
+		}
+	}
+
+	@Test
+	public void resetWheelsWaitForNewEvents() {
+		TimingWheel wheel = new TimingWheel(0);
+		wheel.advance(10000);
+		wheel.reset(0);
+		assertEquals(0, wheel.getCurrentTime());
+		ScheduledEvent event = this.add(wheel, 5000);
+		wheel.advance(10);
+		assertNull(wheel.poll());
+		wheel.advance(5000);
+		assertSame(event, wheel.poll());
+	}
+
+	@Test
+	public void pendingEventsKeepTheirTimesOnReset() {
+		TimingWheel wheel = new TimingWheel(0);
+		ScheduledEvent near = this.add(wheel, 3);
+		ScheduledEvent far = this.add(wheel, 20000);
+		wheel.advance(10000);
+		wheel.reset(0);
+		assertEquals(2, wheel.size());
+		assertNull(wheel.poll());
+		wheel.advance(3);
+		assertSame(near, wheel.poll());
+		wheel.advance(19999);
+		assertNull(wheel.poll());
+		wheel.advance(20000);
+		assertSame(far, wheel.poll());
+		assertEquals(0, wheel.size());
+	}
+}
@@ -0,0 +1,145 @@
+package geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import geom.points.EuclideanPoint;
+import geom.points.Point;
+
+/**
+ * Tests that {@link EdgeIndex} finds the same neighbors as comparing every
+ * pair of regions, and that it only finds again the neighbors of regions that
+ * have changed.
+ *
+ * @author Aaron Faanes
+ * @see EdgeIndex
+ */
+public class EdgeIndexTests {
+
+	/**
+	 * Returns a square of the specified size, rotated by the specified angle
+	 * around the origin.
+	 */
+	private static DiscreteRegion square(double x, double y, double size, double angle) {
+		double[][] corners = { { x, y }, { x + size, y }, { x + size, y + size }, { x, y + size } };
+		DiscreteRegion region = new DiscreteRegion();
+		for (double[] corner : corners) {
+			double cos = Math.cos(angle);
+			double sin = Math.sin(angle);
+			region.addPoint(new EuclideanPoint(corner[0] * cos - corner[1] * sin, corner[0] * sin + corner[1] * cos, 0));
+		}
+		return region;
+	}
+
+	/**
+	 * Returns a grid of squares, with about a fifth of its squares missing.
+	 */
+	private static List<DiscreteRegion> grid(int size, double angle) {
+		Random random = new Random(7);
+		List<DiscreteRegion> regions = new ArrayList<DiscreteRegion>();
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (random.nextInt(5) != 0) {
+					regions.add(square(300 + i * 7, -500 + j * 7, 7, angle));
+				}
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * Checks the neighbors of each region against those found by comparing
+	 * every pair of regions.
+	 */
+	private static void assertPairwiseNeighbors(List<DiscreteRegion> regions) {
+		Map<DiscreteRegion, Set<DiscreteRegion>> indexed = new IdentityHashMap<DiscreteRegion, Set<DiscreteRegion>>();
+		for (DiscreteRegion region : regions) {
+			indexed.put(region, region.getNeighbors());
+		}
+		for (DiscreteRegion region : regions) {
+			region.resetNeighbors();
+		}
+		for (DiscreteRegion region : regions) {
+			region.addRegionNeighbors(regions);
+		}
+		for (DiscreteRegion region : regions) {
+			assertEquals(region.getNeighbors(), indexed.get(region));
+		}
+	}
+
+	@Test
+	public void adjacentSquaresAreNeighbors() {
+		DiscreteRegion left = square(0, 0, 10, 0);
+		DiscreteRegion right = square(10, 0, 10, 0);
+		DiscreteRegion apart = square(30, 0, 10, 0);
+		EdgeIndex index = new EdgeIndex();
+		index.updateNeighbors(Arrays.asList(left, right, apart));
+		assertTrue(left.getNeighbors().contains(right));
+		assertTrue(right.getNeighbors().contains(left));
+		assertFalse(left.getNeighbors().contains(apart));
+		assertTrue(apart.getNeighbors().isEmpty());
+	}
+
+	@Test
+	public void everyEdgeIsIndexed() {
+		EdgeIndex index = new EdgeIndex();
+		index.updateNeighbors(Arrays.asList(square(0, 0, 10, 0), square(10, 0, 10, 0)));
+		assertEquals(8, index.size());
+	}
+
+	@Test
+	public void neighborsMatchThePairwiseTest() {
+		for (double angle : new double[] { 0, 1e-9, -3e-7, Math.PI / 2, 0.5, 2.5, Math.PI - 1e-9 }) {
+			List<DiscreteRegion> regions = grid(12, angle);
+			new EdgeIndex().updateNeighbors(regions);
+			assertPairwiseNeighbors(regions);
+		}
+	}
+
+	@Test
+	public void unchangedRegionsAreNotFoundAgain() {
+		List<DiscreteRegion> regions = grid(8, 0);
+		EdgeIndex index = new EdgeIndex();
+		assertEquals(regions.size(), index.updateNeighbors(regions));
+		assertEquals(0, index.updateNeighbors(regions));
+	}
+
+	@Test
+	public void removedRegionsAreNoLongerNeighbors() {
+		List<DiscreteRegion> regions = grid(8, 0.5);
+		EdgeIndex index = new EdgeIndex();
+		index.updateNeighbors(regions);
+		List<DiscreteRegion> kept = new ArrayList<DiscreteRegion>(regions.subList(0, regions.size() - 10));
+		int found = index.updateNeighbors(kept);
+		assertTrue(found > 0);
+		assertTrue(found < kept.size());
+		assertPairwiseNeighbors(kept);
+	}
+
+	@Test
+	public void movedRegionsAreFoundAgain() {
+		DiscreteRegion left = square(0, 0, 10, 0);
+		DiscreteRegion right = square(10, 0, 10, 0);
+		EdgeIndex index = new EdgeIndex();
+		List<DiscreteRegion> regions = Arrays.asList(left, right);
+		index.updateNeighbors(regions);
+		assertTrue(left.getNeighbors().contains(right));
+		for (Point point : right.getPoints()) {
+			point.setX(point.getX() + 5);
+		}
+		assertEquals(2, index.updateNeighbors(regions));
+		assertTrue(left.getNeighbors().isEmpty());
+		assertTrue(right.getNeighbors().isEmpty());
+	}
+}
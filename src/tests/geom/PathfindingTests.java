@@ -0,0 +1,252 @@
+package geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import asset.Asset;
+import asset.Scenario;
+import asset.Terrestrial;
+import geom.points.EuclideanPoint;
+import geom.points.Point;
+import geom.points.PointPath;
+import geom.points.Points;
+import script.ScriptEnvironment;
+import script.exceptions.UnexpectedTypeException;
+import script.parsing.Compilation;
+import script.values.ScriptTemplate_Abstract;
+
+/**
+ * Tests that {@link Terrestrial#getPath} finds the cheapest route over small
+ * grids of regions. Each test gives the movement cost of a region by the
+ * position of its center, both to the script evaluator and to the test, so
+ * the test can price the route it's given.
+ *
+ * @author Aaron Faanes
+ * @see Terrestrial
+ */
+public class PathfindingTests {
+
+	/**
+	 * The movement cost of a region, given its center.
+	 */
+	private interface Costs {
+		double getCost(double x, double y);
+	}
+
+	private ScriptEnvironment environment;
+	private ScriptTemplate_Abstract evaluator;
+	private Terrestrial terrestrial;
+
+	/**
+	 * Compiles an evaluator whose {@code evaluateMovementCost} function has the
+	 * specified body, with the center of the region as {@code x} and
+	 * {@code y}.
+	 */
+	private void compile(String body) throws Exception {
+		this.compile(body, "");
+	}
+
+	/**
+	 * Compiles an evaluator as above, with the specified extra functions.
+	 */
+	private void compile(String body, String functions) throws Exception {
+		this.environment = new ScriptEnvironment();
+		Compilation compilation = new Compilation(this.environment);
+		String source = "class Costs {\n"
+				+ "\tpublic static double evaluateMovementCost(DiscreteRegion region, Asset asset) {\n"
+				+ "\t\tPoint center = region.getCenter();\n"
+				+ "\t\tdouble x = center.getX();\n"
+				+ "\t\tdouble y = center.getY();\n"
+				+ body + "\n\t}\n" + functions + "}\n";
+		assertEquals(Collections.emptyList(), compilation.preparseFile("Costs.riff", new BufferedReader(new StringReader(source))));
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		this.environment.clearStacks();
+		for (ScriptTemplate_Abstract template : this.environment.getTemplates().values()) {
+			template.initialize();
+		}
+		this.evaluator = this.environment.getTemplate("Costs");
+		this.terrestrial = new Terrestrial(1);
+	}
+
+	private void addRectangle(double x, double y, double width, double height) {
+		DiscreteRegion region = new DiscreteRegion();
+		region.addPoint(new EuclideanPoint(x, y, 0));
+		region.addPoint(new EuclideanPoint(x + width, y, 0));
+		region.addPoint(new EuclideanPoint(x + width, y + height, 0));
+		region.addPoint(new EuclideanPoint(x, y + height, 0));
+		this.terrestrial.add(region);
+	}
+
+	/**
+	 * Adds a grid of three columns of ten-unit wide regions, with a row for
+	 * each of the specified heights.
+	 */
+	private void addGrid(double... heights) {
+		double y = 0;
+		for (double height : heights) {
+			for (int column = 0; column < 3; column++) {
+				this.addRectangle(column * 10, y, 10, height);
+			}
+			y += height;
+		}
+	}
+
+	private PointPath getPath(double startX, double startY, double destinationX, double destinationY) throws Exception {
+		this.terrestrial.awaitRegions();
+		Scenario scenario = new Scenario(this.environment, this.terrestrial);
+		return this.terrestrial.getPath(this.environment, scenario, this.evaluator, new Asset(), new EuclideanPoint(startX, startY, 0), new EuclideanPoint(destinationX, destinationY, 0));
+	}
+
+	/**
+	 * Returns the cost of following the specified path, pricing each of its
+	 * legs by the region that contains the leg's midpoint. A leg along the edge
+	 * between two regions may travel within either, so it's priced by the
+	 * cheaper of them.
+	 */
+	private double getCost(PointPath path, Costs costs) {
+		List<Point> points = path.getPoints();
+		double total = 0;
+		for (int i = 1; i < points.size(); i++) {
+			Point from = points.get(i - 1);
+			Point to = points.get(i);
+			Point middle = new EuclideanPoint((from.getX() + to.getX()) / 2, (from.getY() + to.getY()) / 2, 0);
+			double cost = Double.POSITIVE_INFINITY;
+			for (DiscreteRegion region : this.terrestrial.getTree().getRegions(middle)) {
+				Point center = region.getCenter();
+				cost = Math.min(cost, costs.getCost(center.getX(), center.getY()));
+			}
+			total += Points.getDistance(from, to) * cost;
+		}
+		return total;
+	}
+
+	private double getLength(PointPath path) {
+		List<Point> points = path.getPoints();
+		double length = 0;
+		for (int i = 1; i < points.size(); i++) {
+			length += Points.getDistance(points.get(i - 1), points.get(i));
+		}
+		return length;
+	}
+
+	@Test
+	public void uniformCostsGiveAStraightRoute() throws Exception {
+		this.compile("\t\treturn 1.0;");
+		this.addGrid(10, 10, 10);
+		PointPath path = this.getPath(5, 5, 25, 25);
+		double cost = this.getCost(path, new Costs() {
+			@Override
+			public double getCost(double x, double y) {
+				return 1.0;
+			}
+		});
+		assertEquals(20 * Math.sqrt(2), cost, 1e-9);
+	}
+
+	@Test
+	public void routesGoAroundExpensiveRegions() throws Exception {
+		this.compile("\t\tif (x > 10) {\n\t\t\tif (x < 20) {\n\t\t\t\tif (y < 20) {\n\t\t\t\t\treturn 100.0;\n\t\t\t\t}\n\t\t\t}\n\t\t}\n\t\treturn 1.0;");
+		this.addGrid(10, 10, 10);
+		PointPath path = this.getPath(5, 5, 25, 5);
+		double cost = this.getCost(path, new Costs() {
+			@Override
+			public double getCost(double x, double y) {
+				if (x > 10 && x < 20 && y < 20) {
+					return 100.0;
+				}
+				return 1.0;
+			}
+		});
+		// No leg of the route crosses the wall, so it costs no more than its
+		// length.
+		assertEquals(this.getLength(path), cost, 1e-9);
+	}
+
+	/**
+	 * The start, the destination, and the thin row between them and the
+	 * cheap top row all cost the same, so the cheap row is unknown until the
+	 * thin row has been expanded. The route through the top row is still the
+	 * cheapest.
+	 */
+	@Test
+	public void cheapRegionsBeyondTheFrontierAreStillFound() throws Exception {
+		this.compile("\t\tif (y > 11) {\n\t\t\treturn 0.01;\n\t\t}\n\t\treturn 10.0;");
+		this.addGrid(10, 1, 10);
+		PointPath path = this.getPath(5, 5, 25, 5);
+		double cost = this.getCost(path, new Costs() {
+			@Override
+			public double getCost(double x, double y) {
+				if (y > 11) {
+					return 0.01;
+				}
+				return 10.0;
+			}
+		});
+		// The direct route costs 200, and a route through the top row about
+		// 160.
+		assertTrue("Route costs " + cost, cost < 170);
+	}
+
+	@Test
+	public void negativeMovementCostsAreRejected() throws Exception {
+		this.compile("\t\treturn -1.0;");
+		this.addGrid(10);
+		try {
+			this.getPath(5, 5, 25, 5);
+			fail("A negative movement cost must be rejected");
+		} catch (UnexpectedTypeException ex) {
+			assertEquals("A non-negative movement cost", ex.getExpectedType());
+		}
+	}
+
+	@Test
+	public void declaredMinimumCostsGiveTheSameRoute() throws Exception {
+		this.compile("\t\tif (y > 11) {\n\t\t\treturn 0.01;\n\t\t}\n\t\treturn 10.0;",
+				"\tpublic static double getMinimumMovementCost(Asset asset) {\n\t\treturn 0.01;\n\t}\n");
+		this.addGrid(10, 1, 10);
+		PointPath path = this.getPath(5, 5, 25, 5);
+		double cost = this.getCost(path, new Costs() {
+			@Override
+			public double getCost(double x, double y) {
+				if (y > 11) {
+					return 0.01;
+				}
+				return 10.0;
+			}
+		});
+		assertTrue("Route costs " + cost, cost < 170);
+	}
+
+	@Test
+	public void costsBelowTheDeclaredMinimumAreRejected() throws Exception {
+		this.compile("\t\treturn 1.0;", "\tpublic static double getMinimumMovementCost(Asset asset) {\n\t\treturn 2.0;\n\t}\n");
+		this.addGrid(10);
+		try {
+			this.getPath(5, 5, 25, 5);
+			fail("A cost below the declared minimum must be rejected");
+		} catch (UnexpectedTypeException ex) {
+			assertTrue(ex.getExpectedType().startsWith("A movement cost of at least"));
+		}
+	}
+
+	/**
+	 * A region that no route can reach is never evaluated, so its invalid
+	 * cost goes unnoticed.
+	 */
+	@Test
+	public void unreachedRegionsAreNotEvaluated() throws Exception {
+		this.compile("\t\tif (x > 100) {\n\t\t\treturn -1.0;\n\t\t}\n\t\treturn 1.0;");
+		this.addGrid(10);
+		this.addRectangle(200, 0, 10, 10);
+		PointPath path = this.getPath(5, 5, 25, 5);
+		assertEquals(20, this.getLength(path), 1e-9);
+	}
+}
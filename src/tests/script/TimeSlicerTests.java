@@ -0,0 +1,132 @@
+/**
+ *
+ */
+package script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import script.parsing.Compilation;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Tests that {@link TimeSlicer} lets short calls run between the slices of a
+ * long one, and that it keeps no more threads than it was given.
+ *
+ * @author Aaron Faanes
+ * @see TimeSlicer
+ */
+public class TimeSlicerTests {
+
+	private static final int SPINS = 1000000;
+
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private ScriptEnvironment environment;
+	private ScriptTemplate_Abstract template;
+	private TimeSlicer slicer;
+
+	private void compile(int permits, int threads, int slice) throws Exception {
+		this.environment = new ScriptEnvironment();
+		Compilation compilation = new Compilation(this.environment);
+		String source = "class Test {\n"
+				+ "\tpublic static int spin(int n) {\n"
+				+ "\t\tint total = 0;\n"
+				+ "\t\tfor (int i = 0; i < n; i++) {\n\t\t\ttotal = total + 1;\n\t\t}\n"
+				+ "\t\treturn total;\n"
+				+ "\t}\n"
+				+ "\tpublic static int quick() {\n\t\treturn 1;\n\t}\n"
+				+ "}\n";
+		assertEquals(Collections.emptyList(), compilation.preparseFile("Test.riff", new BufferedReader(new StringReader(source))));
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		this.environment.clearStacks();
+		this.template = this.environment.getTemplate("Test");
+		this.template.initialize();
+		this.slicer = new TimeSlicer(this.environment, permits, threads, slice, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				TimeSlicerTests.this.threadCount.incrementAndGet();
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@After
+	public void shutdown() {
+		if (this.slicer != null) {
+			this.slicer.shutdown();
+		}
+	}
+
+	private Future<ScriptValue> submit(String name, int... arguments) {
+		List<ScriptValue> params = new ArrayList<ScriptValue>();
+		for (int argument : arguments) {
+			params.add(new ScriptValue_Numeric(this.environment, argument));
+		}
+		return this.slicer.submit(this.template, name, params);
+	}
+
+	private static int intValue(Future<ScriptValue> future) throws Exception {
+		return ((ScriptValue_Numeric) future.get(30, TimeUnit.SECONDS).getValue()).intValue();
+	}
+
+	@Test
+	public void shortCallsRunBetweenTheSlicesOfALongCall() throws Exception {
+		this.compile(1, 2, 100);
+		Future<ScriptValue> spin = this.submit("spin", SPINS);
+		// Wait until the long call holds the only permit
+		while (!this.environment.isTimeSliced()) {
+			Thread.yield();
+		}
+		assertEquals(1, intValue(this.submit("quick")));
+		assertFalse("The long call must still be running", spin.isDone());
+		assertEquals(SPINS, intValue(spin));
+		assertTrue(this.slicer.getYieldCount() > 0);
+		assertFalse(this.environment.isTimeSliced());
+	}
+
+	@Test
+	public void callsWaitForAThread() throws Exception {
+		this.compile(1, 2, 100);
+		List<Future<ScriptValue>> calls = new ArrayList<Future<ScriptValue>>();
+		for (int i = 0; i < 20; i++) {
+			calls.add(this.submit("quick"));
+		}
+		for (Future<ScriptValue> call : calls) {
+			assertEquals(1, intValue(call));
+		}
+		assertTrue("Created " + this.threadCount.get() + " threads", this.threadCount.get() <= 2);
+	}
+
+	@Test
+	public void failedCallsEndTheirSlices() throws Exception {
+		this.compile(1, 1, 100);
+		try {
+			this.submit("missing").get(30, TimeUnit.SECONDS);
+			fail("A missing function must be reported");
+		} catch (ExecutionException ex) {
+			// Expected
+		}
+		assertFalse(this.environment.isTimeSliced());
+		assertEquals(1, intValue(this.submit("quick")));
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package script.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.exceptions.DivisionByZeroScriptException;
+import script.parsing.Compilation;
+import script.values.RiffScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Tests for {@link BytecodeCompiler}. Each test compiles a {@code Test}
+ * template, and calls its functions well past
+ * {@link BytecodeCompiler#INVOCATION_THRESHOLD}, so that every result is
+ * checked both before and after the function is translated.
+ *
+ * @author Aaron Faanes
+ * @see BytecodeCompiler
+ */
+public class BytecodeCompilerTests {
+
+	private ScriptEnvironment environment;
+	private ScriptTemplate_Abstract template;
+
+	private void compile(String body) throws Exception {
+		this.environment = new ScriptEnvironment();
+		Compilation compilation = new Compilation(this.environment);
+		String source = "class Test {\n" + body + "\n}\n";
+		assertEquals(Collections.emptyList(), compilation.preparseFile("Test.riff", new BufferedReader(new StringReader(source))));
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		this.environment.clearStacks();
+		this.template = this.environment.getTemplate("Test");
+		this.template.initialize();
+	}
+
+	private ScriptValue call(String name, int... arguments) throws Exception {
+		List<ScriptValue> params = new ArrayList<ScriptValue>();
+		for (int argument : arguments) {
+			params.add(new ScriptValue_Numeric(this.environment, argument));
+		}
+		return ScriptExecutable_CallFunction.callFunction(this.environment, null, this.template, name, params);
+	}
+
+	private int callInt(String name, int... arguments) throws Exception {
+		return ((ScriptValue_Numeric) this.call(name, arguments).getValue()).intValue();
+	}
+
+	/**
+	 * Translates the specified function as it would be when called, with its
+	 * template as the current object.
+	 */
+	private CompiledStatement translate(String name, int parameters) throws Exception {
+		List<ScriptValue> params = new ArrayList<ScriptValue>();
+		for (int i = 0; i < parameters; i++) {
+			params.add(new ScriptValue_Numeric(this.environment, 0));
+		}
+		RiffScriptFunction function = (RiffScriptFunction) this.template.getFunction(name, params);
+		this.environment.advanceStack(this.template, function);
+		try {
+			return BytecodeCompiler.compile(this.environment, function);
+		} finally {
+			this.environment.retreatStack();
+		}
+	}
+
+	private static int fib(int n) {
+		return n < 2 ? n : fib(n - 1) + fib(n - 2);
+	}
+
+	@Test
+	public void intFunctionsAreTranslated() throws Exception {
+		this.compile("\tpublic static int twice(int n) {\n\t\treturn n * 2;\n\t}");
+		assertNotNull(this.translate("twice", 1));
+	}
+
+	@Test
+	public void functionsOfOtherTypesAreNotTranslated() throws Exception {
+		this.compile("\tpublic static double half(int n) {\n\t\tdouble h = n;\n\t\treturn h / 2;\n\t}");
+		assertNull(this.translate("half", 1));
+		for (int i = 0; i < 2 * BytecodeCompiler.INVOCATION_THRESHOLD; i++) {
+			assertEquals(i / 2.0, ((ScriptValue_Numeric) this.call("half", i).getValue()).doubleValue(), 0);
+		}
+	}
+
+	@Test
+	public void recursiveResultsAreUnchangedByTranslation() throws Exception {
+		this.compile("\tpublic static int fib(int n) {\n"
+				+ "\t\tif (n < 2) {\n\t\t\treturn n;\n\t\t}\n"
+				+ "\t\tint a = fib(n - 1);\n"
+				+ "\t\tint b = fib(n - 2);\n"
+				+ "\t\treturn a + b;\n"
+				+ "\t}");
+		// fib(15) alone makes about two thousand calls, so the function is
+		// translated partway through.
+		for (int n = 0; n <= 20; n++) {
+			assertEquals(fib(n), this.callInt("fib", n));
+		}
+	}
+
+	@Test
+	public void loopsAndBranchesAreUnchangedByTranslation() throws Exception {
+		this.compile("\tpublic static int sum(int n) {\n"
+				+ "\t\tint total = 0;\n"
+				+ "\t\tfor (int i = 0; i < n; i++) {\n"
+				+ "\t\t\tif ((i % 3) == 0) {\n\t\t\t\ttotal = total - i;\n\t\t\t} else {\n\t\t\t\ttotal = total + i;\n\t\t\t}\n"
+				+ "\t\t}\n"
+				+ "\t\treturn total;\n"
+				+ "\t}");
+		for (int n = 0; n < 2 * BytecodeCompiler.INVOCATION_THRESHOLD; n++) {
+			int expected = 0;
+			for (int i = 0; i < n; i++) {
+				expected += i % 3 == 0 ? -i : i;
+			}
+			assertEquals(expected, this.callInt("sum", n));
+		}
+	}
+
+	@Test
+	public void divisionByZeroIsReportedOnceTranslated() throws Exception {
+		this.compile("\tpublic static int divide(int a, int b) {\n\t\treturn a / b;\n\t}");
+		for (int i = 0; i < 2 * BytecodeCompiler.INVOCATION_THRESHOLD; i++) {
+			assertEquals(i / 7, this.callInt("divide", i, 7));
+		}
+		try {
+			this.call("divide", 1, 0);
+			fail("Division by zero must be reported");
+		} catch (DivisionByZeroScriptException ex) {
+			assertTrue(ex.getName().length() > 0);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package script.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import script.values.ScriptValue;
+
+/**
+ * Tests for {@link CallSiteCache}.
+ *
+ * @author Aaron Faanes
+ * @see CallSiteCache
+ */
+public class CallSiteCacheTests {
+
+	private final List<ScriptValue> noArguments = Collections.emptyList();
+
+	@Test
+	public void aCachedResolutionIsFoundInItsGeneration() {
+		CallSiteCache cache = new CallSiteCache();
+		cache.add(1, null, this.noArguments, null, null);
+		assertNotNull(cache.lookup(1, null, this.noArguments));
+		assertNull(cache.lookup(2, null, this.noArguments));
+	}
+
+	@Test
+	public void aNewGenerationDiscardsOldEntries() {
+		CallSiteCache cache = new CallSiteCache();
+		cache.add(1, null, this.noArguments, null, null);
+		cache.add(2, null, Collections.<ScriptValue> singletonList(null), null, null);
+		assertEquals(1, cache.size());
+		assertNull(cache.lookup(2, null, this.noArguments));
+	}
+
+	@Test
+	public void aResolutionFromAnOlderGenerationIsIgnored() {
+		CallSiteCache cache = new CallSiteCache();
+		cache.add(2, null, this.noArguments, null, null);
+		cache.add(1, null, Collections.<ScriptValue> singletonList(null), null, null);
+		assertEquals(1, cache.size());
+		assertNotNull(cache.lookup(2, null, this.noArguments));
+		assertNull(cache.lookup(1, null, Collections.<ScriptValue> singletonList(null)));
+	}
+
+	@Test
+	public void callSitesBecomeMegamorphicPastTheLimit() {
+		CallSiteCache cache = new CallSiteCache();
+		List<ScriptValue> arguments = this.noArguments;
+		for (int i = 0; i < CallSiteCache.POLYMORPHIC_LIMIT; i++) {
+			arguments = new ArrayList<ScriptValue>(arguments);
+			arguments.add(null);
+			cache.add(1, null, arguments, null, null);
+		}
+		assertFalse(cache.isMegamorphic());
+		cache.add(1, null, this.noArguments, null, null);
+		assertTrue(cache.isMegamorphic());
+		assertEquals(CallSiteCache.POLYMORPHIC_LIMIT, cache.size());
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package script.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.parsing.Compilation;
+import script.parsing.ScriptOperatorType;
+import script.values.RiffScriptFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Tests for {@link ScriptOptimizer}. Each test compiles a function, checks
+ * the optimized form of its body, and checks that the optimized body still
+ * returns what the original would have.
+ *
+ * @author Aaron Faanes
+ * @see ScriptOptimizer
+ */
+public class ScriptOptimizerTests {
+
+	private ScriptEnvironment environment;
+
+	/**
+	 * Compiles a {@code Test} template whose {@code main} function has the
+	 * specified body, and returns the optimized expressions of that function.
+	 */
+	private List<ScriptExecutable> compile(String body) throws Exception {
+		this.environment = new ScriptEnvironment();
+		Compilation compilation = new Compilation(this.environment);
+		String source = "class Test {\n\tpublic static int main() {\n" + body + "\n\t}\n}\n";
+		assertEquals(Collections.emptyList(), compilation.preparseFile("Test.riff", new BufferedReader(new StringReader(source))));
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		ScriptTemplate_Abstract template = this.environment.getTemplate("Test");
+		return ((RiffScriptFunction) template.getFunction("main", new ArrayList<ScriptValue>())).getExpressions();
+	}
+
+	private long run() throws Exception {
+		this.environment.clearStacks();
+		ScriptTemplate_Abstract template = this.environment.getTemplate("Test");
+		template.initialize();
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(this.environment, null, template, "main", new ArrayList<ScriptValue>());
+		return ((ScriptValue_Numeric) value.getValue()).longValue();
+	}
+
+	private ScriptValue getReturnedValue(List<ScriptExecutable> expressions) {
+		ScriptExecutable last = expressions.get(expressions.size() - 1);
+		assertTrue("Not a return: " + last, last instanceof ScriptExecutable_ReturnValue);
+		return ((ScriptExecutable_ReturnValue) last).getReturnedValue();
+	}
+
+	@Test
+	public void literalArithmeticIsFolded() throws Exception {
+		ScriptValue returned = this.getReturnedValue(this.compile("return 6 * 7;"));
+		assertTrue(returned instanceof ScriptValue_Numeric);
+		assertEquals(42, ((ScriptValue_Numeric) returned).longValue());
+		assertEquals(42, this.run());
+	}
+
+	@Test
+	public void aFailingFoldIsLeftForExecution() throws Exception {
+		ScriptValue returned = this.getReturnedValue(this.compile("return 1 / 0;"));
+		assertTrue(returned instanceof ScriptExecutable_EvaluateMathExpression);
+	}
+
+	@Test
+	public void anUntakenBranchIsRemoved() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 1;\nif (2 < 1) {\nx = 5;\n}\nreturn x;");
+		assertEquals(2, expressions.size());
+		assertEquals(1, this.run());
+	}
+
+	@Test
+	public void anAlwaysTakenBranchIsInlined() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 1;\nif (1 < 2) {\nx = 5;\n}\nreturn x;");
+		assertEquals(3, expressions.size());
+		assertTrue(expressions.get(1) instanceof ScriptExecutable_AssignValue);
+		assertEquals(5, this.run());
+	}
+
+	@Test
+	public void statementsAfterAReturnAreRemoved() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nreturn x;\nx = 4;");
+		assertEquals(2, expressions.size());
+		assertEquals(3, this.run());
+	}
+
+	@Test
+	public void aStoreThatIsOverwrittenIsRemoved() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nx = 4;\nreturn x;");
+		assertEquals(3, expressions.size());
+		assertTrue(expressions.get(0) instanceof ScriptExecutable_CreateVariable);
+		assertEquals(4, this.run());
+	}
+
+	@Test
+	public void aStoreThatIsReadIsKept() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nx = x * 2;\nreturn x;");
+		assertTrue(expressions.get(0) instanceof ScriptExecutable_AssignValue);
+		assertEquals(6, this.run());
+	}
+
+	@Test
+	public void addingOneBecomesAnIncrement() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nx = x + 1;\nreturn x;");
+		ScriptExecutable_AutoMathematicator increment = (ScriptExecutable_AutoMathematicator) expressions.get(1);
+		assertEquals(ScriptOperatorType.INCREMENT, increment.getOperator());
+		assertEquals(4, this.run());
+	}
+
+	@Test
+	public void subtractingOneBecomesADecrement() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nx = x - 1;\nreturn x;");
+		ScriptExecutable_AutoMathematicator decrement = (ScriptExecutable_AutoMathematicator) expressions.get(1);
+		assertEquals(ScriptOperatorType.DECREMENT, decrement.getOperator());
+		assertEquals(2, this.run());
+	}
+
+	@Test
+	public void compoundAssignmentsOfOneBecomeIncrements() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("int x = 3;\nx += 1;\nx -= 1;\nx -= 1;\nreturn x;");
+		assertEquals(ScriptOperatorType.INCREMENT, ((ScriptExecutable_AutoMathematicator) expressions.get(1)).getOperator());
+		assertEquals(ScriptOperatorType.DECREMENT, ((ScriptExecutable_AutoMathematicator) expressions.get(2)).getOperator());
+		assertEquals(2, this.run());
+	}
+
+	@Test
+	public void shortLocalsKeepTheirAssignments() throws Exception {
+		List<ScriptExecutable> expressions = this.compile("short x = 3;\nx = x - 1;\nreturn x;");
+		assertTrue(expressions.get(1) instanceof ScriptExecutable_AssignValue);
+		assertEquals(2, this.run());
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package script.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Tests that {@link CompilationCache} recompiles exactly the files that
+ * changed, and those that refer to templates of the files that changed.
+ *
+ * @author Aaron Faanes
+ * @see CompilationCache
+ */
+public class CompilationCacheTests {
+
+	private final CompilationCache cache = new CompilationCache(new ScriptEnvironment());
+
+	/**
+	 * Returns a program where {@code Test} uses {@code Counter}, and
+	 * {@code Other} uses neither.
+	 */
+	private Map<String, String> getSources(int increment, int other) {
+		Map<String, String> sources = new LinkedHashMap<String, String>();
+		sources.put("Counter.riff", "class Counter {\n"
+				+ "\tprivate int count;\n"
+				+ "\tpublic Counter() {\n\t\tcount = 0;\n\t}\n"
+				+ "\tpublic void add() {\n\t\tcount += " + increment + ";\n\t}\n"
+				+ "\tpublic int get() {\n\t\treturn count;\n\t}\n"
+				+ "}\n");
+		sources.put("Test.riff", "class Test {\n"
+				+ "\tpublic static int main() {\n"
+				+ "\t\tCounter c = new Counter();\n"
+				+ "\t\tfor (int i = 0; i < 10; i++) {\n\t\t\tc.add();\n\t\t}\n"
+				+ "\t\treturn c.get();\n"
+				+ "\t}\n"
+				+ "}\n");
+		sources.put("Other.riff", "class Other {\n"
+				+ "\tpublic static int main() {\n\t\treturn " + other + ";\n\t}\n"
+				+ "}\n");
+		return sources;
+	}
+
+	/**
+	 * Compiles the files that the cache says must be compiled, and returns
+	 * their names.
+	 */
+	private Set<String> compile(Map<String, String> sources) {
+		Compilation compilation = new Compilation(this.cache.getEnvironment());
+		Set<String> compiled = this.cache.update(sources);
+		Map<String, String> changed = new LinkedHashMap<String, String>();
+		for (String filename : compiled) {
+			changed.put(filename, sources.get(filename));
+		}
+		for (List<Exception> exceptions : compilation.preparseFiles(changed).values()) {
+			assertEquals(Collections.emptyList(), exceptions);
+		}
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		this.cache.finish(compilation, true);
+		return compiled;
+	}
+
+	private int run(String name) throws ScriptException {
+		ScriptEnvironment env = this.cache.getEnvironment();
+		env.clearStacks();
+		ScriptTemplate_Abstract template = env.getTemplate(name);
+		template.initialize();
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(env, null, template, "main", new ArrayList<ScriptValue>());
+		return ((ScriptValue_Numeric) value.getValue()).getNumericValue().intValue();
+	}
+
+	private static Set<String> files(String... names) {
+		return new LinkedHashSet<String>(Arrays.asList(names));
+	}
+
+	@Test
+	public void everyFileIsCompiledAtFirst() throws Exception {
+		Map<String, String> sources = this.getSources(2, 5);
+		assertEquals(sources.keySet(), this.compile(sources));
+		assertEquals(20, this.run("Test"));
+		assertEquals(5, this.run("Other"));
+	}
+
+	@Test
+	public void unchangedFilesAreNotCompiledAgain() throws Exception {
+		this.compile(this.getSources(2, 5));
+		ScriptTemplate_Abstract counter = this.cache.getEnvironment().getTemplate("Counter");
+		assertEquals(Collections.emptySet(), this.compile(this.getSources(2, 5)));
+		assertSame(counter, this.cache.getEnvironment().getTemplate("Counter"));
+		assertEquals(20, this.run("Test"));
+	}
+
+	@Test
+	public void aChangedFileIsCompiledAgain() throws Exception {
+		this.compile(this.getSources(2, 5));
+		ScriptTemplate_Abstract counter = this.cache.getEnvironment().getTemplate("Counter");
+		assertEquals(files("Other.riff"), this.compile(this.getSources(2, 6)));
+		assertSame(counter, this.cache.getEnvironment().getTemplate("Counter"));
+		assertEquals(6, this.run("Other"));
+		assertEquals(20, this.run("Test"));
+	}
+
+	@Test
+	public void filesThatReferToAChangedTemplateAreCompiledAgain() throws Exception {
+		this.compile(this.getSources(2, 5));
+		ScriptTemplate_Abstract other = this.cache.getEnvironment().getTemplate("Other");
+		assertEquals(files("Counter.riff", "Test.riff"), this.compile(this.getSources(3, 5)));
+		assertSame(other, this.cache.getEnvironment().getTemplate("Other"));
+		assertEquals(30, this.run("Test"));
+	}
+
+	@Test
+	public void removedFilesLoseTheirTemplates() throws Exception {
+		this.compile(this.getSources(2, 5));
+		Map<String, String> sources = this.getSources(2, 5);
+		sources.remove("Other.riff");
+		assertEquals(Collections.emptySet(), this.compile(sources));
+		assertNull(this.cache.getEnvironment().getTemplate("Other"));
+		assertNotNull(this.cache.getEnvironment().getTemplate("Counter"));
+		assertEquals(20, this.run("Test"));
+	}
+
+	@Test
+	public void aFailedCompileStartsOver() throws Exception {
+		Map<String, String> sources = this.getSources(2, 5);
+		this.compile(sources);
+		assertEquals(files("Other.riff"), this.cache.update(this.getSources(2, 6)));
+		this.cache.finish(new Compilation(this.cache.getEnvironment()), false);
+		assertEquals(sources.keySet(), this.compile(sources));
+		assertEquals(20, this.run("Test"));
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package script.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.exceptions.ScriptException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.values.ScriptTemplate_Abstract;
+import script.values.ScriptValue;
+import script.values.ScriptValue_Numeric;
+
+/**
+ * Tests for {@link ProgramCache}.
+ *
+ * @author Aaron Faanes
+ * @see ProgramCache
+ */
+public class ProgramCacheTests {
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		this.directory = File.createTempFile("programcache", null);
+		assertTrue(this.directory.delete());
+		assertTrue(this.directory.mkdir());
+	}
+
+	@After
+	public void deleteDirectory() {
+		for (File file : this.directory.listFiles()) {
+			file.delete();
+		}
+		this.directory.delete();
+	}
+
+	private Map<String, String> getSources(int increment) {
+		Map<String, String> sources = new LinkedHashMap<String, String>();
+		sources.put("Counter.riff", "class Counter {\n"
+				+ "\tprivate int count;\n"
+				+ "\tpublic Counter() {\n\t\tcount = 0;\n\t}\n"
+				+ "\tpublic void add(int amount) {\n\t\tcount += amount;\n\t}\n"
+				+ "\tpublic int get() {\n\t\treturn count;\n\t}\n"
+				+ "}\n");
+		sources.put("Test.riff", "class Test {\n"
+				+ "\tpublic static int main() {\n"
+				+ "\t\tCounter c = new Counter();\n"
+				+ "\t\tfor (int i = 0; i < 10; i++) {\n\t\t\tc.add(" + increment + ");\n\t\t}\n"
+				+ "\t\treturn c.get();\n"
+				+ "\t}\n"
+				+ "}\n");
+		return sources;
+	}
+
+	private void compile(CompilationCache cache, Map<String, String> sources) {
+		Compilation compilation = new Compilation(cache.getEnvironment());
+		Map<String, String> changed = new LinkedHashMap<String, String>();
+		for (String filename : cache.update(sources)) {
+			changed.put(filename, sources.get(filename));
+		}
+		for (List<Exception> exceptions : compilation.preparseFiles(changed).values()) {
+			assertEquals(Collections.emptyList(), exceptions);
+		}
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		cache.finish(compilation, true);
+	}
+
+	private int run(ScriptEnvironment env) throws ScriptException {
+		env.clearStacks();
+		ScriptTemplate_Abstract template = env.getTemplate("Test");
+		template.initialize();
+		ScriptValue value = ScriptExecutable_CallFunction.callFunction(env, null, template, "main", new ArrayList<ScriptValue>());
+		return ((ScriptValue_Numeric) value.getValue()).getNumericValue().intValue();
+	}
+
+	@Test
+	public void aStoredProgramIsRestoredWithoutCompiling() throws Exception {
+		CompilationCache first = new CompilationCache(new ScriptEnvironment(), new ProgramCache(this.directory));
+		this.compile(first, this.getSources(2));
+		assertEquals(20, this.run(first.getEnvironment()));
+
+		CompilationCache second = new CompilationCache(new ScriptEnvironment(), new ProgramCache(this.directory));
+		assertEquals(Collections.emptySet(), second.update(this.getSources(2)));
+		second.finish(new Compilation(second.getEnvironment()), true);
+		assertNotNull(second.getEnvironment().getTemplate("Counter"));
+		assertEquals(20, this.run(second.getEnvironment()));
+	}
+
+	@Test
+	public void aChangedProgramIsCompiledAgain() throws Exception {
+		CompilationCache first = new CompilationCache(new ScriptEnvironment(), new ProgramCache(this.directory));
+		this.compile(first, this.getSources(2));
+
+		CompilationCache second = new CompilationCache(new ScriptEnvironment(), new ProgramCache(this.directory));
+		Map<String, String> sources = this.getSources(3);
+		assertEquals(sources.keySet(), second.update(sources));
+		second.clear();
+		this.compile(second, sources);
+		assertEquals(30, this.run(second.getEnvironment()));
+	}
+
+	@Test
+	public void anEnvironmentIsUntouchedIfTheProgramIsNotRestored() throws Exception {
+		ScriptEnvironment env = new ScriptEnvironment();
+		this.compile(new CompilationCache(env, new ProgramCache(this.directory)), this.getSources(2));
+
+		// The stored program's templates are already defined by this
+		// environment, so it can't be restored into it.
+		int nextIdentifier = env.getNextTypeIdentifier();
+		int types = env.getTypes().size();
+		assertNull(new ProgramCache(this.directory).load(env, this.getSources(2)));
+		assertEquals(nextIdentifier, env.getNextTypeIdentifier());
+		assertEquals(types, env.getTypes().size());
+
+		ScriptEnvironment other = new ScriptEnvironment();
+		nextIdentifier = other.getNextTypeIdentifier();
+		assertNull(new ProgramCache(this.directory).load(other, this.getSources(3)));
+		assertEquals(nextIdentifier, other.getNextTypeIdentifier());
+		assertNull(other.getTemplate("Counter"));
+	}
+
+	@Test
+	public void onlyScriptAndCoreClassesAreAllowed() {
+		assertTrue(ProgramCache.isAllowedClass("script.values.RiffScriptFunction"));
+		assertTrue(ProgramCache.isAllowedClass("java.lang.String"));
+		assertTrue(ProgramCache.isAllowedClass("java.util.LinkedList"));
+		assertTrue(ProgramCache.isAllowedClass("[Lscript.values.ScriptValue;"));
+		assertTrue(ProgramCache.isAllowedClass("[[I"));
+		assertTrue(ProgramCache.isAllowedClass("java.util.concurrent.ConcurrentHashMap"));
+		assertFalse(ProgramCache.isAllowedClass("java.io.File"));
+		assertFalse(ProgramCache.isAllowedClass("java.lang.reflect.Proxy"));
+		assertFalse(ProgramCache.isAllowedClass("java.util.concurrent.ThreadPoolExecutor"));
+		assertFalse(ProgramCache.isAllowedClass("[Ljava.io.File;"));
+		assertFalse(ProgramCache.isAllowedClass("scripts.Exploit"));
+		assertFalse(ProgramCache.isAllowedClass("Default"));
+	}
+}
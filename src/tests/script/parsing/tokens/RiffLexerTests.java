@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package script.parsing.tokens;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.exceptions.UnenclosedBracketException;
+import script.exceptions.UnenclosedStringLiteralException;
+import script.parsing.CharacterGroup;
+import script.parsing.ScriptGroup;
+import script.parsing.ScriptKeyword;
+import script.parsing.ScriptKeywordType;
+import script.parsing.ScriptLine;
+import script.parsing.ScriptOperator;
+import script.parsing.ScriptOperatorType;
+import script.values.ScriptValue_Numeric;
+import script.values.ScriptValue_String;
+
+/**
+ * Tests for {@link RiffLexer}.
+ *
+ * @author Aaron Faanes
+ * @see RiffLexer
+ */
+public class RiffLexerTests {
+
+	private List<Object> lex(String source) throws Exception {
+		return new RiffLexer(new ScriptEnvironment(), "Test.riff", new BufferedReader(new StringReader(source))).readElements();
+	}
+
+	private void assertWord(String expected, Object element) {
+		assertTrue("Not a word: " + element, element instanceof ScriptLine);
+		assertEquals(expected, ((ScriptLine) element).getString());
+	}
+
+	private void assertOperator(ScriptOperatorType expected, Object element) {
+		assertTrue("Not an operator: " + element, element instanceof ScriptOperator);
+		assertEquals(expected, ((ScriptOperator) element).getType());
+	}
+
+	private void assertNumber(Number expected, Object element) {
+		assertTrue("Not a number: " + element, element instanceof ScriptValue_Numeric);
+		assertEquals(expected, ((ScriptValue_Numeric) element).getNumericValue());
+	}
+
+	@Test
+	public void wordsKeywordsAndOperatorsAreSeparated() throws Exception {
+		List<Object> elements = this.lex("int total+=count;");
+		assertEquals(5, elements.size());
+		assertEquals(ScriptKeywordType.INT, ((ScriptKeyword) elements.get(0)).getType());
+		this.assertWord("total", elements.get(1));
+		this.assertOperator(ScriptOperatorType.PLUSEQUALS, elements.get(2));
+		this.assertWord("count", elements.get(3));
+		this.assertOperator(ScriptOperatorType.SEMICOLON, elements.get(4));
+	}
+
+	@Test
+	public void theLongestOperatorIsMatched() throws Exception {
+		List<Object> elements = this.lex("i++ <= j && k");
+		this.assertOperator(ScriptOperatorType.INCREMENT, elements.get(1));
+		this.assertOperator(ScriptOperatorType.LESSEQUALS, elements.get(2));
+		this.assertOperator(ScriptOperatorType.AND, elements.get(4));
+	}
+
+	@Test
+	public void bracketsFormNestedGroups() throws Exception {
+		List<Object> elements = this.lex("f(a, (b)) {\n}");
+		assertEquals(3, elements.size());
+		this.assertWord("f", elements.get(0));
+		ScriptGroup parameters = (ScriptGroup) elements.get(1);
+		assertEquals(CharacterGroup.PARENTHESES, parameters.getType());
+		assertEquals(3, parameters.getElements().size());
+		this.assertWord("a", parameters.getElements().get(0));
+		this.assertOperator(ScriptOperatorType.COMMA, parameters.getElements().get(1));
+		ScriptGroup nested = (ScriptGroup) parameters.getElements().get(2);
+		this.assertWord("b", nested.getElements().get(0));
+		assertEquals(CharacterGroup.CURLY_BRACES, ((ScriptGroup) elements.get(2)).getType());
+	}
+
+	@Test
+	public void commentsAreSkipped() throws Exception {
+		List<Object> elements = this.lex("a // b\n/* c\nd */ e \"// f\"");
+		assertEquals(3, elements.size());
+		this.assertWord("a", elements.get(0));
+		this.assertWord("e", elements.get(1));
+		assertEquals("// f", ((ScriptValue_String) elements.get(2)).getStringValue());
+	}
+
+	@Test
+	public void numbersHaveTheTypeOfTheirLiteral() throws Exception {
+		List<Object> elements = this.lex("12 123456 2.5 .5 3f 4d");
+		this.assertNumber((short) 12, elements.get(0));
+		this.assertNumber(123456, elements.get(1));
+		this.assertNumber(2.5d, elements.get(2));
+		this.assertNumber(0.5d, elements.get(3));
+		this.assertNumber(3f, elements.get(4));
+		this.assertNumber(4d, elements.get(5));
+	}
+
+	@Test
+	public void aMinusSignBeforeANumberIsItsSign() throws Exception {
+		List<Object> elements = this.lex("x = -1;");
+		assertEquals(4, elements.size());
+		this.assertNumber((short) -1, elements.get(2));
+	}
+
+	@Test
+	public void aMinusSignAfterAnOperandIsASubtraction() throws Exception {
+		for (String source : new String[] { "n - 1", "n-1", "2 - 1", "\"a\" - 1", "(a + b) - 1" }) {
+			List<Object> elements = this.lex(source);
+			assertEquals(source, 3, elements.size());
+			this.assertOperator(ScriptOperatorType.MINUS, elements.get(1));
+			this.assertNumber((short) 1, elements.get(2));
+		}
+	}
+
+	@Test
+	public void aMinusSignAfterACastIsASign() throws Exception {
+		List<Object> elements = this.lex("(int) -1");
+		assertEquals(2, elements.size());
+		this.assertNumber((short) -1, elements.get(1));
+	}
+
+	@Test
+	public void tokensReferToTheirLine() throws Exception {
+		List<Object> elements = this.lex("a\n\n  b");
+		assertEquals(1, ((ScriptLine) elements.get(0)).getLineNumber());
+		assertEquals(3, ((ScriptLine) elements.get(1)).getLineNumber());
+		assertEquals(2, ((ScriptLine) elements.get(1)).getOffset());
+	}
+
+	@Test(expected = UnenclosedBracketException.class)
+	public void unclosedBracketsAreRejected() throws Exception {
+		this.lex("f(a {\n}");
+	}
+
+	@Test(expected = UnenclosedBracketException.class)
+	public void mismatchedBracketsAreRejected() throws Exception {
+		this.lex("f(a}");
+	}
+
+	@Test(expected = UnenclosedStringLiteralException.class)
+	public void stringsMustBeClosedOnTheirLine() throws Exception {
+		this.lex("s = \"abc\ndef\"");
+	}
+}
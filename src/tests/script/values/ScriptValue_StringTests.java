@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package script.values;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import script.ScriptEnvironment;
+import script.exceptions.UnexpectedTypeException;
+import script.operations.ScriptExecutable_CallFunction;
+import script.parsing.Compilation;
+
+/**
+ * Tests for the concatenation of {@link ScriptValue_String}s.
+ *
+ * @author Aaron Faanes
+ * @see ScriptValue_String
+ */
+public class ScriptValue_StringTests {
+
+	/**
+	 * Compiles and runs a {@code main} function of the specified return type
+	 * and body.
+	 */
+	private ScriptValue run(String returnType, String body) throws Exception {
+		ScriptEnvironment env = new ScriptEnvironment();
+		Compilation compilation = new Compilation(env);
+		String source = "class Test {\n\tpublic static " + returnType + " main() {\n" + body + "\n\t}\n}\n";
+		assertEquals(Collections.emptyList(), compilation.preparseFile("Test.riff", new BufferedReader(new StringReader(source))));
+		assertEquals(Collections.emptyList(), compilation.parseElements());
+		env.clearStacks();
+		ScriptTemplate_Abstract template = env.getTemplate("Test");
+		template.initialize();
+		return ScriptExecutable_CallFunction.callFunction(env, null, template, "main", new ArrayList<ScriptValue>()).getValue();
+	}
+
+	private String concatenate(String body) throws Exception {
+		return ((ScriptValue_String) this.run("String", body)).getStringValue();
+	}
+
+	@Test
+	public void stringsAreConcatenated() throws Exception {
+		assertEquals("ab", this.concatenate("String s = \"a\";\nreturn s + \"b\";"));
+		assertEquals("abc", this.concatenate("String s = \"a\";\ns += \"b\";\ns += \"c\";\nreturn s;"));
+	}
+
+	@Test
+	public void numbersAreConcatenatedInTheirLiteralForm() throws Exception {
+		assertEquals("a5", this.concatenate("return \"a\" + 5;"));
+		assertEquals("a2.5", this.concatenate("return \"a\" + 2.5;"));
+		assertEquals("n=42", this.concatenate("int n = 42;\nString s = \"n=\";\ns += n;\nreturn s;"));
+	}
+
+	@Test
+	public void booleansAreConcatenatedInTheirLiteralForm() throws Exception {
+		assertEquals("is true", this.concatenate("boolean b = 1 < 2;\nString s = \"is \";\nreturn s + b;"));
+	}
+
+	@Test
+	public void repeatedAppendsKeepEveryPart() throws Exception {
+		String result = this.concatenate("String s = \"\";\nfor (int i = 0; i < 200; i++) {\ns += i;\n}\nreturn s;");
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			expected.append(i);
+		}
+		assertEquals(expected.toString(), result);
+	}
+
+	@Test
+	public void concatenationLeavesItsOperandsUnchanged() throws Exception {
+		assertEquals("a", this.concatenate("String s = \"a\";\nString t = s + \"b\";\nreturn s;"));
+	}
+
+	@Test
+	public void subtractingFromAStringNamesTheOperator() throws Exception {
+		try {
+			this.run("String", "String s = \"a\";\nreturn s - 1;");
+			fail("Subtraction from a string was allowed");
+		} catch (UnexpectedTypeException ex) {
+			assertEquals("string", ex.getProvidedType());
+			assertTrue(ex.getExpectedType(), ex.getExpectedType().contains("'-'"));
+		}
+	}
+
+	@Test
+	public void multiplyingANumberByAStringNamesTheOperator() throws Exception {
+		try {
+			this.run("int", "int n = 1;\nString s = \"a\";\nreturn n * s;");
+			fail("Multiplying a number by a string was allowed");
+		} catch (UnexpectedTypeException ex) {
+			assertEquals("string", ex.getProvidedType());
+			assertTrue(ex.getExpectedType(), ex.getExpectedType().contains("'*'"));
+		}
+	}
+}
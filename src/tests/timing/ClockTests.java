@@ -22,10 +22,18 @@
 package timing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
 import logic.actors.Actors;
+import logic.actors.LongActor;
 import logic.values.MutableValue;
 
 /**
@@ -91,4 +99,116 @@ public class ClockTests {
 		assertEquals(Integer.valueOf(2), value.get());
 	}
 
+	@Test
+	public void fixedStepClocksElapseInWholeSteps() {
+		MutableClock source = new MutableClock();
+		FixedStepClock clock = new FixedStepClock(source, 10, 5);
+		source.elapse(25);
+		assertEquals(20L, clock.getElapsed());
+		assertEquals(0.5d, clock.getAlpha(), 0d);
+		source.elapse(5);
+		assertEquals(30L, clock.getElapsed());
+		assertEquals(0d, clock.getAlpha(), 0d);
+	}
+
+	/**
+	 * A fixed-step clock never runs more than its maximum number of steps for
+	 * a single update, so a long delay is dropped rather than caught up on.
+	 */
+	@Test
+	public void fixedStepClocksDropStepsBeyondTheirMaximum() {
+		MutableClock source = new MutableClock();
+		FixedStepClock clock = new FixedStepClock(source, 10, 5);
+		source.elapse(105);
+		assertEquals(50L, clock.getElapsed());
+		assertEquals(5L, clock.getDropped());
+		assertEquals(0.5d, clock.getAlpha(), 0d);
+	}
+
+	/**
+	 * A reset fixed-step clock starts its next step from nothing, so a
+	 * partial step from before the reset is not counted.
+	 */
+	@Test
+	public void fixedStepClocksForgetPartialStepsWhenReset() {
+		MutableClock source = new MutableClock();
+		FixedStepClock clock = new FixedStepClock(source, 10, 5);
+		source.elapse(7);
+		clock.reset();
+		assertEquals(0d, clock.getAlpha(), 0d);
+		source.elapse(7);
+		assertEquals(0L, clock.getElapsed());
+		source.elapse(3);
+		assertEquals(10L, clock.getElapsed());
+	}
+
+	/**
+	 * A listener may use its fixed-step clock from another thread while it
+	 * runs, since listeners are called without holding the clock's lock.
+	 */
+	@Test(timeout = 10000)
+	public void fixedStepClocksMayBeResetWhileTheirListenersRun() {
+		MutableClock source = new MutableClock();
+		final FixedStepClock clock = new FixedStepClock(source, 10, 5);
+		final AtomicInteger steps = new AtomicInteger();
+		clock.listen(new LongActor() {
+			@Override
+			public void receive(long value) {
+				Thread resetter = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						clock.reset();
+					}
+				});
+				resetter.start();
+				try {
+					resetter.join();
+				} catch (InterruptedException ex) {
+					throw new AssertionError(ex);
+				}
+				steps.incrementAndGet();
+			}
+		});
+		source.elapse(25);
+		assertEquals(2, steps.get());
+	}
+
+	/**
+	 * A run that throws is reported, and the clock keeps running. Only the
+	 * first few runs fail, so every failure is reported before the test
+	 * restores the default handler.
+	 */
+	@Test(timeout = 10000)
+	public void clockThreadsSurviveFailedRuns() throws Exception {
+		final CountDownLatch runs = new CountDownLatch(4);
+		final RuntimeException failure = new IllegalStateException("Failed run");
+		ClockThread thread = new ClockThread(new Runnable() {
+			@Override
+			public void run() {
+				boolean failing = runs.getCount() > 1;
+				runs.countDown();
+				if (failing) {
+					throw failure;
+				}
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+		final AtomicReference<Throwable> reported = new AtomicReference<Throwable>();
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				reported.set(e);
+			}
+		});
+		try {
+			thread.start();
+			assertTrue(runs.await(5, TimeUnit.SECONDS));
+			assertTrue(thread.isRunning());
+			assertSame(failure, reported.get());
+		} finally {
+			thread.stop();
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2011 Aaron Faanes
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package timing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thread that runs a clock periodically, so that the clock and its
+ * listeners run on a thread of their own, rather than on the event dispatch
+ * thread.
+ * <p>
+ * Each run is timed by {@link System#nanoTime()} against a fixed schedule, so
+ * a late run doesn't push back every later one. If the clock falls more than a
+ * period behind, its schedule restarts from the current time, and the clock
+ * is left to account for the time it missed.
+ * <p>
+ * An exception thrown by a run is passed to the thread's uncaught exception
+ * handler, and the clock keeps running. If the thread dies anyway, the clock
+ * is no longer running, and may be started again.
+ * 
+ * @author Aaron Faanes
+ * @see FixedStepClock
+ */
+public class ClockThread {
+
+	private static final AtomicInteger threadNum = new AtomicInteger();
+
+	private final Runnable clock;
+
+	private final long period;
+
+	private volatile Thread thread;
+
+	/**
+	 * @param clock
+	 *            the clock that is run, such as a {@link SystemClock}
+	 * @param period
+	 *            the time between each run, in nanoseconds
+	 */
+	public ClockThread(Runnable clock, long period) {
+		if (clock == null) {
+			throw new NullPointerException("clock must not be null");
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive");
+		}
+		this.clock = clock;
+		this.period = period;
+	}
+
+	public ClockThread(Runnable clock, long period, TimeUnit unit) {
+		this(clock, unit.toNanos(period));
+	}
+
+	public long getPeriod() {
+		return period;
+	}
+
+	public boolean isRunning() {
+		return thread != null;
+	}
+
+	/**
+	 * Start running the clock. This has no effect if the clock is already
+	 * running.
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "Clock " + threadNum.getAndIncrement());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop running the clock. A run that is already in progress is not
+	 * interrupted, but no further run will begin.
+	 */
+	public synchronized void stop() {
+		Thread stopped = thread;
+		if (stopped == null) {
+			return;
+		}
+		thread = null;
+		LockSupport.unpark(stopped);
+	}
+
+	private void loop() {
+		Thread current = Thread.currentThread();
+		try {
+			run(current);
+		} finally {
+			synchronized (this) {
+				if (thread == current) {
+					thread = null;
+				}
+			}
+		}
+	}
+
+	private void run(Thread current) {
+		long next = System.nanoTime();
+		while (true) {
+			if (thread != current) {
+				return;
+			}
+			try {
+				clock.run();
+			} catch (RuntimeException ex) {
+				current.getUncaughtExceptionHandler().uncaughtException(current, ex);
+			}
+			next += period;
+			long now = System.nanoTime();
+			if (now - next > period) {
+				next = now;
+			}
+			long remaining;
+			while ((remaining = next - System.nanoTime()) > 0 && thread == current) {
+				LockSupport.parkNanos(this, remaining);
+			}
+		}
+	}
+}
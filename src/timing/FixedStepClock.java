@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2011 Aaron Faanes
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package timing;
+
+import logic.actors.LongActor;
+
+/**
+ * A clock that passes time in steps of a fixed length, regardless of how
+ * irregularly its source clock updates.
+ * <p>
+ * The ticks of the source clock are accumulated, and for every whole step
+ * that has accumulated, this clock elapses by exactly one step. Listeners of
+ * this clock therefore always see the same step, which keeps a simulation
+ * deterministic. If the source clock falls so far behind that more than the
+ * maximum number of steps are owed, the surplus is dropped rather than caught
+ * up on, so that a slow step can't cause ever more steps to be owed.
+ * <p>
+ * The time that has accumulated but not yet made up a step is available as
+ * {@link #getAlpha()}, which a renderer can use to interpolate between the
+ * last two steps.
+ * 
+ * <pre>
+ * SystemClock source = Timing.nanos();
+ * FixedStepClock clock = new FixedStepClock(source, 10000000, 5);
+ * new ClockThread(source, 10000000).start();
+ * </pre>
+ * 
+ * @author Aaron Faanes
+ * @see ClockThread
+ */
+public class FixedStepClock extends AbstractClock {
+
+	private final long step;
+
+	private final int maxSteps;
+
+	private long accumulated;
+
+	private volatile double alpha;
+
+	private long dropped;
+
+	/**
+	 * @param source
+	 *            the clock whose ticks are accumulated
+	 * @param step
+	 *            the length of each step, in ticks of the source clock
+	 * @param maxSteps
+	 *            the most steps that will be elapsed for a single update of
+	 *            the source clock
+	 */
+	public FixedStepClock(Clock source, long step, int maxSteps) {
+		if (source == null) {
+			throw new NullPointerException("source must not be null");
+		}
+		if (step <= 0) {
+			throw new IllegalArgumentException("step must be positive");
+		}
+		if (maxSteps <= 0) {
+			throw new IllegalArgumentException("maxSteps must be positive");
+		}
+		this.step = step;
+		this.maxSteps = maxSteps;
+		source.listen(new LongActor() {
+			@Override
+			public void receive(long ticks) {
+				accumulate(ticks);
+			}
+		});
+	}
+
+	private void accumulate(long ticks) {
+		int steps;
+		synchronized (this) {
+			accumulated += ticks;
+			steps = (int) Math.min(accumulated / step, maxSteps);
+			accumulated -= steps * step;
+			if (accumulated >= step) {
+				dropped += accumulated / step;
+				accumulated %= step;
+			}
+			alpha = (double) accumulated / step;
+		}
+		// Listeners are called without the lock, so they may use this clock,
+		// and a reset doesn't wait for them.
+		for (int i = 0; i < steps; i++) {
+			elapse(step);
+		}
+	}
+
+	/**
+	 * Discards the time that has accumulated towards the next step, so that
+	 * time which passed while this clock was not in use is not counted
+	 * towards its next step.
+	 */
+	public synchronized void reset() {
+		accumulated = 0;
+		alpha = 0;
+	}
+
+	/**
+	 * @return the length of each step, in ticks of the source clock
+	 */
+	public long getStep() {
+		return step;
+	}
+
+	/**
+	 * @return the fraction of a step that has accumulated since the last
+	 *         step, from {@code 0} inclusive to {@code 1} exclusive
+	 */
+	public double getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * @return the number of steps that were dropped because the source clock
+	 *         fell too far behind
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+}